@@ -43,6 +43,10 @@ public class TimeoutIgnoredSocketFailOverInterceptor extends SocketFailOverInter
         if (t instanceof ErrorDataException) {
             ErrorDataException errorDataException = (ErrorDataException) t;
             int errorCode = errorDataException.getErrorCode();
+            if (ErrorCodes.isRetryable(errorCode)) {
+                // request is rejected before processed, safe to try other server
+                return true;
+            }
             // only not read time out error should do fail over action 
             boolean doFailover = ErrorCodes.ST_READ_TIMEOUT != errorCode;
             if (!doFailover && LOGGER.isInfoEnabled()) {
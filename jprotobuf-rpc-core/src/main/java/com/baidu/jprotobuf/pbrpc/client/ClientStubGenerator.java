@@ -0,0 +1,280 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.client;
+
+import static com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.AASTORE;
+import static com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.ACC_FINAL;
+import static com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.ACC_PRIVATE;
+import static com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.ACC_PUBLIC;
+import static com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.ACONST_NULL;
+import static com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.ALOAD;
+import static com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.ANEWARRAY;
+import static com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.ARETURN;
+import static com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.CHECKCAST;
+import static com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.DLOAD;
+import static com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.DRETURN;
+import static com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.DUP;
+import static com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.FLOAD;
+import static com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.FRETURN;
+import static com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.GETFIELD;
+import static com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.ILOAD;
+import static com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.INVOKESPECIAL;
+import static com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.INVOKESTATIC;
+import static com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.INVOKEVIRTUAL;
+import static com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.IRETURN;
+import static com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.LLOAD;
+import static com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.LRETURN;
+import static com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.POP;
+import static com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.PUTFIELD;
+import static com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.RETURN;
+import static com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.SIPUSH;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter;
+import com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.Code;
+
+/**
+ * Generates concrete client stub class of RPC interface to replace JDK dynamic proxy. Each generated method passes
+ * its index bound at generation time to {@link StubInvocationHandler}, so no annotation lookup, signature build or
+ * method map lookup is needed on each call.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public final class ClientStubGenerator {
+
+    /** The Constant LOG. */
+    private static final Logger LOG = Logger.getLogger(ClientStubGenerator.class.getName());
+
+    /** The Constant CLASS_NAME_PREFIX. */
+    private static final String CLASS_NAME_PREFIX = StubInvocationHandler.class.getName() + "$$Stub$";
+
+    /** The Constant HANDLER_FIELD. */
+    private static final String HANDLER_FIELD = "handler";
+
+    /** max operand stack of generated method, enough for argument array building. */
+    private static final int MAX_STACK = 8;
+
+    /** wrapper class of primitive types. */
+    private static final Map<Class<?>, Class<?>> WRAPPERS = new HashMap<Class<?>, Class<?>>();
+
+    /** The class name sequence. */
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    static {
+        WRAPPERS.put(boolean.class, Boolean.class);
+        WRAPPERS.put(byte.class, Byte.class);
+        WRAPPERS.put(char.class, Character.class);
+        WRAPPERS.put(short.class, Short.class);
+        WRAPPERS.put(int.class, Integer.class);
+        WRAPPERS.put(long.class, Long.class);
+        WRAPPERS.put(float.class, Float.class);
+        WRAPPERS.put(double.class, Double.class);
+    }
+
+    /**
+     * Instantiates a new client stub generator.
+     */
+    private ClientStubGenerator() {
+    }
+
+    /**
+     * Creates the stub instance.
+     *
+     * @param <T> the generic type
+     * @param interfaceClass the interface class
+     * @param methods the methods to implement, index of method in array is passed to handler
+     * @param handler the handler
+     * @return the stub instance, null if stub could not be generated for the interface
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T create(Class<T> interfaceClass, Method[] methods, StubInvocationHandler handler) {
+        if (!interfaceClass.isInterface() || !ClassFileWriter.isPublic(interfaceClass)) {
+            return null;
+        }
+        for (Method method : methods) {
+            Class<?> returnType = method.getReturnType();
+            if (!returnType.isPrimitive() && !ClassFileWriter.isPublic(returnType)) {
+                return null;
+            }
+        }
+        try {
+            String className = CLASS_NAME_PREFIX + SEQUENCE.incrementAndGet();
+            byte[] bytes = generateClass(className, interfaceClass, methods);
+            ClassLoader parent = interfaceClass.getClassLoader();
+            if (parent == null) {
+                parent = StubInvocationHandler.class.getClassLoader();
+            }
+            Class<?> cls = ClassFileWriter.defineClass(className, bytes, parent, StubInvocationHandler.class,
+                    ServiceUrlAccessible.class);
+            return (T) cls.getConstructor(StubInvocationHandler.class).newInstance(handler);
+        } catch (Throwable e) {
+            LOG.log(Level.WARNING, "Generate client stub of '" + interfaceClass.getName() + "' failed.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Generate class file bytes.
+     *
+     * @param className the class name
+     * @param interfaceClass the interface class
+     * @param methods the methods
+     * @return the class file bytes
+     */
+    private static byte[] generateClass(String className, Class<?> interfaceClass, Method[] methods) {
+        ClassFileWriter writer =
+                new ClassFileWriter(className, Object.class, interfaceClass, ServiceUrlAccessible.class);
+        String handlerDesc = ClassFileWriter.descriptor(StubInvocationHandler.class);
+        writer.addField(ACC_PRIVATE | ACC_FINAL, HANDLER_FIELD, handlerDesc);
+        int handlerField = writer.fieldRef(HANDLER_FIELD, handlerDesc);
+
+        // constructor
+        Code init = new Code();
+        init.local(ALOAD, 0);
+        init.ref(INVOKESPECIAL, writer.methodRef(Object.class, "<init>", "()V"));
+        init.local(ALOAD, 0);
+        init.local(ALOAD, 1);
+        init.ref(PUTFIELD, handlerField);
+        init.op(RETURN);
+        writer.addMethod(ACC_PUBLIC, "<init>", ClassFileWriter.methodDescriptor(void.class,
+                StubInvocationHandler.class), 2, 2, init);
+
+        Set<String> generated = new HashSet<String>();
+
+        // getServiceUrl, toString and hashCode return by service url as JDK proxy does
+        int getServiceUrl = writer.methodRef(StubInvocationHandler.class, "getServiceUrl", "()Ljava/lang/String;");
+        Code serviceUrl = new Code();
+        serviceUrl.local(ALOAD, 0);
+        serviceUrl.ref(GETFIELD, handlerField);
+        serviceUrl.invokeInterface(getServiceUrl, 1);
+        serviceUrl.op(ARETURN);
+        writer.addMethod(ACC_PUBLIC, "getServiceUrl", "()Ljava/lang/String;", 1, 1, serviceUrl);
+        writer.addMethod(ACC_PUBLIC, "toString", "()Ljava/lang/String;", 1, 1, serviceUrl);
+        generated.add("getServiceUrl()Ljava/lang/String;");
+        generated.add("toString()Ljava/lang/String;");
+
+        Code hashCode = new Code();
+        hashCode.local(ALOAD, 0);
+        hashCode.ref(GETFIELD, handlerField);
+        hashCode.invokeInterface(getServiceUrl, 1);
+        hashCode.ref(INVOKEVIRTUAL, writer.methodRef(String.class, "hashCode", "()I"));
+        hashCode.op(IRETURN);
+        writer.addMethod(ACC_PUBLIC, "hashCode", "()I", 1, 1, hashCode);
+        generated.add("hashCode()I");
+
+        int invoke = writer.methodRef(StubInvocationHandler.class, "invoke",
+                ClassFileWriter.methodDescriptor(Object.class, Object.class, int.class, Object[].class));
+        int objectClass = writer.classRef(Object.class);
+        for (int i = 0; i < methods.length; i++) {
+            Method method = methods[i];
+            String desc = ClassFileWriter.methodDescriptor(method);
+            if (!generated.add(method.getName() + desc)) {
+                // same method inherited from multiple interfaces
+                continue;
+            }
+
+            Class<?>[] parameterTypes = method.getParameterTypes();
+            Code code = new Code();
+            code.local(ALOAD, 0);
+            code.ref(GETFIELD, handlerField);
+            code.local(ALOAD, 0);
+            code.ref(SIPUSH, i);
+            int slot = 1;
+            if (parameterTypes.length == 0) {
+                code.op(ACONST_NULL);
+            } else {
+                code.ref(SIPUSH, parameterTypes.length);
+                code.ref(ANEWARRAY, objectClass);
+                for (int j = 0; j < parameterTypes.length; j++) {
+                    Class<?> type = parameterTypes[j];
+                    code.op(DUP);
+                    code.ref(SIPUSH, j);
+                    code.local(loadOpcode(type), slot);
+                    slot += (type == long.class || type == double.class) ? 2 : 1;
+                    if (type.isPrimitive()) {
+                        Class<?> wrapper = WRAPPERS.get(type);
+                        code.ref(INVOKESTATIC, writer.methodRef(wrapper, "valueOf",
+                                ClassFileWriter.methodDescriptor(wrapper, type)));
+                    }
+                    code.op(AASTORE);
+                }
+            }
+            code.invokeInterface(invoke, 4);
+
+            Class<?> returnType = method.getReturnType();
+            if (returnType == void.class) {
+                code.op(POP);
+                code.op(RETURN);
+            } else if (returnType.isPrimitive()) {
+                Class<?> wrapper = WRAPPERS.get(returnType);
+                code.ref(CHECKCAST, writer.classRef(wrapper));
+                code.ref(INVOKEVIRTUAL, writer.methodRef(wrapper, returnType.getName() + "Value",
+                        ClassFileWriter.methodDescriptor(returnType)));
+                code.op(returnOpcode(returnType));
+            } else {
+                code.ref(CHECKCAST, writer.classRef(returnType));
+                code.op(ARETURN);
+            }
+            writer.addMethod(ACC_PUBLIC, method.getName(), desc, MAX_STACK, slot, code);
+        }
+        return writer.toByteArray();
+    }
+
+    /**
+     * Gets the load opcode of parameter type.
+     *
+     * @param type the type
+     * @return the load opcode
+     */
+    private static int loadOpcode(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return ALOAD;
+        } else if (type == long.class) {
+            return LLOAD;
+        } else if (type == float.class) {
+            return FLOAD;
+        } else if (type == double.class) {
+            return DLOAD;
+        }
+        return ILOAD;
+    }
+
+    /**
+     * Gets the return opcode of primitive return type.
+     *
+     * @param type the type
+     * @return the return opcode
+     */
+    private static int returnOpcode(Class<?> type) {
+        if (type == long.class) {
+            return LRETURN;
+        } else if (type == float.class) {
+            return FRETURN;
+        } else if (type == double.class) {
+            return DRETURN;
+        }
+        return IRETURN;
+    }
+}
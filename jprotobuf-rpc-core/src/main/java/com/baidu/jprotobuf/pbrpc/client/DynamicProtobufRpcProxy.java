@@ -22,10 +22,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -244,6 +241,10 @@ public class DynamicProtobufRpcProxy {
                     methodInfo = new GeneratedMessageRpcMethodInfo(method, protobufPRC);
                 }
                 methodInfo.setOnceTalkTimeout(protobufPRC.onceTalkTimeout());
+                int compressType = rpcClient.getRpcClientOptions().getCompressType();
+                if (compressType >= 0) {
+                    methodInfo.setCompressType(compressType);
+                }
                 methodInfo.setServiceName(protobufPRC.serviceName());
                 methodInfo.setMethodName(protobufPRC.methodName());
                 rpcMethodInfo = methodInfo;
@@ -307,6 +308,15 @@ public class DynamicProtobufRpcProxy {
 
         final Connection connection = rpcChannel.getConnection();
 
+        if (Future.class.isAssignableFrom(method.getReturnType())) {
+            // if use non-blocking call, complete future by response thread
+            RpcFuture<Object> future = new RpcFuture<Object>(rpcClient, rpcDataPackage.getRpcMeta().getCorrelationId());
+            FutureRpcCallback futureCallback =
+                    new FutureRpcCallback(future, rpcMethodInfo, args, rpcChannel, connection);
+            rpcChannel.doTransport(connection, rpcDataPackage, futureCallback, onceTalkTimeout);
+            return future;
+        }
+
         final BlockingRpcCallback callback = new BlockingRpcCallback(new BlockingRpcCallback.CallbackDone() {
 
             @Override
@@ -319,48 +329,6 @@ public class DynamicProtobufRpcProxy {
 
         rpcChannel.doTransport(connection, rpcDataPackage, callback, onceTalkTimeout);
 
-        final String m = rpcMethodInfo.getMethodName();
-        if (method.getReturnType().isAssignableFrom(Future.class)) {
-            // if use non-blocking call
-            Future<Object> f = new Future<Object>() {
-
-                @Override
-                public boolean cancel(boolean mayInterruptIfRunning) {
-                    // can not cancel
-                    return false;
-                }
-
-                @Override
-                public boolean isCancelled() {
-                    return false;
-                }
-
-                @Override
-                public boolean isDone() {
-                    return callback.isDone();
-                }
-
-                @Override
-                public Object get() throws InterruptedException, ExecutionException {
-                    try {
-                        Object o = doWaitCallback(method, args, rpcMethodInfo.getServiceName(), m, rpcMethodInfo,
-                                callback);
-                        return o;
-                    } catch (Exception e) {
-                        throw new ExecutionException(e.getMessage(), e);
-                    }
-                }
-
-                @Override
-                public Object get(long timeout, TimeUnit unit)
-                        throws InterruptedException, ExecutionException, TimeoutException {
-                    return get();
-                }
-            };
-
-            return f;
-        }
-
         Object o = doWaitCallback(method, args, rpcMethodInfo.getServiceName(), rpcMethodInfo.getMethodName(),
                 rpcMethodInfo, callback);
         return o;
@@ -394,17 +362,7 @@ public class DynamicProtobufRpcProxy {
      */
     private Object doWaitCallback(Method method, Object[] args, String serviceName, String methodName,
             RpcMethodInfo rpcMethodInfo, BlockingRpcCallback callback) throws ErrorDataException, IOException {
-        if (!callback.isDone()) {
-            synchronized (callback) {
-                while (!callback.isDone()) {
-                    try {
-                        callback.wait();
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                    }
-                }
-            }
-        }
+        callback.await();
 
         RpcDataPackage message = callback.getMessage();
 
@@ -413,6 +371,8 @@ public class DynamicProtobufRpcProxy {
             Integer errorCode = response.getErrorCode();
             if (!ErrorCodes.isSuccess(errorCode)) {
                 String error = message.getRpcMeta().getResponse().getErrorText();
+                // data is not read so pooled buffer of lazy package must be released here
+                message.release();
                 throw new ErrorDataException("A error occurred: errorCode=" + errorCode + " errorMessage:" + error,
                         errorCode);
             }
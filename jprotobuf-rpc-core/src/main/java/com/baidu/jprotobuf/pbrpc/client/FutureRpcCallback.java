@@ -0,0 +1,119 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.client;
+
+import com.baidu.jprotobuf.pbrpc.ClientAttachmentHandler;
+import com.baidu.jprotobuf.pbrpc.ErrorDataException;
+import com.baidu.jprotobuf.pbrpc.data.RpcDataPackage;
+import com.baidu.jprotobuf.pbrpc.data.RpcResponseMeta;
+import com.baidu.jprotobuf.pbrpc.transport.Connection;
+import com.baidu.jprotobuf.pbrpc.transport.RpcChannel;
+import com.baidu.jprotobuf.pbrpc.transport.handler.ErrorCodes;
+import com.google.protobuf.RpcCallback;
+
+/**
+ * RPC call back to complete a {@link RpcFuture} in the response or timeout thread. No caller thread is blocked to
+ * wait the RPC response.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class FutureRpcCallback implements RpcCallback<RpcDataPackage> {
+
+    /** The future. */
+    private final RpcFuture<Object> future;
+
+    /** The rpc method info. */
+    private final RpcMethodInfo rpcMethodInfo;
+
+    /** The args. */
+    private final Object[] args;
+
+    /** The rpc channel. */
+    private final RpcChannel rpcChannel;
+
+    /** The connection. */
+    private final Connection connection;
+
+    /**
+     * Instantiates a new future rpc callback.
+     *
+     * @param future the future
+     * @param rpcMethodInfo the rpc method info
+     * @param args the args
+     * @param rpcChannel the rpc channel
+     * @param connection the connection
+     */
+    public FutureRpcCallback(RpcFuture<Object> future, RpcMethodInfo rpcMethodInfo, Object[] args,
+            RpcChannel rpcChannel, Connection connection) {
+        this.future = future;
+        this.rpcMethodInfo = rpcMethodInfo;
+        this.args = args;
+        this.rpcChannel = rpcChannel;
+        this.connection = connection;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.google.protobuf.RpcCallback#run(java.lang.Object)
+     */
+    @Override
+    public void run(RpcDataPackage message) {
+        if (rpcChannel != null) {
+            rpcChannel.releaseConnection(connection);
+        }
+        if (future.isDone()) {
+            // cancelled, response is not read so pooled buffer of lazy package must be released here
+            message.release();
+            return;
+        }
+
+        try {
+            RpcResponseMeta response = message.getRpcMeta().getResponse();
+            if (response != null) {
+                Integer errorCode = response.getErrorCode();
+                if (!ErrorCodes.isSuccess(errorCode)) {
+                    String error = response.getErrorText();
+                    // data is not read so pooled buffer of lazy package must be released here
+                    message.release();
+                    future.failure(new ErrorDataException(
+                            "A error occurred: errorCode=" + errorCode + " errorMessage:" + error, errorCode));
+                    return;
+                }
+            }
+
+            byte[] attachment = message.getAttachment();
+            if (attachment != null) {
+                ClientAttachmentHandler attachmentHandler = rpcMethodInfo.getClientAttachmentHandler();
+                if (attachmentHandler != null) {
+                    attachmentHandler.handleResponse(attachment, rpcMethodInfo.getServiceName(),
+                            rpcMethodInfo.getMethodName(), args);
+                }
+            }
+
+            byte[] data = message.getData();
+            if (data == null) {
+                future.success(null);
+                return;
+            }
+            future.success(rpcMethodInfo.outputDecode(data));
+        } catch (Throwable e) {
+            future.failure(e);
+        }
+    }
+
+}
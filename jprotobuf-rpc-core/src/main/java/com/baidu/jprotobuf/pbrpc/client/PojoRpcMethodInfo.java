@@ -57,7 +57,7 @@ public class PojoRpcMethodInfo extends RpcMethodInfo {
         Class<? extends Object> outputClass = getOutputClass();
         if (outputClass != null) {
         	// future type return
-        	if (outputClass.isAssignableFrom(Future.class)) {
+        	if (Future.class.isAssignableFrom(outputClass)) {
         		
         		Type genericReturnType = method.getGenericReturnType();
         		if (genericReturnType instanceof ParameterizedType) {
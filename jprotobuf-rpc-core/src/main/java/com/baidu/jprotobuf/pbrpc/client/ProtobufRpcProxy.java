@@ -19,16 +19,14 @@ package com.baidu.jprotobuf.pbrpc.client;
 import java.io.IOException;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
 import java.net.InetSocketAddress;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -55,7 +53,7 @@ import com.baidu.jprotobuf.pbrpc.utils.StringUtils;
  * @see ProxyFactory
  * @since 1.0
  */
-public class ProtobufRpcProxy<T> implements InvocationHandler {
+public class ProtobufRpcProxy<T> implements InvocationHandler, StubInvocationHandler {
 
     /** Logger for this class. */
     private static final Logger LOGGER = Logger.getLogger(ProtobufRpcProxy.class.getName());
@@ -105,6 +103,9 @@ public class ProtobufRpcProxy<T> implements InvocationHandler {
     /** The interceptor. */
     private InvokerInterceptor interceptor;
 
+    /** The method bindings of generated stub, indexed by method index passed to stub generator. */
+    private MethodBinding[] methodBindings;
+
     /**
      * Sets the interceptor.
      *
@@ -260,6 +261,10 @@ public class ProtobufRpcProxy<T> implements InvocationHandler {
                     methodInfo = new GeneratedMessageRpcMethodInfo(method, protobufPRC);
                 }
                 methodInfo.setOnceTalkTimeout(protobufPRC.onceTalkTimeout());
+                int compressType = rpcClient.getRpcClientOptions().getCompressType();
+                if (compressType >= 0) {
+                    methodInfo.setCompressType(compressType);
+                }
                 methodInfo.setServiceName(serviceName);
                 methodInfo.setMethodName(methodName);
 
@@ -286,6 +291,9 @@ public class ProtobufRpcProxy<T> implements InvocationHandler {
 
                 if (!rpcChannelMap.containsKey(channelKey)) {
                     RpcChannel rpcChannel = new RpcChannel(rpcClient, eHost, ePort);
+                    if (rpcClient.getRpcClientOptions().isPrewarmConnections()) {
+                        rpcChannel.prewarm();
+                    }
                     if (lookupStubOnStartup) {
                         rpcChannel.testChannlConnect();
                     }
@@ -303,11 +311,88 @@ public class ProtobufRpcProxy<T> implements InvocationHandler {
                     "This no protobufRpc method in interface class:" + interfaceClass.getName());
         }
 
+        if (rpcClient.getRpcClientOptions().isGeneratedStub()) {
+            instance = createStub();
+            if (instance != null) {
+                return instance;
+            }
+        }
+
         Class[] clazz = { interfaceClass, ServiceUrlAccessible.class };
         instance = ProxyFactory.createProxy(clazz, interfaceClass.getClassLoader(), this);
         return instance;
     }
 
+    /**
+     * Creates the generated stub, each method is bound to its {@link RpcMethodInfo} and {@link RpcChannel}.
+     *
+     * @return the stub, null if stub could not be generated
+     */
+    private T createStub() {
+        Method[] methods = interfaceClass.getMethods();
+        MethodBinding[] bindings = new MethodBinding[methods.length];
+        boolean shareChannel = rpcClient.getRpcClientOptions().isShareThreadPoolUnderEachProxy();
+        for (int i = 0; i < methods.length; i++) {
+            Method method = methods[i];
+            MethodBinding binding = new MethodBinding(method);
+            ProtobufRPC protobufPRC = getProtobufRPCAnnotation(method);
+            if (protobufPRC != null) {
+                String methodName = protobufPRC.methodName();
+                if (StringUtils.isEmpty(methodName)) {
+                    methodName = method.getName();
+                }
+                String methodSignature = ServiceSignatureUtils.makeSignature(protobufPRC.serviceName(), methodName);
+                binding.rpcMethodInfo = cachedRpcMethods.get(methodSignature);
+                binding.channelKey = shareChannel ? SHARE_KEY : methodSignature;
+                binding.rpcChannel = rpcChannelMap.get(binding.channelKey);
+            }
+            bindings[i] = binding;
+        }
+        methodBindings = bindings;
+        return ClientStubGenerator.create(interfaceClass, methods, this);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.client.StubInvocationHandler#getServiceUrl()
+     */
+    @Override
+    public String getServiceUrl() {
+        return serviceUrl;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.client.StubInvocationHandler#invoke(java.lang.Object, int, java.lang.Object[])
+     */
+    @Override
+    public Object invoke(Object stub, int methodIndex, Object[] args) throws Throwable {
+        long time = System.currentTimeMillis();
+        MethodBinding binding = methodBindings[methodIndex];
+        if (binding.rpcMethodInfo == null) {
+            throw new IllegalAccessError("Target method is not marked annotation @ProtobufPRC. method name :"
+                    + binding.method.getDeclaringClass().getName() + "." + binding.method.getName());
+        }
+        try {
+            return doInvoke(stub, binding.method, args, binding.rpcMethodInfo, binding.rpcChannel, binding.channelKey,
+                    time);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            // keep the same behavior of JDK dynamic proxy
+            for (Class<?> exceptionType : binding.exceptionTypes) {
+                if (exceptionType.isInstance(e)) {
+                    throw e;
+                }
+            }
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+
     /**
      * Builds the request data package.
      *
@@ -392,7 +477,7 @@ public class ProtobufRpcProxy<T> implements InvocationHandler {
             return result;
         }
 
-        final long time = System.currentTimeMillis();
+        long time = System.currentTimeMillis();
 
         ProtobufRPC protobufPRC = getProtobufRPCAnnotation(method);
         if (protobufPRC == null) {
@@ -400,18 +485,44 @@ public class ProtobufRpcProxy<T> implements InvocationHandler {
                     + method.getDeclaringClass().getName() + "." + method.getName());
         }
 
-        final String serviceName = protobufPRC.serviceName();
+        String serviceName = protobufPRC.serviceName();
         String methodName = protobufPRC.methodName();
         if (StringUtils.isEmpty(methodName)) {
             methodName = mName;
         }
         String methodSignature = ServiceSignatureUtils.makeSignature(serviceName, methodName);
-        final RpcMethodInfo rpcMethodInfo = cachedRpcMethods.get(methodSignature);
+        RpcMethodInfo rpcMethodInfo = cachedRpcMethods.get(methodSignature);
         if (rpcMethodInfo == null) {
             throw new IllegalAccessError(
                     "Can not invoke method '" + method.getName() + "' due to not a protbufRpc method.");
         }
 
+        String channelKey = methodSignature;
+        if (rpcClient.getRpcClientOptions().isShareThreadPoolUnderEachProxy()) {
+            channelKey = SHARE_KEY;
+        }
+
+        return doInvoke(proxy, method, args, rpcMethodInfo, rpcChannelMap.get(channelKey), channelKey, time);
+    }
+
+    /**
+     * Do invoke RPC method.
+     *
+     * @param proxy the proxy
+     * @param method the method
+     * @param args the args
+     * @param rpcMethodInfo the rpc method info
+     * @param rpcChannel the rpc channel, null if not bound
+     * @param channelKey the channel key
+     * @param time the start time
+     * @return the result
+     * @throws Throwable the throwable
+     */
+    private Object doInvoke(Object proxy, Method method, Object[] args, final RpcMethodInfo rpcMethodInfo,
+            final RpcChannel rpcChannel, String channelKey, long time) throws Throwable {
+        String serviceName = rpcMethodInfo.getServiceName();
+        String methodName = rpcMethodInfo.getMethodName();
+
         long onceTalkTimeout = rpcMethodInfo.getOnceTalkTimeout();
         if (onceTalkTimeout <= 0) {
             // use default once talk timeout
@@ -422,11 +533,6 @@ public class ProtobufRpcProxy<T> implements InvocationHandler {
         // set correlationId
         rpcDataPackage.getRpcMeta().setCorrelationId(rpcClient.getNextCorrelationId());
 
-        String channelKey = methodSignature;
-        if (rpcClient.getRpcClientOptions().isShareThreadPoolUnderEachProxy()) {
-            channelKey = SHARE_KEY;
-        }
-
         try {
             // check intercepter
             if (interceptor != null) {
@@ -445,13 +551,22 @@ public class ProtobufRpcProxy<T> implements InvocationHandler {
                 rpcDataPackage.extraParams(methodInvocationInfo.getExtraParams());
             }
 
-            final RpcChannel rpcChannel = rpcChannelMap.get(channelKey);
             if (rpcChannel == null) {
                 throw new RuntimeException("No rpcChannel bind with serviceSignature '" + channelKey + "'");
             }
 
             final Connection connection = rpcChannel.getConnection();
 
+            if (Future.class.isAssignableFrom(method.getReturnType())) {
+                // if use non-blocking call, complete future by response thread
+                RpcFuture<Object> future = new RpcFuture<Object>(rpcClient,
+                        rpcDataPackage.getRpcMeta().getCorrelationId());
+                FutureRpcCallback futureCallback =
+                        new FutureRpcCallback(future, rpcMethodInfo, args, rpcChannel, connection);
+                rpcChannel.doTransport(connection, rpcDataPackage, futureCallback, onceTalkTimeout);
+                return future;
+            }
+
             final BlockingRpcCallback callback = new BlockingRpcCallback(new BlockingRpcCallback.CallbackDone() {
 
                 @Override
@@ -464,49 +579,6 @@ public class ProtobufRpcProxy<T> implements InvocationHandler {
 
             rpcChannel.doTransport(connection, rpcDataPackage, callback, onceTalkTimeout);
 
-            final String m = methodName;
-            if (method.getReturnType().isAssignableFrom(Future.class)) {
-                // if use non-blocking call
-                Future<Object> f = new Future<Object>() {
-
-                    @Override
-                    public boolean cancel(boolean mayInterruptIfRunning) {
-                        // can not cancel
-                        return false;
-                    }
-
-                    @Override
-                    public boolean isCancelled() {
-                        return false;
-                    }
-
-                    @Override
-                    public boolean isDone() {
-                        return callback.isDone();
-                    }
-
-                    @Override
-                    public Object get() throws InterruptedException, ExecutionException {
-                        try {
-                            Object o = doWaitCallback(method, args, serviceName, m, rpcMethodInfo, callback);
-                            PERFORMANCE_LOGGER.fine("RPC client invoke method '" + method.getName() + "' time took:"
-                                    + (System.currentTimeMillis() - time) + " ms");
-                            return o;
-                        } catch (Exception e) {
-                            throw new ExecutionException(e.getMessage(), e);
-                        }
-                    }
-
-                    @Override
-                    public Object get(long timeout, TimeUnit unit)
-                            throws InterruptedException, ExecutionException, TimeoutException {
-                        return get();
-                    }
-                };
-
-                return f;
-            }
-
             Object o = doWaitCallback(method, args, serviceName, methodName, rpcMethodInfo, callback);
 
             PERFORMANCE_LOGGER.fine("RPC client invoke method '" + method.getName() + "' time took:"
@@ -534,17 +606,7 @@ public class ProtobufRpcProxy<T> implements InvocationHandler {
      */
     private Object doWaitCallback(Method method, Object[] args, String serviceName, String methodName,
             RpcMethodInfo rpcMethodInfo, BlockingRpcCallback callback) throws ErrorDataException, IOException {
-        if (!callback.isDone()) {
-            synchronized (callback) {
-                while (!callback.isDone()) {
-                    try {
-                        callback.wait();
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                    }
-                }
-            }
-        }
+        callback.await();
 
         RpcDataPackage message = callback.getMessage();
 
@@ -553,6 +615,8 @@ public class ProtobufRpcProxy<T> implements InvocationHandler {
             Integer errorCode = response.getErrorCode();
             if (!ErrorCodes.isSuccess(errorCode)) {
                 String error = message.getRpcMeta().getResponse().getErrorText();
+                // data is not read so pooled buffer of lazy package must be released here
+                message.release();
                 throw new ErrorDataException("A error occurred: errorCode=" + errorCode + " errorMessage:" + error,
                         errorCode);
             }
@@ -576,4 +640,35 @@ public class ProtobufRpcProxy<T> implements InvocationHandler {
         return o;
     }
 
+    /**
+     * Method bound to RPC method info and channel of generated stub.
+     */
+    private static class MethodBinding {
+
+        /** The method. */
+        private final Method method;
+
+        /** The declared exception types. */
+        private final Class<?>[] exceptionTypes;
+
+        /** The rpc method info, null if method is not RPC method. */
+        private RpcMethodInfo rpcMethodInfo;
+
+        /** The rpc channel. */
+        private RpcChannel rpcChannel;
+
+        /** The channel key. */
+        private String channelKey;
+
+        /**
+         * Instantiates a new method binding.
+         *
+         * @param method the method
+         */
+        MethodBinding(Method method) {
+            this.method = method;
+            this.exceptionTypes = method.getExceptionTypes();
+        }
+    }
+
 }
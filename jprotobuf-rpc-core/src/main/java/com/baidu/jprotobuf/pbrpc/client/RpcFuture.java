@@ -0,0 +1,249 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.baidu.jprotobuf.pbrpc.transport.RpcClient;
+import com.baidu.jprotobuf.pbrpc.transport.RpcClientCallState;
+import com.baidu.jprotobuf.pbrpc.transport.handler.ErrorCodes;
+
+/**
+ * Non-blocking {@link Future} of RPC call. Result is completed by the response handler or timeout timer, and
+ * continuations could be attached by {@link #addListener(RpcFutureListener)} without blocking any caller thread.
+ *
+ * @author xiemalin
+ * @param <T> the result type
+ * @since 3.5.5
+ */
+public class RpcFuture<T> implements Future<T> {
+
+    /** The Constant LOGGER. */
+    private static final Logger LOGGER = Logger.getLogger(RpcFuture.class.getName());
+
+    /** The Constant CANCELLED_MESSAGE. */
+    private static final String CANCELLED_MESSAGE = "RPC call is cancelled.";
+
+    /** The rpc client. */
+    private final RpcClient rpcClient;
+
+    /** The correlation id. */
+    private final long correlationId;
+
+    /** The latch. */
+    private final CountDownLatch latch = new CountDownLatch(1);
+
+    /** The listeners. */
+    private List<RpcFutureListener<T>> listeners = new ArrayList<RpcFutureListener<T>>(1);
+
+    /** The done. */
+    private volatile boolean done = false;
+
+    /** The cancelled. */
+    private volatile boolean cancelled = false;
+
+    /** The result. */
+    private T result;
+
+    /** The cause. */
+    private Throwable cause;
+
+    /**
+     * Instantiates a new rpc future.
+     *
+     * @param rpcClient the rpc client
+     * @param correlationId the correlation id
+     */
+    public RpcFuture(RpcClient rpcClient, long correlationId) {
+        this.rpcClient = rpcClient;
+        this.correlationId = correlationId;
+    }
+
+    /**
+     * Adds the listener. If call is already completed, listener is notified in current thread.
+     *
+     * @param listener the listener
+     * @return this future
+     */
+    public RpcFuture<T> addListener(RpcFutureListener<T> listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("param 'listener' is null.");
+        }
+        synchronized (this) {
+            if (!done) {
+                listeners.add(listener);
+                return this;
+            }
+        }
+        notifyListener(listener);
+        return this;
+    }
+
+    /**
+     * Complete with success result.
+     *
+     * @param result the result
+     * @return true, if successful
+     */
+    public boolean success(T result) {
+        return complete(result, null, false);
+    }
+
+    /**
+     * Complete with failure.
+     *
+     * @param cause the cause
+     * @return true, if successful
+     */
+    public boolean failure(Throwable cause) {
+        return complete(null, cause, false);
+    }
+
+    /**
+     * Complete.
+     *
+     * @param result the result
+     * @param cause the cause
+     * @param cancel the cancel
+     * @return true, if successful
+     */
+    private boolean complete(T result, Throwable cause, boolean cancel) {
+        List<RpcFutureListener<T>> toNotify;
+        synchronized (this) {
+            if (done) {
+                return false;
+            }
+            this.result = result;
+            this.cause = cause;
+            this.cancelled = cancel;
+            this.done = true;
+            toNotify = listeners;
+            listeners = null;
+        }
+        latch.countDown();
+        for (RpcFutureListener<T> listener : toNotify) {
+            notifyListener(listener);
+        }
+        return true;
+    }
+
+    /**
+     * Notify listener.
+     *
+     * @param listener the listener
+     */
+    private void notifyListener(RpcFutureListener<T> listener) {
+        try {
+            if (cause == null) {
+                listener.onSuccess(result);
+            } else {
+                listener.onFailure(cause);
+            }
+        } catch (Throwable e) {
+            LOGGER.log(Level.WARNING, "notify rpc future listener failed: " + e.getMessage(), e);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.util.concurrent.Future#cancel(boolean)
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (!complete(null, new CancellationException(CANCELLED_MESSAGE), true)) {
+            return false;
+        }
+        // remove pending request to cancel timer and release connection
+        if (rpcClient != null) {
+            RpcClientCallState state = rpcClient.removePendingRequest(correlationId);
+            if (state != null) {
+                state.handleFailure(ErrorCodes.ST_ERROR, CANCELLED_MESSAGE);
+            }
+        }
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.util.concurrent.Future#isCancelled()
+     */
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.util.concurrent.Future#isDone()
+     */
+    @Override
+    public boolean isDone() {
+        return done;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.util.concurrent.Future#get()
+     */
+    @Override
+    public T get() throws InterruptedException, ExecutionException {
+        latch.await();
+        return getResult();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.util.concurrent.Future#get(long, java.util.concurrent.TimeUnit)
+     */
+    @Override
+    public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!latch.await(timeout, unit)) {
+            throw new TimeoutException("Wait RPC result timeout in " + timeout + "(" + unit + ")");
+        }
+        return getResult();
+    }
+
+    /**
+     * Gets the result.
+     *
+     * @return the result
+     * @throws ExecutionException the execution exception
+     */
+    private T getResult() throws ExecutionException {
+        if (cancelled) {
+            throw (CancellationException) cause;
+        }
+        if (cause != null) {
+            throw new ExecutionException(cause.getMessage(), cause);
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.client;
+
+/**
+ * Listener to receive the result of an asynchronous RPC call.
+ * 
+ * <p>
+ * Listener is notified by the thread which completes the call, usually the netty I/O thread or the timeout timer
+ * thread, so it should not do any blocking operation.
+ * </p>
+ *
+ * @author xiemalin
+ * @param <T> the result type
+ * @see RpcFuture
+ * @since 3.5.5
+ */
+public interface RpcFutureListener<T> {
+
+    /**
+     * Invoked on RPC call success.
+     *
+     * @param result the result
+     */
+    void onSuccess(T result);
+
+    /**
+     * Invoked on RPC call failed, timeout or cancelled.
+     *
+     * @param t the cause
+     */
+    void onFailure(Throwable t);
+}
@@ -27,6 +27,7 @@ import com.baidu.jprotobuf.pbrpc.DummyClientAttachmentHandler;
 import com.baidu.jprotobuf.pbrpc.DummyLogIDGenerator;
 import com.baidu.jprotobuf.pbrpc.LogIDGenerator;
 import com.baidu.jprotobuf.pbrpc.ProtobufRPC;
+import com.baidu.jprotobuf.pbrpc.data.RpcMetaTemplate;
 import com.baidu.jprotobuf.pbrpc.utils.ReflectionUtils;
 import com.google.protobuf.GeneratedMessage;
 
@@ -55,6 +56,9 @@ public abstract class RpcMethodInfo {
     /** The once talk timeout. */
     private long onceTalkTimeout;
 
+    /** The compress type. */
+    private int compressType;
+
     /** The input class. */
     private Class<? extends Object> inputClass;
     
@@ -69,6 +73,9 @@ public abstract class RpcMethodInfo {
     /** The authentication data handler. */
     private AuthenticationDataHandler authenticationDataHandler;
 
+    /** The pre-encoded request meta template. */
+    private volatile RpcMetaTemplate metaTemplate;
+
     /**
      * Input encode.
      *
@@ -128,6 +135,7 @@ public abstract class RpcMethodInfo {
     public RpcMethodInfo(Method method, ProtobufRPC protobufPRC) {
         this.method = method;
         this.protobufPRC = protobufPRC;
+        this.compressType = protobufPRC.compressType().value();
 
         Class<?>[] types = method.getParameterTypes();
         if (types.length > 1) {
@@ -228,6 +236,7 @@ public abstract class RpcMethodInfo {
      */
     public void setServiceName(String serviceName) {
         this.serviceName = serviceName;
+        this.metaTemplate = null;
     }
 
     /**
@@ -246,6 +255,7 @@ public abstract class RpcMethodInfo {
      */
     public void setMethodName(String methodName) {
         this.methodName = methodName;
+        this.metaTemplate = null;
     }
 
     /**
@@ -266,6 +276,24 @@ public abstract class RpcMethodInfo {
         this.onceTalkTimeout = onceTalkTimeout;
     }
 
+    /**
+     * Gets the compress type, which is compress type of annotation unless set.
+     *
+     * @return the compress type
+     */
+    public int getCompressType() {
+        return compressType;
+    }
+
+    /**
+     * Sets the compress type.
+     *
+     * @param compressType the new compress type
+     */
+    public void setCompressType(int compressType) {
+        this.compressType = compressType;
+    }
+
     /**
      * Gets the method.
      *
@@ -284,6 +312,20 @@ public abstract class RpcMethodInfo {
         return protobufPRC;
     }
 
+    /**
+     * Gets the pre-encoded request meta template of this method, created on first call.
+     *
+     * @return the meta template
+     */
+    public RpcMetaTemplate getMetaTemplate() {
+        RpcMetaTemplate template = metaTemplate;
+        if (template == null) {
+            template = new RpcMetaTemplate(serviceName, methodName);
+            metaTemplate = template;
+        }
+        return template;
+    }
+
     /**
      * get the authenticationDataHandler
      * @return the authenticationDataHandler
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.client;
+
+/**
+ * Handler of generated client stub, which dispatches each interface method by its index bound at generation time.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ * @see ClientStubGenerator
+ */
+public interface StubInvocationHandler {
+
+    /**
+     * Invoke the method.
+     *
+     * @param stub the stub object
+     * @param methodIndex the index of method in method array passed to generator
+     * @param args the arguments, null if method has no parameter
+     * @return the result, boxed if method returns primitive type
+     * @throws Throwable the throwable
+     */
+    Object invoke(Object stub, int methodIndex, Object[] args) throws Throwable;
+
+    /**
+     * Gets the service url.
+     *
+     * @return the service url
+     */
+    String getServiceUrl();
+}
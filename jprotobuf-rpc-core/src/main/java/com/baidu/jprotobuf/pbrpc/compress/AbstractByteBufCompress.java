@@ -0,0 +1,190 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.compress;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.io.IOException;
+
+/**
+ * Base {@link ByteBufCompress} for codecs working on byte arrays. Input is passed as backing array of buffer if it has
+ * one, otherwise copied once, and output is always written to a buffer backed by array so subclasses could write to
+ * {@link ByteBuf#array()} directly.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public abstract class AbstractByteBufCompress implements ByteBufCompress {
+
+    /**
+     * Compress bytes to output buffer which has backing array.
+     *
+     * @param in the input array
+     * @param offset the offset of input
+     * @param length the length of input
+     * @param out the output buffer
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    protected abstract void compress(byte[] in, int offset, int length, ByteBuf out) throws IOException;
+
+    /**
+     * Un compress bytes to output buffer which has backing array.
+     *
+     * @param in the input array
+     * @param offset the offset of input
+     * @param length the length of input
+     * @param out the output buffer
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    protected abstract void unCompress(byte[] in, int offset, int length, ByteBuf out) throws IOException;
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.compress.Compress#compress(byte[])
+     */
+    public byte[] compress(byte[] array) throws IOException {
+        if (array == null) {
+            return null;
+        }
+        ByteBuf out = Unpooled.buffer(array.length);
+        compress(array, 0, array.length, out);
+        return toArray(out);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.compress.Compress#unCompress(byte[])
+     */
+    public byte[] unCompress(byte[] array) throws IOException {
+        if (array == null) {
+            return null;
+        }
+        ByteBuf out = Unpooled.buffer(array.length * 2);
+        unCompress(array, 0, array.length, out);
+        return toArray(out);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.compress.ByteBufCompress#compress(io.netty.buffer.ByteBuf,
+     * io.netty.buffer.ByteBuf)
+     */
+    public void compress(ByteBuf in, ByteBuf out) throws IOException {
+        int length = in.readableBytes();
+        if (out.hasArray()) {
+            compress(arrayOf(in), offsetOf(in), length, out);
+        } else {
+            ByteBuf heap = Unpooled.buffer(length);
+            try {
+                compress(arrayOf(in), offsetOf(in), length, heap);
+                out.writeBytes(heap);
+            } finally {
+                heap.release();
+            }
+        }
+        in.skipBytes(length);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.compress.ByteBufCompress#unCompress(io.netty.buffer.ByteBuf,
+     * io.netty.buffer.ByteBuf)
+     */
+    public void unCompress(ByteBuf in, ByteBuf out) throws IOException {
+        int length = in.readableBytes();
+        if (out.hasArray()) {
+            unCompress(arrayOf(in), offsetOf(in), length, out);
+        } else {
+            ByteBuf heap = Unpooled.buffer(length * 2);
+            try {
+                unCompress(arrayOf(in), offsetOf(in), length, heap);
+                out.writeBytes(heap);
+            } finally {
+                heap.release();
+            }
+        }
+        in.skipBytes(length);
+    }
+
+    /**
+     * Gets array holding readable bytes of buffer, copy is made only if buffer has no backing array.
+     *
+     * @param buf the buffer
+     * @return the array
+     */
+    private static byte[] arrayOf(ByteBuf buf) {
+        if (buf.hasArray()) {
+            return buf.array();
+        }
+        byte[] bytes = new byte[buf.readableBytes()];
+        buf.getBytes(buf.readerIndex(), bytes);
+        return bytes;
+    }
+
+    /**
+     * Gets offset of readable bytes in array returned by {@link #arrayOf(ByteBuf)}.
+     *
+     * @param buf the buffer
+     * @return the offset
+     */
+    private static int offsetOf(ByteBuf buf) {
+        if (buf.hasArray()) {
+            return buf.arrayOffset() + buf.readerIndex();
+        }
+        return 0;
+    }
+
+    /**
+     * Copy readable bytes of buffer and release it.
+     *
+     * @param buf the buffer
+     * @return the byte array
+     */
+    private static byte[] toArray(ByteBuf buf) {
+        try {
+            byte[] bytes = new byte[buf.readableBytes()];
+            buf.readBytes(bytes);
+            return bytes;
+        } finally {
+            buf.release();
+        }
+    }
+
+    /**
+     * Move writer index of buffer after bytes written to its backing array.
+     *
+     * @param out the output buffer
+     * @param written the count of bytes written
+     */
+    protected static void advance(ByteBuf out, int written) {
+        out.writerIndex(out.writerIndex() + written);
+    }
+
+    /**
+     * Gets offset of writer index in backing array of buffer.
+     *
+     * @param out the output buffer
+     * @return the offset
+     */
+    protected static int writeOffset(ByteBuf out) {
+        return out.arrayOffset() + out.writerIndex();
+    }
+}
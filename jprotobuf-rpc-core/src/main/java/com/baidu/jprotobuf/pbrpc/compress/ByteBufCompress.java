@@ -0,0 +1,60 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.compress;
+
+import io.netty.buffer.ByteBuf;
+
+import java.io.IOException;
+
+/**
+ * {@link Compress} working directly on {@link ByteBuf} and bound to a compress type of
+ * {@link com.baidu.jprotobuf.pbrpc.data.RpcMeta}. Implementations must be thread safe as one instance is shared by
+ * all connections through {@link CompressRegistry}. Third party implementations could be plugged in by listing them
+ * in <code>META-INF/services/com.baidu.jprotobuf.pbrpc.compress.ByteBufCompress</code>.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ * @see CompressRegistry
+ */
+public interface ByteBufCompress extends Compress {
+
+    /**
+     * Gets the compress type set to rpc meta.
+     *
+     * @return the compress type
+     */
+    int getCompressType();
+
+    /**
+     * Compress readable bytes of input buffer and write result to output buffer. Reader index of input buffer is moved
+     * to writer index.
+     *
+     * @param in the input buffer
+     * @param out the output buffer
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    void compress(ByteBuf in, ByteBuf out) throws IOException;
+
+    /**
+     * Un compress readable bytes of input buffer and write result to output buffer. Reader index of input buffer is
+     * moved to writer index.
+     *
+     * @param in the input buffer
+     * @param out the output buffer
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    void unCompress(ByteBuf in, ByteBuf out) throws IOException;
+}
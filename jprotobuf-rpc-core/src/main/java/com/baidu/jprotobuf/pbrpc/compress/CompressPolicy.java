@@ -0,0 +1,256 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.compress;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.baidu.jprotobuf.pbrpc.data.RpcMeta;
+import com.baidu.jprotobuf.pbrpc.transport.ProtocolFeatures;
+
+/**
+ * Decides compress type of each outgoing message instead of always using the type set on request.
+ * <ul>
+ * <li>messages smaller than min size are sent uncompressed</li>
+ * <li>if adaptive, compress ratio is sampled per method and compression is turned off for methods whose payload does
+ * not shrink below max ratio, such as already compressed images, with a probe every probe interval messages</li>
+ * <li>if busy compress type is set, GZIP is replaced by it while system load per processor is above busy load, only
+ * on connections whose handshake agreed on busy compress type</li>
+ * </ul>
+ * Uncompressed message is always understood by peer. Peers without handshake keep the compress type requested.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class CompressPolicy {
+
+    /** The Constant DEFAULT_MAX_RATIO. */
+    public static final double DEFAULT_MAX_RATIO = 0.9d;
+
+    /** The Constant DEFAULT_PROBE_INTERVAL. */
+    public static final int DEFAULT_PROBE_INTERVAL = 64;
+
+    /** The Constant DEFAULT_BUSY_LOAD. */
+    public static final double DEFAULT_BUSY_LOAD = 1.0d;
+
+    /** system load is checked at most once in this interval in milliseconds. */
+    private static final long LOAD_CHECK_INTERVAL = 1000L;
+
+    /** The min size. */
+    private final int minSize;
+
+    /** The adaptive. */
+    private final boolean adaptive;
+
+    /** The busy compress type, -1 if disabled. */
+    private final int busyCompressType;
+
+    /** The max ratio. */
+    private volatile double maxRatio = DEFAULT_MAX_RATIO;
+
+    /** The probe interval. */
+    private volatile int probeInterval = DEFAULT_PROBE_INTERVAL;
+
+    /** The busy load. */
+    private volatile double busyLoad = DEFAULT_BUSY_LOAD;
+
+    /** The stats of methods. */
+    private final ConcurrentHashMap<String, CompressStats> stats = new ConcurrentHashMap<String, CompressStats>();
+
+    /** The last time of load checked. */
+    private volatile long loadCheckTime = 0;
+
+    /** The busy. */
+    private volatile boolean busy = false;
+
+    /**
+     * Instantiates a new compress policy.
+     *
+     * @param minSize the min size to compress
+     * @param adaptive if true, compression is turned off per method if it does not pay
+     * @param busyCompressType the compress type replacing GZIP under high load, -1 to disable
+     */
+    public CompressPolicy(int minSize, boolean adaptive, int busyCompressType) {
+        this.minSize = minSize;
+        this.adaptive = adaptive;
+        this.busyCompressType = busyCompressType;
+    }
+
+    /**
+     * Select compress type of message.
+     *
+     * @param protocolFeatures the protocol features of connection, may be null
+     * @param methodSignature the method signature, may be null
+     * @param compressType the compress type requested
+     * @param size the size of data
+     * @return the compress type to use
+     */
+    public int select(ProtocolFeatures protocolFeatures, String methodSignature, int compressType, int size) {
+        if (compressType == RpcMeta.COMPRESS_NO) {
+            return compressType;
+        }
+        CompressStats methodStats = getStats(methodSignature);
+        if (size < minSize || (adaptive && methodStats != null && !methodStats.shouldCompress(probeInterval))) {
+            if (methodStats != null) {
+                methodStats.skip();
+            }
+            return RpcMeta.COMPRESS_NO;
+        }
+        if (compressType == RpcMeta.COMPERESS_GZIP && busyCompressType > RpcMeta.COMPRESS_NO
+                && isBusyCompressTypeAgreed(protocolFeatures) && isBusy()) {
+            return busyCompressType;
+        }
+        return compressType;
+    }
+
+    /**
+     * Checks if busy compress type is agreed by handshake of connection. Compress types are unknown for peers without
+     * handshake, so GZIP requested is kept.
+     *
+     * @param protocolFeatures the protocol features of connection, may be null
+     * @return true, if busy compress type could be sent on this connection
+     */
+    private boolean isBusyCompressTypeAgreed(ProtocolFeatures protocolFeatures) {
+        if (protocolFeatures == null || !protocolFeatures.isHandshaked()) {
+            return false;
+        }
+        List<Integer> types = protocolFeatures.getCompressTypes();
+        return types != null && types.contains(busyCompressType)
+                && CompressRegistry.getCompress(busyCompressType) != null;
+    }
+
+    /**
+     * Record a compressed message.
+     *
+     * @param methodSignature the method signature, may be null
+     * @param originalSize the original size
+     * @param compressedSize the compressed size
+     * @param nanos the compress time in nanoseconds
+     */
+    public void record(String methodSignature, int originalSize, int compressedSize, long nanos) {
+        CompressStats methodStats = getStats(methodSignature);
+        if (methodStats != null) {
+            methodStats.record(originalSize, compressedSize, nanos, maxRatio);
+        }
+    }
+
+    /**
+     * Gets the stats of method, created on first use.
+     *
+     * @param methodSignature the method signature
+     * @return the stats, null if method signature is null
+     */
+    private CompressStats getStats(String methodSignature) {
+        if (methodSignature == null) {
+            return null;
+        }
+        CompressStats methodStats = stats.get(methodSignature);
+        if (methodStats == null) {
+            methodStats = new CompressStats();
+            CompressStats old = stats.putIfAbsent(methodSignature, methodStats);
+            if (old != null) {
+                methodStats = old;
+            }
+        }
+        return methodStats;
+    }
+
+    /**
+     * Gets the stats of all methods.
+     *
+     * @return the stats keyed by method signature
+     */
+    public Map<String, CompressStats> getStats() {
+        return stats;
+    }
+
+    /**
+     * Checks if system is busy by load average per processor, checked at most once a second.
+     *
+     * @return true, if busy
+     */
+    protected boolean isBusy() {
+        long now = System.currentTimeMillis();
+        if (now - loadCheckTime >= LOAD_CHECK_INTERVAL) {
+            loadCheckTime = now;
+            OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+            double load = os.getSystemLoadAverage();
+            // negative if load average is not available on this platform
+            busy = load >= 0 && load / os.getAvailableProcessors() >= busyLoad;
+        }
+        return busy;
+    }
+
+    /**
+     * Sets the max ratio of compressed size to original size which compression still pays off.
+     *
+     * @param maxRatio the new max ratio
+     */
+    public void setMaxRatio(double maxRatio) {
+        this.maxRatio = maxRatio;
+    }
+
+    /**
+     * Sets the probe interval.
+     *
+     * @param probeInterval the new probe interval
+     */
+    public void setProbeInterval(int probeInterval) {
+        if (probeInterval <= 0) {
+            throw new IllegalArgumentException("param 'probeInterval' should be positive.");
+        }
+        this.probeInterval = probeInterval;
+    }
+
+    /**
+     * Sets the load average per processor above which system is busy.
+     *
+     * @param busyLoad the new busy load
+     */
+    public void setBusyLoad(double busyLoad) {
+        this.busyLoad = busyLoad;
+    }
+
+    /**
+     * Gets the min size.
+     *
+     * @return the min size
+     */
+    public int getMinSize() {
+        return minSize;
+    }
+
+    /**
+     * Checks if is adaptive.
+     *
+     * @return true, if is adaptive
+     */
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * Gets the busy compress type.
+     *
+     * @return the busy compress type, -1 if disabled
+     */
+    public int getBusyCompressType() {
+        return busyCompressType;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.compress;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.baidu.jprotobuf.pbrpc.data.RpcMeta;
+
+/**
+ * Registry of {@link ByteBufCompress} keyed by compress type. Built-in GZIP, Snappy and LZ4 codecs are registered
+ * first, then codecs found by {@link ServiceLoader} which may replace built-in ones of the same compress type.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public final class CompressRegistry {
+
+    /** The Constant LOG. */
+    private static final Logger LOG = Logger.getLogger(CompressRegistry.class.getName());
+
+    /** The Constant MAX_COMPRESS_TYPE. */
+    public static final int MAX_COMPRESS_TYPE = 63;
+
+    /** codecs indexed by compress type, replaced on register. */
+    private static volatile ByteBufCompress[] compresses = new ByteBufCompress[MAX_COMPRESS_TYPE + 1];
+
+    static {
+        register(new GZipCompress());
+        register(new SnappyCompress());
+        register(new Lz4Compress());
+
+        Iterator<ByteBufCompress> it = ServiceLoader.load(ByteBufCompress.class).iterator();
+        while (true) {
+            try {
+                if (!it.hasNext()) {
+                    break;
+                }
+                register(it.next());
+            } catch (ServiceConfigurationError e) {
+                LOG.log(Level.WARNING, "Load compress failed due to " + e.getMessage(), e);
+            } catch (IllegalArgumentException e) {
+                LOG.log(Level.WARNING, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Instantiates a new compress registry.
+     */
+    private CompressRegistry() {
+    }
+
+    /**
+     * Register compress to its compress type, compress registered before with the same type is replaced.
+     *
+     * @param compress the compress
+     */
+    public static synchronized void register(ByteBufCompress compress) {
+        if (compress == null) {
+            throw new IllegalArgumentException("param 'compress' is null.");
+        }
+        int compressType = compress.getCompressType();
+        if (compressType <= RpcMeta.COMPRESS_NO || compressType > MAX_COMPRESS_TYPE) {
+            throw new IllegalArgumentException("Invalid compress type " + compressType + " of "
+                    + compress.getClass().getName() + ", should between 1 and " + MAX_COMPRESS_TYPE);
+        }
+        ByteBufCompress[] copy = compresses.clone();
+        if (copy[compressType] != null) {
+            LOG.info("Compress type " + compressType + " of " + copy[compressType].getClass().getName()
+                    + " replaced by " + compress.getClass().getName());
+        }
+        copy[compressType] = compress;
+        compresses = copy;
+    }
+
+    /**
+     * Gets the compress of compress type.
+     *
+     * @param compressType the compress type
+     * @return the compress, null if compress type is {@link RpcMeta#COMPRESS_NO} or not supported
+     */
+    public static ByteBufCompress getCompress(int compressType) {
+        if (compressType < 0 || compressType > MAX_COMPRESS_TYPE) {
+            return null;
+        }
+        return compresses[compressType];
+    }
+
+    /**
+     * Checks if compress type could be handled.
+     *
+     * @param compressType the compress type
+     * @return true, if compress type is {@link RpcMeta#COMPRESS_NO} or registered
+     */
+    public static boolean isSupported(int compressType) {
+        return compressType == RpcMeta.COMPRESS_NO || getCompress(compressType) != null;
+    }
+
+    /**
+     * Gets the compress types supported including {@link RpcMeta#COMPRESS_NO}.
+     *
+     * @return the compress types in ascending order
+     */
+    public static List<Integer> getCompressTypes() {
+        ByteBufCompress[] current = compresses;
+        List<Integer> types = new ArrayList<Integer>();
+        types.add(RpcMeta.COMPRESS_NO);
+        for (int i = 1; i < current.length; i++) {
+            if (current[i] != null) {
+                types.add(i);
+            }
+        }
+        return Collections.unmodifiableList(types);
+    }
+}
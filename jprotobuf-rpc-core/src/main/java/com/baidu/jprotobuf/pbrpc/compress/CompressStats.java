@@ -0,0 +1,198 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.compress;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compress statistics of one method kept by {@link CompressPolicy}. Besides totals, a moving average of recent
+ * compress ratio decides if compression of the method pays off.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class CompressStats {
+
+    /** samples needed before recent ratio is trusted. */
+    private static final int MIN_SAMPLES = 8;
+
+    /** weight of a new sample in moving average of ratio. */
+    private static final double SAMPLE_WEIGHT = 0.125;
+
+    /** The compressed count. */
+    private final AtomicLong compressedCount = new AtomicLong();
+
+    /** The skipped count. */
+    private final AtomicLong skippedCount = new AtomicLong();
+
+    /** The original bytes. */
+    private final AtomicLong originalBytes = new AtomicLong();
+
+    /** The compressed bytes. */
+    private final AtomicLong compressedBytes = new AtomicLong();
+
+    /** The compress time in nanoseconds. */
+    private final AtomicLong compressNanos = new AtomicLong();
+
+    /** messages seen since compression is turned off, to pick probes. */
+    private final AtomicInteger probeCounter = new AtomicInteger();
+
+    /** moving average of compressed size to original size, guarded by this. */
+    private double recentRatio = 1.0d;
+
+    /** The samples, guarded by this. */
+    private int samples;
+
+    /** true if compression is turned off as it does not pay. */
+    private volatile boolean disabled = false;
+
+    /**
+     * Checks if message should be compressed. While compression is turned off, one of every probe interval messages
+     * is still compressed to sample the ratio again.
+     *
+     * @param probeInterval the probe interval
+     * @return true, if message should be compressed
+     */
+    boolean shouldCompress(int probeInterval) {
+        if (!disabled) {
+            return true;
+        }
+        return probeCounter.incrementAndGet() % probeInterval == 0;
+    }
+
+    /**
+     * Record a compressed message and turn compression off or on by recent ratio.
+     *
+     * @param originalSize the original size
+     * @param compressedSize the compressed size
+     * @param nanos the compress time in nanoseconds
+     * @param maxRatio the max ratio which compression still pays off
+     */
+    void record(int originalSize, int compressedSize, long nanos, double maxRatio) {
+        compressedCount.incrementAndGet();
+        originalBytes.addAndGet(originalSize);
+        compressedBytes.addAndGet(compressedSize);
+        compressNanos.addAndGet(nanos);
+        if (originalSize <= 0) {
+            return;
+        }
+        double ratio = (double) compressedSize / originalSize;
+        synchronized (this) {
+            if (samples == 0) {
+                recentRatio = ratio;
+            } else {
+                recentRatio += (ratio - recentRatio) * SAMPLE_WEIGHT;
+            }
+            if (samples < MIN_SAMPLES) {
+                samples++;
+                return;
+            }
+            if (disabled) {
+                // a single good probe is enough to try again
+                disabled = ratio > maxRatio;
+                if (!disabled) {
+                    recentRatio = ratio;
+                }
+            } else {
+                disabled = recentRatio > maxRatio;
+            }
+        }
+    }
+
+    /**
+     * Record a message not compressed.
+     */
+    void skip() {
+        skippedCount.incrementAndGet();
+    }
+
+    /**
+     * Gets the compressed count.
+     *
+     * @return the compressed count
+     */
+    public long getCompressedCount() {
+        return compressedCount.get();
+    }
+
+    /**
+     * Gets the count of messages not compressed for size or ratio.
+     *
+     * @return the skipped count
+     */
+    public long getSkippedCount() {
+        return skippedCount.get();
+    }
+
+    /**
+     * Gets the original bytes of compressed messages.
+     *
+     * @return the original bytes
+     */
+    public long getOriginalBytes() {
+        return originalBytes.get();
+    }
+
+    /**
+     * Gets the compressed bytes.
+     *
+     * @return the compressed bytes
+     */
+    public long getCompressedBytes() {
+        return compressedBytes.get();
+    }
+
+    /**
+     * Gets the compress ratio of all compressed messages.
+     *
+     * @return compressed bytes divided by original bytes, 1 if nothing compressed
+     */
+    public double getRatio() {
+        long original = originalBytes.get();
+        if (original <= 0) {
+            return 1.0d;
+        }
+        return (double) compressedBytes.get() / original;
+    }
+
+    /**
+     * Gets the moving average of recent compress ratio.
+     *
+     * @return the recent ratio
+     */
+    public synchronized double getRecentRatio() {
+        return recentRatio;
+    }
+
+    /**
+     * Gets the total compress time.
+     *
+     * @return the compress time in milliseconds
+     */
+    public long getCompressTime() {
+        return compressNanos.get() / 1000000L;
+    }
+
+    /**
+     * Checks if compression is turned off as it does not pay.
+     *
+     * @return true, if disabled
+     */
+    public boolean isDisabled() {
+        return disabled;
+    }
+}
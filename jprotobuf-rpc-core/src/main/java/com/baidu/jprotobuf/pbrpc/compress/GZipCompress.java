@@ -16,82 +16,274 @@
 
 package com.baidu.jprotobuf.pbrpc.compress;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import io.netty.buffer.ByteBuf;
+
 import java.io.IOException;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.baidu.jprotobuf.pbrpc.data.RpcMeta;
 
 /**
- * Compress supports by GZIP.
+ * Compress supports by GZIP. {@link Deflater} and {@link Inflater} are cached per thread and reset after each use,
+ * GZIP header and trailer are written and checked here so raw deflate data goes to and from buffer directly.
  *
  * @author xiemalin
  * @since 1.4
  */
-public class GZipCompress implements Compress {
+public class GZipCompress extends AbstractByteBufCompress {
+
+    /** GZIP header magic. */
+    private static final int GZIP_MAGIC = 0x8b1f;
+
+    /** The Constant HEADER_SIZE. */
+    private static final int HEADER_SIZE = 10;
+
+    /** The Constant TRAILER_SIZE. */
+    private static final int TRAILER_SIZE = 8;
+
+    /** Header flag FHCRC. */
+    private static final int FHCRC = 2;
+
+    /** Header flag FEXTRA. */
+    private static final int FEXTRA = 4;
+
+    /** Header flag FNAME. */
+    private static final int FNAME = 8;
 
-    /** default buffer size. */
-    private static final int BUFFER_SIZE = 256;
+    /** Header flag FCOMMENT. */
+    private static final int FCOMMENT = 16;
+
+    /** The Constant MIN_GROW_SIZE. */
+    private static final int MIN_GROW_SIZE = 256;
+
+    /** GZIP header written with no optional fields. */
+    private static final byte[] HEADER = new byte[] { (byte) GZIP_MAGIC, (byte) (GZIP_MAGIC >> 8), Deflater.DEFLATED,
+            0, 0, 0, 0, 0, 0, 0 };
+
+    /** The deflater of current thread. */
+    private static final ThreadLocal<Deflater> DEFLATER = new ThreadLocal<Deflater>() {
+        protected Deflater initialValue() {
+            return new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        }
+    };
+
+    /** The inflater of current thread. */
+    private static final ThreadLocal<Inflater> INFLATER = new ThreadLocal<Inflater>() {
+        protected Inflater initialValue() {
+            return new Inflater(true);
+        }
+    };
+
+    /** The crc of current thread. */
+    private static final ThreadLocal<CRC32> CRC = new ThreadLocal<CRC32>() {
+        protected CRC32 initialValue() {
+            return new CRC32();
+        }
+    };
 
     /*
      * (non-Javadoc)
      * 
-     * @see com.baidu.jprotobuf.pbrpc.compress.Compress#compress(byte[])
+     * @see com.baidu.jprotobuf.pbrpc.compress.ByteBufCompress#getCompressType()
      */
-    public byte[] compress(byte[] array) throws IOException {
-        return compress0(array);
+    public int getCompressType() {
+        return RpcMeta.COMPERESS_GZIP;
     }
-    
-    public byte[] compress0(byte[] array) throws IOException {
-        if (array == null) {
-            return null;
-        }
 
-        byte[] ret = null;
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        GZIPOutputStream gzip;
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.compress.AbstractByteBufCompress#compress(byte[], int, int,
+     * io.netty.buffer.ByteBuf)
+     */
+    @Override
+    protected void compress(byte[] in, int offset, int length, ByteBuf out) throws IOException {
+        // same bound as zlib compressBound()
+        out.ensureWritable(HEADER_SIZE + length + (length >> 12) + (length >> 14) + 13 + TRAILER_SIZE);
+        out.writeBytes(HEADER);
+
+        Deflater deflater = DEFLATER.get();
         try {
-            gzip = new GZIPOutputStream(out);
-            gzip.write(array);
-            gzip.close();
-            ret = out.toByteArray();
-        } catch (IOException e) {
-            throw e;
-        }
-        return ret;
+            deflater.setInput(in, offset, length);
+            deflater.finish();
+            while (!deflater.finished()) {
+                if (!out.isWritable()) {
+                    out.ensureWritable(MIN_GROW_SIZE);
+                }
+                advance(out, deflater.deflate(out.array(), writeOffset(out), out.writableBytes()));
+            }
+        } finally {
+            deflater.reset();
+        }
+
+        CRC32 crc = CRC.get();
+        crc.reset();
+        crc.update(in, offset, length);
+        writeIntLE(out, (int) crc.getValue());
+        writeIntLE(out, length);
     }
 
-    
     /*
      * (non-Javadoc)
      * 
-     * @see com.baidu.jprotobuf.pbrpc.compress.Compress#unCompress(byte[])
+     * @see com.baidu.jprotobuf.pbrpc.compress.AbstractByteBufCompress#unCompress(byte[], int, int,
+     * io.netty.buffer.ByteBuf)
      */
-    public byte[] unCompress(byte[] array) throws IOException {
-        return unCompress0(array);
-    }
-    
-    public byte[] unCompress0(byte[] array) throws IOException {
-        if (array == null) {
-            return null;
+    @Override
+    protected void unCompress(byte[] in, int offset, int length, ByteBuf out) throws IOException {
+        int end = offset + length;
+        if (length >= HEADER_SIZE + TRAILER_SIZE) {
+            // size of last member is a good hint if it is in range of deflate ratio
+            long size = readIntLE(in, end - 4) & 0xFFFFFFFFL;
+            if (size <= length * 1032L) {
+                out.ensureWritable((int) size);
+            }
         }
 
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        ByteArrayInputStream in = new ByteArrayInputStream(array);
+        int pos = offset;
+        do {
+            pos = unCompressMember(in, pos, end, out);
+        } while (pos < end);
+    }
 
+    /**
+     * Un compress one GZIP member.
+     *
+     * @param in the input array
+     * @param pos the start of member
+     * @param end the end of input
+     * @param out the output buffer
+     * @return the end of member
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private int unCompressMember(byte[] in, int pos, int end, ByteBuf out) throws IOException {
+        pos = skipHeader(in, pos, end);
+
+        int start = out.writerIndex();
+        Inflater inflater = INFLATER.get();
+        int remaining;
         try {
-            GZIPInputStream gunzip = new GZIPInputStream(in) {
-                
-            };
-            byte[] buffer = new byte[BUFFER_SIZE];
-            int n;
-            while ((n = gunzip.read(buffer)) >= 0) {
-                out.write(buffer, 0, n);
+            inflater.setInput(in, pos, end - pos);
+            while (!inflater.finished()) {
+                if (!out.isWritable()) {
+                    out.ensureWritable(Math.max(MIN_GROW_SIZE, out.writerIndex() - start));
+                }
+                int n = inflater.inflate(out.array(), writeOffset(out), out.writableBytes());
+                if (n == 0 && !inflater.finished() && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Unexpected end of GZIP data");
+                }
+                advance(out, n);
+            }
+            remaining = inflater.getRemaining();
+        } catch (DataFormatException e) {
+            throw new IOException(e.getMessage(), e);
+        } finally {
+            inflater.reset();
+        }
+
+        pos = end - remaining;
+        if (remaining < TRAILER_SIZE) {
+            throw new IOException("Unexpected end of GZIP trailer");
+        }
+        int written = out.writerIndex() - start;
+        CRC32 crc = CRC.get();
+        crc.reset();
+        crc.update(out.array(), out.arrayOffset() + start, written);
+        if (readIntLE(in, pos) != (int) crc.getValue()) {
+            throw new IOException("Corrupt GZIP trailer, crc mismatch");
+        }
+        if (readIntLE(in, pos + 4) != written) {
+            throw new IOException("Corrupt GZIP trailer, size mismatch");
+        }
+        return pos + TRAILER_SIZE;
+    }
+
+    /**
+     * Check GZIP header and skip optional fields.
+     *
+     * @param in the input array
+     * @param pos the start of header
+     * @param end the end of input
+     * @return the start of deflate data
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static int skipHeader(byte[] in, int pos, int end) throws IOException {
+        if (end - pos < HEADER_SIZE) {
+            throw new IOException("Unexpected end of GZIP header");
+        }
+        if (((in[pos] & 0xFF) | ((in[pos + 1] & 0xFF) << 8)) != GZIP_MAGIC) {
+            throw new IOException("Not in GZIP format");
+        }
+        if (in[pos + 2] != Deflater.DEFLATED) {
+            throw new IOException("Unsupported compression method " + in[pos + 2]);
+        }
+        int flags = in[pos + 3] & 0xFF;
+        pos += HEADER_SIZE;
+        if ((flags & FEXTRA) != 0) {
+            if (end - pos < 2) {
+                throw new IOException("Unexpected end of GZIP header");
+            }
+            pos += 2 + ((in[pos] & 0xFF) | ((in[pos + 1] & 0xFF) << 8));
+        }
+        if ((flags & FNAME) != 0) {
+            pos = skipZeroTerminated(in, pos, end);
+        }
+        if ((flags & FCOMMENT) != 0) {
+            pos = skipZeroTerminated(in, pos, end);
+        }
+        if ((flags & FHCRC) != 0) {
+            pos += 2;
+        }
+        if (pos > end) {
+            throw new IOException("Unexpected end of GZIP header");
+        }
+        return pos;
+    }
+
+    /**
+     * Skip zero terminated string.
+     *
+     * @param in the input array
+     * @param pos the start of string
+     * @param end the end of input
+     * @return the position after terminal zero
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static int skipZeroTerminated(byte[] in, int pos, int end) throws IOException {
+        while (pos < end) {
+            if (in[pos++] == 0) {
+                return pos;
             }
-        } catch (IOException e) {
-            throw e;
         }
-        return out.toByteArray();
+        throw new IOException("Unexpected end of GZIP header");
+    }
+
+    /**
+     * Read little endian int.
+     *
+     * @param in the input array
+     * @param pos the position
+     * @return the int
+     */
+    private static int readIntLE(byte[] in, int pos) {
+        return (in[pos] & 0xFF) | ((in[pos + 1] & 0xFF) << 8) | ((in[pos + 2] & 0xFF) << 16)
+                | ((in[pos + 3] & 0xFF) << 24);
+    }
+
+    /**
+     * Write little endian int.
+     *
+     * @param out the output buffer
+     * @param value the value
+     */
+    private static void writeIntLE(ByteBuf out, int value) {
+        out.writeByte(value);
+        out.writeByte(value >>> 8);
+        out.writeByte(value >>> 16);
+        out.writeByte(value >>> 24);
     }
 
 }
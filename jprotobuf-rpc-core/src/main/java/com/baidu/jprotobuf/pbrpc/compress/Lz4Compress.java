@@ -0,0 +1,354 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.compress;
+
+import io.netty.buffer.ByteBuf;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.baidu.jprotobuf.pbrpc.data.RpcMeta;
+
+/**
+ * Compress supports by LZ4 in pure java. Compressed data is 4 bytes big endian length of original data followed by
+ * one LZ4 block. It trades ratio for speed much like Snappy but needs no native library.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class Lz4Compress extends AbstractByteBufCompress {
+
+    /** The Constant MIN_MATCH. */
+    private static final int MIN_MATCH = 4;
+
+    /** last match must start at least MF_LIMIT bytes before end of block. */
+    private static final int MF_LIMIT = 12;
+
+    /** last LAST_LITERALS bytes of block are always literals. */
+    private static final int LAST_LITERALS = 5;
+
+    /** The Constant MAX_DISTANCE. */
+    private static final int MAX_DISTANCE = 65535;
+
+    /** The Constant RUN_MASK. */
+    private static final int RUN_MASK = 15;
+
+    /** The Constant HASH_LOG. */
+    private static final int HASH_LOG = 12;
+
+    /** step of search grows every 2^SKIP_STRENGTH misses. */
+    private static final int SKIP_STRENGTH = 6;
+
+    /** The Constant LENGTH_SIZE. */
+    private static final int LENGTH_SIZE = 4;
+
+    /** The hash table of current thread. */
+    private static final ThreadLocal<int[]> HASH_TABLE = new ThreadLocal<int[]>() {
+        protected int[] initialValue() {
+            return new int[1 << HASH_LOG];
+        }
+    };
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.compress.ByteBufCompress#getCompressType()
+     */
+    public int getCompressType() {
+        return RpcMeta.COMPRESS_LZ4;
+    }
+
+    /**
+     * Gets max size of compressed block.
+     *
+     * @param length the length of original data
+     * @return the max compressed length
+     */
+    public static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.compress.AbstractByteBufCompress#compress(byte[], int, int,
+     * io.netty.buffer.ByteBuf)
+     */
+    @Override
+    protected void compress(byte[] in, int offset, int length, ByteBuf out) throws IOException {
+        out.ensureWritable(LENGTH_SIZE + maxCompressedLength(length));
+        out.writeInt(length);
+        byte[] dest = out.array();
+        int start = writeOffset(out);
+        advance(out, compressBlock(in, offset, length, dest, start) - start);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.compress.AbstractByteBufCompress#unCompress(byte[], int, int,
+     * io.netty.buffer.ByteBuf)
+     */
+    @Override
+    protected void unCompress(byte[] in, int offset, int length, ByteBuf out) throws IOException {
+        if (length < LENGTH_SIZE + 1) {
+            throw new IOException("Malformed LZ4 data, too short");
+        }
+        int size = ((in[offset] & 0xFF) << 24) | ((in[offset + 1] & 0xFF) << 16) | ((in[offset + 2] & 0xFF) << 8)
+                | (in[offset + 3] & 0xFF);
+        // each byte of block could expand to 255 bytes at most
+        if (size < 0 || size > (long) length * 255) {
+            throw new IOException("Malformed LZ4 data, invalid length " + size);
+        }
+        out.ensureWritable(size);
+        decompressBlock(in, offset + LENGTH_SIZE, length - LENGTH_SIZE, out.array(), writeOffset(out), size);
+        advance(out, size);
+    }
+
+    /**
+     * Compress to one LZ4 block.
+     *
+     * @param src the source array
+     * @param srcOff the offset of source
+     * @param srcLen the length of source
+     * @param dest the dest array with at least {@link #maxCompressedLength(int)} bytes writable
+     * @param destOff the offset of dest
+     * @return the end of block in dest
+     */
+    static int compressBlock(byte[] src, int srcOff, int srcLen, byte[] dest, int destOff) {
+        int srcEnd = srcOff + srcLen;
+        int dp = destOff;
+        int anchor = srcOff;
+
+        if (srcLen > MF_LIMIT) {
+            int mfLimit = srcEnd - MF_LIMIT;
+            int matchLimit = srcEnd - LAST_LITERALS;
+            int[] table = HASH_TABLE.get();
+            Arrays.fill(table, -1);
+
+            int sp = srcOff;
+            int searchCount = 1 << SKIP_STRENGTH;
+            while (sp <= mfLimit) {
+                int h = hash(readInt(src, sp));
+                int ref = table[h];
+                table[h] = sp;
+                if (ref < 0 || sp - ref > MAX_DISTANCE || readInt(src, ref) != readInt(src, sp)) {
+                    sp += searchCount++ >>> SKIP_STRENGTH;
+                    continue;
+                }
+                searchCount = 1 << SKIP_STRENGTH;
+
+                // extend backward over pending literals
+                while (sp > anchor && ref > srcOff && src[sp - 1] == src[ref - 1]) {
+                    sp--;
+                    ref--;
+                }
+                int matchLength = MIN_MATCH;
+                while (sp + matchLength < matchLimit && src[sp + matchLength] == src[ref + matchLength]) {
+                    matchLength++;
+                }
+
+                dp = writeSequence(src, anchor, sp - anchor, sp - ref, matchLength, dest, dp);
+                sp += matchLength;
+                anchor = sp;
+                if (sp <= mfLimit) {
+                    table[hash(readInt(src, sp - 2))] = sp - 2;
+                }
+            }
+        }
+
+        // last literals
+        int literalLength = srcEnd - anchor;
+        dp = writeLength(literalLength, dest, dp);
+        System.arraycopy(src, anchor, dest, dp, literalLength);
+        return dp + literalLength;
+    }
+
+    /**
+     * Write one sequence of literals and match.
+     *
+     * @param src the source array
+     * @param literalOff the offset of literals
+     * @param literalLength the literal length
+     * @param matchOffset the distance of match
+     * @param matchLength the match length
+     * @param dest the dest array
+     * @param dp the position of dest
+     * @return the position of dest after sequence
+     */
+    private static int writeSequence(byte[] src, int literalOff, int literalLength, int matchOffset,
+            int matchLength, byte[] dest, int dp) {
+        int tokenPos = dp;
+        dp = writeLength(literalLength, dest, dp);
+        System.arraycopy(src, literalOff, dest, dp, literalLength);
+        dp += literalLength;
+
+        dest[dp++] = (byte) matchOffset;
+        dest[dp++] = (byte) (matchOffset >>> 8);
+
+        int length = matchLength - MIN_MATCH;
+        if (length >= RUN_MASK) {
+            dest[tokenPos] |= RUN_MASK;
+            dp = writeExtraLength(length - RUN_MASK, dest, dp);
+        } else {
+            dest[tokenPos] |= length;
+        }
+        return dp;
+    }
+
+    /**
+     * Write token with literal length and extra length bytes if any.
+     *
+     * @param length the literal length
+     * @param dest the dest array
+     * @param dp the position of dest
+     * @return the position of dest after length
+     */
+    private static int writeLength(int length, byte[] dest, int dp) {
+        if (length >= RUN_MASK) {
+            dest[dp++] = (byte) (RUN_MASK << 4);
+            return writeExtraLength(length - RUN_MASK, dest, dp);
+        }
+        dest[dp++] = (byte) (length << 4);
+        return dp;
+    }
+
+    /**
+     * Write extra length bytes.
+     *
+     * @param length the remaining length
+     * @param dest the dest array
+     * @param dp the position of dest
+     * @return the position of dest after length
+     */
+    private static int writeExtraLength(int length, byte[] dest, int dp) {
+        while (length >= 255) {
+            dest[dp++] = (byte) 255;
+            length -= 255;
+        }
+        dest[dp++] = (byte) length;
+        return dp;
+    }
+
+    /**
+     * Decompress one LZ4 block with all bounds checked.
+     *
+     * @param src the source array
+     * @param srcOff the offset of block
+     * @param srcLen the length of block
+     * @param dest the dest array
+     * @param destOff the offset of dest
+     * @param destLen the original length
+     * @throws IOException if block is malformed
+     */
+    static void decompressBlock(byte[] src, int srcOff, int srcLen, byte[] dest, int destOff, int destLen)
+            throws IOException {
+        int sp = srcOff;
+        int srcEnd = srcOff + srcLen;
+        int dp = destOff;
+        int destEnd = destOff + destLen;
+
+        while (true) {
+            if (sp >= srcEnd) {
+                throw new IOException("Malformed LZ4 data, unexpected end of block");
+            }
+            int token = src[sp++] & 0xFF;
+
+            int literalLength = token >>> 4;
+            if (literalLength == RUN_MASK) {
+                int b;
+                do {
+                    if (sp >= srcEnd) {
+                        throw new IOException("Malformed LZ4 data, unexpected end of block");
+                    }
+                    b = src[sp++] & 0xFF;
+                    literalLength += b;
+                } while (b == 255 && literalLength <= destLen);
+            }
+            if (literalLength > srcEnd - sp || literalLength > destEnd - dp) {
+                throw new IOException("Malformed LZ4 data, literals out of bounds");
+            }
+            System.arraycopy(src, sp, dest, dp, literalLength);
+            sp += literalLength;
+            dp += literalLength;
+            if (sp == srcEnd) {
+                break;
+            }
+
+            if (srcEnd - sp < 2) {
+                throw new IOException("Malformed LZ4 data, unexpected end of block");
+            }
+            int matchOffset = (src[sp] & 0xFF) | ((src[sp + 1] & 0xFF) << 8);
+            sp += 2;
+            int matchPos = dp - matchOffset;
+            if (matchOffset == 0 || matchPos < destOff) {
+                throw new IOException("Malformed LZ4 data, invalid match offset " + matchOffset);
+            }
+
+            int matchLength = token & RUN_MASK;
+            if (matchLength == RUN_MASK) {
+                int b;
+                do {
+                    if (sp >= srcEnd) {
+                        throw new IOException("Malformed LZ4 data, unexpected end of block");
+                    }
+                    b = src[sp++] & 0xFF;
+                    matchLength += b;
+                } while (b == 255 && matchLength <= destLen);
+            }
+            matchLength += MIN_MATCH;
+            if (matchLength > destEnd - dp) {
+                throw new IOException("Malformed LZ4 data, match out of bounds");
+            }
+            if (matchOffset >= matchLength) {
+                System.arraycopy(dest, matchPos, dest, dp, matchLength);
+                dp += matchLength;
+            } else {
+                // overlapped match repeats bytes just written
+                for (int i = 0; i < matchLength; i++) {
+                    dest[dp++] = dest[matchPos + i];
+                }
+            }
+        }
+
+        if (dp != destEnd) {
+            throw new IOException("Malformed LZ4 data, expect " + destLen + " bytes but " + (dp - destOff));
+        }
+    }
+
+    /**
+     * Read little endian int.
+     *
+     * @param src the source array
+     * @param pos the position
+     * @return the int
+     */
+    private static int readInt(byte[] src, int pos) {
+        return (src[pos] & 0xFF) | ((src[pos + 1] & 0xFF) << 8) | ((src[pos + 2] & 0xFF) << 16)
+                | ((src[pos + 3] & 0xFF) << 24);
+    }
+
+    /**
+     * Hash of 4 bytes.
+     *
+     * @param value the value
+     * @return the hash
+     */
+    private static int hash(int value) {
+        return (value * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+}
@@ -15,10 +15,14 @@
  */
 package com.baidu.jprotobuf.pbrpc.compress;
 
+import io.netty.buffer.ByteBuf;
+
 import java.io.IOException;
 
 import org.xerial.snappy.Snappy;
 
+import com.baidu.jprotobuf.pbrpc.data.RpcMeta;
+
 /**
  * Compress support by Snappy by snappy-java client.
  * more information pls visit: https://github.com/xerial/snappy-java
@@ -26,26 +30,39 @@ import org.xerial.snappy.Snappy;
  * @author xiemalin
  * @since 2.12
  */
-public class SnappyCompress implements Compress {
+public class SnappyCompress extends AbstractByteBufCompress {
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.compress.ByteBufCompress#getCompressType()
+     */
+    public int getCompressType() {
+        return RpcMeta.COMPRESS_SNAPPY;
+    }
 
-    /* (non-Javadoc)
-     * @see com.baidu.jprotobuf.pbrpc.compress.Compress#compress(byte[])
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.compress.AbstractByteBufCompress#compress(byte[], int, int,
+     * io.netty.buffer.ByteBuf)
      */
-    public byte[] compress(byte[] array) throws IOException {
-        if (array == null) {
-            return null;
-        }
-        return Snappy.compress(array);
+    @Override
+    protected void compress(byte[] in, int offset, int length, ByteBuf out) throws IOException {
+        out.ensureWritable(Snappy.maxCompressedLength(length));
+        advance(out, Snappy.compress(in, offset, length, out.array(), writeOffset(out)));
     }
 
-    /* (non-Javadoc)
-     * @see com.baidu.jprotobuf.pbrpc.compress.Compress#unCompress(byte[])
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.compress.AbstractByteBufCompress#unCompress(byte[], int, int,
+     * io.netty.buffer.ByteBuf)
      */
-    public byte[] unCompress(byte[] array) throws IOException {
-        if (array == null) {
-            return null;
-        }
-        return Snappy.uncompress(array);
+    @Override
+    protected void unCompress(byte[] in, int offset, int length, ByteBuf out) throws IOException {
+        out.ensureWritable(Snappy.uncompressedLength(in, offset, length));
+        advance(out, Snappy.uncompress(in, offset, length, out.array(), writeOffset(out)));
     }
 
 }
@@ -18,8 +18,6 @@ package com.baidu.jprotobuf.pbrpc.data;
 
 import java.io.IOException;
 
-import com.baidu.bjf.remoting.protobuf.Codec;
-import com.baidu.bjf.remoting.protobuf.ProtobufProxy;
 import com.baidu.bjf.remoting.protobuf.annotation.Protobuf;
 
 /**
@@ -31,9 +29,6 @@ import com.baidu.bjf.remoting.protobuf.annotation.Protobuf;
  */
 public class ChunkInfo implements Readable, Writerable {
 
-    /** The Constant CODEC. */
-    private static final Codec<ChunkInfo> CODEC = ProtobufProxy.create(ChunkInfo.class);
-
     /** 用于唯一标识一个数据流，由发送方保证其唯一性，协议不对此进行任何检查. */
     @Protobuf(required = true)
     private Long streamId;
@@ -84,11 +79,7 @@ public class ChunkInfo implements Readable, Writerable {
      * @see com.baidu.jprotobuf.remoting.pbrpc.Writerable#write()
      */
     public byte[] write() {
-        try {
-            return CODEC.encode(this);
-        } catch (IOException e) {
-            throw new RuntimeException(e.getMessage(), e);
-        }
+        return RpcMetaCodec.encode(this);
     }
 
     /*
@@ -101,9 +92,7 @@ public class ChunkInfo implements Readable, Writerable {
             throw new IllegalArgumentException("param 'bytes' is null");
         }
         try {
-            ChunkInfo info = CODEC.decode(bytes);
-            setChunkId(info.getChunkId());
-            setStreamId(info.getStreamId());
+            RpcMetaCodec.decode(bytes, this);
         } catch (IOException e) {
             throw new RuntimeException(e.getMessage(), e);
         }
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.data;
+
+import io.netty.buffer.ByteBuf;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * {@link RpcDataPackage} decoded in place from a received frame. Data and attachment are kept as retained slices of
+ * the frame buffer and only copied into byte array on first access. If neither is accessed, {@link #release()} must
+ * be called to free the slices.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class LazyRpcDataPackage extends RpcDataPackage {
+
+    /** The data buffer. */
+    private ByteBuf dataBuf;
+
+    /** The attachment buffer. */
+    private ByteBuf attachmentBuf;
+
+    /**
+     * Read {@link LazyRpcDataPackage} from frame buffer. Reader index of buffer will move to the end of this package.
+     *
+     * @param buf the frame buffer start with {@link RpcHeadMeta}
+     * @param headMeta the head meta already parsed from buffer
+     * @return the lazy rpc data package
+     */
+    public static LazyRpcDataPackage read(ByteBuf buf, RpcHeadMeta headMeta) {
+        buf.skipBytes(RpcHeadMeta.SIZE);
+
+        int metaSize = headMeta.getMetaSize();
+        RpcMeta rpcMeta = new RpcMeta();
+        try {
+            RpcMetaCodec.read(buf, metaSize, rpcMeta);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+
+        int attachmentSize = rpcMeta.getAttachmentSize();
+        int dataSize = headMeta.getMessageSize() - metaSize - attachmentSize;
+
+        LazyRpcDataPackage dataPackage = new LazyRpcDataPackage();
+        dataPackage.setHead(headMeta);
+        dataPackage.setRpcMeta(rpcMeta);
+        if (dataSize > 0) {
+            dataPackage.dataBuf = buf.readSlice(dataSize).retain();
+        }
+        if (attachmentSize > 0) {
+            dataPackage.attachmentBuf = buf.readSlice(attachmentSize).retain();
+        }
+        return dataPackage;
+    }
+
+    /**
+     * Copy bytes from buffer and release it.
+     *
+     * @param buf the buffer
+     * @return the byte array
+     */
+    private static byte[] materialize(ByteBuf buf) {
+        byte[] bytes = new byte[buf.readableBytes()];
+        buf.getBytes(buf.readerIndex(), bytes);
+        buf.release();
+        return bytes;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.data.RpcDataPackage#getData()
+     */
+    @Override
+    public synchronized byte[] getData() {
+        if (dataBuf != null) {
+            super.setData(materialize(dataBuf));
+            dataBuf = null;
+        }
+        return super.getData();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.data.RpcDataPackage#setData(byte[])
+     */
+    @Override
+    public synchronized void setData(byte[] data) {
+        if (dataBuf != null) {
+            dataBuf.release();
+            dataBuf = null;
+        }
+        super.setData(data);
+    }
+
+    /**
+     * Take data buffer without copy, afterwards data of this package is empty until set again. Caller owns the buffer
+     * and must release it.
+     *
+     * @return the data buffer, null if data is not kept in buffer
+     */
+    public synchronized ByteBuf takeDataBuf() {
+        ByteBuf buf = dataBuf;
+        dataBuf = null;
+        return buf;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.data.RpcDataPackage#getAttachment()
+     */
+    @Override
+    public synchronized byte[] getAttachment() {
+        if (attachmentBuf != null) {
+            super.setAttachment(materialize(attachmentBuf));
+            attachmentBuf = null;
+        }
+        return super.getAttachment();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.data.RpcDataPackage#setAttachment(byte[])
+     */
+    @Override
+    public synchronized void setAttachment(byte[] attachment) {
+        if (attachmentBuf != null) {
+            attachmentBuf.release();
+            attachmentBuf = null;
+        }
+        super.setAttachment(attachment);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.data.RpcDataPackage#mergeData(byte[])
+     */
+    @Override
+    public void mergeData(byte[] data) {
+        getData();
+        super.mergeData(data);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.data.RpcDataPackage#chunk(long)
+     */
+    @Override
+    public List<RpcDataPackage> chunk(long chunkSize) {
+        getData();
+        getAttachment();
+        return super.chunk(chunkSize);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.data.RpcDataPackage#copy()
+     */
+    @Override
+    public RpcDataPackage copy() {
+        getData();
+        getAttachment();
+        return super.copy();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.data.RpcDataPackage#write()
+     */
+    @Override
+    public byte[] write() {
+        getData();
+        getAttachment();
+        return super.write();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.data.RpcDataPackage#release()
+     */
+    @Override
+    public synchronized void release() {
+        if (dataBuf != null) {
+            dataBuf.release();
+            dataBuf = null;
+        }
+        if (attachmentBuf != null) {
+            attachmentBuf.release();
+            attachmentBuf = null;
+        }
+    }
+
+}
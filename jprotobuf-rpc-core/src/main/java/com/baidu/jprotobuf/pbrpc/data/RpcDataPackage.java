@@ -31,6 +31,8 @@ import com.baidu.jprotobuf.pbrpc.LogIDGenerator;
 import com.baidu.jprotobuf.pbrpc.client.RpcMethodInfo;
 import com.baidu.jprotobuf.pbrpc.utils.ArrayUtils;
 import com.baidu.jprotobuf.pbrpc.utils.LogIdThreadLocalHolder;
+import com.baidu.jprotobuf.pbrpc.utils.ServiceSignatureUtils;
+import com.baidu.jprotobuf.pbrpc.utils.StringUtils;
 
 /**
  * RPC 包数据完整定义实现.
@@ -58,6 +60,12 @@ public class RpcDataPackage implements Readable, Writerable {
     /** The time stamp. */
     private long timeStamp;
 
+    /** The pre-encoded request meta template. */
+    private RpcMetaTemplate metaTemplate;
+
+    /** The service signature kept after request meta is removed. */
+    private String serviceSignature;
+
     /**
      * Merge data.
      *
@@ -177,6 +185,8 @@ public class RpcDataPackage implements Readable, Writerable {
 
         rpcDataPackage.setData(data);
         rpcDataPackage.setAttachment(attachment);
+        rpcDataPackage.setMetaTemplate(metaTemplate);
+        rpcDataPackage.serviceSignature = serviceSignature;
 
         return rpcDataPackage;
     }
@@ -286,6 +296,18 @@ public class RpcDataPackage implements Readable, Writerable {
         return this;
     }
 
+    /**
+     * Timeout in milliseconds which server side could use to drop expired request.
+     *
+     * @param timeout the timeout
+     * @return the rpc data package
+     */
+    public RpcDataPackage timeout(long timeout) {
+        RpcRequestMeta request = initRequest();
+        request.setTimeout(timeout);
+        return this;
+    }
+
     /**
      * Error code.
      *
@@ -486,6 +508,77 @@ public class RpcDataPackage implements Readable, Writerable {
         this.attachment = attachment;
     }
 
+    /**
+     * Remove request meta and authentication data echoed from request, so response meta only carries correlation
+     * id, response status, compress type and sizes.
+     *
+     * @return the rpc data package
+     */
+    public RpcDataPackage slimResponseMeta() {
+        if (rpcMeta != null) {
+            serviceSignature = getServiceSignature();
+            rpcMeta.setRequest(null);
+            rpcMeta.setAuthenticationData(null);
+        }
+        return this;
+    }
+
+    /**
+     * Gets the service signature of this package. Request meta may not tell it as names are left empty if request is
+     * dispatched by method id and removed by {@link #slimResponseMeta()}, so signature set or of meta template is
+     * preferred.
+     *
+     * @return the service signature, {@code null} if unknown
+     */
+    public String getServiceSignature() {
+        if (serviceSignature != null) {
+            return serviceSignature;
+        }
+        if (metaTemplate != null) {
+            return ServiceSignatureUtils.makeSignature(metaTemplate.getServiceName(), metaTemplate.getMethodName());
+        }
+        RpcRequestMeta request = rpcMeta == null ? null : rpcMeta.getRequest();
+        if (request != null && !StringUtils.isEmpty(request.getMethodName())) {
+            return ServiceSignatureUtils.makeSignature(request.getSerivceName(), request.getMethodName());
+        }
+        return null;
+    }
+
+    /**
+     * Sets the service signature.
+     *
+     * @param serviceSignature the new service signature
+     */
+    public void setServiceSignature(String serviceSignature) {
+        this.serviceSignature = serviceSignature;
+    }
+
+    /**
+     * Gets the pre-encoded request meta template.
+     *
+     * @return the meta template, {@code null} if not set
+     */
+    public RpcMetaTemplate getMetaTemplate() {
+        return metaTemplate;
+    }
+
+    /**
+     * Sets the pre-encoded request meta template which is used by encoder to write request meta.
+     *
+     * @param metaTemplate the new meta template
+     */
+    public void setMetaTemplate(RpcMetaTemplate metaTemplate) {
+        this.metaTemplate = metaTemplate;
+    }
+
+    /**
+     * Release resources held by this package if data or attachment is not read. Default do nothing.
+     * 
+     * @see LazyRpcDataPackage
+     */
+    public void release() {
+    }
+
     /**
      * Gets the error response rpc data package.
      *
@@ -644,8 +737,10 @@ public class RpcDataPackage implements Readable, Writerable {
     public static RpcDataPackage buildRpcDataPackage(RpcMethodInfo methodInfo, Object[] args) throws IOException {
         RpcDataPackage dataPackage = new RpcDataPackage();
         dataPackage.magicCode(ProtocolConstant.MAGIC_CODE);
-        dataPackage.serviceName(methodInfo.getServiceName()).methodName(methodInfo.getMethodName());
-        dataPackage.compressType(methodInfo.getProtobufPRC().compressType().value());
+        RpcMetaTemplate metaTemplate = methodInfo.getMetaTemplate();
+        dataPackage.serviceName(metaTemplate.getServiceName()).methodName(metaTemplate.getMethodName());
+        dataPackage.setMetaTemplate(metaTemplate);
+        dataPackage.compressType(methodInfo.getCompressType());
         // set data
         if (args != null && args.length == 1) {
             byte[] data = methodInfo.inputEncode(args[0]);
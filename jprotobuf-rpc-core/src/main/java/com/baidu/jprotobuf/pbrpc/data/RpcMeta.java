@@ -18,9 +18,7 @@ package com.baidu.jprotobuf.pbrpc.data;
 
 import java.io.IOException;
 
-import com.baidu.bjf.remoting.protobuf.Codec;
 import com.baidu.bjf.remoting.protobuf.FieldType;
-import com.baidu.bjf.remoting.protobuf.ProtobufProxy;
 import com.baidu.bjf.remoting.protobuf.annotation.Protobuf;
 
 /**
@@ -42,9 +40,9 @@ public class RpcMeta implements Readable, Writerable, Cloneable {
     /** The Constant COMPERESS_GZIP. */
     public static final int COMPERESS_GZIP = 2;
     
-    /** Decode and encode handler. */
-    private static final Codec<RpcMeta> CODEC = ProtobufProxy.create(RpcMeta.class);
-
+    /** The Constant COMPRESS_LZ4. */
+    public static final int COMPRESS_LZ4 = 4;
+    
     /** 请求包元数据. */
     @Protobuf(fieldType = FieldType.OBJECT)
     private RpcRequestMeta request;
@@ -57,6 +55,7 @@ public class RpcMeta implements Readable, Writerable, Cloneable {
      * 0 不压缩
      * 1 使用Snappy 1.0.5
      * 2 使用gzip
+     * 4 使用LZ4
      */
     @Protobuf
     private Integer compressType;
@@ -198,11 +197,7 @@ public class RpcMeta implements Readable, Writerable, Cloneable {
      * @see com.baidu.jprotobuf.remoting.pbrpc.Writerable#write()
      */
     public byte[] write() {
-        try {
-            return CODEC.encode(this);
-        } catch (IOException e) {
-            throw new RuntimeException(e.getMessage(), e);
-        }
+        return RpcMetaCodec.encode(this);
     }
 
     /* (non-Javadoc)
@@ -213,31 +208,12 @@ public class RpcMeta implements Readable, Writerable, Cloneable {
             throw new IllegalArgumentException("param 'bytes' is null.");
         }
         try {
-            RpcMeta meta = CODEC.decode(bytes);
-            copyReference(meta);
+            RpcMetaCodec.decode(bytes, this);
         } catch (IOException e) {
             throw new RuntimeException(e.getMessage(), e);
         }
     }
     
-    /**
-     * copy {@link RpcMeta}.
-     *
-     * @param meta the meta
-     */
-    private void copyReference(RpcMeta meta) {
-        if (meta == null) {
-            return;
-        }
-        setRequest(meta.getRequest());
-        setResponse(meta.getResponse());
-        setAttachmentSize(meta.getAttachmentSize());
-        setAuthenticationData(meta.getAuthenticationData());
-        setCompressType(meta.getCompressType());
-        setCorrelationId(meta.getCorrelationId());
-        setChunkInfo(meta.getChunkInfo());
-    }
-    
     /**
      * Copy.
      *
@@ -0,0 +1,956 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.data;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import com.google.protobuf.UninitializedMessageException;
+
+/**
+ * Hand-written protobuf codec of the fixed RPC meta schema: {@link RpcMeta}, {@link RpcRequestMeta},
+ * {@link RpcResponseMeta} and {@link ChunkInfo}. Fields are written to and read from {@link ByteBuf} directly, no
+ * intermediate objects are created.
+ * 
+ * <pre>
+ * message RpcMeta {
+ *     optional RpcRequestMeta request = 1;
+ *     optional RpcResponseMeta response = 2;
+ *     optional int32 compress_type = 3;
+ *     optional int64 correlation_id = 4;
+ *     optional int32 attachment_size = 5;
+ *     optional ChunkInfo chunk_info = 6;
+ *     optional bytes authentication_data = 7;
+ * }
+ * message RpcRequestMeta {
+ *     required string service_name = 1;
+ *     required string method_name = 2;
+ *     optional int64 log_id = 3;
+ *     optional bytes extra_param = 4; // non PbRpc
+ *     optional int32 timeout_ms = 8;
+ *     optional int32 method_id = 100; // non PbRpc
+ * }
+ * message RpcResponseMeta {
+ *     optional int32 error_code = 1;
+ *     optional string error_text = 2;
+ * }
+ * message ChunkInfo {
+ *     required int64 stream_id = 1;
+ *     required int64 chunk_id = 2;
+ * }
+ * </pre>
+ * 
+ * Unknown fields are skipped on read, so fields sent by brpc/hulu peers such as trace_id are ignored.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public final class RpcMetaCodec {
+
+    /** The Constant WIRETYPE_VARINT. */
+    private static final int WIRETYPE_VARINT = 0;
+
+    /** The Constant WIRETYPE_FIXED64. */
+    private static final int WIRETYPE_FIXED64 = 1;
+
+    /** The Constant WIRETYPE_LENGTH_DELIMITED. */
+    private static final int WIRETYPE_LENGTH_DELIMITED = 2;
+
+    /** The Constant WIRETYPE_FIXED32. */
+    private static final int WIRETYPE_FIXED32 = 5;
+
+    /** The Constant TAG_REQUEST. */
+    private static final int TAG_REQUEST = makeTag(1, WIRETYPE_LENGTH_DELIMITED);
+
+    /** The Constant TAG_RESPONSE. */
+    private static final int TAG_RESPONSE = makeTag(2, WIRETYPE_LENGTH_DELIMITED);
+
+    /** The Constant TAG_COMPRESS_TYPE. */
+    private static final int TAG_COMPRESS_TYPE = makeTag(3, WIRETYPE_VARINT);
+
+    /** The Constant TAG_CORRELATION_ID. */
+    private static final int TAG_CORRELATION_ID = makeTag(4, WIRETYPE_VARINT);
+
+    /** The Constant TAG_ATTACHMENT_SIZE. */
+    private static final int TAG_ATTACHMENT_SIZE = makeTag(5, WIRETYPE_VARINT);
+
+    /** The Constant TAG_CHUNK_INFO. */
+    private static final int TAG_CHUNK_INFO = makeTag(6, WIRETYPE_LENGTH_DELIMITED);
+
+    /** The Constant TAG_AUTHENTICATION_DATA. */
+    private static final int TAG_AUTHENTICATION_DATA = makeTag(7, WIRETYPE_LENGTH_DELIMITED);
+
+    /** The Constant TAG_SERVICE_NAME. */
+    private static final int TAG_SERVICE_NAME = makeTag(1, WIRETYPE_LENGTH_DELIMITED);
+
+    /** The Constant TAG_METHOD_NAME. */
+    private static final int TAG_METHOD_NAME = makeTag(2, WIRETYPE_LENGTH_DELIMITED);
+
+    /** The Constant TAG_LOG_ID. */
+    private static final int TAG_LOG_ID = makeTag(3, WIRETYPE_VARINT);
+
+    /** The Constant TAG_EXTRA_PARAM. */
+    private static final int TAG_EXTRA_PARAM = makeTag(4, WIRETYPE_LENGTH_DELIMITED);
+
+    /** The Constant TAG_TIMEOUT, same as timeout_ms of brpc. */
+    private static final int TAG_TIMEOUT = makeTag(8, WIRETYPE_VARINT);
+
+    /** The Constant TAG_METHOD_ID, out of range used by brpc/hulu. */
+    private static final int TAG_METHOD_ID = makeTag(100, WIRETYPE_VARINT);
+
+    /** The Constant TAG_ERROR_CODE. */
+    private static final int TAG_ERROR_CODE = makeTag(1, WIRETYPE_VARINT);
+
+    /** The Constant TAG_ERROR_TEXT. */
+    private static final int TAG_ERROR_TEXT = makeTag(2, WIRETYPE_LENGTH_DELIMITED);
+
+    /** The Constant TAG_STREAM_ID. */
+    private static final int TAG_STREAM_ID = makeTag(1, WIRETYPE_VARINT);
+
+    /** The Constant TAG_CHUNK_ID. */
+    private static final int TAG_CHUNK_ID = makeTag(2, WIRETYPE_VARINT);
+
+    /**
+     * Instantiates a new rpc meta codec.
+     */
+    private RpcMetaCodec() {
+    }
+
+    /**
+     * Make tag.
+     *
+     * @param fieldNumber the field number
+     * @param wireType the wire type
+     * @return the tag
+     */
+    private static int makeTag(int fieldNumber, int wireType) {
+        return (fieldNumber << 3) | wireType;
+    }
+
+    /**
+     * Encode {@link RpcMeta} to byte array.
+     *
+     * @param meta the meta
+     * @return the byte array
+     */
+    public static byte[] encode(RpcMeta meta) {
+        byte[] bytes = new byte[computeSize(meta)];
+        write(meta, Unpooled.wrappedBuffer(bytes).clear());
+        return bytes;
+    }
+
+    /**
+     * Encode {@link RpcRequestMeta} to byte array.
+     *
+     * @param request the request
+     * @return the byte array
+     */
+    public static byte[] encode(RpcRequestMeta request) {
+        byte[] bytes = new byte[computeSize(request)];
+        write(request, Unpooled.wrappedBuffer(bytes).clear());
+        return bytes;
+    }
+
+    /**
+     * Encode {@link RpcResponseMeta} to byte array.
+     *
+     * @param response the response
+     * @return the byte array
+     */
+    public static byte[] encode(RpcResponseMeta response) {
+        byte[] bytes = new byte[computeSize(response)];
+        write(response, Unpooled.wrappedBuffer(bytes).clear());
+        return bytes;
+    }
+
+    /**
+     * Encode {@link ChunkInfo} to byte array.
+     *
+     * @param chunkInfo the chunk info
+     * @return the byte array
+     */
+    public static byte[] encode(ChunkInfo chunkInfo) {
+        byte[] bytes = new byte[computeSize(chunkInfo)];
+        write(chunkInfo, Unpooled.wrappedBuffer(bytes).clear());
+        return bytes;
+    }
+
+    /**
+     * Decode byte array into {@link RpcMeta}.
+     *
+     * @param bytes the bytes
+     * @param meta the meta to fill
+     * @throws IOException in case of malformed bytes
+     */
+    public static void decode(byte[] bytes, RpcMeta meta) throws IOException {
+        read(Unpooled.wrappedBuffer(bytes), bytes.length, meta);
+    }
+
+    /**
+     * Decode byte array into {@link RpcRequestMeta}.
+     *
+     * @param bytes the bytes
+     * @param request the request to fill
+     * @throws IOException in case of malformed bytes
+     */
+    public static void decode(byte[] bytes, RpcRequestMeta request) throws IOException {
+        read(Unpooled.wrappedBuffer(bytes), bytes.length, request);
+    }
+
+    /**
+     * Decode byte array into {@link RpcResponseMeta}.
+     *
+     * @param bytes the bytes
+     * @param response the response to fill
+     * @throws IOException in case of malformed bytes
+     */
+    public static void decode(byte[] bytes, RpcResponseMeta response) throws IOException {
+        read(Unpooled.wrappedBuffer(bytes), bytes.length, response);
+    }
+
+    /**
+     * Decode byte array into {@link ChunkInfo}.
+     *
+     * @param bytes the bytes
+     * @param chunkInfo the chunk info to fill
+     * @throws IOException in case of malformed bytes
+     */
+    public static void decode(byte[] bytes, ChunkInfo chunkInfo) throws IOException {
+        read(Unpooled.wrappedBuffer(bytes), bytes.length, chunkInfo);
+    }
+
+    /**
+     * Compute encoded size of {@link RpcMeta}.
+     *
+     * @param meta the meta
+     * @return the encoded size
+     */
+    public static int computeSize(RpcMeta meta) {
+        int size = 0;
+        RpcRequestMeta request = meta.getRequest();
+        if (request != null) {
+            size += computeMessageSize(TAG_REQUEST, computeSize(request));
+        }
+        return size + computeSizeExceptRequest(meta);
+    }
+
+    /**
+     * Compute encoded size of {@link RpcMeta} with pre-encoded request meta template. Only the variable fields are
+     * computed if template is applicable, otherwise it is the same as {@link #computeSize(RpcMeta)}.
+     *
+     * @param meta the meta
+     * @param template the template, could be {@code null}
+     * @return the encoded size
+     */
+    public static int computeSize(RpcMeta meta, RpcMetaTemplate template) {
+        RpcRequestMeta request = meta.getRequest();
+        if (template == null || !template.isApplicable(request)) {
+            return computeSize(meta);
+        }
+        int requestSize = template.getEncodedNames().length + computeOptionalSize(request);
+        return computeMessageSize(TAG_REQUEST, requestSize) + computeSizeExceptRequest(meta);
+    }
+
+    /**
+     * Compute encoded size of all fields of {@link RpcMeta} except request.
+     *
+     * @param meta the meta
+     * @return the encoded size
+     */
+    private static int computeSizeExceptRequest(RpcMeta meta) {
+        int size = 0;
+        RpcResponseMeta response = meta.getResponse();
+        if (response != null) {
+            size += computeMessageSize(TAG_RESPONSE, computeSize(response));
+        }
+        int compressType = meta.getCompressType();
+        if (compressType != RpcMeta.COMPRESS_NO) {
+            size += computeTagSize(TAG_COMPRESS_TYPE) + computeInt32Size(compressType);
+        }
+        size += computeTagSize(TAG_CORRELATION_ID) + computeVarint64Size(meta.getCorrelationId());
+        int attachmentSize = meta.getAttachmentSize();
+        if (attachmentSize != 0) {
+            size += computeTagSize(TAG_ATTACHMENT_SIZE) + computeInt32Size(attachmentSize);
+        }
+        ChunkInfo chunkInfo = meta.getChunkInfo();
+        if (chunkInfo != null) {
+            size += computeMessageSize(TAG_CHUNK_INFO, computeSize(chunkInfo));
+        }
+        byte[] authenticationData = meta.getAuthenticationData();
+        if (authenticationData != null) {
+            size += computeMessageSize(TAG_AUTHENTICATION_DATA, authenticationData.length);
+        }
+        return size;
+    }
+
+    /**
+     * Compute encoded size of {@link RpcRequestMeta}.
+     *
+     * @param request the request
+     * @return the encoded size
+     */
+    public static int computeSize(RpcRequestMeta request) {
+        checkRequired(request.getSerivceName(), "serviceName");
+        checkRequired(request.getMethodName(), "methodName");
+        int size = computeMessageSize(TAG_SERVICE_NAME, computeUtf8Size(request.getSerivceName()));
+        size += computeMessageSize(TAG_METHOD_NAME, computeUtf8Size(request.getMethodName()));
+        return size + computeOptionalSize(request);
+    }
+
+    /**
+     * Compute encoded size of optional fields of {@link RpcRequestMeta}.
+     *
+     * @param request the request
+     * @return the encoded size
+     */
+    private static int computeOptionalSize(RpcRequestMeta request) {
+        int size = 0;
+        Long logId = request.getLogId();
+        if (logId != null) {
+            size += computeTagSize(TAG_LOG_ID) + computeVarint64Size(logId);
+        }
+        byte[] extraParam = request.getExtraParam();
+        if (extraParam != null) {
+            size += computeMessageSize(TAG_EXTRA_PARAM, extraParam.length);
+        }
+        Long timeout = request.getTimeout();
+        if (timeout != null) {
+            size += computeTagSize(TAG_TIMEOUT) + computeVarint64Size(timeout);
+        }
+        Integer methodId = request.getMethodId();
+        if (methodId != null) {
+            size += computeTagSize(TAG_METHOD_ID) + computeInt32Size(methodId);
+        }
+        return size;
+    }
+
+    /**
+     * Compute encoded size of {@link RpcResponseMeta}.
+     *
+     * @param response the response
+     * @return the encoded size
+     */
+    public static int computeSize(RpcResponseMeta response) {
+        int size = 0;
+        Integer errorCode = response.getErrorCode();
+        if (errorCode != null) {
+            size += computeTagSize(TAG_ERROR_CODE) + computeInt32Size(errorCode);
+        }
+        String errorText = response.getErrorText();
+        if (errorText != null) {
+            size += computeMessageSize(TAG_ERROR_TEXT, computeUtf8Size(errorText));
+        }
+        return size;
+    }
+
+    /**
+     * Compute encoded size of {@link ChunkInfo}.
+     *
+     * @param chunkInfo the chunk info
+     * @return the encoded size
+     */
+    public static int computeSize(ChunkInfo chunkInfo) {
+        checkRequired(chunkInfo.getStreamId(), "streamId");
+        return computeTagSize(TAG_STREAM_ID) + computeVarint64Size(chunkInfo.getStreamId())
+                + computeTagSize(TAG_CHUNK_ID) + computeVarint64Size(chunkInfo.getChunkId());
+    }
+
+    /**
+     * Write {@link RpcMeta} into buffer.
+     *
+     * @param meta the meta
+     * @param out the buffer
+     */
+    public static void write(RpcMeta meta, ByteBuf out) {
+        RpcRequestMeta request = meta.getRequest();
+        if (request != null) {
+            writeVarint32(out, TAG_REQUEST);
+            writeVarint32(out, computeSize(request));
+            write(request, out);
+        }
+        writeExceptRequest(meta, out);
+    }
+
+    /**
+     * Write {@link RpcMeta} into buffer with pre-encoded request meta template. Service name and method name are
+     * copied from template if it is applicable, otherwise it is the same as {@link #write(RpcMeta, ByteBuf)}. Output
+     * bytes are identical in both cases.
+     *
+     * @param meta the meta
+     * @param template the template, could be {@code null}
+     * @param out the buffer
+     */
+    public static void write(RpcMeta meta, RpcMetaTemplate template, ByteBuf out) {
+        RpcRequestMeta request = meta.getRequest();
+        if (template == null || !template.isApplicable(request)) {
+            write(meta, out);
+            return;
+        }
+        byte[] encodedNames = template.getEncodedNames();
+        writeVarint32(out, TAG_REQUEST);
+        writeVarint32(out, encodedNames.length + computeOptionalSize(request));
+        out.writeBytes(encodedNames);
+        writeOptional(request, out);
+        writeExceptRequest(meta, out);
+    }
+
+    /**
+     * Write all fields of {@link RpcMeta} except request into buffer.
+     *
+     * @param meta the meta
+     * @param out the buffer
+     */
+    private static void writeExceptRequest(RpcMeta meta, ByteBuf out) {
+        RpcResponseMeta response = meta.getResponse();
+        if (response != null) {
+            writeVarint32(out, TAG_RESPONSE);
+            writeVarint32(out, computeSize(response));
+            write(response, out);
+        }
+        int compressType = meta.getCompressType();
+        if (compressType != RpcMeta.COMPRESS_NO) {
+            writeVarint32(out, TAG_COMPRESS_TYPE);
+            writeInt32(out, compressType);
+        }
+        writeVarint32(out, TAG_CORRELATION_ID);
+        writeVarint64(out, meta.getCorrelationId());
+        int attachmentSize = meta.getAttachmentSize();
+        if (attachmentSize != 0) {
+            writeVarint32(out, TAG_ATTACHMENT_SIZE);
+            writeInt32(out, attachmentSize);
+        }
+        ChunkInfo chunkInfo = meta.getChunkInfo();
+        if (chunkInfo != null) {
+            writeVarint32(out, TAG_CHUNK_INFO);
+            writeVarint32(out, computeSize(chunkInfo));
+            write(chunkInfo, out);
+        }
+        byte[] authenticationData = meta.getAuthenticationData();
+        if (authenticationData != null) {
+            writeVarint32(out, TAG_AUTHENTICATION_DATA);
+            writeVarint32(out, authenticationData.length);
+            out.writeBytes(authenticationData);
+        }
+    }
+
+    /**
+     * Write {@link RpcRequestMeta} into buffer.
+     *
+     * @param request the request
+     * @param out the buffer
+     */
+    public static void write(RpcRequestMeta request, ByteBuf out) {
+        checkRequired(request.getSerivceName(), "serviceName");
+        checkRequired(request.getMethodName(), "methodName");
+        writeVarint32(out, TAG_SERVICE_NAME);
+        writeString(out, request.getSerivceName());
+        writeVarint32(out, TAG_METHOD_NAME);
+        writeString(out, request.getMethodName());
+        writeOptional(request, out);
+    }
+
+    /**
+     * Write optional fields of {@link RpcRequestMeta} into buffer.
+     *
+     * @param request the request
+     * @param out the buffer
+     */
+    private static void writeOptional(RpcRequestMeta request, ByteBuf out) {
+        Long logId = request.getLogId();
+        if (logId != null) {
+            writeVarint32(out, TAG_LOG_ID);
+            writeVarint64(out, logId);
+        }
+        byte[] extraParam = request.getExtraParam();
+        if (extraParam != null) {
+            writeVarint32(out, TAG_EXTRA_PARAM);
+            writeVarint32(out, extraParam.length);
+            out.writeBytes(extraParam);
+        }
+        Long timeout = request.getTimeout();
+        if (timeout != null) {
+            writeVarint32(out, TAG_TIMEOUT);
+            writeVarint64(out, timeout);
+        }
+        Integer methodId = request.getMethodId();
+        if (methodId != null) {
+            writeVarint32(out, TAG_METHOD_ID);
+            writeInt32(out, methodId);
+        }
+    }
+
+    /**
+     * Write {@link RpcResponseMeta} into buffer.
+     *
+     * @param response the response
+     * @param out the buffer
+     */
+    public static void write(RpcResponseMeta response, ByteBuf out) {
+        Integer errorCode = response.getErrorCode();
+        if (errorCode != null) {
+            writeVarint32(out, TAG_ERROR_CODE);
+            writeInt32(out, errorCode);
+        }
+        String errorText = response.getErrorText();
+        if (errorText != null) {
+            writeVarint32(out, TAG_ERROR_TEXT);
+            writeString(out, errorText);
+        }
+    }
+
+    /**
+     * Write {@link ChunkInfo} into buffer.
+     *
+     * @param chunkInfo the chunk info
+     * @param out the buffer
+     */
+    public static void write(ChunkInfo chunkInfo, ByteBuf out) {
+        checkRequired(chunkInfo.getStreamId(), "streamId");
+        writeVarint32(out, TAG_STREAM_ID);
+        writeVarint64(out, chunkInfo.getStreamId());
+        writeVarint32(out, TAG_CHUNK_ID);
+        writeVarint64(out, chunkInfo.getChunkId());
+    }
+
+    /**
+     * Read {@link RpcMeta} from buffer, fields of target are replaced.
+     *
+     * @param in the buffer, reader index is advanced by length
+     * @param length the encoded length
+     * @param meta the meta to fill
+     * @throws IOException in case of malformed bytes
+     */
+    public static void read(ByteBuf in, int length, RpcMeta meta) throws IOException {
+        meta.setRequest(null);
+        meta.setResponse(null);
+        meta.setCompressType(null);
+        meta.setCorrelationId(null);
+        meta.setAttachmentSize(null);
+        meta.setChunkInfo(null);
+        meta.setAuthenticationData(null);
+
+        int limit = checkLimit(in, length);
+        while (in.readerIndex() < limit) {
+            int tag = (int) readVarint64(in, limit);
+            if (tag == TAG_REQUEST) {
+                RpcRequestMeta request = new RpcRequestMeta();
+                read(in, readLength(in, limit), request);
+                meta.setRequest(request);
+            } else if (tag == TAG_RESPONSE) {
+                RpcResponseMeta response = new RpcResponseMeta();
+                read(in, readLength(in, limit), response);
+                meta.setResponse(response);
+            } else if (tag == TAG_COMPRESS_TYPE) {
+                meta.setCompressType((int) readVarint64(in, limit));
+            } else if (tag == TAG_CORRELATION_ID) {
+                meta.setCorrelationId(readVarint64(in, limit));
+            } else if (tag == TAG_ATTACHMENT_SIZE) {
+                meta.setAttachmentSize((int) readVarint64(in, limit));
+            } else if (tag == TAG_CHUNK_INFO) {
+                ChunkInfo chunkInfo = new ChunkInfo();
+                read(in, readLength(in, limit), chunkInfo);
+                meta.setChunkInfo(chunkInfo);
+            } else if (tag == TAG_AUTHENTICATION_DATA) {
+                meta.setAuthenticationData(readBytes(in, limit));
+            } else {
+                skipField(in, tag, limit);
+            }
+        }
+    }
+
+    /**
+     * Read {@link RpcRequestMeta} from buffer, fields of target are replaced.
+     *
+     * @param in the buffer, reader index is advanced by length
+     * @param length the encoded length
+     * @param request the request to fill
+     * @throws IOException in case of malformed bytes
+     */
+    public static void read(ByteBuf in, int length, RpcRequestMeta request) throws IOException {
+        request.setServiceName(null);
+        request.setMethodName(null);
+        request.setLogId(null);
+        request.setExtraParam(null);
+        request.setTimeout(null);
+        request.setMethodId(null);
+
+        int limit = checkLimit(in, length);
+        while (in.readerIndex() < limit) {
+            int tag = (int) readVarint64(in, limit);
+            if (tag == TAG_SERVICE_NAME) {
+                request.setServiceName(readString(in, limit));
+            } else if (tag == TAG_METHOD_NAME) {
+                request.setMethodName(readString(in, limit));
+            } else if (tag == TAG_LOG_ID) {
+                request.setLogId(readVarint64(in, limit));
+            } else if (tag == TAG_EXTRA_PARAM) {
+                request.setExtraParam(readBytes(in, limit));
+            } else if (tag == TAG_TIMEOUT) {
+                request.setTimeout(readVarint64(in, limit));
+            } else if (tag == TAG_METHOD_ID) {
+                request.setMethodId((int) readVarint64(in, limit));
+            } else {
+                skipField(in, tag, limit);
+            }
+        }
+    }
+
+    /**
+     * Read {@link RpcResponseMeta} from buffer, fields of target are replaced.
+     *
+     * @param in the buffer, reader index is advanced by length
+     * @param length the encoded length
+     * @param response the response to fill
+     * @throws IOException in case of malformed bytes
+     */
+    public static void read(ByteBuf in, int length, RpcResponseMeta response) throws IOException {
+        response.setErrorCode(null);
+        response.setErrorText(null);
+
+        int limit = checkLimit(in, length);
+        while (in.readerIndex() < limit) {
+            int tag = (int) readVarint64(in, limit);
+            if (tag == TAG_ERROR_CODE) {
+                response.setErrorCode((int) readVarint64(in, limit));
+            } else if (tag == TAG_ERROR_TEXT) {
+                response.setErrorText(readString(in, limit));
+            } else {
+                skipField(in, tag, limit);
+            }
+        }
+    }
+
+    /**
+     * Read {@link ChunkInfo} from buffer, fields of target are replaced.
+     *
+     * @param in the buffer, reader index is advanced by length
+     * @param length the encoded length
+     * @param chunkInfo the chunk info to fill
+     * @throws IOException in case of malformed bytes
+     */
+    public static void read(ByteBuf in, int length, ChunkInfo chunkInfo) throws IOException {
+        chunkInfo.setStreamId(null);
+        chunkInfo.setChunkId(-1);
+
+        int limit = checkLimit(in, length);
+        while (in.readerIndex() < limit) {
+            int tag = (int) readVarint64(in, limit);
+            if (tag == TAG_STREAM_ID) {
+                chunkInfo.setStreamId(readVarint64(in, limit));
+            } else if (tag == TAG_CHUNK_ID) {
+                chunkInfo.setChunkId(readVarint64(in, limit));
+            } else {
+                skipField(in, tag, limit);
+            }
+        }
+    }
+
+    /**
+     * Check required field is set.
+     *
+     * @param value the value
+     * @param name the field name
+     */
+    private static void checkRequired(Object value, String name) {
+        if (value == null) {
+            throw new UninitializedMessageException(Collections.singletonList(name));
+        }
+    }
+
+    /**
+     * Check length is readable and returns the limit of reader index.
+     *
+     * @param in the buffer
+     * @param length the length
+     * @return the limit
+     * @throws IOException if buffer is truncated
+     */
+    private static int checkLimit(ByteBuf in, int length) throws IOException {
+        if (length < 0 || length > in.readableBytes()) {
+            throw new IOException("RPC meta is truncated, length " + length + " readable " + in.readableBytes());
+        }
+        return in.readerIndex() + length;
+    }
+
+    /**
+     * Compute tag size.
+     *
+     * @param tag the tag
+     * @return the size
+     */
+    private static int computeTagSize(int tag) {
+        return computeVarint64Size(tag);
+    }
+
+    /**
+     * Compute size of length delimited field.
+     *
+     * @param tag the tag
+     * @param length the length of content
+     * @return the size
+     */
+    private static int computeMessageSize(int tag, int length) {
+        return computeTagSize(tag) + computeVarint64Size(length) + length;
+    }
+
+    /**
+     * Compute int32 size, negative value takes 10 bytes as protobuf does.
+     *
+     * @param value the value
+     * @return the size
+     */
+    private static int computeInt32Size(int value) {
+        if (value < 0) {
+            return 10;
+        }
+        return computeVarint64Size(value);
+    }
+
+    /**
+     * Compute varint64 size.
+     *
+     * @param value the value
+     * @return the size
+     */
+    private static int computeVarint64Size(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * Compute UTF-8 encoded size of string, unpaired surrogate is encoded as '?' as {@link String#getBytes} does.
+     *
+     * @param value the value
+     * @return the size
+     */
+    private static int computeUtf8Size(String value) {
+        int length = value.length();
+        int size = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                size += 1;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                // 4 bytes for 2 chars
+                size += 2;
+                i++;
+            } else if (Character.isHighSurrogate(c) || Character.isLowSurrogate(c)) {
+                // replaced by '?'
+                continue;
+            } else {
+                size += 2;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Write varint32, which is unsigned.
+     *
+     * @param out the buffer
+     * @param value the value
+     */
+    private static void writeVarint32(ByteBuf out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Write int32, negative value is sign extended to 64 bits.
+     *
+     * @param out the buffer
+     * @param value the value
+     */
+    private static void writeInt32(ByteBuf out, int value) {
+        if (value >= 0) {
+            writeVarint32(out, value);
+        } else {
+            writeVarint64(out, value);
+        }
+    }
+
+    /**
+     * Write varint64.
+     *
+     * @param out the buffer
+     * @param value the value
+     */
+    private static void writeVarint64(ByteBuf out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * Write length and UTF-8 bytes of string.
+     *
+     * @param out the buffer
+     * @param value the value
+     */
+    private static void writeString(ByteBuf out, String value) {
+        writeVarint32(out, computeUtf8Size(value));
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                out.writeByte(c);
+            } else if (c < 0x800) {
+                out.writeByte(0xC0 | (c >> 6));
+                out.writeByte(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                out.writeByte(0xF0 | (codePoint >> 18));
+                out.writeByte(0x80 | ((codePoint >> 12) & 0x3F));
+                out.writeByte(0x80 | ((codePoint >> 6) & 0x3F));
+                out.writeByte(0x80 | (codePoint & 0x3F));
+            } else if (Character.isHighSurrogate(c) || Character.isLowSurrogate(c)) {
+                out.writeByte('?');
+            } else {
+                out.writeByte(0xE0 | (c >> 12));
+                out.writeByte(0x80 | ((c >> 6) & 0x3F));
+                out.writeByte(0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    /**
+     * Read varint64.
+     *
+     * @param in the buffer
+     * @param limit the limit of reader index
+     * @return the value
+     * @throws IOException in case of malformed varint
+     */
+    private static long readVarint64(ByteBuf in, int limit) throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (in.readerIndex() >= limit) {
+                throw new IOException("RPC meta is truncated in varint.");
+            }
+            byte b = in.readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("RPC meta contains malformed varint.");
+    }
+
+    /**
+     * Read length of length delimited field.
+     *
+     * @param in the buffer
+     * @param limit the limit of reader index
+     * @return the length
+     * @throws IOException in case of length exceeds limit
+     */
+    private static int readLength(ByteBuf in, int limit) throws IOException {
+        long length = readVarint64(in, limit);
+        if (length < 0 || length > limit - in.readerIndex()) {
+            throw new IOException("RPC meta is truncated, field length " + length);
+        }
+        return (int) length;
+    }
+
+    /**
+     * Read string.
+     *
+     * @param in the buffer
+     * @param limit the limit of reader index
+     * @return the string
+     * @throws IOException in case of malformed bytes
+     */
+    private static String readString(ByteBuf in, int limit) throws IOException {
+        int length = readLength(in, limit);
+        if (length == 0) {
+            return "";
+        }
+        String value;
+        if (in.hasArray()) {
+            value = new String(in.array(), in.arrayOffset() + in.readerIndex(), length, CharsetUtil.UTF_8);
+        } else {
+            byte[] bytes = new byte[length];
+            in.getBytes(in.readerIndex(), bytes);
+            value = new String(bytes, CharsetUtil.UTF_8);
+        }
+        in.skipBytes(length);
+        return value;
+    }
+
+    /**
+     * Read bytes.
+     *
+     * @param in the buffer
+     * @param limit the limit of reader index
+     * @return the bytes
+     * @throws IOException in case of malformed bytes
+     */
+    private static byte[] readBytes(ByteBuf in, int limit) throws IOException {
+        byte[] bytes = new byte[readLength(in, limit)];
+        in.readBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * Skip unknown field.
+     *
+     * @param in the buffer
+     * @param tag the tag
+     * @param limit the limit of reader index
+     * @throws IOException in case of malformed bytes or unsupported wire type
+     */
+    private static void skipField(ByteBuf in, int tag, int limit) throws IOException {
+        int skip;
+        switch (tag & 0x7) {
+            case WIRETYPE_VARINT:
+                readVarint64(in, limit);
+                return;
+            case WIRETYPE_FIXED64:
+                skip = 8;
+                break;
+            case WIRETYPE_LENGTH_DELIMITED:
+                skip = readLength(in, limit);
+                break;
+            case WIRETYPE_FIXED32:
+                skip = 4;
+                break;
+            default:
+                throw new IOException("RPC meta contains unsupported wire type of tag " + tag);
+        }
+        if (skip > limit - in.readerIndex()) {
+            throw new IOException("RPC meta is truncated in unknown field of tag " + tag);
+        }
+        in.skipBytes(skip);
+    }
+}
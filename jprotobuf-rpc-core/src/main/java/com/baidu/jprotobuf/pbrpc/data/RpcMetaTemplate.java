@@ -0,0 +1,96 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.data;
+
+/**
+ * Pre-encoded request meta of a RPC method. Service name and method name never change between calls of the same
+ * method, so they are UTF-8 encoded once and copied as is into each request frame by
+ * {@link RpcMetaCodec#write(RpcMeta, RpcMetaTemplate, io.netty.buffer.ByteBuf)}. Only the variable fields such as
+ * correlation id, log id and sizes are encoded per call.
+ * 
+ * <p>
+ * Template is only applied if the request meta still holds the same service name and method name instances it was
+ * created from, for example method id dispatch replaces them and then the request is encoded field by field.
+ * </p>
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public final class RpcMetaTemplate {
+
+    /** The service name. */
+    private final String serviceName;
+
+    /** The method name. */
+    private final String methodName;
+
+    /** The encoded service name and method name fields of {@link RpcRequestMeta}. */
+    private final byte[] encodedNames;
+
+    /**
+     * Instantiates a new rpc meta template.
+     *
+     * @param serviceName the service name
+     * @param methodName the method name
+     */
+    public RpcMetaTemplate(String serviceName, String methodName) {
+        this.serviceName = serviceName;
+        this.methodName = methodName;
+
+        RpcRequestMeta request = new RpcRequestMeta();
+        request.setServiceName(serviceName);
+        request.setMethodName(methodName);
+        this.encodedNames = RpcMetaCodec.encode(request);
+    }
+
+    /**
+     * Checks if this template could be applied to the request meta.
+     *
+     * @param request the request meta
+     * @return true, if service name and method name are the same instances of this template
+     */
+    public boolean isApplicable(RpcRequestMeta request) {
+        return request != null && request.getSerivceName() == serviceName && request.getMethodName() == methodName;
+    }
+
+    /**
+     * Gets the service name.
+     *
+     * @return the service name
+     */
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    /**
+     * Gets the method name.
+     *
+     * @return the method name
+     */
+    public String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * Gets the encoded service name and method name fields.
+     *
+     * @return the encoded names
+     */
+    byte[] getEncodedNames() {
+        return encodedNames;
+    }
+
+}
@@ -18,9 +18,7 @@ package com.baidu.jprotobuf.pbrpc.data;
 
 import java.io.IOException;
 
-import com.baidu.bjf.remoting.protobuf.Codec;
 import com.baidu.bjf.remoting.protobuf.FieldType;
-import com.baidu.bjf.remoting.protobuf.ProtobufProxy;
 import com.baidu.bjf.remoting.protobuf.annotation.Protobuf;
 
 /**
@@ -31,27 +29,31 @@ import com.baidu.bjf.remoting.protobuf.annotation.Protobuf;
  * @since 1.0
  */
 public class RpcRequestMeta implements Readable, Writerable {
-    
-
-    /** default encode and decode handler. */
-    private static final Codec<RpcRequestMeta> CODEC = ProtobufProxy.create(RpcRequestMeta.class);
 
     /** 服务名. */
-    @Protobuf(required = true)
+    @Protobuf(required = true, order = 1)
     private String serviceName;
     
     /** 方法名. */
-    @Protobuf(required = true)
+    @Protobuf(required = true, order = 2)
     private String methodName;
     
     /** 用于打印日志。可用于存放BFE_LOGID。该参数可选。. */
-    @Protobuf
+    @Protobuf(order = 3)
     private Long logId;
     
     /** 非PbRpc规范，用于传输额外的参数. */
-    @Protobuf(fieldType = FieldType.BYTES)
+    @Protobuf(fieldType = FieldType.BYTES, order = 4)
     private byte[] extraParam;
 
+    /** 客户端剩余的超时时间（毫秒），服务端据此丢弃已超时的请求，同brpc的timeout_ms. */
+    @Protobuf(order = 8)
+    private Long timeout;
+
+    /** 非PbRpc规范，服务端分配的方法ID，设置时服务名和方法名为空字符串. */
+    @Protobuf(order = 100)
+    private Integer methodId;
+
     /**
      * Gets the serivce name.
      *
@@ -115,8 +117,7 @@ public class RpcRequestMeta implements Readable, Writerable {
         }
         
         try {
-            RpcRequestMeta meta = CODEC.decode(bytes);
-            copy(meta);
+            RpcMetaCodec.decode(bytes, this);
         } catch (IOException e) {
             throw new RuntimeException(e.getMessage(), e);
         }
@@ -135,17 +136,15 @@ public class RpcRequestMeta implements Readable, Writerable {
         setMethodName(meta.getMethodName());
         setServiceName(meta.getSerivceName());
         setExtraParam(meta.getExtraParam());
+        setTimeout(meta.getTimeout());
+        setMethodId(meta.getMethodId());
     }
 
     /* (non-Javadoc)
      * @see com.baidu.jprotobuf.remoting.pbrpc.Readable#read()
      */
     public byte[] write() {
-        try {
-            return CODEC.encode(this);
-        } catch (IOException e) {
-            throw new RuntimeException(e.getMessage(), e);
-        }
+        return RpcMetaCodec.encode(this);
     }
 
     /**
@@ -166,6 +165,42 @@ public class RpcRequestMeta implements Readable, Writerable {
         this.extraParam = extraParam;
     }
 
+    /**
+     * Gets the timeout in milliseconds.
+     *
+     * @return the timeout
+     */
+    public Long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Sets the timeout in milliseconds.
+     *
+     * @param timeout the new timeout
+     */
+    public void setTimeout(Long timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Gets the method id assigned by server.
+     *
+     * @return the method id
+     */
+    public Integer getMethodId() {
+        return methodId;
+    }
+
+    /**
+     * Sets the method id assigned by server.
+     *
+     * @param methodId the new method id
+     */
+    public void setMethodId(Integer methodId) {
+        this.methodId = methodId;
+    }
+
     /**
      * Copy.
      *
@@ -18,8 +18,6 @@ package com.baidu.jprotobuf.pbrpc.data;
 
 import java.io.IOException;
 
-import com.baidu.bjf.remoting.protobuf.Codec;
-import com.baidu.bjf.remoting.protobuf.ProtobufProxy;
 import com.baidu.bjf.remoting.protobuf.annotation.Protobuf;
 
 /**
@@ -30,9 +28,6 @@ import com.baidu.bjf.remoting.protobuf.annotation.Protobuf;
  * @since 1.0
  */
 public class RpcResponseMeta implements Readable, Writerable {
-    
-    /** Decode and encode hanlder. */
-    private static final Codec<RpcResponseMeta> CODEC = ProtobufProxy.create(RpcResponseMeta.class);
 
     /**
      * default constrctor.
@@ -103,11 +98,7 @@ public class RpcResponseMeta implements Readable, Writerable {
      * @see com.baidu.jprotobuf.remoting.pbrpc.Writerable#write()
      */
     public byte[] write() {
-        try {
-            return CODEC.encode(this);
-        } catch (IOException e) {
-            throw  new RuntimeException(e.getMessage(), e);
-        }
+        return RpcMetaCodec.encode(this);
     }
     
     /**
@@ -132,8 +123,7 @@ public class RpcResponseMeta implements Readable, Writerable {
         }
         
         try {
-            RpcResponseMeta meta = CODEC.decode(bytes);
-            copy(meta);
+            RpcMetaCodec.decode(bytes, this);
         } catch (IOException e) {
             throw  new RuntimeException(e.getMessage(), e);
         }
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.limit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base class of {@link ConcurrencyLimiter} which keeps in-flight count under a limit.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public abstract class AbstractConcurrencyLimiter implements ConcurrencyLimiter {
+
+    /** The inflight. */
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    /** The limit. */
+    private volatile int limit;
+
+    /**
+     * Instantiates a new abstract concurrency limiter.
+     *
+     * @param initialLimit the initial limit
+     */
+    protected AbstractConcurrencyLimiter(int initialLimit) {
+        this.limit = initialLimit;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.limit.ConcurrencyLimiter#tryAcquire()
+     */
+    @Override
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inflight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.limit.ConcurrencyLimiter#onSuccess(long)
+     */
+    @Override
+    public void onSuccess(long rttNanos) {
+        int current = inflight.getAndDecrement();
+        onSample(rttNanos, current);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.limit.ConcurrencyLimiter#onDropped()
+     */
+    @Override
+    public void onDropped() {
+        int current = inflight.getAndDecrement();
+        onDrop(current);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.limit.ConcurrencyLimiter#onIgnore()
+     */
+    @Override
+    public void onIgnore() {
+        inflight.decrementAndGet();
+    }
+
+    /**
+     * Update limit by latency sample.
+     *
+     * @param rttNanos the round trip time in nanoseconds
+     * @param inflight the in-flight count when request completed
+     */
+    protected abstract void onSample(long rttNanos, int inflight);
+
+    /**
+     * Update limit on request dropped.
+     *
+     * @param inflight the in-flight count when request dropped
+     */
+    protected abstract void onDrop(int inflight);
+
+    /**
+     * Sets the limit.
+     *
+     * @param limit the new limit
+     */
+    protected void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.limit.ConcurrencyLimiter#getLimit()
+     */
+    @Override
+    public int getLimit() {
+        return limit;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.limit.ConcurrencyLimiter#getInflight()
+     */
+    @Override
+    public int getInflight() {
+        return inflight.get();
+    }
+}
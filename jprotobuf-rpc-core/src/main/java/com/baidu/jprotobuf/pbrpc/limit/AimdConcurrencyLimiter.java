@@ -0,0 +1,88 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.limit;
+
+/**
+ * AIMD(additive increase, multiplicative decrease) {@link ConcurrencyLimiter}. The limit grows by one on each
+ * successful request while the limit is in use, and is cut by a ratio when a request times out or is dropped.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class AimdConcurrencyLimiter extends AbstractConcurrencyLimiter {
+
+    /** The Constant DEFAULT_BACKOFF_RATIO. */
+    private static final double DEFAULT_BACKOFF_RATIO = 0.9;
+
+    /** The min limit. */
+    private final int minLimit;
+
+    /** The max limit. */
+    private final int maxLimit;
+
+    /** The backoff ratio. */
+    private final double backoffRatio;
+
+    /**
+     * Instantiates a new aimd concurrency limiter.
+     *
+     * @param initialLimit the initial limit
+     * @param minLimit the min limit
+     * @param maxLimit the max limit
+     */
+    public AimdConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this(initialLimit, minLimit, maxLimit, DEFAULT_BACKOFF_RATIO);
+    }
+
+    /**
+     * Instantiates a new aimd concurrency limiter.
+     *
+     * @param initialLimit the initial limit
+     * @param minLimit the min limit
+     * @param maxLimit the max limit
+     * @param backoffRatio the ratio limit multiplied by on drop, between 0 and 1
+     */
+    public AimdConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio) {
+        super(initialLimit);
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.backoffRatio = backoffRatio;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.limit.AbstractConcurrencyLimiter#onSample(long, int)
+     */
+    @Override
+    protected synchronized void onSample(long rttNanos, int inflight) {
+        int limit = getLimit();
+        // only grow if the limit is really used
+        if (inflight * 2 >= limit && limit < maxLimit) {
+            setLimit(limit + 1);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.limit.AbstractConcurrencyLimiter#onDrop(int)
+     */
+    @Override
+    protected synchronized void onDrop(int inflight) {
+        setLimit(Math.max(minLimit, (int) (getLimit() * backoffRatio)));
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.limit;
+
+/**
+ * Limits in-flight requests. Every successful {@link #tryAcquire()} must be followed by exactly one of
+ * {@link #onSuccess(long)}, {@link #onDropped()} or {@link #onIgnore()}.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public interface ConcurrencyLimiter {
+
+    /**
+     * Try to acquire a permit for a new request.
+     *
+     * @return true, if request is allowed
+     */
+    boolean tryAcquire();
+
+    /**
+     * Release the permit of a completed request and feed its latency to the limit algorithm.
+     *
+     * @param rttNanos the round trip time in nanoseconds
+     */
+    void onSuccess(long rttNanos);
+
+    /**
+     * Release the permit of a request which is dropped or timed out, which is a signal of overload.
+     */
+    void onDropped();
+
+    /**
+     * Release the permit without affecting the limit.
+     */
+    void onIgnore();
+
+    /**
+     * Gets the current limit.
+     *
+     * @return the limit
+     */
+    int getLimit();
+
+    /**
+     * Gets the in-flight request count.
+     *
+     * @return the inflight
+     */
+    int getInflight();
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.limit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the server wide {@link ConcurrencyLimiter} and optional per method limiters.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class ConcurrencyLimiterRegistry {
+
+    /** The initial limit. */
+    private final int initialLimit;
+
+    /** The max limit. */
+    private final int maxLimit;
+
+    /** The server limiter. */
+    private final ConcurrencyLimiter serverLimiter;
+
+    /** The method limiters, null if per method limit is disabled. */
+    private final ConcurrentHashMap<String, ConcurrencyLimiter> methodLimiters;
+
+    /**
+     * Instantiates a new concurrency limiter registry.
+     *
+     * @param initialLimit the initial limit
+     * @param maxLimit the max limit
+     * @param perMethod if true, each method has its own limiter too
+     */
+    public ConcurrencyLimiterRegistry(int initialLimit, int maxLimit, boolean perMethod) {
+        this.initialLimit = initialLimit;
+        this.maxLimit = maxLimit;
+        this.serverLimiter = createLimiter();
+        if (perMethod) {
+            methodLimiters = new ConcurrentHashMap<String, ConcurrencyLimiter>();
+        } else {
+            methodLimiters = null;
+        }
+    }
+
+    /**
+     * Creates the limiter.
+     *
+     * @return the concurrency limiter
+     */
+    protected ConcurrencyLimiter createLimiter() {
+        return new GradientConcurrencyLimiter(initialLimit, 1, maxLimit);
+    }
+
+    /**
+     * Gets the server limiter.
+     *
+     * @return the server limiter
+     */
+    public ConcurrencyLimiter getServerLimiter() {
+        return serverLimiter;
+    }
+
+    /**
+     * Gets the method limiter.
+     *
+     * @param methodSignature the method signature
+     * @return the method limiter, or null if per method limit is disabled
+     */
+    public ConcurrencyLimiter getMethodLimiter(String methodSignature) {
+        if (methodLimiters == null) {
+            return null;
+        }
+        ConcurrencyLimiter limiter = methodLimiters.get(methodSignature);
+        if (limiter == null) {
+            limiter = createLimiter();
+            ConcurrencyLimiter old = methodLimiters.putIfAbsent(methodSignature, limiter);
+            if (old != null) {
+                limiter = old;
+            }
+        }
+        return limiter;
+    }
+
+    /**
+     * Gets the method limiters.
+     *
+     * @return the method limiters, empty if per method limit is disabled
+     */
+    public Map<String, ConcurrencyLimiter> getMethodLimiters() {
+        if (methodLimiters == null) {
+            return new ConcurrentHashMap<String, ConcurrencyLimiter>();
+        }
+        return methodLimiters;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.limit;
+
+/**
+ * Gradient based {@link ConcurrencyLimiter}. It compares a long term average latency with the latest latency, the
+ * limit shrinks while latency grows above the long term average and grows by a small queue size otherwise.
+ *
+ * <pre>
+ * gradient = max(0.5, min(1.0, tolerance * longRtt / rtt))
+ * newLimit = limit * gradient + sqrt(limit)
+ * </pre>
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class GradientConcurrencyLimiter extends AbstractConcurrencyLimiter {
+
+    /** The Constant DEFAULT_TOLERANCE. */
+    private static final double DEFAULT_TOLERANCE = 1.5;
+
+    /** The Constant LONG_WINDOW. sample count of long term average latency. */
+    private static final int LONG_WINDOW = 600;
+
+    /** The Constant SMOOTHING. */
+    private static final double SMOOTHING = 0.2;
+
+    /** The Constant DROP_BACKOFF. */
+    private static final double DROP_BACKOFF = 0.9;
+
+    /** The min limit. */
+    private final int minLimit;
+
+    /** The max limit. */
+    private final int maxLimit;
+
+    /** The tolerance of latency growth. */
+    private final double tolerance;
+
+    /** The estimated limit. */
+    private double estimatedLimit;
+
+    /** The long term average latency in nanoseconds. */
+    private double longRtt;
+
+    /**
+     * Instantiates a new gradient concurrency limiter.
+     *
+     * @param initialLimit the initial limit
+     * @param minLimit the min limit
+     * @param maxLimit the max limit
+     */
+    public GradientConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this(initialLimit, minLimit, maxLimit, DEFAULT_TOLERANCE);
+    }
+
+    /**
+     * Instantiates a new gradient concurrency limiter.
+     *
+     * @param initialLimit the initial limit
+     * @param minLimit the min limit
+     * @param maxLimit the max limit
+     * @param tolerance the tolerance of latency growth before limit shrinks, should not be less than 1
+     */
+    public GradientConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        super(initialLimit);
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.tolerance = tolerance;
+        this.estimatedLimit = initialLimit;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.limit.AbstractConcurrencyLimiter#onSample(long, int)
+     */
+    @Override
+    protected synchronized void onSample(long rttNanos, int inflight) {
+        if (rttNanos <= 0) {
+            return;
+        }
+        if (longRtt == 0) {
+            longRtt = rttNanos;
+        } else {
+            longRtt += (rttNanos - longRtt) * 2 / (LONG_WINDOW + 1);
+        }
+        if (longRtt / rttNanos > 2) {
+            // latency dropped a lot, let long term average catch up faster
+            longRtt *= 0.95;
+        }
+
+        if (inflight < estimatedLimit / 2) {
+            // not enough load to judge the limit
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / rttNanos));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        newLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        update(newLimit);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.limit.AbstractConcurrencyLimiter#onDrop(int)
+     */
+    @Override
+    protected synchronized void onDrop(int inflight) {
+        update(estimatedLimit * DROP_BACKOFF);
+    }
+
+    /**
+     * Update.
+     *
+     * @param newLimit the new limit
+     */
+    private void update(double newLimit) {
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        setLimit((int) estimatedLimit);
+    }
+
+    /**
+     * Gets the long term average latency.
+     *
+     * @return the long rtt in nanoseconds
+     */
+    public synchronized long getLongRtt() {
+        return (long) longRtt;
+    }
+}
@@ -0,0 +1,6 @@
+/**
+ * Adaptive concurrency limit supports.
+ *
+ * @since 3.5.5
+ */
+package com.baidu.jprotobuf.pbrpc.limit;
@@ -20,6 +20,8 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.baidu.jprotobuf.pbrpc.transport.RpcServer;
+import com.baidu.jprotobuf.pbrpc.transport.RpcServerOptions;
+import com.baidu.jprotobuf.pbrpc.transport.SharedTransportResources;
 
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.Channel;
@@ -53,6 +55,9 @@ public class HttpServer extends ServerBootstrap {
 	
 	/** The worker group. */
 	private EventLoopGroup workerGroup;
+
+	/** The shared event loop group. */
+	private final boolean sharedEventLoopGroup;
 	
 	/** The channel. */
 	private Channel channel;
@@ -71,8 +76,15 @@ public class HttpServer extends ServerBootstrap {
 	 * @param rpcServer the rpc server
 	 */
 	public HttpServer(final RpcServer rpcServer) {
-		bossGroup = new NioEventLoopGroup();
-		workerGroup = new NioEventLoopGroup();
+		sharedEventLoopGroup = rpcServer.getRpcServerOptions().isShareEventLoopGroup();
+		if (sharedEventLoopGroup) {
+			// management traffic is low, so share I/O threads with RPC transport
+			bossGroup = SharedTransportResources.getInstance().acquireEventLoopGroup(RpcServerOptions.POLL_EVENT_GROUP);
+			workerGroup = bossGroup;
+		} else {
+			bossGroup = new NioEventLoopGroup();
+			workerGroup = new NioEventLoopGroup();
+		}
 
 		handler = new HttpServerInboundHandler(rpcServer);
 		
@@ -148,8 +160,18 @@ public class HttpServer extends ServerBootstrap {
 			channel.close();
 		}
 
-		bossGroup.shutdownGracefully();
-		workerGroup.shutdownGracefully();
+		synchronized (this) {
+			// only release once
+			if (bossGroup != null) {
+				if (sharedEventLoopGroup) {
+					SharedTransportResources.getInstance().releaseEventLoopGroup(RpcServerOptions.POLL_EVENT_GROUP);
+				} else {
+					bossGroup.shutdownGracefully();
+					workerGroup.shutdownGracefully();
+				}
+				bossGroup = null;
+			}
+		}
 
 		if (handler != null) {
 			handler.close();
@@ -23,6 +23,7 @@ import static com.baidu.jprotobuf.pbrpc.management.HttpConstants.LINE_BREAK;
 import static com.baidu.jprotobuf.pbrpc.management.HttpConstants.PRE_ENDS;
 import static com.baidu.jprotobuf.pbrpc.management.HttpConstants.PRE_STARTS;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -35,9 +36,18 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicLong;
 
+import com.baidu.jprotobuf.pbrpc.compress.ByteBufCompress;
+import com.baidu.jprotobuf.pbrpc.compress.CompressPolicy;
+import com.baidu.jprotobuf.pbrpc.compress.CompressRegistry;
+import com.baidu.jprotobuf.pbrpc.compress.CompressStats;
+import com.baidu.jprotobuf.pbrpc.limit.ConcurrencyLimiter;
+import com.baidu.jprotobuf.pbrpc.limit.ConcurrencyLimiterRegistry;
 import com.baidu.jprotobuf.pbrpc.meta.MetaExportHelper;
 import com.baidu.jprotobuf.pbrpc.meta.RpcServiceMeta;
 import com.baidu.jprotobuf.pbrpc.meta.RpcServiceMetaList;
+import com.baidu.jprotobuf.pbrpc.server.ExecutorPool;
+import com.baidu.jprotobuf.pbrpc.transport.ChannelPoolRegistry;
+import com.baidu.jprotobuf.pbrpc.transport.EndpointStats;
 import com.baidu.jprotobuf.pbrpc.transport.RpcServer;
 import com.baidu.jprotobuf.pbrpc.transport.RpcServerOptions;
 
@@ -159,7 +169,14 @@ public class ServerStatus {
         ret.append("RPC port:").append(port).append(LINE_BREAK);
         ret.append("Http management port:").append(httpPort).append(LINE_BREAK);
         ret.append("Chunk enabled").append(LINE_BREAK);
-        ret.append("Compress enabled(Gzip Snappy)").append(LINE_BREAK);
+        ret.append("Compress enabled(");
+        for (Integer compressType : CompressRegistry.getCompressTypes()) {
+            ByteBufCompress compress = CompressRegistry.getCompress(compressType);
+            if (compress != null) {
+                ret.append(' ').append(compress.getClass().getSimpleName());
+            }
+        }
+        ret.append(")").append(LINE_BREAK);
         ret.append("Attachment enabled").append(LINE_BREAK);
         
         if (rpcServer.getEs() != null) {
@@ -167,7 +184,81 @@ public class ServerStatus {
             ret.append("Max task count:").append(rpcServer.getEs().getMaximumPoolSize()).append(LINE_BREAK);
             ret.append("Running task count:").append(rpcServer.getEs().getActiveCount()).append(LINE_BREAK);
             ret.append("Waiting task count:").append(rpcServer.getEs().getQueue().size()).append(LINE_BREAK);
+            if (rpcServer.getTaskAdmissionController() != null) {
+                ret.append("Rejected task count:").append(rpcServer.getTaskAdmissionController().getRejectedCount())
+                        .append(LINE_BREAK);
+                ret.append("Expired task count:").append(rpcServer.getTaskAdmissionController().getExpiredCount())
+                        .append(LINE_BREAK);
+            }
             
+            ret.append(LINE_BREAK).append(LINE_BREAK);
+        } else if (rpcServer.getExecutorService() != null) {
+            ret.append("--------------Thread status----------------").append(LINE_BREAK);
+            ret.append("Task executor:").append(rpcServer.getExecutorService().getClass().getName())
+                    .append(LINE_BREAK);
+            if (rpcServer.getTaskAdmissionController() != null) {
+                ret.append("Rejected task count:").append(rpcServer.getTaskAdmissionController().getRejectedCount())
+                        .append(LINE_BREAK);
+                ret.append("Expired task count:").append(rpcServer.getTaskAdmissionController().getExpiredCount())
+                        .append(LINE_BREAK);
+            }
+
+            ret.append(LINE_BREAK).append(LINE_BREAK);
+        }
+        ConcurrencyLimiterRegistry limiterRegistry = rpcServer.getConcurrencyLimiterRegistry();
+        if (limiterRegistry != null) {
+            ret.append("--------------Concurrency limit status----------------").append(LINE_BREAK);
+            ret.append("<table><tr><td>scope</td><td>limit</td><td>in-flight</td></tr>");
+            appendLimiter(ret, "server", limiterRegistry.getServerLimiter());
+            for (Entry<String, ConcurrencyLimiter> entry : limiterRegistry.getMethodLimiters().entrySet()) {
+                appendLimiter(ret, entry.getKey(), entry.getValue());
+            }
+            ret.append("</table>");
+            ret.append(LINE_BREAK).append(LINE_BREAK);
+        }
+        CompressPolicy compressPolicy = rpcServer.getCompressPolicy();
+        if (compressPolicy != null) {
+            ret.append("--------------Compress status----------------").append(LINE_BREAK);
+            ret.append("Min size:").append(compressPolicy.getMinSize()).append(" adaptive:")
+                    .append(compressPolicy.isAdaptive()).append(" busy compress type:")
+                    .append(compressPolicy.getBusyCompressType()).append(LINE_BREAK);
+            ret.append("<table><tr><td>method</td><td>compressed</td><td>skipped</td><td>original bytes</td>"
+                    + "<td>compressed bytes</td><td>ratio</td><td>recent ratio</td><td>compress time(ms)</td>"
+                    + "<td>turned off</td></tr>");
+            for (Entry<String, CompressStats> entry : compressPolicy.getStats().entrySet()) {
+                CompressStats stats = entry.getValue();
+                ret.append("<tr>");
+                ret.append("<td>").append(entry.getKey()).append("</td>");
+                ret.append("<td>").append(stats.getCompressedCount()).append("</td>");
+                ret.append("<td>").append(stats.getSkippedCount()).append("</td>");
+                ret.append("<td>").append(stats.getOriginalBytes()).append("</td>");
+                ret.append("<td>").append(stats.getCompressedBytes()).append("</td>");
+                ret.append("<td>").append(String.format("%.3f", stats.getRatio())).append("</td>");
+                ret.append("<td>").append(String.format("%.3f", stats.getRecentRatio())).append("</td>");
+                ret.append("<td>").append(stats.getCompressTime()).append("</td>");
+                ret.append("<td>").append(stats.isDisabled()).append("</td>");
+                ret.append("</tr>");
+            }
+            ret.append("</table>");
+            ret.append(LINE_BREAK).append(LINE_BREAK);
+        }
+        Collection<ExecutorPool> executorPools = rpcServer.getRpcServiceRegistry().getExecutorPools();
+        if (!executorPools.isEmpty()) {
+            ret.append("--------------Executor pool status----------------").append(LINE_BREAK);
+            ret.append("<table><tr><td>pool</td><td>threads</td><td>queue size</td><td>running</td>"
+                    + "<td>waiting</td><td>completed</td><td>rejected</td></tr>");
+            for (ExecutorPool executorPool : executorPools) {
+                ret.append("<tr>");
+                ret.append("<td>").append(executorPool.getName()).append("</td>");
+                ret.append("<td>").append(executorPool.getThreads()).append("</td>");
+                ret.append("<td>").append(executorPool.getQueueSize()).append("</td>");
+                ret.append("<td>").append(executorPool.getActiveCount()).append("</td>");
+                ret.append("<td>").append(executorPool.getQueuedCount()).append("</td>");
+                ret.append("<td>").append(executorPool.getCompletedCount()).append("</td>");
+                ret.append("<td>").append(executorPool.getRejectedCount()).append("</td>");
+                ret.append("</tr>");
+            }
+            ret.append("</table>");
             ret.append(LINE_BREAK).append(LINE_BREAK);
         }
         ret.append(PRE_STARTS);
@@ -219,9 +310,48 @@ public class ServerStatus {
             ret.append("</tr>");
         }
         ret.append("</table>");
+
+        List<EndpointStats> endpointStats = ChannelPoolRegistry.getAllStats();
+        if (!endpointStats.isEmpty()) {
+            ret.append("--------------Client Endpoint Info ----------------").append(LINE_BREAK);
+            ret.append("<table><tr><td>endpoint</td><td>channels</td><td>max</td><td>active</td><td>idle</td>"
+                    + "<td>created</td><td>destroyed</td><td>borrowed</td><td>mean wait(ms)</td>"
+                    + "<td>concurrency limit</td><td>in-flight</td></tr>");
+            for (EndpointStats stats : endpointStats) {
+                ret.append("<tr>");
+                ret.append("<td>").append(stats.getEndpoint()).append("</td>");
+                ret.append("<td>").append(stats.getReferences()).append("</td>");
+                ret.append("<td>").append(stats.getMaxConnections()).append("</td>");
+                ret.append("<td>").append(stats.getActiveConnections()).append("</td>");
+                ret.append("<td>").append(stats.getIdleConnections()).append("</td>");
+                ret.append("<td>").append(stats.getCreatedCount()).append("</td>");
+                ret.append("<td>").append(stats.getDestroyedCount()).append("</td>");
+                ret.append("<td>").append(stats.getBorrowedCount()).append("</td>");
+                ret.append("<td>").append(stats.getMeanBorrowWaitTime()).append("</td>");
+                ret.append("<td>").append(stats.getConcurrencyLimit()).append("</td>");
+                ret.append("<td>").append(stats.getInflight()).append("</td>");
+                ret.append("</tr>");
+            }
+            ret.append("</table>");
+        }
         return ret.toString();
     }
 
+    /**
+     * Append limiter status as table row.
+     *
+     * @param ret the ret
+     * @param scope the scope
+     * @param limiter the limiter
+     */
+    private void appendLimiter(StringBuilder ret, String scope, ConcurrencyLimiter limiter) {
+        ret.append("<tr>");
+        ret.append("<td>").append(scope).append("</td>");
+        ret.append("<td>").append(limiter.getLimit()).append("</td>");
+        ret.append("<td>").append(limiter.getInflight()).append("</td>");
+        ret.append("</tr>");
+    }
+
     /**
      * Gets the online duration.
      *
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.meta;
+
+import java.util.List;
+
+import com.baidu.bjf.remoting.protobuf.FieldType;
+import com.baidu.bjf.remoting.protobuf.annotation.Protobuf;
+
+/**
+ * Protocol features exchanged on connection handshake. Client sends the features it wants, server answers the
+ * features agreed for this connection. Absent fields mean the feature is not used.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class RpcHandshake {
+
+    /** The current handshake version. */
+    public static final int CURRENT_VERSION = 1;
+
+    /** 握手协议版本. */
+    @Protobuf(order = 1)
+    private Integer version;
+
+    /** 是否在单个连接上并发发送多个请求. */
+    @Protobuf(order = 2)
+    private Boolean multiplexing;
+
+    /** 是否使用方法ID代替服务名和方法名. */
+    @Protobuf(order = 3)
+    private Boolean methodIdDispatch;
+
+    /** 响应是否不回传请求meta. */
+    @Protobuf(order = 4)
+    private Boolean slimResponseMeta;
+
+    /** 支持的压缩类型. */
+    @Protobuf(order = 5, fieldType = FieldType.INT32)
+    private List<Integer> compressTypes;
+
+    /** 最大帧大小. */
+    @Protobuf(order = 6)
+    private Integer maxFrameSize;
+
+    /** 方法ID, 仅在服务端同意方法ID时返回. */
+    @Protobuf(order = 7, fieldType = FieldType.OBJECT)
+    private List<RpcMethodIdMeta> methodIds;
+
+    /**
+     * Gets the 握手协议版本.
+     *
+     * @return the 握手协议版本
+     */
+    public Integer getVersion() {
+        return version;
+    }
+
+    /**
+     * Sets the 握手协议版本.
+     *
+     * @param version the new 握手协议版本
+     */
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
+    /**
+     * Gets the 是否在单个连接上并发发送多个请求.
+     *
+     * @return the 是否在单个连接上并发发送多个请求
+     */
+    public Boolean getMultiplexing() {
+        return multiplexing;
+    }
+
+    /**
+     * Sets the 是否在单个连接上并发发送多个请求.
+     *
+     * @param multiplexing the new 是否在单个连接上并发发送多个请求
+     */
+    public void setMultiplexing(Boolean multiplexing) {
+        this.multiplexing = multiplexing;
+    }
+
+    /**
+     * Gets the 是否使用方法ID代替服务名和方法名.
+     *
+     * @return the 是否使用方法ID代替服务名和方法名
+     */
+    public Boolean getMethodIdDispatch() {
+        return methodIdDispatch;
+    }
+
+    /**
+     * Sets the 是否使用方法ID代替服务名和方法名.
+     *
+     * @param methodIdDispatch the new 是否使用方法ID代替服务名和方法名
+     */
+    public void setMethodIdDispatch(Boolean methodIdDispatch) {
+        this.methodIdDispatch = methodIdDispatch;
+    }
+
+    /**
+     * Gets the 响应是否不回传请求meta.
+     *
+     * @return the 响应是否不回传请求meta
+     */
+    public Boolean getSlimResponseMeta() {
+        return slimResponseMeta;
+    }
+
+    /**
+     * Sets the 响应是否不回传请求meta.
+     *
+     * @param slimResponseMeta the new 响应是否不回传请求meta
+     */
+    public void setSlimResponseMeta(Boolean slimResponseMeta) {
+        this.slimResponseMeta = slimResponseMeta;
+    }
+
+    /**
+     * Gets the 支持的压缩类型.
+     *
+     * @return the 支持的压缩类型
+     */
+    public List<Integer> getCompressTypes() {
+        return compressTypes;
+    }
+
+    /**
+     * Sets the 支持的压缩类型.
+     *
+     * @param compressTypes the new 支持的压缩类型
+     */
+    public void setCompressTypes(List<Integer> compressTypes) {
+        this.compressTypes = compressTypes;
+    }
+
+    /**
+     * Gets the 最大帧大小.
+     *
+     * @return the 最大帧大小
+     */
+    public Integer getMaxFrameSize() {
+        return maxFrameSize;
+    }
+
+    /**
+     * Sets the 最大帧大小.
+     *
+     * @param maxFrameSize the new 最大帧大小
+     */
+    public void setMaxFrameSize(Integer maxFrameSize) {
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    /**
+     * Gets the 方法ID.
+     *
+     * @return the 方法ID
+     */
+    public List<RpcMethodIdMeta> getMethodIds() {
+        return methodIds;
+    }
+
+    /**
+     * Sets the 方法ID.
+     *
+     * @param methodIds the new 方法ID
+     */
+    public void setMethodIds(List<RpcMethodIdMeta> methodIds) {
+        this.methodIds = methodIds;
+    }
+
+}
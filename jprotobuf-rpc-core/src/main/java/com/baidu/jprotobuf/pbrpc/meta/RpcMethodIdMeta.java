@@ -0,0 +1,94 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.meta;
+
+import com.baidu.bjf.remoting.protobuf.annotation.Protobuf;
+
+/**
+ * Method id assigned by server to RPC method, client could send it instead of service name and method name.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class RpcMethodIdMeta {
+
+    /** rpc 服务名. */
+    @Protobuf(required = true)
+    private String serviceName;
+
+    /** rpc 方法名. */
+    @Protobuf(required = true)
+    private String methodName;
+
+    /** 方法ID. */
+    @Protobuf(required = true)
+    private int methodId;
+
+    /**
+     * Gets the rpc 服务名.
+     *
+     * @return the rpc 服务名
+     */
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    /**
+     * Sets the rpc 服务名.
+     *
+     * @param serviceName the new rpc 服务名
+     */
+    public void setServiceName(String serviceName) {
+        this.serviceName = serviceName;
+    }
+
+    /**
+     * Gets the rpc 方法名.
+     *
+     * @return the rpc 方法名
+     */
+    public String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * Sets the rpc 方法名.
+     *
+     * @param methodName the new rpc 方法名
+     */
+    public void setMethodName(String methodName) {
+        this.methodName = methodName;
+    }
+
+    /**
+     * Gets the 方法ID.
+     *
+     * @return the 方法ID
+     */
+    public int getMethodId() {
+        return methodId;
+    }
+
+    /**
+     * Sets the 方法ID.
+     *
+     * @param methodId the new 方法ID
+     */
+    public void setMethodId(int methodId) {
+        this.methodId = methodId;
+    }
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.meta;
+
+import java.util.List;
+
+import com.baidu.bjf.remoting.protobuf.FieldType;
+import com.baidu.bjf.remoting.protobuf.annotation.Protobuf;
+
+/**
+ * {@link List} collection of {@link RpcMethodIdMeta}.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class RpcMethodIdMetaList {
+
+    /** The rpc method id metas. */
+    @Protobuf(fieldType = FieldType.OBJECT)
+    private List<RpcMethodIdMeta> rpcMethodIdMetas;
+
+    /**
+     * Gets the rpc method id metas.
+     *
+     * @return the rpc method id metas
+     */
+    public List<RpcMethodIdMeta> getRpcMethodIdMetas() {
+        return rpcMethodIdMetas;
+    }
+
+    /**
+     * Sets the rpc method id metas.
+     *
+     * @param rpcMethodIdMetas the new rpc method id metas
+     */
+    public void setRpcMethodIdMetas(List<RpcMethodIdMeta> rpcMethodIdMetas) {
+        this.rpcMethodIdMetas = rpcMethodIdMetas;
+    }
+
+}
@@ -34,6 +34,25 @@ public interface RpcServiceMetaService {
     @ProtobufRPC(serviceName = RpcServiceMetaServiceProvider.RPC_META_SERVICENAME, onceTalkTimeout = 100000)
     RpcServiceMetaList getRpcServiceMetaInfo();
     
+    /**
+     * Gets the method ids assigned to all registered RPC methods.
+     *
+     * @return the rpc method id metas
+     */
+    @ProtobufRPC(serviceName = RpcServiceMetaServiceProvider.RPC_META_SERVICENAME,
+            methodName = RpcServiceMetaServiceProvider.RPC_METHOD_ID_METHODNAME)
+    RpcMethodIdMetaList getRpcMethodIdMetas();
+
+    /**
+     * Agree protocol features of current connection.
+     *
+     * @param offer the features client asks for
+     * @return the features agreed
+     */
+    @ProtobufRPC(serviceName = RpcServiceMetaServiceProvider.RPC_META_SERVICENAME,
+            methodName = RpcServiceMetaServiceProvider.RPC_HANDSHAKE_METHODNAME)
+    RpcHandshake handshake(RpcHandshake offer);
+
     /**
      * Ping.
      */
@@ -30,6 +30,8 @@ import com.baidu.bjf.remoting.protobuf.ProtobufIDLGenerator;
 import com.baidu.jprotobuf.pbrpc.ProtobufRPCService;
 import com.baidu.jprotobuf.pbrpc.RpcHandler;
 import com.baidu.jprotobuf.pbrpc.server.RpcServiceRegistry;
+import com.baidu.jprotobuf.pbrpc.transport.ProtocolFeatures;
+import com.baidu.jprotobuf.pbrpc.utils.ProtocolFeaturesThreadLocalHolder;
 import com.baidu.jprotobuf.pbrpc.utils.StringUtils;
 
 /**
@@ -46,6 +48,12 @@ public class RpcServiceMetaServiceProvider {
     /** The Constant RPC_META_SERVICENAME. */
     public static final String RPC_META_SERVICENAME = "__rpc_meta_watch_service__";
 
+    /** The Constant RPC_METHOD_ID_METHODNAME. */
+    public static final String RPC_METHOD_ID_METHODNAME = "getRpcMethodIdMetas";
+
+    /** The Constant RPC_HANDSHAKE_METHODNAME. */
+    public static final String RPC_HANDSHAKE_METHODNAME = "handshake";
+
     /** The rpc service registry. */
     private RpcServiceRegistry rpcServiceRegistry;
 
@@ -153,6 +161,52 @@ public class RpcServiceMetaServiceProvider {
         return rpcServiceMetaList;
     }
 
+    /**
+     * Gets the method ids assigned to all registered RPC methods.
+     *
+     * @return the rpc method id metas
+     */
+    @ProtobufRPCService(serviceName = RPC_META_SERVICENAME, methodName = RPC_METHOD_ID_METHODNAME)
+    public RpcMethodIdMetaList getRpcMethodIdMetas() {
+        int count = rpcServiceRegistry.getMethodIdCount();
+        List<RpcMethodIdMeta> list = new ArrayList<RpcMethodIdMeta>(count);
+        for (int i = 0; i < count; i++) {
+            RpcHandler rpcHandler = rpcServiceRegistry.lookupService(i);
+            if (rpcHandler == null) {
+                continue;
+            }
+            RpcMethodIdMeta rpcMethodIdMeta = new RpcMethodIdMeta();
+            rpcMethodIdMeta.setServiceName(rpcHandler.getServiceName());
+            rpcMethodIdMeta.setMethodName(rpcHandler.getMethodName());
+            rpcMethodIdMeta.setMethodId(i);
+            list.add(rpcMethodIdMeta);
+        }
+        RpcMethodIdMetaList rpcMethodIdMetaList = new RpcMethodIdMetaList();
+        rpcMethodIdMetaList.setRpcMethodIdMetas(list);
+        return rpcMethodIdMetaList;
+    }
+
+    /**
+     * Agree protocol features of the connection which the handshake comes from. Method ids are answered together if
+     * method id dispatch is agreed, so client needs no more round trip.
+     *
+     * @param offer the features client asks for
+     * @return the features agreed
+     */
+    @ProtobufRPCService(serviceName = RPC_META_SERVICENAME, methodName = RPC_HANDSHAKE_METHODNAME)
+    public RpcHandshake handshake(RpcHandshake offer) {
+        ProtocolFeatures protocolFeatures = ProtocolFeaturesThreadLocalHolder.getProtocolFeatures();
+        if (protocolFeatures == null) {
+            // not called from a connection, answer without keeping anything
+            protocolFeatures = new ProtocolFeatures();
+        }
+        RpcHandshake answer = protocolFeatures.agree(offer);
+        if (Boolean.TRUE.equals(answer.getMethodIdDispatch())) {
+            answer.setMethodIds(getRpcMethodIdMetas().getRpcMethodIdMetas());
+        }
+        return answer;
+    }
+
     /**
      * Ping.
      */
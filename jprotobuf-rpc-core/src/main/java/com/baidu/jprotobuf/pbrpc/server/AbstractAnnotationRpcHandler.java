@@ -16,6 +16,7 @@
 
 package com.baidu.jprotobuf.pbrpc.server;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
 import com.baidu.bjf.remoting.protobuf.ProtobufIDLGenerator;
@@ -77,6 +78,9 @@ public abstract class AbstractAnnotationRpcHandler implements RpcHandler, RpcMet
 
     private ServerAuthenticationDataHandler authenticationHandler;
 
+    /** The method invoker. */
+    private MethodInvoker methodInvoker;
+
 	/**
 	 * Sets the interceptor.
 	 *
@@ -127,6 +131,49 @@ public abstract class AbstractAnnotationRpcHandler implements RpcHandler, RpcMet
         }
     }
     
+    /**
+     * Sets the method invoker.
+     *
+     * @param methodInvoker the new method invoker
+     */
+    protected void setMethodInvoker(MethodInvoker methodInvoker) {
+        this.methodInvoker = methodInvoker;
+    }
+
+    /**
+     * Gets the method invoker.
+     *
+     * @return the method invoker
+     */
+    protected MethodInvoker getMethodInvoker() {
+        return methodInvoker;
+    }
+
+    /**
+     * Invoke service method by {@link MethodInvoker}. Exception thrown by service method is wrapped by
+     * {@link InvocationTargetException} the same as {@link Method#invoke(Object, Object...)}.
+     *
+     * @param input the input parameter, ignored if method has no parameter
+     * @return the result
+     * @throws InvocationTargetException exception thrown by service method
+     */
+    protected Object invokeMethod(Object input) throws InvocationTargetException {
+        try {
+            return methodInvoker.invoke(service, input);
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    /**
+     * Checks if parameter array is required by attachment, authentication handler or interceptor.
+     *
+     * @return true, if parameter array is required
+     */
+    protected boolean isParamsRequired() {
+        return attachmentHandler != null || authenticationHandler != null || interceptor != null;
+    }
+
     /**
      * Do real handle.
      *
@@ -38,6 +38,9 @@ public class AnnotationRpcHandler extends AbstractAnnotationRpcHandler {
     /** Logger for this class. */
     private static final Logger PERFORMANCE_LOGGER = Logger.getLogger("performance-log");
 
+    /** The Constant EMPTY_PARAMS. */
+    private static final Object[] EMPTY_PARAMS = new Object[0];
+
     /** The input codec. */
     private Codec inputCodec;
 
@@ -64,6 +67,7 @@ public class AnnotationRpcHandler extends AbstractAnnotationRpcHandler {
         }
 
         serviceSignature = ServiceSignatureUtils.makeSignature(getServiceName(), getMethodName());
+        setMethodInvoker(MethodInvokerGenerator.create(method, null));
 
     }
 
@@ -74,15 +78,13 @@ public class AnnotationRpcHandler extends AbstractAnnotationRpcHandler {
      */
     protected RpcData doRealHandle(RpcData data) throws Exception {
         Object input = null;
-        Object[] param;
+        Object[] param = null;
         Object ret = null;
-        if (inputCodec != null) {
-            if (data.getData() != null) {
-                input = inputCodec.decode(data.getData());
-            }
-            param = new Object[] { input };
-        } else {
-            param = new Object[0];
+        if (inputCodec != null && data.getData() != null) {
+            input = inputCodec.decode(data.getData());
+        }
+        if (isParamsRequired()) {
+            param = inputCodec != null ? new Object[] { input } : EMPTY_PARAMS;
         }
         // process authentication data handler
         if (getAuthenticationHandler() != null) {
@@ -120,7 +122,11 @@ public class AnnotationRpcHandler extends AbstractAnnotationRpcHandler {
                 }
             }
 
-            ret = getMethod().invoke(getService(), param);
+            if (param != null && param.length > 0) {
+                // parameter may be replaced by handlers or interceptor
+                input = param[0];
+            }
+            ret = invokeMethod(input);
             long took = (System.currentTimeMillis() - time);
             PERFORMANCE_LOGGER
                     .fine("RPC server invoke method(local) '" + getMethod().getName() + "' time took:" + took + " ms");
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.server;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.baidu.jprotobuf.pbrpc.transport.TaskAdmissionController;
+
+/**
+ * A named task executor pool which RPC services could be assigned to, so slow services would not starve others on
+ * the same server.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ * @see RpcServiceRegistry#assignExecutorPool(String, String, String)
+ */
+public class ExecutorPool {
+
+    /** The name. */
+    private final String name;
+
+    /** The executor. */
+    private final ThreadPoolExecutor executor;
+
+    /** The task admission controller. */
+    private final TaskAdmissionController taskAdmissionController;
+
+    /** The queue size, 0 for unbounded. */
+    private final int queueSize;
+
+    /**
+     * Instantiates a new executor pool.
+     *
+     * @param name the name
+     * @param threads the threads
+     * @param queueSize the queue size, 0 for unbounded
+     * @param targetDelay the target queue delay in milliseconds of admission control, 0 to disable
+     * @param interval the interval in milliseconds of admission control
+     */
+    public ExecutorPool(String name, int threads, int queueSize, long targetDelay, long interval) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("param 'threads' should be greater than 0.");
+        }
+        this.name = name;
+        this.queueSize = queueSize;
+        BlockingQueue<Runnable> queue;
+        if (queueSize > 0) {
+            queue = new ArrayBlockingQueue<Runnable>(queueSize);
+        } else {
+            queue = new LinkedBlockingQueue<Runnable>();
+        }
+        executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, queue);
+        taskAdmissionController = new TaskAdmissionController(targetDelay, interval);
+    }
+
+    /**
+     * Gets the name.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the executor.
+     *
+     * @return the executor
+     */
+    public ThreadPoolExecutor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Gets the task admission controller.
+     *
+     * @return the task admission controller
+     */
+    public TaskAdmissionController getTaskAdmissionController() {
+        return taskAdmissionController;
+    }
+
+    /**
+     * Gets the thread count.
+     *
+     * @return the thread count
+     */
+    public int getThreads() {
+        return executor.getMaximumPoolSize();
+    }
+
+    /**
+     * Gets the queue size.
+     *
+     * @return the queue size, 0 for unbounded
+     */
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * Gets the running task count.
+     *
+     * @return the active count
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * Gets the waiting task count.
+     *
+     * @return the queued count
+     */
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Gets the completed task count.
+     *
+     * @return the completed count
+     */
+    public long getCompletedCount() {
+        return executor.getCompletedTaskCount();
+    }
+
+    /**
+     * Gets the rejected task count.
+     *
+     * @return the rejected count
+     */
+    public long getRejectedCount() {
+        return taskAdmissionController.getRejectedCount();
+    }
+
+    /**
+     * Shutdown.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
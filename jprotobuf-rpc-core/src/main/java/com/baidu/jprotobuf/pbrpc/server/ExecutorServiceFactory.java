@@ -0,0 +1,39 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.server;
+
+import java.util.concurrent.ExecutorService;
+
+import com.baidu.jprotobuf.pbrpc.transport.RpcServerOptions;
+
+/**
+ * Factory to create the {@link ExecutorService} which RPC server tasks are executed on, instead of the fixed size
+ * pool of {@link RpcServerOptions#getTaskTheads()}.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ * @see RpcServerOptions#setExecutorServiceFactory(ExecutorServiceFactory)
+ */
+public interface ExecutorServiceFactory {
+
+    /**
+     * Creates the executor service.
+     *
+     * @param options the server options
+     * @return the executor service
+     */
+    ExecutorService createExecutorService(RpcServerOptions options);
+}
@@ -16,8 +16,7 @@
 
 package com.baidu.jprotobuf.pbrpc.server;
 
-import java.io.ByteArrayInputStream;
-import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.logging.Logger;
 
@@ -37,11 +36,11 @@ public class MessageGeneratedRpcHandler extends AbstractAnnotationRpcHandler {
     /** Logger for this class. */
     private static final Logger PERFORMANCE_LOGGER = Logger.getLogger("performance-log");
 
-    /** The Constant PROTOBUF_PARSE_METHOD. */
-    private static final String PROTOBUF_PARSE_METHOD = "parseFrom";
+    /** The Constant EMPTY_PARAMS. */
+    private static final Object[] EMPTY_PARAMS = new Object[0];
 
-    /** The parse from method. */
-    private Method parseFromMethod;
+    /** The input parse supported. */
+    private boolean parseSupported;
 
     /**
      * Instantiates a new message generated rpc handler.
@@ -53,15 +52,13 @@ public class MessageGeneratedRpcHandler extends AbstractAnnotationRpcHandler {
     public MessageGeneratedRpcHandler(Method method, Object service, ProtobufRPCService protobufPRCService) {
         super(method, service, protobufPRCService);
 
-        if (getInputClass() != null) {
-            if (GeneratedMessage.class.isAssignableFrom(getInputClass())) {
-                try {
-                    parseFromMethod = getInputClass().getMethod(PROTOBUF_PARSE_METHOD, InputStream.class);
-                } catch (Exception e) {
-                    throw new RuntimeException(e.getMessage(), e);
-                }
-            }
+        Class<?> parseClass = null;
+        if (getInputClass() != null && GeneratedMessage.class.isAssignableFrom(getInputClass())) {
+            parseClass = getInputClass();
+            parseSupported = true;
         }
+        // generated invoker parses input by static parseFrom(byte[]) directly
+        setMethodInvoker(MethodInvokerGenerator.create(method, parseClass));
     }
 
     /*
@@ -72,13 +69,19 @@ public class MessageGeneratedRpcHandler extends AbstractAnnotationRpcHandler {
     protected RpcData doRealHandle(RpcData data) throws Exception {
 
         Object input = null;
-        Object[] param;
+        Object[] param = null;
         Object ret = null;
-        if (data.getData() != null && parseFromMethod != null) {
-            input = parseFromMethod.invoke(getInputClass(), new ByteArrayInputStream(data.getData()));
-            param = new Object[] { input };
-        } else {
-            param = new Object[0];
+        if (data.getData() != null && parseSupported) {
+            try {
+                input = getMethodInvoker().parseInput(data.getData());
+            } catch (Exception e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new InvocationTargetException(e);
+            }
+        }
+        if (isParamsRequired()) {
+            param = input != null ? new Object[] { input } : EMPTY_PARAMS;
         }
 
         RpcData retData = new RpcData();
@@ -119,7 +122,11 @@ public class MessageGeneratedRpcHandler extends AbstractAnnotationRpcHandler {
                 }
             }
 
-            ret = getMethod().invoke(getService(), param);
+            if (param != null && param.length > 0) {
+                // parameter may be replaced by handlers or interceptor
+                input = param[0];
+            }
+            ret = invokeMethod(input);
             long took = (System.currentTimeMillis() - time);
             PERFORMANCE_LOGGER
                     .fine("RPC server invoke method(local) '" + getMethod().getName() + "' time took:" + took + " ms");
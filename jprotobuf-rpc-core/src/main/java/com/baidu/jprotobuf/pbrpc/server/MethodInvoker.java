@@ -0,0 +1,45 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.server;
+
+/**
+ * Invoker of a RPC service method, which avoids reflection on the hot path of request handling.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ * @see MethodInvokerGenerator
+ */
+public interface MethodInvoker {
+
+    /**
+     * Invoke the service method.
+     *
+     * @param service the service object
+     * @param input the input parameter, ignored if method has no parameter
+     * @return the result, null if method returns void
+     * @throws Throwable exception thrown by service method directly, not wrapped
+     */
+    Object invoke(Object service, Object input) throws Throwable;
+
+    /**
+     * Parse input object from bytes by static <code>parseFrom(byte[])</code> method of input class.
+     *
+     * @param data the data
+     * @return the parsed object, null if parse method is not bound to this invoker
+     * @throws Throwable exception thrown by parse method directly, not wrapped
+     */
+    Object parseInput(byte[] data) throws Throwable;
+}
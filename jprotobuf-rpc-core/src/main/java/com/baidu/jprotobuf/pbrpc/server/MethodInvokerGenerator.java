@@ -0,0 +1,184 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.server;
+
+import static com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.ACC_PUBLIC;
+import static com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.ACONST_NULL;
+import static com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.ALOAD;
+import static com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.ARETURN;
+import static com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.CHECKCAST;
+import static com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.INVOKESTATIC;
+import static com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.INVOKEVIRTUAL;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter;
+import com.baidu.jprotobuf.pbrpc.utils.ClassFileWriter.Code;
+
+/**
+ * Generates {@link MethodInvoker} class for each RPC service method at register time. The generated class calls
+ * service method and static input parse method by plain <code>invokevirtual</code>/<code>invokeinterface</code>/
+ * <code>invokestatic</code> bytecode, so no reflection, argument array or result boxing is left on the hot path.
+ * {@link ReflectionMethodInvoker} is used instead if method or any type on its signature is not public, or class
+ * could not be defined.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public final class MethodInvokerGenerator {
+
+    /** The Constant LOG. */
+    private static final Logger LOG = Logger.getLogger(MethodInvokerGenerator.class.getName());
+
+    /** The Constant PARSE_METHOD. */
+    private static final String PARSE_METHOD = "parseFrom";
+
+    /** The Constant CLASS_NAME_PREFIX. */
+    private static final String CLASS_NAME_PREFIX = MethodInvoker.class.getName() + "$$Generated$";
+
+    /** The class name sequence. */
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    /**
+     * Instantiates a new method invoker generator.
+     */
+    private MethodInvokerGenerator() {
+    }
+
+    /**
+     * Creates the method invoker.
+     *
+     * @param method the service method
+     * @param parseClass the class which input is parsed by its static <code>parseFrom(byte[])</code> method, null if
+     *            not required
+     * @return the method invoker
+     */
+    public static MethodInvoker create(Method method, Class<?> parseClass) {
+        Method parseMethod = null;
+        if (parseClass != null) {
+            try {
+                parseMethod = parseClass.getMethod(PARSE_METHOD, byte[].class);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalArgumentException("No static method 'parseFrom(byte[])' found in class "
+                        + parseClass.getName(), e);
+            }
+        }
+
+        if (isGeneratable(method, parseMethod)) {
+            try {
+                return generate(method, parseMethod);
+            } catch (Throwable e) {
+                LOG.log(Level.WARNING, "Generate invoker of method '" + method + "' failed, use reflection instead.",
+                        e);
+            }
+        }
+        return new ReflectionMethodInvoker(method, parseMethod);
+    }
+
+    /**
+     * Checks if invoker class could be generated.
+     *
+     * @param method the method
+     * @param parseMethod the parse method
+     * @return true, if is generatable
+     */
+    private static boolean isGeneratable(Method method, Method parseMethod) {
+        int modifiers = method.getModifiers();
+        if (!Modifier.isPublic(modifiers) || Modifier.isStatic(modifiers)) {
+            return false;
+        }
+        if (!ClassFileWriter.isPublic(method.getDeclaringClass())) {
+            return false;
+        }
+        Class<?> returnType = method.getReturnType();
+        if (returnType != void.class && (returnType.isPrimitive() || !ClassFileWriter.isPublic(returnType))) {
+            return false;
+        }
+        for (Class<?> type : method.getParameterTypes()) {
+            if (type.isPrimitive() || !ClassFileWriter.isPublic(type)) {
+                return false;
+            }
+        }
+        if (parseMethod != null) {
+            if (!Modifier.isStatic(parseMethod.getModifiers())
+                    || !ClassFileWriter.isPublic(parseMethod.getDeclaringClass())
+                    || parseMethod.getReturnType().isPrimitive()
+                    || !ClassFileWriter.isPublic(parseMethod.getReturnType())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Generate and instantiate invoker class.
+     *
+     * @param method the method
+     * @param parseMethod the parse method
+     * @return the method invoker
+     * @throws Exception the exception
+     */
+    private static MethodInvoker generate(Method method, Method parseMethod) throws Exception {
+        String className = CLASS_NAME_PREFIX + SEQUENCE.incrementAndGet();
+        ClassFileWriter writer = new ClassFileWriter(className, Object.class, MethodInvoker.class);
+        writer.addDefaultConstructor(Object.class);
+
+        // invoke(Object, Object)
+        Class<?> owner = method.getDeclaringClass();
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        Code invoke = new Code();
+        invoke.local(ALOAD, 1);
+        invoke.ref(CHECKCAST, writer.classRef(owner));
+        for (Class<?> type : parameterTypes) {
+            invoke.local(ALOAD, 2);
+            invoke.ref(CHECKCAST, writer.classRef(type));
+        }
+        if (owner.isInterface()) {
+            invoke.invokeInterface(writer.methodRef(method), 1 + parameterTypes.length);
+        } else {
+            invoke.ref(INVOKEVIRTUAL, writer.methodRef(method));
+        }
+        if (method.getReturnType() == void.class) {
+            invoke.op(ACONST_NULL);
+        }
+        invoke.op(ARETURN);
+        writer.addMethod(ACC_PUBLIC, "invoke", ClassFileWriter.methodDescriptor(Object.class, Object.class,
+                Object.class), 2, 3, invoke);
+
+        // parseInput(byte[])
+        Code parse = new Code();
+        if (parseMethod != null) {
+            parse.local(ALOAD, 1);
+            parse.ref(INVOKESTATIC, writer.methodRef(parseMethod));
+        } else {
+            parse.op(ACONST_NULL);
+        }
+        parse.op(ARETURN);
+        writer.addMethod(ACC_PUBLIC, "parseInput", ClassFileWriter.methodDescriptor(Object.class, byte[].class), 1, 2,
+                parse);
+
+        ClassLoader parent = owner.getClassLoader();
+        if (parent == null) {
+            parent = MethodInvoker.class.getClassLoader();
+        }
+        Class<?> cls = ClassFileWriter.defineClass(className, writer.toByteArray(), parent, MethodInvoker.class);
+        return (MethodInvoker) cls.newInstance();
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.server;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * {@link MethodInvoker} by java reflection, used if invoker class could not be generated for the method.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class ReflectionMethodInvoker implements MethodInvoker {
+
+    /** The Constant EMPTY_PARAMS. */
+    private static final Object[] EMPTY_PARAMS = new Object[0];
+
+    /** The method. */
+    private final Method method;
+
+    /** The parse method. */
+    private final Method parseMethod;
+
+    /** The has parameter. */
+    private final boolean hasParameter;
+
+    /**
+     * Instantiates a new reflection method invoker.
+     *
+     * @param method the method
+     * @param parseMethod the static parse method of input class, null if not required
+     */
+    public ReflectionMethodInvoker(Method method, Method parseMethod) {
+        this.method = method;
+        this.parseMethod = parseMethod;
+        this.hasParameter = method.getParameterTypes().length > 0;
+        try {
+            // skip access check on each invocation
+            method.setAccessible(true);
+        } catch (SecurityException e) {
+            // keep access check
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.server.MethodInvoker#invoke(java.lang.Object, java.lang.Object)
+     */
+    @Override
+    public Object invoke(Object service, Object input) throws Throwable {
+        try {
+            if (hasParameter) {
+                return method.invoke(service, input);
+            }
+            return method.invoke(service, EMPTY_PARAMS);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.server.MethodInvoker#parseInput(byte[])
+     */
+    @Override
+    public Object parseInput(byte[] data) throws Throwable {
+        if (parseMethod == null) {
+            return null;
+        }
+        try {
+            return parseMethod.invoke(null, data);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
@@ -0,0 +1,457 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A fixed size executor service with pre-allocated bounded MPMC ring buffer as task queue. Submitting a task is
+ * lock-free and allocates nothing, and worker threads drain tasks in batches before falling to
+ * {@link WaitStrategy}. Tasks are rejected with {@link RejectedExecutionException} if ring buffer is full.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class RingBufferExecutorService extends AbstractExecutorService {
+
+    /** The Constant LOG. */
+    private static final Logger LOG = Logger.getLogger(RingBufferExecutorService.class.getName());
+
+    /** spin times before yield. */
+    private static final int SPIN_TRIES = 100;
+
+    /** spin and yield times before park. */
+    private static final int YIELD_TRIES = 200;
+
+    /** The park nanos of sleeping wait strategy. */
+    private static final long SLEEP_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    /** The max park nanos of blocking wait strategy, to guard against lost signal. */
+    private static final long BLOCKING_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /** The task slots. */
+    private final AtomicReferenceArray<Runnable> slots;
+
+    /** The sequence of each slot, tells whether slot is ready to write or to read. */
+    private final AtomicLongArray sequences;
+
+    /** The index mask. */
+    private final int mask;
+
+    /** The producer position. */
+    private final AtomicLong tail = new AtomicLong();
+
+    /** The consumer position. */
+    private final AtomicLong head = new AtomicLong();
+
+    /** The wait strategy. */
+    private final WaitStrategy waitStrategy;
+
+    /** The max tasks drained by a worker in one batch. */
+    private final int batchSize;
+
+    /** The lock of blocking wait strategy. */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** The not empty condition of blocking wait strategy. */
+    private final Condition notEmpty = lock.newCondition();
+
+    /** The count of workers blocked on {@link #notEmpty}. */
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    /** The workers. */
+    private final Thread[] workers;
+
+    /** The termination latch. */
+    private final CountDownLatch terminationLatch;
+
+    /** The running. */
+    private volatile boolean running = true;
+
+    /** The count of producers in {@link #execute(Runnable)}, workers keep draining after shutdown until it is 0. */
+    private final AtomicInteger publishing = new AtomicInteger();
+
+    /** The completed task count. */
+    private final AtomicLong completedCount = new AtomicLong();
+
+    /**
+     * Instantiates a new ring buffer executor service.
+     *
+     * @param threads the worker threads
+     * @param bufferSize the ring buffer size, rounded up to power of 2
+     * @param waitStrategy the wait strategy
+     * @param batchSize the max tasks drained by a worker in one batch
+     * @param threadFactory the thread factory
+     */
+    public RingBufferExecutorService(int threads, int bufferSize, WaitStrategy waitStrategy, int batchSize,
+            ThreadFactory threadFactory) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("param 'threads' should be greater than 0.");
+        }
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("param 'bufferSize' should be greater than 0.");
+        }
+        int capacity = 1;
+        while (capacity < bufferSize) {
+            capacity <<= 1;
+        }
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<Runnable>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.waitStrategy = waitStrategy == null ? WaitStrategy.BLOCKING : waitStrategy;
+        this.batchSize = Math.max(1, batchSize);
+
+        terminationLatch = new CountDownLatch(threads);
+        workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = threadFactory.newThread(new Worker());
+        }
+        for (Thread worker : workers) {
+            worker.start();
+        }
+    }
+
+    /**
+     * Publish task to ring buffer.
+     *
+     * @param task the task
+     * @return true, if success, false if ring buffer is full
+     */
+    private boolean offer(Runnable task) {
+        long pos = tail.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    slots.lazySet(index, task);
+                    // publish the slot to consumers
+                    sequences.lazySet(index, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                // slot not consumed by last round yet
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Take task from ring buffer.
+     *
+     * @return the task, null if ring buffer is empty
+     */
+    private Runnable poll() {
+        long pos = head.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    Runnable task = slots.get(index);
+                    slots.lazySet(index, null);
+                    // release the slot to producers of next round
+                    sequences.lazySet(index, pos + mask + 1);
+                    return task;
+                }
+                pos = head.get();
+            } else if (diff < 0) {
+                return null;
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+
+    /**
+     * Gets the queued task count.
+     *
+     * @return the queued count
+     */
+    public int getQueuedCount() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, mask + 1));
+    }
+
+    /**
+     * Gets the completed task count.
+     *
+     * @return the completed count
+     */
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
+    /**
+     * Gets the buffer size.
+     *
+     * @return the buffer size
+     */
+    public int getBufferSize() {
+        return mask + 1;
+    }
+
+    /**
+     * Gets the wait strategy.
+     *
+     * @return the wait strategy
+     */
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.util.concurrent.Executor#execute(java.lang.Runnable)
+     */
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        publishing.incrementAndGet();
+        try {
+            // checked after registered as publishing, so workers do not exit before the task is published
+            if (!running) {
+                throw new RejectedExecutionException("executor is shutdown.");
+            }
+            if (!offer(command)) {
+                throw new RejectedExecutionException("ring buffer is full, size:" + getBufferSize());
+            }
+        } finally {
+            publishing.decrementAndGet();
+        }
+        if (waitStrategy == WaitStrategy.BLOCKING && waiters.get() > 0) {
+            signalWaiters(false);
+        }
+    }
+
+    /**
+     * Wake up workers blocked on empty ring buffer.
+     *
+     * @param all true to wake up all workers
+     */
+    private void signalWaiters(boolean all) {
+        lock.lock();
+        try {
+            if (all) {
+                notEmpty.signalAll();
+            } else {
+                notEmpty.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait for new task according to wait strategy.
+     *
+     * @param idleCount the count of idle rounds
+     */
+    private void idle(int idleCount) {
+        switch (waitStrategy) {
+            case BUSY_SPIN:
+                break;
+            case YIELDING:
+                if (idleCount > SPIN_TRIES) {
+                    Thread.yield();
+                }
+                break;
+            case SLEEPING:
+                if (idleCount > YIELD_TRIES) {
+                    LockSupport.parkNanos(SLEEP_NANOS);
+                } else if (idleCount > SPIN_TRIES) {
+                    Thread.yield();
+                }
+                break;
+            default:
+                if (idleCount > SPIN_TRIES) {
+                    block();
+                }
+                break;
+        }
+    }
+
+    /**
+     * Block until signaled by producer.
+     */
+    private void block() {
+        lock.lock();
+        try {
+            waiters.incrementAndGet();
+            try {
+                // check again after registered as waiter so no signal is lost
+                if (running && head.get() == tail.get()) {
+                    notEmpty.awaitNanos(BLOCKING_TIMEOUT_NANOS);
+                }
+            } finally {
+                waiters.decrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            if (!running) {
+                // interrupted by shutdownNow
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.util.concurrent.ExecutorService#shutdown()
+     */
+    @Override
+    public void shutdown() {
+        running = false;
+        signalWaiters(true);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.util.concurrent.ExecutorService#shutdownNow()
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        List<Runnable> tasks = new ArrayList<Runnable>();
+        Runnable task;
+        while ((task = poll()) != null) {
+            tasks.add(task);
+        }
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        return tasks;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.util.concurrent.ExecutorService#isShutdown()
+     */
+    @Override
+    public boolean isShutdown() {
+        return !running;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.util.concurrent.ExecutorService#isTerminated()
+     */
+    @Override
+    public boolean isTerminated() {
+        return terminationLatch.getCount() == 0;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.util.concurrent.ExecutorService#awaitTermination(long, java.util.concurrent.TimeUnit)
+     */
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminationLatch.await(timeout, unit);
+    }
+
+    /**
+     * Worker thread which drains ring buffer in batches.
+     */
+    private class Worker implements Runnable {
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see java.lang.Runnable#run()
+         */
+        @Override
+        public void run() {
+            try {
+                int idleCount = 0;
+                while (true) {
+                    int drained = drain();
+                    if (drained > 0) {
+                        idleCount = 0;
+                        continue;
+                    }
+                    if (!running) {
+                        if (publishing.get() == 0 && drain() == 0) {
+                            // all tasks published before shutdown are drained, and no more could be published
+                            break;
+                        }
+                        Thread.yield();
+                        continue;
+                    }
+                    idle(++idleCount);
+                }
+            } finally {
+                terminationLatch.countDown();
+            }
+        }
+
+        /**
+         * Run at most {@link RingBufferExecutorService#batchSize} tasks.
+         *
+         * @return the count of tasks executed
+         */
+        private int drain() {
+            int count = 0;
+            Runnable task;
+            while (count < batchSize && (task = poll()) != null) {
+                count++;
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    LOG.log(Level.SEVERE, e.getMessage(), e);
+                }
+                if (running) {
+                    // interrupt left by task should not wake up idle worker again and again
+                    Thread.interrupted();
+                }
+            }
+            if (count > 0) {
+                completedCount.addAndGet(count);
+            }
+            return count;
+        }
+    }
+}
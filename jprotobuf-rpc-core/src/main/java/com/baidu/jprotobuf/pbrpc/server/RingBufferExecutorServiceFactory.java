@@ -0,0 +1,151 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.server;
+
+import java.util.concurrent.ExecutorService;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import com.baidu.jprotobuf.pbrpc.transport.RpcServerOptions;
+
+/**
+ * {@link ExecutorServiceFactory} of {@link RingBufferExecutorService}. Worker threads and buffer size follow
+ * {@link RpcServerOptions#getTaskTheads()} and {@link RpcServerOptions#getTaskQueueSize()} if not set.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class RingBufferExecutorServiceFactory implements ExecutorServiceFactory {
+
+    /** The Constant DEFAULT_BUFFER_SIZE. */
+    private static final int DEFAULT_BUFFER_SIZE = 1024;
+
+    /** The Constant DEFAULT_BATCH_SIZE. */
+    private static final int DEFAULT_BATCH_SIZE = 16;
+
+    /** The Constant THREAD_NAME_PREFIX. */
+    private static final String THREAD_NAME_PREFIX = "pbrpc-ring";
+
+    /** The worker threads, 0 to follow task threads of server options. */
+    private int threads;
+
+    /** The buffer size, 0 to follow task queue size of server options. */
+    private int bufferSize;
+
+    /** The wait strategy. */
+    private WaitStrategy waitStrategy = WaitStrategy.BLOCKING;
+
+    /** The batch size. */
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.server.ExecutorServiceFactory#createExecutorService(com.baidu.jprotobuf.pbrpc.
+     * transport.RpcServerOptions)
+     */
+    @Override
+    public ExecutorService createExecutorService(RpcServerOptions options) {
+        int workerThreads = threads;
+        if (workerThreads <= 0) {
+            workerThreads = options.getTaskTheads();
+        }
+        if (workerThreads <= 0) {
+            workerThreads = Runtime.getRuntime().availableProcessors() * 2;
+        }
+        int size = bufferSize;
+        if (size <= 0) {
+            size = options.getTaskQueueSize();
+        }
+        if (size <= 0) {
+            size = DEFAULT_BUFFER_SIZE;
+        }
+        return new RingBufferExecutorService(workerThreads, size, waitStrategy, batchSize,
+                new DefaultThreadFactory(THREAD_NAME_PREFIX, true));
+    }
+
+    /**
+     * Gets the threads.
+     *
+     * @return the threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the threads.
+     *
+     * @param threads the new threads, 0 to follow task threads of server options
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Gets the buffer size.
+     *
+     * @return the buffer size
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Sets the buffer size.
+     *
+     * @param bufferSize the new buffer size, 0 to follow task queue size of server options
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Gets the wait strategy.
+     *
+     * @return the wait strategy
+     */
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    /**
+     * Sets the wait strategy.
+     *
+     * @param waitStrategy the new wait strategy
+     */
+    public void setWaitStrategy(WaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * Gets the batch size.
+     *
+     * @return the batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets the batch size.
+     *
+     * @param batchSize the new batch size
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+}
@@ -39,6 +39,9 @@ public class RpcData {
     /** log id. */
     private Long logId;
 
+    /** deadline of this request in milliseconds, null if client does not carry timeout. */
+    private Long deadline;
+
     /**
      * Gets the log id.
      *
@@ -129,4 +132,22 @@ public class RpcData {
         this.extraParams = extraParams;
     }
 
+    /**
+     * Gets the deadline.
+     *
+     * @return the deadline
+     */
+    public Long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Sets the deadline.
+     *
+     * @param deadline the new deadline
+     */
+    public void setDeadline(Long deadline) {
+        this.deadline = deadline;
+    }
+
 }
@@ -19,8 +19,11 @@ package com.baidu.jprotobuf.pbrpc.server;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -30,6 +33,7 @@ import com.baidu.jprotobuf.pbrpc.RpcHandler;
 import com.baidu.jprotobuf.pbrpc.ServerAttachmentHandler;
 import com.baidu.jprotobuf.pbrpc.ServerAuthenticationDataHandler;
 import com.baidu.jprotobuf.pbrpc.client.RpcMethodInfo;
+import com.baidu.jprotobuf.pbrpc.data.RpcRequestMeta;
 import com.baidu.jprotobuf.pbrpc.intercept.InvokerInterceptor;
 import com.baidu.jprotobuf.pbrpc.meta.RpcServiceMetaServiceProvider;
 import com.baidu.jprotobuf.pbrpc.utils.Constants;
@@ -53,6 +57,12 @@ public class RpcServiceRegistry {
      */
     private Map<String, RpcHandler> serviceMap = new HashMap<String, RpcHandler>();
 
+    /** registered services indexed by method id, copied on write. */
+    private volatile RpcHandler[] methodIdHandlers = new RpcHandler[0];
+
+    /** method id assigned to method signature. */
+    private final Map<String, Integer> methodIds = new HashMap<String, Integer>();
+
     /**
      * if override exist allowed. default is not allowed
      */
@@ -61,6 +71,15 @@ public class RpcServiceRegistry {
     /** The interceptor. */
     private InvokerInterceptor interceptor;
 
+    /** named executor pools. */
+    private final Map<String, ExecutorPool> executorPools = new ConcurrentHashMap<String, ExecutorPool>();
+
+    /** executor pool name assigned to service name or method signature. */
+    private final Map<String, String> executorPoolAssignments = new ConcurrentHashMap<String, String>();
+
+    /** service names or method signatures executed on IO thread directly. */
+    private final Set<String> inlineExecutions = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
     /**
      * Sets the interceptor.
      *
@@ -85,10 +104,14 @@ public class RpcServiceRegistry {
     }
 
     /**
-     * Un register all.
+     * Un register all. Method ids stay assigned, so a method registered again gets the same id and a method id is
+     * never reused by another method which clients fetched before could misroute to.
      */
     public void unRegisterAll() {
         serviceMap.clear();
+        synchronized (methodIds) {
+            methodIdHandlers = new RpcHandler[methodIdHandlers.length];
+        }
     }
 
     /**
@@ -237,6 +260,7 @@ public class RpcServiceRegistry {
         } else {
             serviceMap.put(methodSignature, rpcHandler);
         }
+        assignMethodId(methodSignature, rpcHandler);
 
         if (LOGGER.isLoggable(Level.INFO)) {
             LOGGER.info("RPC service register log: serviceName[" + rpcHandler.getServiceName() + "] methodName["
@@ -246,6 +270,131 @@ public class RpcServiceRegistry {
 
     }
 
+    /**
+     * Assign method id to service, the overridden or registered again service keeps the method id.
+     *
+     * @param methodSignature the method signature
+     * @param rpcHandler the rpc handler
+     */
+    private void assignMethodId(String methodSignature, RpcHandler rpcHandler) {
+        synchronized (methodIds) {
+            Integer methodId = methodIds.get(methodSignature);
+            RpcHandler[] handlers;
+            if (methodId == null) {
+                methodId = methodIdHandlers.length;
+                methodIds.put(methodSignature, methodId);
+                handlers = new RpcHandler[methodId + 1];
+            } else {
+                handlers = new RpcHandler[methodIdHandlers.length];
+            }
+            System.arraycopy(methodIdHandlers, 0, handlers, 0, methodIdHandlers.length);
+            handlers[methodId] = rpcHandler;
+            methodIdHandlers = handlers;
+        }
+    }
+
+    /**
+     * Register executor pool.
+     *
+     * @param executorPool the executor pool
+     */
+    public void registerExecutorPool(ExecutorPool executorPool) {
+        if (executorPool == null) {
+            throw new IllegalArgumentException("Param 'executorPool' is null.");
+        }
+        ExecutorPool old = executorPools.put(executorPool.getName(), executorPool);
+        if (old != null) {
+            old.shutdown();
+        }
+    }
+
+    /**
+     * Assign service or method to a named executor pool.
+     *
+     * @param serviceName the service name
+     * @param methodName the method name, if null all methods of the service are assigned
+     * @param poolName the executor pool name
+     */
+    public void assignExecutorPool(String serviceName, String methodName, String poolName) {
+        if (!executorPools.containsKey(poolName)) {
+            throw new IllegalArgumentException("executor pool '" + poolName + "' is not registered.");
+        }
+        String key = serviceName;
+        if (methodName != null) {
+            key = getMethodSignature(serviceName, methodName);
+        }
+        executorPoolAssignments.put(key, poolName);
+    }
+
+    /**
+     * Lookup executor pool of method. Method assignment takes precedence of service assignment.
+     *
+     * @param serviceName the service name
+     * @param methodName the method name
+     * @return the executor pool, or null if not assigned
+     */
+    public ExecutorPool lookupExecutorPool(String serviceName, String methodName) {
+        if (executorPoolAssignments.isEmpty()) {
+            return null;
+        }
+        String poolName = executorPoolAssignments.get(getMethodSignature(serviceName, methodName));
+        if (poolName == null) {
+            poolName = executorPoolAssignments.get(serviceName);
+        }
+        if (poolName == null) {
+            return null;
+        }
+        return executorPools.get(poolName);
+    }
+
+    /**
+     * Assign service or method to be executed on IO thread directly without handing off to task executor. Only
+     * recommended for cheap and non-blocking methods, as IO thread is blocked while executing.
+     *
+     * @param serviceName the service name
+     * @param methodName the method name, if null all methods of the service are assigned
+     */
+    public void assignInlineExecution(String serviceName, String methodName) {
+        String key = serviceName;
+        if (methodName != null) {
+            key = getMethodSignature(serviceName, methodName);
+        }
+        inlineExecutions.add(key);
+    }
+
+    /**
+     * Checks if method is assigned to be executed on IO thread.
+     *
+     * @param serviceName the service name
+     * @param methodName the method name
+     * @return true, if is inline execution
+     */
+    public boolean isInlineExecution(String serviceName, String methodName) {
+        if (inlineExecutions.isEmpty()) {
+            return false;
+        }
+        return inlineExecutions.contains(serviceName)
+                || inlineExecutions.contains(getMethodSignature(serviceName, methodName));
+    }
+
+    /**
+     * Gets the executor pools.
+     *
+     * @return the executor pools
+     */
+    public Collection<ExecutorPool> getExecutorPools() {
+        return executorPools.values();
+    }
+
+    /**
+     * Shutdown all executor pools.
+     */
+    public void shutdownExecutorPools() {
+        for (ExecutorPool executorPool : executorPools.values()) {
+            executorPool.shutdown();
+        }
+    }
+
     /**
      * Gets the method signature.
      *
@@ -270,6 +419,43 @@ public class RpcServiceRegistry {
         return serviceMap.get(methodSignature);
     }
 
+    /**
+     * Lookup service by method id.
+     *
+     * @param methodId the method id
+     * @return the rpc handler, or null if method id is not assigned
+     */
+    public RpcHandler lookupService(int methodId) {
+        RpcHandler[] handlers = methodIdHandlers;
+        if (methodId < 0 || methodId >= handlers.length) {
+            return null;
+        }
+        return handlers[methodId];
+    }
+
+    /**
+     * Lookup service of request by method id if present, otherwise by service name and method name.
+     *
+     * @param request the request
+     * @return the rpc handler
+     */
+    public RpcHandler lookupService(RpcRequestMeta request) {
+        Integer methodId = request.getMethodId();
+        if (methodId != null) {
+            return lookupService(methodId.intValue());
+        }
+        return lookupService(request.getSerivceName(), request.getMethodName());
+    }
+
+    /**
+     * Gets the count of assigned method ids, method ids are from 0 to count - 1.
+     *
+     * @return the method id count
+     */
+    public int getMethodIdCount() {
+        return methodIdHandlers.length;
+    }
+
     /**
      * Gets the services.
      *
@@ -296,16 +482,18 @@ public class RpcServiceRegistry {
 
         String methodSignature = getMethodSignature(serviceName, serviceExporter.getMethodName());
 
+        RpcHandler rpcHandler = new IDLServiceRpcHandler(serviceExporter);
         if (serviceMap.containsKey(methodSignature)) {
             if (dummyOverride) {
-                serviceMap.put(methodSignature, new IDLServiceRpcHandler(serviceExporter));
+                serviceMap.put(methodSignature, rpcHandler);
             } else {
                 throw new RuntimeException("serviceName '" + serviceName + " ' and methodName '"
                         + serviceExporter.getMethodName() + "' aready exist.");
             }
         } else {
-            serviceMap.put(methodSignature, new IDLServiceRpcHandler(serviceExporter));
+            serviceMap.put(methodSignature, rpcHandler);
         }
+        assignMethodId(methodSignature, rpcHandler);
 
     }
 }
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.server;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import com.baidu.jprotobuf.pbrpc.transport.RpcServerOptions;
+
+/**
+ * {@link ExecutorServiceFactory} which runs each task on its own thread without pool size limit, for services mostly
+ * blocked on downstream calls. Virtual threads are used if JVM supports (Java 21+), otherwise a cached pool of daemon
+ * platform threads is used.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class ThreadPerTaskExecutorServiceFactory implements ExecutorServiceFactory {
+
+    /** The Constant LOG. */
+    private static final Logger LOG = Logger.getLogger(ThreadPerTaskExecutorServiceFactory.class.getName());
+
+    /** The Constant VIRTUAL_THREAD_FACTORY_METHOD. */
+    private static final String VIRTUAL_THREAD_FACTORY_METHOD = "newVirtualThreadPerTaskExecutor";
+
+    /** The Constant THREAD_NAME_PREFIX. */
+    private static final String THREAD_NAME_PREFIX = "pbrpc-task";
+
+    /** The virtual thread enabled. */
+    private boolean virtualThreadEnabled = true;
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.baidu.jprotobuf.pbrpc.server.ExecutorServiceFactory#createExecutorService(com.baidu.jprotobuf.pbrpc.
+     * transport.RpcServerOptions)
+     */
+    @Override
+    public ExecutorService createExecutorService(RpcServerOptions options) {
+        if (virtualThreadEnabled) {
+            ExecutorService es = createVirtualThreadExecutor();
+            if (es != null) {
+                return es;
+            }
+        }
+        return Executors.newCachedThreadPool(new DefaultThreadFactory(THREAD_NAME_PREFIX, true));
+    }
+
+    /**
+     * Creates the virtual thread executor.
+     *
+     * @return the executor service, null if virtual thread is not supported by current JVM
+     */
+    protected ExecutorService createVirtualThreadExecutor() {
+        try {
+            Method method = Executors.class.getMethod(VIRTUAL_THREAD_FACTORY_METHOD);
+            return (ExecutorService) method.invoke(null);
+        } catch (NoSuchMethodException e) {
+            LOG.log(Level.FINE, "Virtual thread is not supported, use platform threads instead.");
+        } catch (Exception e) {
+            LOG.log(Level.WARNING, "Create virtual thread executor failed, use platform threads instead.", e);
+        }
+        return null;
+    }
+
+    /**
+     * Checks if is virtual thread enabled.
+     *
+     * @return true, if is virtual thread enabled
+     */
+    public boolean isVirtualThreadEnabled() {
+        return virtualThreadEnabled;
+    }
+
+    /**
+     * Sets the virtual thread enabled.
+     *
+     * @param virtualThreadEnabled the new virtual thread enabled
+     */
+    public void setVirtualThreadEnabled(boolean virtualThreadEnabled) {
+        this.virtualThreadEnabled = virtualThreadEnabled;
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.server;
+
+/**
+ * Strategy of worker threads of {@link RingBufferExecutorService} waiting for new tasks. Strategies spin longer give
+ * lower handoff latency but burn more CPU on idle.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public enum WaitStrategy {
+
+    /** keep spinning, lowest latency and one full CPU per worker. */
+    BUSY_SPIN,
+
+    /** spin for a while then yield to other threads. */
+    YIELDING,
+
+    /** spin, yield then park for a short period. */
+    SLEEPING,
+
+    /** park until new task is published, lowest CPU usage. */
+    BLOCKING
+}
@@ -16,6 +16,9 @@
 
 package com.baidu.jprotobuf.pbrpc.transport;
 
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
 import com.baidu.jprotobuf.pbrpc.data.RpcDataPackage;
 import com.google.protobuf.RpcCallback;
 
@@ -29,7 +32,13 @@ import com.google.protobuf.RpcCallback;
 public class BlockingRpcCallback implements RpcCallback<RpcDataPackage> {
 
     /** The done. */
-    private boolean done = false; // 会话完成标识
+    private volatile boolean done = false; // 会话完成标识
+
+    /** The lock. */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** The done condition. */
+    private final Condition doneCondition = lock.newCondition();
     
     /** The callback done. */
     private CallbackDone callbackDone;
@@ -65,11 +74,36 @@ public class BlockingRpcCallback implements RpcCallback<RpcDataPackage> {
         if (callbackDone != null) {
         	callbackDone.done();
         }
-        synchronized (this) {
+        // use lock instead of monitor to avoid pinning carrier thread of virtual threads
+        lock.lock();
+        try {
             done = true;
-            this.notifyAll();
+            doneCondition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        // callers written before await() was added wait on this callback's monitor
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Waits until response message is received or call is failed. Thread interrupt status is kept but will not break
+     * the waiting, as call will always be finished by response or timeout.
+     */
+    public void await() {
+        if (done) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (!done) {
+                doneCondition.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
         }
-        
     }
 
     /**
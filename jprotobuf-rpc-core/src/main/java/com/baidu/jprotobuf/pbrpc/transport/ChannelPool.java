@@ -16,6 +16,8 @@
 
 package com.baidu.jprotobuf.pbrpc.transport;
 
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -23,6 +25,11 @@ import org.apache.commons.pool2.PooledObjectFactory;
 import org.apache.commons.pool2.impl.GenericObjectPool;
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 
+import io.netty.channel.Channel;
+
+import com.baidu.jprotobuf.pbrpc.limit.AimdConcurrencyLimiter;
+import com.baidu.jprotobuf.pbrpc.limit.ConcurrencyLimiter;
+
 /**
  * Adapter for netty channel. Used by Mcpack Netty Client {@link NettyClient}.
  * 
@@ -43,6 +50,21 @@ public class ChannelPool {
     /** The pool. */
     private final GenericObjectPool<Connection> pool;
     
+    /** The shared connections in multiplexed mode. */
+    private final AtomicReferenceArray<Connection> multiplexConnections;
+    
+    /** The locks of each multiplexed connection slot, so a blocking connect only holds its own slot. */
+    private final Object[] multiplexLocks;
+    
+    /** The round robin index for multiplexed connections. */
+    private final AtomicInteger multiplexIndex = new AtomicInteger();
+    
+    /** The endpoint key. */
+    private final String endpoint;
+    
+    /** The concurrency limiter of outstanding requests, null if disabled. */
+    private final ConcurrencyLimiter concurrencyLimiter;
+    
     /**
      * Instantiates a new channel pool.
      *
@@ -52,19 +74,43 @@ public class ChannelPool {
      */
     public ChannelPool(RpcClient rpcClient, String host, int port) {
         this.clientConfig = rpcClient.getRpcClientOptions();
+        this.endpoint = ChannelPoolRegistry.toEndpointKey(host, port);
         objectFactory = new ChannelPoolObjectFactory(rpcClient, host, port);
         
         GenericObjectPoolConfig config = new GenericObjectPoolConfig();
         config.setJmxEnabled(clientConfig.isJmxEnabled());
         pool = new GenericObjectPool<Connection>(objectFactory, config);
         pool.setMaxIdle(clientConfig.getMaxIdleSize());
-        pool.setMaxTotal(clientConfig.getThreadPoolSize());
+        int maxTotal = clientConfig.getMaxConnectionsPerEndpoint();
+        if (maxTotal < 1) {
+            maxTotal = clientConfig.getThreadPoolSize();
+        }
+        pool.setMaxTotal(maxTotal);
         pool.setMaxWaitMillis(clientConfig.getMaxWait());
         pool.setMinIdle(clientConfig.getMinIdleSize());
         pool.setMinEvictableIdleTimeMillis(clientConfig.getMinEvictableIdleTime());
         pool.setTestOnBorrow(clientConfig.isTestOnBorrow());
         pool.setTestOnReturn(clientConfig.isTestOnReturn());
         pool.setLifo(clientConfig.isLifo());
+        
+        if (clientConfig.isMultiplexed()) {
+            int size = Math.max(1, clientConfig.getMultiplexConnections());
+            multiplexConnections = new AtomicReferenceArray<Connection>(size);
+            multiplexLocks = new Object[size];
+            for (int i = 0; i < size; i++) {
+                multiplexLocks[i] = new Object();
+            }
+        } else {
+            multiplexConnections = null;
+            multiplexLocks = null;
+        }
+        
+        if (clientConfig.isEndpointConcurrencyLimit()) {
+            concurrencyLimiter = new AimdConcurrencyLimiter(clientConfig.getInitialEndpointConcurrencyLimit(), 1,
+                    clientConfig.getMaxEndpointConcurrencyLimit());
+        } else {
+            concurrencyLimiter = null;
+        }
     }
     
     /**
@@ -75,7 +121,10 @@ public class ChannelPool {
     public Connection getChannel() {
         Connection channel = null;
         try {
-            if (!clientConfig.isShortConnection()) {
+            if (multiplexConnections != null) {
+                int index = (multiplexIndex.getAndIncrement() & Integer.MAX_VALUE) % multiplexConnections.length();
+                channel = getMultiplexConnection(index);
+            } else if (!clientConfig.isShortConnection()) {
                 channel = pool.borrowObject();
             } else {
                 channel = objectFactory.makeObject().getObject();
@@ -87,12 +136,37 @@ public class ChannelPool {
         return channel;
     }
     
+    /**
+     * Fills the pool up to min idle size. On async connect mode all connects run in parallel and this method returns
+     * without waiting for them.
+     */
+    public void prewarm() {
+        try {
+            if (multiplexConnections != null) {
+                for (int i = 0; i < multiplexConnections.length(); i++) {
+                    getMultiplexConnection(i);
+                }
+            } else if (!clientConfig.isShortConnection()) {
+                int count = pool.getMinIdle() - pool.getNumIdle();
+                for (int i = 0; i < count; i++) {
+                    pool.addObject();
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "prewarm connections to " + endpoint + " failed: " + e.getMessage(), e);
+        }
+    }
+    
     /**
      * Return channel.
      *
      * @param channel the channel
      */
     public void returnChannel(Connection channel) {
+        if (multiplexConnections != null) {
+            // shared connection, nothing to return
+            return;
+        }
         try {
             if (!clientConfig.isShortConnection()) {
                 pool.returnObject(channel);
@@ -106,10 +180,126 @@ public class ChannelPool {
         }
     }
     
+    /**
+     * Gets the shared connection of slot. A slot whose channel is closed will be reconnected under lock of the slot
+     * only, so other slots are still usable while connecting.
+     *
+     * @param index the slot index
+     * @return the multiplexed connection
+     * @throws Exception the exception
+     */
+    private Connection getMultiplexConnection(int index) throws Exception {
+        Connection connection = multiplexConnections.get(index);
+        if (isAvailable(connection)) {
+            return connection;
+        }
+        synchronized (multiplexLocks[index]) {
+            connection = multiplexConnections.get(index);
+            if (!isAvailable(connection)) {
+                if (connection != null) {
+                    closeConnection(connection);
+                }
+                connection = objectFactory.makeObject().getObject();
+                multiplexConnections.set(index, connection);
+            }
+        }
+        return connection;
+    }
+    
+    /**
+     * Checks if connection is available to send request.
+     *
+     * @param connection the connection
+     * @return true, if is available
+     */
+    private boolean isAvailable(Connection connection) {
+        if (connection == null || connection.getFuture() == null) {
+            return false;
+        }
+        if (!connection.getFuture().isDone()) {
+            // connecting
+            return true;
+        }
+        Channel channel = connection.getFuture().channel();
+        return channel.isOpen() && channel.isActive();
+    }
+    
+    /**
+     * Close connection.
+     *
+     * @param connection the connection
+     */
+    private void closeConnection(Connection connection) {
+        if (connection.getFuture() != null && connection.getFuture().channel().isOpen()) {
+            connection.getFuture().channel().close();
+        }
+    }
+    
+    /**
+     * Gets the endpoint key.
+     *
+     * @return the endpoint key
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+    
+    /**
+     * Gets the concurrency limiter.
+     *
+     * @return the concurrency limiter, null if endpoint concurrency limit is disabled
+     */
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+    
+    /**
+     * Gets the stats of this pool.
+     *
+     * @return the stats
+     */
+    public EndpointStats getStats() {
+        EndpointStats stats = new EndpointStats();
+        stats.setEndpoint(endpoint);
+        if (concurrencyLimiter != null) {
+            stats.setConcurrencyLimit(concurrencyLimiter.getLimit());
+            stats.setInflight(concurrencyLimiter.getInflight());
+        }
+        if (multiplexConnections != null) {
+            int active = 0;
+            for (int i = 0; i < multiplexConnections.length(); i++) {
+                if (isAvailable(multiplexConnections.get(i))) {
+                    active++;
+                }
+            }
+            stats.setMaxConnections(multiplexConnections.length());
+            stats.setActiveConnections(active);
+            return stats;
+        }
+        stats.setMaxConnections(pool.getMaxTotal());
+        stats.setActiveConnections(pool.getNumActive());
+        stats.setIdleConnections(pool.getNumIdle());
+        stats.setCreatedCount(pool.getCreatedCount());
+        stats.setDestroyedCount(pool.getDestroyedCount());
+        stats.setBorrowedCount(pool.getBorrowedCount());
+        stats.setMeanBorrowWaitTime(pool.getMeanBorrowWaitTimeMillis());
+        return stats;
+    }
+    
     /**
      * Stop.
      */
     public void stop() {
+        if (multiplexConnections != null) {
+            for (int i = 0; i < multiplexConnections.length(); i++) {
+                synchronized (multiplexLocks[i]) {
+                    Connection connection = multiplexConnections.getAndSet(i, null);
+                    if (connection != null) {
+                        closeConnection(connection);
+                    }
+                }
+            }
+        }
         try {
             if (pool != null) {
                 pool.clear();
@@ -85,18 +85,24 @@ public class ChannelPoolObjectFactory extends BasePooledObjectFactory<Connection
             address = new InetSocketAddress(host, port);
         }
         ChannelFuture future = this.rpcClient.connect(address);
-
-        // Wait until the connection is made successfully.
-        future.awaitUninterruptibly();
-        if (!future.isSuccess()) {
-            LOGGER.log(Level.SEVERE, "failed to get result from stp", future.cause());
-        } else {
-            connection.setIsConnected(true);
+        connection.setFuture(future);
+        // used to fail pending requests at once on channel inactive
+        future.channel().attr(Connection.CONNECTION_KEY).set(connection);
+        future.channel().attr(ProtocolFeatures.PROTOCOL_FEATURES_KEY).set(connection.getProtocolFeatures());
+
+        if (!rpcClient.getRpcClientOptions().isAsyncConnect()) {
+            // Wait until the connection is made successfully.
+            future.awaitUninterruptibly();
+            if (!future.isSuccess()) {
+                LOGGER.log(Level.SEVERE, "failed to get result from stp", future.cause());
+            } else {
+                connection.setIsConnected(true);
+            }
         }
 
+        // on async mode queued requests are sent or failed once connect completes
         future.addListener(new RpcChannelFutureListener(connection));
-        connection.setFuture(future);
-        
+
         return new DefaultPooledObject<Connection>(connection);
     }
 
@@ -115,7 +121,8 @@ public class ChannelPoolObjectFactory extends BasePooledObjectFactory<Connection
     public void destroyObject(PooledObject<Connection> p) throws Exception {
         Connection c = p.getObject();
         Channel channel = c.getFuture().channel();
-        if (channel.isOpen() && channel.isActive()) {
+        // also close a channel which is still connecting
+        if (channel.isOpen()) {
             channel.close();
         }
     }
@@ -125,6 +132,10 @@ public class ChannelPoolObjectFactory extends BasePooledObjectFactory<Connection
      */
     public boolean validateObject(PooledObject<Connection> p) {
         Connection c = p.getObject();
+        if (!c.getFuture().isDone()) {
+            // still connecting, requests will be queued
+            return true;
+        }
         Channel channel = c.getFuture().channel();
         return channel.isOpen() && channel.isActive();
 
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.transport;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process wide registry of {@link ChannelPool} keyed by resolved endpoint and the client options which affect pool
+ * and connections. All {@link RpcChannel} to the same host and port share one pool, no matter which proxy or
+ * {@link RpcClient} creates it, as long as their options are equal on those fields. Pools are reference counted and
+ * stopped on last release.
+ * 
+ * <p>
+ * Pending requests are routed by process wide correlation id, so a connection created by one {@link RpcClient} could
+ * carry requests of another. The client creating a pool keeps its event loop group and timer alive until the pool is
+ * stopped, even if it is shutdown earlier.
+ * </p>
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class ChannelPoolRegistry {
+
+    /** The Constant INSTANCE. */
+    private static final ChannelPoolRegistry INSTANCE = new ChannelPoolRegistry();
+
+    /** The pools. */
+    private final Map<String, ChannelPool> pools = new HashMap<String, ChannelPool>();
+
+    /** The client which created each pool. */
+    private final Map<String, RpcClient> creators = new HashMap<String, RpcClient>();
+
+    /** The references of each pool by client. */
+    private final Map<String, Map<RpcClient, Integer>> references = new HashMap<String, Map<RpcClient, Integer>>();
+
+    /**
+     * Gets the single instance.
+     *
+     * @return single instance
+     */
+    public static ChannelPoolRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * To endpoint key. Host name is resolved to address if possible.
+     *
+     * @param host the host
+     * @param port the port
+     * @return the endpoint key
+     */
+    public static String toEndpointKey(String host, int port) {
+        InetSocketAddress address;
+        if (host == null) {
+            address = new InetSocketAddress(port);
+        } else {
+            address = new InetSocketAddress(host, port);
+        }
+        if (address.isUnresolved()) {
+            return host + ":" + port;
+        }
+        return address.getAddress().getHostAddress() + ":" + port;
+    }
+
+    /**
+     * To pool key of endpoint and options read by {@link ChannelPool}, {@link ChannelPoolObjectFactory},
+     * {@link Connection} and {@link RpcClientPipelineinitializer}. Options only used per call, such as once talk
+     * timeout and compress type, are not included. A new option read by those classes must be added here.
+     *
+     * @param options the options
+     * @param host the host
+     * @param port the port
+     * @return the pool key
+     */
+    static String toPoolKey(RpcClientOptions options, String host, int port) {
+        StringBuilder builder = new StringBuilder(toEndpointKey(host, port));
+        // pool
+        builder.append('|').append(options.isShortConnection()).append(',').append(options.getThreadPoolSize())
+                .append(',').append(options.getMaxConnectionsPerEndpoint()).append(',')
+                .append(options.getMaxIdleSize()).append(',').append(options.getMinIdleSize()).append(',')
+                .append(options.getMinEvictableIdleTime()).append(',').append(options.getMaxWait()).append(',')
+                .append(options.isLifo()).append(',').append(options.isTestOnBorrow()).append(',')
+                .append(options.isTestOnReturn()).append(',').append(options.isJmxEnabled());
+        builder.append('|').append(options.isMultiplexed()).append(',').append(options.getMultiplexConnections());
+        builder.append('|').append(options.isEndpointConcurrencyLimit()).append(',')
+                .append(options.getInitialEndpointConcurrencyLimit()).append(',')
+                .append(options.getMaxEndpointConcurrencyLimit());
+        // connection
+        builder.append('|').append(options.getIoEventGroupType()).append(',').append(options.isShareEventLoopGroup())
+                .append(',').append(options.getConnectTimeout()).append(',').append(options.getSendBufferSize())
+                .append(',').append(options.getReceiveBufferSize()).append(',').append(options.getTcpNoDelay())
+                .append(',').append(options.isKeepAlive()).append(',').append(options.isReuseAddress()).append(',')
+                .append(options.getIdleTimeout()).append(',').append(options.isAsyncConnect()).append(',')
+                .append(options.isPrewarmConnections());
+        // protocol
+        builder.append('|').append(options.getMaxSize()).append(',').append(options.getChunkSize()).append(',')
+                .append(options.isHandshake()).append(',').append(options.isSlimResponseMeta()).append(',')
+                .append(options.isMethodIdDispatch()).append(',').append(options.getCompressMinSize()).append(',')
+                .append(options.isAdaptiveCompress()).append(',').append(options.getBusyCompressType());
+        return builder.toString();
+    }
+
+    /**
+     * Acquire channel pool of target endpoint.
+     *
+     * @param rpcClient the rpc client
+     * @param host the host
+     * @param port the port
+     * @return the channel pool
+     */
+    public synchronized ChannelPool acquire(RpcClient rpcClient, String host, int port) {
+        String key = toPoolKey(rpcClient.getRpcClientOptions(), host, port);
+        ChannelPool pool = pools.get(key);
+        if (pool == null) {
+            pool = new ChannelPool(rpcClient, host, port);
+            pools.put(key, pool);
+            creators.put(key, rpcClient);
+            references.put(key, new IdentityHashMap<RpcClient, Integer>());
+            // connections of the pool run on event loop group of its creator
+            rpcClient.retainTransport();
+        }
+        Map<RpcClient, Integer> clientReferences = references.get(key);
+        Integer count = clientReferences.get(rpcClient);
+        clientReferences.put(rpcClient, count == null ? 1 : count + 1);
+        return pool;
+    }
+
+    /**
+     * Release channel pool. Pool will be stopped on last release.
+     *
+     * @param rpcClient the rpc client
+     * @param pool the pool
+     */
+    public synchronized void release(RpcClient rpcClient, ChannelPool pool) {
+        String key = findKey(pool);
+        if (key == null) {
+            // not managed by this registry
+            pool.stop();
+            return;
+        }
+        Map<RpcClient, Integer> clientReferences = references.get(key);
+        Integer count = clientReferences.get(rpcClient);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            clientReferences.put(rpcClient, count - 1);
+            return;
+        }
+        clientReferences.remove(rpcClient);
+        if (clientReferences.isEmpty()) {
+            remove(key);
+        }
+    }
+
+    /**
+     * Release all channel pools referenced by the client, called on client shutdown.
+     *
+     * @param rpcClient the rpc client
+     */
+    public synchronized void releaseAll(RpcClient rpcClient) {
+        Iterator<Map.Entry<String, Map<RpcClient, Integer>>> iterator = references.entrySet().iterator();
+        List<String> unused = new ArrayList<String>();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Map<RpcClient, Integer>> entry = iterator.next();
+            if (entry.getValue().remove(rpcClient) != null && entry.getValue().isEmpty()) {
+                unused.add(entry.getKey());
+            }
+        }
+        for (String key : unused) {
+            remove(key);
+        }
+    }
+
+    /**
+     * Stop pool and release transport of its creator.
+     *
+     * @param key the pool key
+     */
+    private void remove(String key) {
+        references.remove(key);
+        ChannelPool pool = pools.remove(key);
+        RpcClient creator = creators.remove(key);
+        pool.stop();
+        creator.releaseTransport();
+    }
+
+    /**
+     * Find key of managed pool.
+     *
+     * @param pool the pool
+     * @return the key, null if not found
+     */
+    private String findKey(ChannelPool pool) {
+        for (Map.Entry<String, ChannelPool> entry : pools.entrySet()) {
+            if (entry.getValue() == pool) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the stats of each pool.
+     *
+     * @return the stats
+     */
+    public synchronized List<EndpointStats> getStats() {
+        return getStats(null);
+    }
+
+    /**
+     * Gets the stats of each pool referenced by the client.
+     *
+     * @param rpcClient the rpc client, null for all pools
+     * @return the stats
+     */
+    public synchronized List<EndpointStats> getStats(RpcClient rpcClient) {
+        List<EndpointStats> ret = new ArrayList<EndpointStats>(pools.size());
+        for (Map.Entry<String, ChannelPool> entry : pools.entrySet()) {
+            Map<RpcClient, Integer> clientReferences = references.get(entry.getKey());
+            if (rpcClient != null && !clientReferences.containsKey(rpcClient)) {
+                continue;
+            }
+            int count = 0;
+            for (Integer value : clientReferences.values()) {
+                count += value;
+            }
+            EndpointStats stats = entry.getValue().getStats();
+            stats.setReferences(count);
+            ret.add(stats);
+        }
+        return ret;
+    }
+
+    /**
+     * Gets the stats of all pools in current process.
+     *
+     * @return the all stats
+     */
+    public static List<EndpointStats> getAllStats() {
+        return INSTANCE.getStats();
+    }
+}
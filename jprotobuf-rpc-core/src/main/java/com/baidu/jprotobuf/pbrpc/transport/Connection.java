@@ -16,11 +16,39 @@
 
 package com.baidu.jprotobuf.pbrpc.transport;
 
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.util.AttributeKey;
+import io.netty.util.Timeout;
 
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.baidu.bjf.remoting.protobuf.Codec;
+import com.baidu.bjf.remoting.protobuf.ProtobufProxy;
+import com.baidu.jprotobuf.pbrpc.data.ProtocolConstant;
+import com.baidu.jprotobuf.pbrpc.data.RpcDataPackage;
+import com.baidu.jprotobuf.pbrpc.data.RpcMeta;
+import com.baidu.jprotobuf.pbrpc.data.RpcRequestMeta;
+import com.baidu.jprotobuf.pbrpc.data.RpcResponseMeta;
+import com.baidu.jprotobuf.pbrpc.meta.RpcHandshake;
+import com.baidu.jprotobuf.pbrpc.meta.RpcMethodIdMeta;
+import com.baidu.jprotobuf.pbrpc.meta.RpcMethodIdMetaList;
+import com.baidu.jprotobuf.pbrpc.meta.RpcServiceMetaServiceProvider;
+import com.baidu.jprotobuf.pbrpc.transport.handler.ErrorCodes;
+import com.google.protobuf.RpcCallback;
 
 /**
  * RPC client connection .
@@ -30,8 +58,20 @@ import java.util.concurrent.atomic.AtomicBoolean;
  */
 public class Connection {
     
+    /** The log. */
+    private static final Logger LOG = Logger.getLogger(Connection.class.getName());
+
+    /** channel attribute key to find connection from channel. */
+    public static final AttributeKey<Connection> CONNECTION_KEY = AttributeKey.valueOf("rpc.connection");
+
     /** max request default count. */
     private static final int MAX_REQUEST_SIZE = 102400;
+
+    /** codec of method ids fetched from server. */
+    private static Codec<RpcMethodIdMetaList> methodIdCodec;
+
+    /** codec of handshake. */
+    private static Codec<RpcHandshake> handshakeCodec;
     
     /** The future. */
     private ChannelFuture future;
@@ -45,6 +85,15 @@ public class Connection {
     /** The client. */
     private RpcClient client;
 
+    /** correlation ids of requests waiting for response on this connection. */
+    private final Set<Long> pendingRequests = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+
+    /** method ids assigned by server, keyed by service name and method name. null if not fetched yet. */
+    private volatile Map<String, Map<String, Integer>> methodIds;
+
+    /** protocol features agreed with server by handshake. */
+    private final ProtocolFeatures protocolFeatures = new ProtocolFeatures();
+
     /**
      * Instantiates a new connection.
      *
@@ -55,6 +104,7 @@ public class Connection {
         this.future = null;
         this.requestQueue = new ArrayBlockingQueue<RpcClientCallState>(MAX_REQUEST_SIZE);
         this.client = client;
+        this.protocolFeatures.setMaxFrameSize(client.getRpcClientOptions().getMaxSize());
     }
 
     /**
@@ -112,6 +162,306 @@ public class Connection {
         return requestQueue.poll();
     }
     
+    /**
+     * Send all queued requests if connect is succeeded, or fail them fast if connect is failed. Do nothing while
+     * connect is in progress.
+     */
+    public void flushRequests() {
+        if (future == null || !future.isDone()) {
+            return;
+        }
+        RpcClientCallState requestState = null;
+        while (null != (requestState = consumeRequest())) {
+            long correlationId = requestState.getDataPackage().getRpcMeta().getCorrelationId();
+            if (future.isSuccess()) {
+                LOG.log(Level.FINEST, "[correlationId:" + correlationId + "] send over from queue");
+                sendRequest(requestState);
+            } else {
+                failPendingRequest(correlationId, ErrorCodes.ST_CONNECTION_LOST, "connect to "
+                        + future.channel().remoteAddress() + " failed: " + future.cause());
+            }
+        }
+    }
+
+    /**
+     * Writes request to channel. If write failed, the request will be failed at once.
+     *
+     * @param state the state
+     */
+    public void sendRequest(RpcClientCallState state) {
+        final long correlationId = state.getDataPackage().getRpcMeta().getCorrelationId();
+        if (!applyProtocolFeatures(state.getDataPackage())) {
+            return;
+        }
+        applyMethodId(state.getDataPackage());
+        future.channel().writeAndFlush(state.getDataPackage()).addListener(new ChannelFutureListener() {
+
+            @Override
+            public void operationComplete(ChannelFuture writeFuture) throws Exception {
+                if (writeFuture.isSuccess()) {
+                    return;
+                }
+                Channel channel = writeFuture.channel();
+                if (channel.isActive()) {
+                    failPendingRequest(correlationId, ErrorCodes.ST_ERROR, "send request failed: "
+                            + writeFuture.cause());
+                } else {
+                    failPendingRequest(correlationId, ErrorCodes.ST_CONNECTION_LOST,
+                            ErrorCodes.MSG_CONNECTION_LOST + channel.remoteAddress());
+                }
+            }
+        });
+    }
+
+    /**
+     * Applies features agreed by handshake to request. Compress type not agreed is turned off and request over max
+     * frame size of server is failed at once instead of being dropped by server.
+     *
+     * @param dataPackage the data package
+     * @return true, if request could be sent
+     */
+    private boolean applyProtocolFeatures(RpcDataPackage dataPackage) {
+        if (!protocolFeatures.isHandshaked()) {
+            return true;
+        }
+        RpcMeta rpcMeta = dataPackage.getRpcMeta();
+        if (!protocolFeatures.isCompressTypeAgreed(rpcMeta.getCompressType())) {
+            // server could not uncompress it
+            rpcMeta.setCompressType(RpcMeta.COMPRESS_NO);
+        }
+        if (rpcMeta.getCompressType() != RpcMeta.COMPRESS_NO) {
+            // size is unknown until compressed
+            return true;
+        }
+        byte[] data = dataPackage.getData();
+        byte[] attachment = dataPackage.getAttachment();
+        long payloadSize = (data == null ? 0 : data.length) + (attachment == null ? 0 : attachment.length);
+        if (protocolFeatures.isOversized(payloadSize)) {
+            failPendingRequest(rpcMeta.getCorrelationId(), ErrorCodes.ST_ERROR,
+                    ErrorCodes.MSG_FRAME_TOO_LARGE + payloadSize);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Replaces service name and method name of request with method id if it is fetched from server on this
+     * connection. Empty names are kept as they are required fields of PbRpc protocol.
+     *
+     * @param dataPackage the data package
+     */
+    private void applyMethodId(RpcDataPackage dataPackage) {
+        if (methodIds == null) {
+            return;
+        }
+        RpcRequestMeta request = dataPackage.getRpcMeta().getRequest();
+        if (request == null || request.getMethodId() != null) {
+            return;
+        }
+        Integer methodId = getMethodId(request.getSerivceName(), request.getMethodName());
+        if (methodId == null) {
+            return;
+        }
+        request.setMethodId(methodId);
+        request.setServiceName("");
+        request.setMethodName("");
+    }
+
+    /**
+     * Fetches method ids from server asynchronously. Requests on this connection are sent with service name and method
+     * name until method ids are fetched, and always if server does not support method id.
+     */
+    public void fetchMethodIds() {
+        sendMetaRequest(RpcServiceMetaServiceProvider.RPC_METHOD_ID_METHODNAME, null, new MethodIdCallback());
+    }
+
+    /**
+     * Sends handshake to agree protocol features with server asynchronously. Requests on this connection are sent as
+     * without handshake until it is answered. If server does not support handshake, features stay as they are and
+     * method ids are fetched if method id dispatch is enabled.
+     */
+    public void handshake() {
+        RpcClientOptions options = client.getRpcClientOptions();
+        RpcHandshake offer = new RpcHandshake();
+        offer.setVersion(RpcHandshake.CURRENT_VERSION);
+        offer.setMultiplexing(options.isMultiplexed());
+        offer.setMethodIdDispatch(options.isMethodIdDispatch());
+        offer.setSlimResponseMeta(options.isSlimResponseMeta());
+        offer.setCompressTypes(ProtocolFeatures.getSupportedCompressTypes());
+        offer.setMaxFrameSize(options.getMaxSize());
+        byte[] data;
+        try {
+            data = getHandshakeCodec().encode(offer);
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Encode handshake failed", e);
+            if (options.isMethodIdDispatch()) {
+                fetchMethodIds();
+            }
+            return;
+        }
+        sendMetaRequest(RpcServiceMetaServiceProvider.RPC_HANDSHAKE_METHODNAME, data, new HandshakeCallback());
+    }
+
+    /**
+     * Sends request to meta service of server.
+     *
+     * @param methodName the method name of meta service
+     * @param data the data
+     * @param callback the callback
+     */
+    private void sendMetaRequest(String methodName, byte[] data, RpcCallback<RpcDataPackage> callback) {
+        long correlationId = client.getNextCorrelationId();
+        RpcDataPackage dataPackage = new RpcDataPackage();
+        dataPackage.magicCode(ProtocolConstant.MAGIC_CODE).correlationId(correlationId);
+        dataPackage.serviceName(RpcServiceMetaServiceProvider.RPC_META_SERVICENAME).methodName(methodName);
+        dataPackage.data(data);
+
+        long onceTalkTimeout = client.getRpcClientOptions().getOnceTalkTimeout();
+        Timeout timeout = client.getTimer().newTimeout(
+                new RpcTimerTask(correlationId, client, onceTalkTimeout, TimeUnit.MILLISECONDS), onceTalkTimeout,
+                TimeUnit.MILLISECONDS);
+
+        RpcClientCallState state = new RpcClientCallState(callback, dataPackage, timeout);
+        state.setConnection(this);
+        client.registerPendingRequest(correlationId, state);
+        addPendingRequest(correlationId);
+        sendRequest(state);
+    }
+
+    /**
+     * Gets the method id assigned by server on this connection.
+     *
+     * @param serviceName the service name
+     * @param methodName the method name
+     * @return the method id, null if not fetched or not supported
+     */
+    public Integer getMethodId(String serviceName, String methodName) {
+        Map<String, Map<String, Integer>> ids = methodIds;
+        if (ids == null) {
+            return null;
+        }
+        Map<String, Integer> methods = ids.get(serviceName);
+        return methods == null ? null : methods.get(methodName);
+    }
+
+    /**
+     * Sets method ids assigned by server.
+     *
+     * @param metas the method id metas, null or empty if not supported
+     */
+    private void setMethodIds(List<RpcMethodIdMeta> metas) {
+        Map<String, Map<String, Integer>> ids = new HashMap<String, Map<String, Integer>>();
+        if (metas != null) {
+            for (RpcMethodIdMeta meta : metas) {
+                Map<String, Integer> methods = ids.get(meta.getServiceName());
+                if (methods == null) {
+                    methods = new HashMap<String, Integer>();
+                    ids.put(meta.getServiceName(), methods);
+                }
+                methods.put(meta.getMethodName(), meta.getMethodId());
+            }
+        }
+        methodIds = ids;
+    }
+
+    /**
+     * Gets the protocol features agreed with server by handshake.
+     *
+     * @return the protocol features
+     */
+    public ProtocolFeatures getProtocolFeatures() {
+        return protocolFeatures;
+    }
+
+    /**
+     * Checks if method ids are fetched from server, no matter server supports method id or not.
+     *
+     * @return true, if method ids are fetched
+     */
+    public boolean isMethodIdsFetched() {
+        return methodIds != null;
+    }
+
+    /**
+     * Gets the codec of method ids.
+     *
+     * @return the codec
+     */
+    private static synchronized Codec<RpcMethodIdMetaList> getMethodIdCodec() {
+        if (methodIdCodec == null) {
+            methodIdCodec = ProtobufProxy.create(RpcMethodIdMetaList.class);
+        }
+        return methodIdCodec;
+    }
+
+    /**
+     * Gets the codec of handshake.
+     *
+     * @return the codec
+     */
+    private static synchronized Codec<RpcHandshake> getHandshakeCodec() {
+        if (handshakeCodec == null) {
+            handshakeCodec = ProtobufProxy.create(RpcHandshake.class);
+        }
+        return handshakeCodec;
+    }
+
+    /**
+     * Adds the pending request which is waiting for response on this connection.
+     *
+     * @param correlationId the correlation id
+     */
+    public void addPendingRequest(long correlationId) {
+        pendingRequests.add(correlationId);
+    }
+
+    /**
+     * Removes the pending request.
+     *
+     * @param correlationId the correlation id
+     */
+    public void removePendingRequest(long correlationId) {
+        pendingRequests.remove(correlationId);
+    }
+
+    /**
+     * Gets the pending request count.
+     *
+     * @return the pending request count
+     */
+    public int getPendingRequestCount() {
+        return pendingRequests.size();
+    }
+
+    /**
+     * Fail a pending request at once.
+     *
+     * @param correlationId the correlation id
+     * @param errorCode the error code
+     * @param message the message
+     */
+    public void failPendingRequest(long correlationId, int errorCode, String message) {
+        pendingRequests.remove(correlationId);
+        RpcClientCallState state = client.removePendingRequest(correlationId);
+        if (state != null) {
+            state.handleFailure(errorCode, message);
+        }
+    }
+
+    /**
+     * Fail all pending requests at once, this is called on channel is inactive.
+     *
+     * @param errorCode the error code
+     * @param message the message
+     */
+    public void failPendingRequests(int errorCode, String message) {
+        isConnected.set(false);
+        for (Long correlationId : pendingRequests) {
+            failPendingRequest(correlationId, errorCode, message);
+        }
+        clearRequests();
+    }
+
     /**
      * Clear requests.
      */
@@ -127,4 +477,73 @@ public class Connection {
     public RpcClient getRpcClient() {
         return this.client;
     }
+
+    /**
+     * Callback of method ids response, method ids stays empty on any failure and names are used.
+     */
+    private class MethodIdCallback implements RpcCallback<RpcDataPackage> {
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see com.google.protobuf.RpcCallback#run(java.lang.Object)
+         */
+        @Override
+        public void run(RpcDataPackage dataPackage) {
+            List<RpcMethodIdMeta> metas = null;
+            RpcResponseMeta response = dataPackage.getRpcMeta().getResponse();
+            if (response != null && !ErrorCodes.isSuccess(response.getErrorCode())) {
+                // older server without method id support answers service not found
+                LOG.log(Level.FINE, "Method id is not available from " + future.channel().remoteAddress() + ": "
+                        + response.getErrorText());
+            } else if (dataPackage.getData() != null) {
+                try {
+                    metas = getMethodIdCodec().decode(dataPackage.getData()).getRpcMethodIdMetas();
+                } catch (IOException e) {
+                    LOG.log(Level.WARNING, "Decode method ids from " + future.channel().remoteAddress() + " failed", e);
+                }
+            }
+            setMethodIds(metas);
+        }
+    }
+
+    /**
+     * Callback of handshake response, server without handshake support is used as before.
+     */
+    private class HandshakeCallback implements RpcCallback<RpcDataPackage> {
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see com.google.protobuf.RpcCallback#run(java.lang.Object)
+         */
+        @Override
+        public void run(RpcDataPackage dataPackage) {
+            RpcHandshake answer = null;
+            RpcResponseMeta response = dataPackage.getRpcMeta().getResponse();
+            if (response != null && !ErrorCodes.isSuccess(response.getErrorCode())) {
+                // older server without handshake support answers service not found
+                LOG.log(Level.FINE, "Handshake is not supported by " + future.channel().remoteAddress() + ": "
+                        + response.getErrorText());
+            } else if (dataPackage.getData() != null) {
+                try {
+                    answer = getHandshakeCodec().decode(dataPackage.getData());
+                } catch (IOException e) {
+                    LOG.log(Level.WARNING, "Decode handshake from " + future.channel().remoteAddress() + " failed", e);
+                }
+            }
+
+            boolean methodIdDispatch = client.getRpcClientOptions().isMethodIdDispatch();
+            if (answer == null) {
+                if (methodIdDispatch) {
+                    fetchMethodIds();
+                }
+                return;
+            }
+            protocolFeatures.apply(answer);
+            if (methodIdDispatch) {
+                setMethodIds(protocolFeatures.isMethodIdDispatch() ? answer.getMethodIds() : null);
+            }
+        }
+    }
 }
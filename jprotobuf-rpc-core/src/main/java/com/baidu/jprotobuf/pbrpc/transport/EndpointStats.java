@@ -0,0 +1,291 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.transport;
+
+/**
+ * Connection statistics of one endpoint.
+ *
+ * @author xiemalin
+ * @see ChannelPoolRegistry
+ * @since 3.5.5
+ */
+public class EndpointStats {
+
+    /** The endpoint. */
+    private String endpoint;
+
+    /** The reference count of RPC channels. */
+    private int references;
+
+    /** The max connections. */
+    private int maxConnections;
+
+    /** The active connections. */
+    private int activeConnections;
+
+    /** The idle connections. */
+    private int idleConnections;
+
+    /** The created count. */
+    private long createdCount;
+
+    /** The destroyed count. */
+    private long destroyedCount;
+
+    /** The borrowed count. */
+    private long borrowedCount;
+
+    /** The mean borrow wait time in milliseconds. */
+    private long meanBorrowWaitTime;
+
+    /** The concurrency limit, -1 if endpoint concurrency limit is disabled. */
+    private int concurrencyLimit = -1;
+
+    /** The outstanding request count under concurrency limit. */
+    private int inflight;
+
+    /**
+     * Gets the endpoint.
+     *
+     * @return the endpoint
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * Sets the endpoint.
+     *
+     * @param endpoint the new endpoint
+     */
+    public void setEndpoint(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * Gets the reference count of RPC channels.
+     *
+     * @return the reference count of RPC channels
+     */
+    public int getReferences() {
+        return references;
+    }
+
+    /**
+     * Sets the reference count of RPC channels.
+     *
+     * @param references the new reference count of RPC channels
+     */
+    public void setReferences(int references) {
+        this.references = references;
+    }
+
+    /**
+     * Gets the max connections.
+     *
+     * @return the max connections
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Sets the max connections.
+     *
+     * @param maxConnections the new max connections
+     */
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * Gets the active connections.
+     *
+     * @return the active connections
+     */
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    /**
+     * Sets the active connections.
+     *
+     * @param activeConnections the new active connections
+     */
+    public void setActiveConnections(int activeConnections) {
+        this.activeConnections = activeConnections;
+    }
+
+    /**
+     * Gets the idle connections.
+     *
+     * @return the idle connections
+     */
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    /**
+     * Sets the idle connections.
+     *
+     * @param idleConnections the new idle connections
+     */
+    public void setIdleConnections(int idleConnections) {
+        this.idleConnections = idleConnections;
+    }
+
+    /**
+     * Gets the created count.
+     *
+     * @return the created count
+     */
+    public long getCreatedCount() {
+        return createdCount;
+    }
+
+    /**
+     * Sets the created count.
+     *
+     * @param createdCount the new created count
+     */
+    public void setCreatedCount(long createdCount) {
+        this.createdCount = createdCount;
+    }
+
+    /**
+     * Gets the destroyed count.
+     *
+     * @return the destroyed count
+     */
+    public long getDestroyedCount() {
+        return destroyedCount;
+    }
+
+    /**
+     * Sets the destroyed count.
+     *
+     * @param destroyedCount the new destroyed count
+     */
+    public void setDestroyedCount(long destroyedCount) {
+        this.destroyedCount = destroyedCount;
+    }
+
+    /**
+     * Gets the borrowed count.
+     *
+     * @return the borrowed count
+     */
+    public long getBorrowedCount() {
+        return borrowedCount;
+    }
+
+    /**
+     * Sets the borrowed count.
+     *
+     * @param borrowedCount the new borrowed count
+     */
+    public void setBorrowedCount(long borrowedCount) {
+        this.borrowedCount = borrowedCount;
+    }
+
+    /**
+     * Gets the mean borrow wait time in milliseconds.
+     *
+     * @return the mean borrow wait time in milliseconds
+     */
+    public long getMeanBorrowWaitTime() {
+        return meanBorrowWaitTime;
+    }
+
+    /**
+     * Sets the mean borrow wait time in milliseconds.
+     *
+     * @param meanBorrowWaitTime the new mean borrow wait time in milliseconds
+     */
+    public void setMeanBorrowWaitTime(long meanBorrowWaitTime) {
+        this.meanBorrowWaitTime = meanBorrowWaitTime;
+    }
+
+    /**
+     * Gets the concurrency limit.
+     *
+     * @return the concurrency limit, -1 if endpoint concurrency limit is disabled
+     */
+    public int getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    /**
+     * Sets the concurrency limit.
+     *
+     * @param concurrencyLimit the new concurrency limit
+     */
+    public void setConcurrencyLimit(int concurrencyLimit) {
+        this.concurrencyLimit = concurrencyLimit;
+    }
+
+    /**
+     * Gets the outstanding request count.
+     *
+     * @return the inflight
+     */
+    public int getInflight() {
+        return inflight;
+    }
+
+    /**
+     * Sets the outstanding request count.
+     *
+     * @param inflight the new inflight
+     */
+    public void setInflight(int inflight) {
+        this.inflight = inflight;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("EndpointStats [endpoint=");
+        builder.append(endpoint);
+        builder.append(", references=");
+        builder.append(references);
+        builder.append(", maxConnections=");
+        builder.append(maxConnections);
+        builder.append(", activeConnections=");
+        builder.append(activeConnections);
+        builder.append(", idleConnections=");
+        builder.append(idleConnections);
+        builder.append(", createdCount=");
+        builder.append(createdCount);
+        builder.append(", destroyedCount=");
+        builder.append(destroyedCount);
+        builder.append(", borrowedCount=");
+        builder.append(borrowedCount);
+        builder.append(", meanBorrowWaitTime=");
+        builder.append(meanBorrowWaitTime);
+        builder.append(", concurrencyLimit=");
+        builder.append(concurrencyLimit);
+        builder.append(", inflight=");
+        builder.append(inflight);
+        builder.append("]");
+        return builder.toString();
+    }
+}
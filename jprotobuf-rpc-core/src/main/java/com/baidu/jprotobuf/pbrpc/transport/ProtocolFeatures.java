@@ -0,0 +1,217 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.transport;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.baidu.jprotobuf.pbrpc.compress.CompressRegistry;
+import com.baidu.jprotobuf.pbrpc.data.RpcHeadMeta;
+import com.baidu.jprotobuf.pbrpc.data.RpcMeta;
+import com.baidu.jprotobuf.pbrpc.meta.RpcHandshake;
+
+import io.netty.util.AttributeKey;
+
+/**
+ * Protocol features agreed on a connection by handshake. Before handshake is done, or if peer does not support
+ * handshake, features stay at defaults which is the behavior of peers without handshake: no slim response meta, all
+ * compress types and no frame size limit known.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ * @see RpcHandshake
+ */
+public class ProtocolFeatures {
+
+    /** The Constant PROTOCOL_FEATURES_KEY, protocol features of channel. */
+    public static final AttributeKey<ProtocolFeatures> PROTOCOL_FEATURES_KEY = AttributeKey
+            .valueOf("rpc.protocolFeatures");
+
+    /** The handshaked. */
+    private volatile boolean handshaked = false;
+
+    /** The multiplexing. */
+    private volatile boolean multiplexing = false;
+
+    /** The method id dispatch. */
+    private volatile boolean methodIdDispatch = false;
+
+    /** The slim response meta. */
+    private volatile boolean slimResponseMeta = false;
+
+    /** The compress types agreed, null if not agreed. */
+    private volatile List<Integer> compressTypes;
+
+    /** The max frame size, 0 if unknown. */
+    private volatile int maxFrameSize = 0;
+
+    /**
+     * Gets the compress types supported by this side.
+     *
+     * @return the supported compress types
+     * @see CompressRegistry#getCompressTypes()
+     */
+    public static List<Integer> getSupportedCompressTypes() {
+        return CompressRegistry.getCompressTypes();
+    }
+
+    /**
+     * Agree features of handshake offered by peer. Boolean features are agreed if peer asks for them as this side
+     * supports all of them, compress types are intersected and the smaller max frame size is used.
+     *
+     * @param offer the handshake offered by peer
+     * @return the handshake answer
+     */
+    public RpcHandshake agree(RpcHandshake offer) {
+        RpcHandshake answer = new RpcHandshake();
+        answer.setVersion(RpcHandshake.CURRENT_VERSION);
+        answer.setMultiplexing(Boolean.TRUE.equals(offer.getMultiplexing()));
+        answer.setMethodIdDispatch(Boolean.TRUE.equals(offer.getMethodIdDispatch()));
+        answer.setSlimResponseMeta(Boolean.TRUE.equals(offer.getSlimResponseMeta()));
+
+        List<Integer> types = new ArrayList<Integer>();
+        if (offer.getCompressTypes() != null) {
+            for (Integer type : offer.getCompressTypes()) {
+                if (type != null && CompressRegistry.isSupported(type)) {
+                    types.add(type);
+                }
+            }
+        }
+        answer.setCompressTypes(types);
+
+        int size = maxFrameSize;
+        Integer offerSize = offer.getMaxFrameSize();
+        if (offerSize != null && offerSize > 0 && (size <= 0 || offerSize < size)) {
+            size = offerSize;
+        }
+        if (size > 0) {
+            answer.setMaxFrameSize(size);
+        }
+
+        apply(answer);
+        return answer;
+    }
+
+    /**
+     * Apply handshake answer agreed by both sides.
+     *
+     * @param answer the answer
+     */
+    public void apply(RpcHandshake answer) {
+        multiplexing = Boolean.TRUE.equals(answer.getMultiplexing());
+        methodIdDispatch = Boolean.TRUE.equals(answer.getMethodIdDispatch());
+        slimResponseMeta = Boolean.TRUE.equals(answer.getSlimResponseMeta());
+        List<Integer> types = answer.getCompressTypes();
+        if (types != null) {
+            compressTypes = Collections.unmodifiableList(new ArrayList<Integer>(types));
+        }
+        Integer size = answer.getMaxFrameSize();
+        if (size != null && size > 0) {
+            maxFrameSize = size;
+        }
+        handshaked = true;
+    }
+
+    /**
+     * Checks if compress type could be used on this connection.
+     *
+     * @param compressType the compress type
+     * @return true, if compress type is agreed or not negotiated
+     */
+    public boolean isCompressTypeAgreed(int compressType) {
+        List<Integer> types = compressTypes;
+        if (types == null) {
+            return true;
+        }
+        return compressType == RpcMeta.COMPRESS_NO || types.contains(compressType);
+    }
+
+    /**
+     * Checks if frame with data and attachment exceeds max frame size agreed.
+     *
+     * @param payloadSize the data and attachment size
+     * @return true, if frame is too large for peer
+     */
+    public boolean isOversized(long payloadSize) {
+        int size = maxFrameSize;
+        return size > 0 && payloadSize + RpcHeadMeta.SIZE > size;
+    }
+
+    /**
+     * Checks if handshake is done.
+     *
+     * @return true, if handshake is done
+     */
+    public boolean isHandshaked() {
+        return handshaked;
+    }
+
+    /**
+     * Checks if is multiplexing.
+     *
+     * @return true, if is multiplexing
+     */
+    public boolean isMultiplexing() {
+        return multiplexing;
+    }
+
+    /**
+     * Checks if is method id dispatch.
+     *
+     * @return true, if is method id dispatch
+     */
+    public boolean isMethodIdDispatch() {
+        return methodIdDispatch;
+    }
+
+    /**
+     * Checks if is slim response meta.
+     *
+     * @return true, if is slim response meta
+     */
+    public boolean isSlimResponseMeta() {
+        return slimResponseMeta;
+    }
+
+    /**
+     * Gets the compress types agreed.
+     *
+     * @return the compress types, null if not agreed
+     */
+    public List<Integer> getCompressTypes() {
+        return compressTypes;
+    }
+
+    /**
+     * Gets the max frame size.
+     *
+     * @return the max frame size, 0 if unknown
+     */
+    public int getMaxFrameSize() {
+        return maxFrameSize;
+    }
+
+    /**
+     * Sets the max frame size of this side, used as upper bound on agreement.
+     *
+     * @param maxFrameSize the new max frame size
+     */
+    public void setMaxFrameSize(int maxFrameSize) {
+        this.maxFrameSize = maxFrameSize;
+    }
+
+}
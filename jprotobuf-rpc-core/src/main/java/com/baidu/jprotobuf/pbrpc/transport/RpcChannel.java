@@ -19,10 +19,13 @@ package com.baidu.jprotobuf.pbrpc.transport;
 import io.netty.util.Timeout;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.baidu.jprotobuf.pbrpc.data.RpcDataPackage;
+import com.baidu.jprotobuf.pbrpc.limit.ConcurrencyLimiter;
+import com.baidu.jprotobuf.pbrpc.transport.handler.ErrorCodes;
 import com.google.protobuf.RpcCallback;
 
 /**
@@ -41,6 +44,9 @@ public class RpcChannel {
     
     /** The channel pool. */
     private ChannelPool channelPool;
+    
+    /** The closed. */
+    private final AtomicBoolean closed = new AtomicBoolean(false);
 
     /**
      * try to do connect.
@@ -50,6 +56,13 @@ public class RpcChannel {
         channelPool.returnChannel(channel);
     }
 
+    /**
+     * Establishes min idle connections to the endpoint. On async connect mode it returns without waiting.
+     */
+    public void prewarm() {
+        channelPool.prewarm();
+    }
+
     /**
      * Instantiates a new rpc channel.
      *
@@ -59,8 +72,8 @@ public class RpcChannel {
      */
     public RpcChannel(RpcClient rpcClient, String host, int port) {
         this.rpcClient = rpcClient;
-        channelPool = new ChannelPool(rpcClient, host, port);
-        rpcClient.setChannelPool(channelPool);
+        // share pool with other channels to the same endpoint
+        channelPool = rpcClient.getChannelPoolRegistry().acquire(rpcClient, host, port);
     }
 
     /**
@@ -98,6 +111,21 @@ public class RpcChannel {
 
         long callMethodStart = System.currentTimeMillis();
 
+        if (onceTalkTimeout > 0 && rpcClient.getRpcClientOptions().isTimeoutPropagation()
+                && rpcDataPackage.getRpcMeta().getRequest() != null) {
+            rpcDataPackage.timeout(onceTalkTimeout);
+        }
+
+        ConcurrencyLimiter limiter = channelPool.getConcurrencyLimiter();
+        if (limiter != null && !limiter.tryAcquire()) {
+            // too many outstanding requests on this endpoint, fail fast
+            rpcDataPackage.errorCode(ErrorCodes.ST_CLIENT_OVERLOAD);
+            rpcDataPackage.errorText(ErrorCodes.MSG_CLIENT_OVERLOAD + channelPool.getEndpoint() + ", limit:"
+                    + limiter.getLimit());
+            callback.run(rpcDataPackage);
+            return;
+        }
+
         // register timer
         Timeout timeout =
                 rpcClient.getTimer()
@@ -107,9 +135,12 @@ public class RpcChannel {
                                 onceTalkTimeout, TimeUnit.MILLISECONDS);
 
         RpcClientCallState state = new RpcClientCallState(callback, rpcDataPackage, timeout);
+        state.setConnection(connection);
+        state.setConcurrencyLimiter(limiter);
 
         Long correlationId = state.getDataPackage().getRpcMeta().getCorrelationId();
         rpcClient.registerPendingRequest(correlationId, state);
+        connection.addPendingRequest(correlationId);
 
         if (!connection.getFuture().isSuccess()) {
             try {
@@ -121,8 +152,10 @@ public class RpcChannel {
                     LOG.log(Level.FINE, "id:" + correlationId + " is put in the queue");
                 }
             }
+            // connect may complete while enqueueing, flush here to make sure no request left in queue
+            connection.flushRequests();
         } else {
-            connection.getFuture().channel().writeAndFlush(state.getDataPackage());
+            connection.sendRequest(state);
         }
 
         long callMethodEnd = System.currentTimeMillis();
@@ -134,8 +167,8 @@ public class RpcChannel {
      * Close.
      */
     public void close() {
-        if (channelPool != null) {
-            channelPool.stop();
+        if (channelPool != null && closed.compareAndSet(false, true)) {
+            rpcClient.getChannelPoolRegistry().release(rpcClient, channelPool);
         }
 
     }
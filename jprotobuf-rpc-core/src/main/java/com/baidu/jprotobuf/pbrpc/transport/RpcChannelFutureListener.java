@@ -54,15 +54,18 @@ public class RpcChannelFutureListener implements ChannelFutureListener {
         if (!future.isSuccess()) {
             LOG.log(Level.WARNING, "build channel:" + future.channel() + " failed");
             conn.setIsConnected(false);
-            return;
+        } else {
+            conn.setIsConnected(true);
+            RpcClientOptions options = conn.getRpcClient().getRpcClientOptions();
+            if (options.isHandshake()) {
+                // method ids are answered by handshake, or fetched on fallback
+                conn.handshake();
+            } else if (options.isMethodIdDispatch()) {
+                conn.fetchMethodIds();
+            }
         }
 
-        RpcClientCallState requestState = null;
-        while (null != (requestState = conn.consumeRequest())) {
-            LOG.log(Level.FINEST, "[correlationId:" + requestState.getDataPackage().getRpcMeta().getCorrelationId()
-                    + "] send over from queue");
-            conn.getFuture().channel().writeAndFlush(requestState.getDataPackage());
-        }
+        conn.flushRequests();
     }
 
 }
@@ -18,12 +18,14 @@ package com.baidu.jprotobuf.pbrpc.transport;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
+import com.baidu.jprotobuf.pbrpc.compress.CompressPolicy;
+
 import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.DefaultMessageSizeEstimator;
@@ -31,7 +33,6 @@ import io.netty.channel.EventLoopGroup;
 import io.netty.channel.epoll.EpollEventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioSocketChannel;
-import io.netty.util.HashedWheelTimer;
 import io.netty.util.Timer;
 
 /**
@@ -44,21 +45,16 @@ import io.netty.util.Timer;
  */
 public class RpcClient extends Bootstrap {
 
-    /** Tick count of each wheel instance for timer. */
-    private static final int DEFAULT_TICKS_PER_WHEEL = 2048;
-
-    /** Tick duration for timer. */
-    private static final int DEFAULT_TICK_DURATION = 100;
-
-    /** The request map. */
+    /** The request map, process wide as connections in {@link ChannelPoolRegistry} are shared by clients. */
     // 会话状态存储
-    private final Map<Long, RpcClientCallState> requestMap = new ConcurrentHashMap<Long, RpcClientCallState>();
+    private static final Map<Long, RpcClientCallState> REQUEST_MAP =
+            new ConcurrentHashMap<Long, RpcClientCallState>();
 
-    /** The correlation id. */
-    private AtomicLong correlationId = new AtomicLong(1); // session标识
+    /** The correlation id, process wide to keep unique on shared connections. */
+    private static final AtomicLong CORRELATION_ID = new AtomicLong(1); // session标识
     
     /** The timer. */
-    private static Timer timer = createTimer(); // 初始化定时器
+    private Timer timer; // shared timer
     
     /** The rpc client options. */
     private RpcClientOptions rpcClientOptions;
@@ -69,19 +65,17 @@ public class RpcClient extends Bootstrap {
     /** The worker group. */
     private EventLoopGroup workerGroup;
 
-    /** The Constant INSTANCE_COUNT. */
-    private static final AtomicInteger INSTANCE_COUNT = new AtomicInteger();
+    /** The io event group type of shared worker group, -1 if not shared. */
+    private int sharedEventGroupType = -1;
 
-    /**
-     * Creates the timer.
-     *
-     * @return the timer
-     */
-    private static Timer createTimer() {
-        Timer timer = new HashedWheelTimer(Executors.defaultThreadFactory(), DEFAULT_TICK_DURATION,
-                TimeUnit.MILLISECONDS, DEFAULT_TICKS_PER_WHEEL);
-        return timer;
-    }
+    /** The shutdown. */
+    private final AtomicBoolean shutdown = new AtomicBoolean(false);
+
+    /** The references of worker group and timer, held by this client and pools it created. */
+    private final AtomicInteger transportReferences = new AtomicInteger(1);
+
+    /** The compress policy, null if compress type of request is always used. */
+    private CompressPolicy compressPolicy;
 
     /**
      * Instantiates a new rpc client.
@@ -116,7 +110,10 @@ public class RpcClient extends Bootstrap {
      */
     public RpcClient(Class<? extends Channel> clientChannelClass, RpcClientOptions rpcClientOptions) {
 
-        if (rpcClientOptions.getIoEventGroupType() == RpcClientOptions.POLL_EVENT_GROUP) {
+        if (rpcClientOptions.isShareEventLoopGroup()) {
+            sharedEventGroupType = rpcClientOptions.getIoEventGroupType();
+            this.workerGroup = SharedTransportResources.getInstance().acquireEventLoopGroup(sharedEventGroupType);
+        } else if (rpcClientOptions.getIoEventGroupType() == RpcClientOptions.POLL_EVENT_GROUP) {
             this.workerGroup = new NioEventLoopGroup(rpcClientOptions.getThreadPoolSize());
         } else {
             this.workerGroup = new EpollEventLoopGroup(rpcClientOptions.getThreadPoolSize());
@@ -126,17 +123,22 @@ public class RpcClient extends Bootstrap {
         this.channel(clientChannelClass);
         this.handler(new RpcClientPipelineinitializer(this));
         this.rpcClientOptions = rpcClientOptions;
+        if (rpcClientOptions.getCompressMinSize() > 0 || rpcClientOptions.isAdaptiveCompress()
+                || rpcClientOptions.getBusyCompressType() > 0) {
+            compressPolicy = new CompressPolicy(rpcClientOptions.getCompressMinSize(),
+                    rpcClientOptions.isAdaptiveCompress(), rpcClientOptions.getBusyCompressType());
+        }
         this.option(ChannelOption.SO_REUSEADDR, rpcClientOptions.isReuseAddress());
         this.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, rpcClientOptions.getConnectTimeout());
         this.option(ChannelOption.SO_SNDBUF, rpcClientOptions.getSendBufferSize());
         this.option(ChannelOption.SO_RCVBUF, rpcClientOptions.getSendBufferSize());
         this.option(ChannelOption.SO_KEEPALIVE, rpcClientOptions.isKeepAlive());
         this.option(ChannelOption.TCP_NODELAY, rpcClientOptions.getTcpNoDelay());
+        this.option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
         this.option(ChannelOption.MESSAGE_SIZE_ESTIMATOR,
                 new DefaultMessageSizeEstimator(rpcClientOptions.getReceiveBufferSize()));
 
-        // add count
-        INSTANCE_COUNT.incrementAndGet();
+        this.timer = SharedTransportResources.getInstance().acquireTimer();
     }
 
     /**
@@ -149,7 +151,11 @@ public class RpcClient extends Bootstrap {
      * @date 2013/03/07 10:34:30
      */
     public RpcClientCallState removePendingRequest(long seqId) {
-        return requestMap.remove(seqId);
+        RpcClientCallState state = REQUEST_MAP.remove(seqId);
+        if (state != null && state.getConnection() != null) {
+            state.getConnection().removePendingRequest(seqId);
+        }
+        return state;
     }
 
     /**
@@ -164,10 +170,19 @@ public class RpcClient extends Bootstrap {
      * @date 2013/03/07 10:34:30
      */
     public void registerPendingRequest(long seqId, RpcClientCallState state) {
-        if (requestMap.containsKey(seqId)) {
+        if (REQUEST_MAP.containsKey(seqId)) {
             throw new IllegalArgumentException("State already registered");
         }
-        requestMap.put(seqId, state);
+        REQUEST_MAP.put(seqId, state);
+    }
+
+    /**
+     * Gets the compress policy.
+     *
+     * @return the compress policy, null if compress type of request is always used
+     */
+    public CompressPolicy getCompressPolicy() {
+        return compressPolicy;
     }
 
     /**
@@ -176,7 +191,7 @@ public class RpcClient extends Bootstrap {
      * @return the next correlation id
      */
     public long getNextCorrelationId() {
-        return correlationId.getAndIncrement();
+        return CORRELATION_ID.getAndIncrement();
     }
 
     /**
@@ -206,6 +221,15 @@ public class RpcClient extends Bootstrap {
         this.rpcClientOptions = rpcClientOptions;
     }
 
+    /**
+     * Gets the channel pool registry.
+     *
+     * @return the channel pool registry
+     */
+    public ChannelPoolRegistry getChannelPoolRegistry() {
+        return ChannelPoolRegistry.getInstance();
+    }
+
     /**
      * Gets the channel pool.
      *
@@ -233,23 +257,41 @@ public class RpcClient extends Bootstrap {
      * @see org.jboss.netty.bootstrap.Bootstrap#shutdown()
      */
     public void shutdown() {
-        if (this.workerGroup != null) {
-            this.workerGroup.shutdownGracefully();
+        if (!shutdown.compareAndSet(false, true)) {
+            return;
         }
+        ChannelPoolRegistry.getInstance().releaseAll(this);
         if (channelPool != null) {
             channelPool.stop();
         }
+        releaseTransport();
+    }
 
-        // to check instance count
-        int count = INSTANCE_COUNT.decrementAndGet();
-        if (count == 0) { // no current instance count try to stop old
-            if (timer != null) {
-                timer.stop();
+    /**
+     * Retain worker group and timer for a pool created by this client.
+     */
+    void retainTransport() {
+        transportReferences.incrementAndGet();
+    }
 
-                // reset timer
-                timer = createTimer(); // 初始化定时器
+    /**
+     * Release worker group and timer. They are released on last release, which may be later than
+     * {@link #shutdown()} if pools created by this client are still used by other clients.
+     */
+    void releaseTransport() {
+        if (transportReferences.decrementAndGet() > 0) {
+            return;
+        }
+        if (this.workerGroup != null) {
+            if (sharedEventGroupType >= 0) {
+                SharedTransportResources.getInstance().releaseEventLoopGroup(sharedEventGroupType);
+            } else {
+                this.workerGroup.shutdownGracefully();
             }
         }
+
+        // timer is stopped on last release
+        SharedTransportResources.getInstance().releaseTimer();
     }
 
     /**
@@ -21,6 +21,7 @@ import java.util.concurrent.TimeUnit;
 import io.netty.util.Timeout;
 
 import com.baidu.jprotobuf.pbrpc.data.RpcDataPackage;
+import com.baidu.jprotobuf.pbrpc.limit.ConcurrencyLimiter;
 import com.baidu.jprotobuf.pbrpc.transport.handler.ErrorCodes;
 import com.google.protobuf.RpcCallback;
 
@@ -44,6 +45,15 @@ public class RpcClientCallState {
     /** The timeout. */
     private Timeout timeout;
 
+    /** The connection which request is sent by. */
+    private Connection connection;
+
+    /** The concurrency limiter of endpoint, released once request completes. */
+    private ConcurrencyLimiter concurrencyLimiter;
+
+    /** The start time in nanoseconds. */
+    private final long startNanos = System.nanoTime();
+
     /**
      * Instantiates a new rpc client call state.
      *
@@ -132,6 +142,53 @@ public class RpcClientCallState {
         this.timeout = timeout;
     }
 
+    /**
+     * Gets the connection.
+     *
+     * @return the connection
+     */
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Sets the connection.
+     *
+     * @param connection the new connection
+     */
+    public void setConnection(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Sets the concurrency limiter.
+     *
+     * @param concurrencyLimiter the new concurrency limiter
+     */
+    public void setConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    /**
+     * Release concurrency limiter.
+     *
+     * @param processed true if response received, false if request timed out or dropped, null for other failures
+     */
+    private void releaseConcurrencyLimiter(Boolean processed) {
+        ConcurrencyLimiter limiter = concurrencyLimiter;
+        if (limiter == null) {
+            return;
+        }
+        concurrencyLimiter = null;
+        if (processed == null) {
+            limiter.onIgnore();
+        } else if (processed) {
+            limiter.onSuccess(System.nanoTime() - startNanos);
+        } else {
+            limiter.onDropped();
+        }
+    }
+
     /**
      * Handle timeout.
      *
@@ -141,6 +198,7 @@ public class RpcClientCallState {
     public void handleTimeout(long timeout, TimeUnit timeUnit) {
         dataPackage.errorCode(ErrorCodes.ST_READ_TIMEOUT);
         dataPackage.errorText(ErrorCodes.MSG_READ_TIMEOUT + timeout + "(" + timeUnit + ")");
+        releaseConcurrencyLimiter(Boolean.FALSE);
 
         callback(dataPackage);
     }
@@ -166,6 +224,12 @@ public class RpcClientCallState {
         dataPackage.errorCode(erroCode);
         dataPackage.errorText(message);
         this.timeout.cancel();
+        if (erroCode == ErrorCodes.ST_CONNECTION_LOST || erroCode == ErrorCodes.ST_SERVER_BUSY) {
+            // endpoint is unhealthy or overloaded
+            releaseConcurrencyLimiter(Boolean.FALSE);
+        } else {
+            releaseConcurrencyLimiter(null);
+        }
         callback(dataPackage);
     }
 
@@ -185,6 +249,7 @@ public class RpcClientCallState {
      */
     public void handleResponse(RpcDataPackage response) {
         this.timeout.cancel();
+        releaseConcurrencyLimiter(Boolean.TRUE);
         callback(response);
     }
 }
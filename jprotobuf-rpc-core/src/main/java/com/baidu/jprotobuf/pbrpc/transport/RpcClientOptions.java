@@ -99,6 +99,62 @@ public class RpcClientOptions {
     /** The jmx enabled. */
     private boolean jmxEnabled = false;
 
+    /** The multiplexed. */
+    // if true, requests are pipelined on a fixed set of shared connections matched by correlation id
+    private boolean multiplexed = false;
+
+    /** The connections per endpoint in multiplexed mode. */
+    private int multiplexConnections = 2;
+
+    /** The share event loop group. */
+    // if true, use process wide I/O event loop group from SharedTransportResources
+    private boolean shareEventLoopGroup = false;
+
+    /** The max connections per endpoint. If less than 1, use {@link #threadPoolSize}. */
+    private int maxConnectionsPerEndpoint = 0;
+
+    /** if true, connection is established without blocking the caller. requests are queued until connect completes. */
+    private boolean asyncConnect = false;
+
+    /** if true, {@link #minIdleSize} connections of every endpoint are established at proxy creation. */
+    private boolean prewarmConnections = false;
+
+    /** if true, once talk timeout is carried in request meta so server could drop expired requests. */
+    private boolean timeoutPropagation = true;
+
+    /** if true, outstanding requests of each endpoint are capped by an AIMD adaptive limit and requests over the cap fail fast. */
+    private boolean endpointConcurrencyLimit = false;
+
+    /** initial concurrency limit of each endpoint. */
+    private int initialEndpointConcurrencyLimit = 20;
+
+    /** max concurrency limit of each endpoint. */
+    private int maxEndpointConcurrencyLimit = 1000;
+
+    /** if true client proxy is a generated stub class instead of JDK dynamic proxy. */
+    private boolean generatedStub = false;
+
+    /** if true, send method id fetched from server on each connection instead of service and method name. */
+    private boolean methodIdDispatch = false;
+
+    /** if true, protocol features are negotiated by handshake on each new connection. */
+    private boolean handshake = false;
+
+    /** if true, ask server by handshake not to echo request meta back in response. */
+    private boolean slimResponseMeta = false;
+
+    /** compress type of all requests, -1 to use compress type of annotation. */
+    private int compressType = -1;
+
+    /** data smaller than this size in bytes is sent uncompressed even if compress type is set. */
+    private int compressMinSize = 0;
+
+    /** if true, compress ratio is sampled per method and compression is turned off if it does not pay. */
+    private boolean adaptiveCompress = false;
+
+    /** compress type replacing GZIP while system load is high, -1 to disable. */
+    private int busyCompressType = -1;
+
     /**
      * Copy from.
      *
@@ -130,6 +186,24 @@ public class RpcClientOptions {
         this.lifo = options.lifo;
         this.maxSize = options.maxSize;
         this.ioEventGroupType = options.ioEventGroupType;
+        this.multiplexed = options.multiplexed;
+        this.multiplexConnections = options.multiplexConnections;
+        this.shareEventLoopGroup = options.shareEventLoopGroup;
+        this.maxConnectionsPerEndpoint = options.maxConnectionsPerEndpoint;
+        this.asyncConnect = options.asyncConnect;
+        this.prewarmConnections = options.prewarmConnections;
+        this.timeoutPropagation = options.timeoutPropagation;
+        this.endpointConcurrencyLimit = options.endpointConcurrencyLimit;
+        this.initialEndpointConcurrencyLimit = options.initialEndpointConcurrencyLimit;
+        this.maxEndpointConcurrencyLimit = options.maxEndpointConcurrencyLimit;
+        this.generatedStub = options.generatedStub;
+        this.methodIdDispatch = options.methodIdDispatch;
+        this.handshake = options.handshake;
+        this.slimResponseMeta = options.slimResponseMeta;
+        this.compressType = options.compressType;
+        this.compressMinSize = options.compressMinSize;
+        this.adaptiveCompress = options.adaptiveCompress;
+        this.busyCompressType = options.busyCompressType;
     }
 
     /**
@@ -563,7 +637,342 @@ public class RpcClientOptions {
     public void setIoEventGroupType(int ioEventGroupType) {
         this.ioEventGroupType = ioEventGroupType;
     }
-    
-    
-    
+
+    /**
+     * Checks if is multiplexed.
+     *
+     * @return true, if is multiplexed
+     */
+    public boolean isMultiplexed() {
+        return multiplexed;
+    }
+
+    /**
+     * Sets the multiplexed. If set to true, each endpoint holds a fixed set of {@link #getMultiplexConnections()}
+     * connections and all concurrent requests share them instead of borrowing one connection per request.
+     *
+     * @param multiplexed the new multiplexed
+     */
+    public void setMultiplexed(boolean multiplexed) {
+        this.multiplexed = multiplexed;
+    }
+
+    /**
+     * Gets the connections per endpoint in multiplexed mode.
+     *
+     * @return the connections per endpoint in multiplexed mode
+     */
+    public int getMultiplexConnections() {
+        return multiplexConnections;
+    }
+
+    /**
+     * Sets the connections per endpoint in multiplexed mode.
+     *
+     * @param multiplexConnections the new connections per endpoint in multiplexed mode
+     */
+    public void setMultiplexConnections(int multiplexConnections) {
+        this.multiplexConnections = multiplexConnections;
+    }
+
+    /**
+     * Checks if is share event loop group.
+     *
+     * @return true, if is share event loop group
+     */
+    public boolean isShareEventLoopGroup() {
+        return shareEventLoopGroup;
+    }
+
+    /**
+     * Sets the share event loop group. If set to true, I/O threads are shared by all {@link RpcClient} with same
+     * io event group type and sized by {@link SharedTransportResources#setIoThreads(int)}, while
+     * {@link #getThreadPoolSize()} only limits the connection pool size.
+     *
+     * @param shareEventLoopGroup the new share event loop group
+     */
+    public void setShareEventLoopGroup(boolean shareEventLoopGroup) {
+        this.shareEventLoopGroup = shareEventLoopGroup;
+    }
+
+    /**
+     * Gets the max connections per endpoint.
+     *
+     * @return the max connections per endpoint
+     */
+    public int getMaxConnectionsPerEndpoint() {
+        return maxConnectionsPerEndpoint;
+    }
+
+    /**
+     * Sets the max connections per endpoint. All proxies of the same {@link RpcClient} share one connection pool
+     * for each endpoint, so this limits the connection count to each server. If less than 1,
+     * {@link #getThreadPoolSize()} is used.
+     *
+     * @param maxConnectionsPerEndpoint the new max connections per endpoint
+     */
+    public void setMaxConnectionsPerEndpoint(int maxConnectionsPerEndpoint) {
+        this.maxConnectionsPerEndpoint = maxConnectionsPerEndpoint;
+    }
+
+    /**
+     * Checks if connect is asynchronous.
+     *
+     * @return true, if connect is asynchronous
+     */
+    public boolean isAsyncConnect() {
+        return asyncConnect;
+    }
+
+    /**
+     * Sets the async connect.
+     *
+     * @param asyncConnect the new async connect
+     */
+    public void setAsyncConnect(boolean asyncConnect) {
+        this.asyncConnect = asyncConnect;
+    }
+
+    /**
+     * Checks if prewarm connections.
+     *
+     * @return true, if prewarm connections
+     */
+    public boolean isPrewarmConnections() {
+        return prewarmConnections;
+    }
+
+    /**
+     * Sets the prewarm connections.
+     *
+     * @param prewarmConnections the new prewarm connections
+     */
+    public void setPrewarmConnections(boolean prewarmConnections) {
+        this.prewarmConnections = prewarmConnections;
+    }
+
+    /**
+     * Checks if timeout propagation is enabled.
+     *
+     * @return true, if timeout propagation is enabled
+     */
+    public boolean isTimeoutPropagation() {
+        return timeoutPropagation;
+    }
+
+    /**
+     * Sets the timeout propagation.
+     *
+     * @param timeoutPropagation the new timeout propagation
+     */
+    public void setTimeoutPropagation(boolean timeoutPropagation) {
+        this.timeoutPropagation = timeoutPropagation;
+    }
+
+    /**
+     * Checks if endpoint concurrency limit is enabled.
+     *
+     * @return true, if endpoint concurrency limit is enabled
+     */
+    public boolean isEndpointConcurrencyLimit() {
+        return endpointConcurrencyLimit;
+    }
+
+    /**
+     * Sets the endpoint concurrency limit.
+     *
+     * @param endpointConcurrencyLimit the new endpoint concurrency limit
+     */
+    public void setEndpointConcurrencyLimit(boolean endpointConcurrencyLimit) {
+        this.endpointConcurrencyLimit = endpointConcurrencyLimit;
+    }
+
+    /**
+     * Gets the initial endpoint concurrency limit.
+     *
+     * @return the initial endpoint concurrency limit
+     */
+    public int getInitialEndpointConcurrencyLimit() {
+        return initialEndpointConcurrencyLimit;
+    }
+
+    /**
+     * Sets the initial endpoint concurrency limit.
+     *
+     * @param initialEndpointConcurrencyLimit the new initial endpoint concurrency limit
+     */
+    public void setInitialEndpointConcurrencyLimit(int initialEndpointConcurrencyLimit) {
+        this.initialEndpointConcurrencyLimit = initialEndpointConcurrencyLimit;
+    }
+
+    /**
+     * Gets the max endpoint concurrency limit.
+     *
+     * @return the max endpoint concurrency limit
+     */
+    public int getMaxEndpointConcurrencyLimit() {
+        return maxEndpointConcurrencyLimit;
+    }
+
+    /**
+     * Sets the max endpoint concurrency limit.
+     *
+     * @param maxEndpointConcurrencyLimit the new max endpoint concurrency limit
+     */
+    public void setMaxEndpointConcurrencyLimit(int maxEndpointConcurrencyLimit) {
+        this.maxEndpointConcurrencyLimit = maxEndpointConcurrencyLimit;
+    }
+
+    /**
+     * Checks if generated stub is used instead of JDK dynamic proxy.
+     *
+     * @return true, if generated stub is used
+     */
+    public boolean isGeneratedStub() {
+        return generatedStub;
+    }
+
+    /**
+     * Sets whether generated stub is used instead of JDK dynamic proxy. JDK dynamic proxy is still used if stub could
+     * not be generated for the interface.
+     *
+     * @param generatedStub the new generated stub
+     */
+    public void setGeneratedStub(boolean generatedStub) {
+        this.generatedStub = generatedStub;
+    }
+
+    /**
+     * Checks if is method id dispatch.
+     *
+     * @return true, if is method id dispatch
+     */
+    public boolean isMethodIdDispatch() {
+        return methodIdDispatch;
+    }
+
+    /**
+     * Sets the method id dispatch. If true, method ids are fetched from server once connection is established, and
+     * requests on the connection send method id instead of service name and method name. Servers not supporting
+     * method id are called by names as before.
+     *
+     * @param methodIdDispatch if true, send method id
+     */
+    public void setMethodIdDispatch(boolean methodIdDispatch) {
+        this.methodIdDispatch = methodIdDispatch;
+    }
+
+    /**
+     * Checks if handshake is sent on new connection.
+     *
+     * @return true, if handshake is sent
+     */
+    public boolean isHandshake() {
+        return handshake;
+    }
+
+    /**
+     * Sets if handshake is sent on new connection to agree multiplexing, method id dispatch, slim response meta,
+     * compress types and max frame size with server. Server without handshake support is used as before.
+     *
+     * @param handshake if true, send handshake
+     */
+    public void setHandshake(boolean handshake) {
+        this.handshake = handshake;
+    }
+
+    /**
+     * Checks if slim response meta is asked by handshake.
+     *
+     * @return true, if slim response meta is asked
+     */
+    public boolean isSlimResponseMeta() {
+        return slimResponseMeta;
+    }
+
+    /**
+     * Sets if slim response meta is asked by handshake, only works if handshake is enabled.
+     *
+     * @param slimResponseMeta if true, ask for slim response meta
+     */
+    public void setSlimResponseMeta(boolean slimResponseMeta) {
+        this.slimResponseMeta = slimResponseMeta;
+    }
+
+    /**
+     * Gets the compress type of all requests.
+     *
+     * @return the compress type, -1 if compress type of annotation is used
+     */
+    public int getCompressType() {
+        return compressType;
+    }
+
+    /**
+     * Sets the compress type of all requests overriding compress type of annotation. It accepts any type registered to
+     * {@link com.baidu.jprotobuf.pbrpc.compress.CompressRegistry} including those not listed by
+     * {@link com.baidu.jprotobuf.pbrpc.CompressType}.
+     *
+     * @param compressType the new compress type, -1 to use compress type of annotation
+     */
+    public void setCompressType(int compressType) {
+        this.compressType = compressType;
+    }
+
+    /**
+     * Gets the min size of data to compress.
+     *
+     * @return the min size in bytes
+     */
+    public int getCompressMinSize() {
+        return compressMinSize;
+    }
+
+    /**
+     * Sets the min size of data to compress, smaller data is sent uncompressed.
+     *
+     * @param compressMinSize the new min size in bytes
+     */
+    public void setCompressMinSize(int compressMinSize) {
+        this.compressMinSize = compressMinSize;
+    }
+
+    /**
+     * Checks if compression is turned off per method by sampled compress ratio.
+     *
+     * @return true, if adaptive compress is enabled
+     */
+    public boolean isAdaptiveCompress() {
+        return adaptiveCompress;
+    }
+
+    /**
+     * Sets if compression is turned off per method by sampled compress ratio.
+     *
+     * @param adaptiveCompress if true, enable adaptive compress
+     */
+    public void setAdaptiveCompress(boolean adaptiveCompress) {
+        this.adaptiveCompress = adaptiveCompress;
+    }
+
+    /**
+     * Gets the compress type replacing GZIP while system load is high.
+     *
+     * @return the busy compress type, -1 if disabled
+     */
+    public int getBusyCompressType() {
+        return busyCompressType;
+    }
+
+    /**
+     * Sets the compress type replacing GZIP while system load is high, such as
+     * {@link com.baidu.jprotobuf.pbrpc.data.RpcMeta#COMPRESS_SNAPPY}. Only used on connections whose handshake agreed
+     * on it.
+     *
+     * @param busyCompressType the new busy compress type, -1 to disable
+     */
+    public void setBusyCompressType(int busyCompressType) {
+        this.busyCompressType = busyCompressType;
+    }
+
 }
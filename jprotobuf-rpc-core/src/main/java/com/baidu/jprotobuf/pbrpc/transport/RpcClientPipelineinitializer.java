@@ -91,7 +91,7 @@ public class RpcClientPipelineinitializer extends ChannelInitializer<Channel> {
 		channelPipe.addFirst(RPC_CHANNEL_IDLE_HANDLER, new RpcServerChannelIdleHandler());
 
 		// check if need to compress for data and attachment
-		channelPipe.addFirst(COMPRESS, new RpcDataPackageCompressHandler());
+		channelPipe.addFirst(COMPRESS, new RpcDataPackageCompressHandler(rpcClient.getCompressPolicy()));
 		// encode RpcDataPackage to byte array
 		channelPipe.addFirst(CLIENT_ENCODER, new RpcDataPackageEncoder(rpcClient.getRpcClientOptions().getChunkSize()));
 
@@ -18,8 +18,10 @@ package com.baidu.jprotobuf.pbrpc.transport;
 
 import java.lang.reflect.Method;
 import java.net.InetSocketAddress;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -30,6 +32,9 @@ import com.baidu.jprotobuf.pbrpc.ServerAttachmentHandler;
 import com.baidu.jprotobuf.pbrpc.intercept.InvokerInterceptor;
 import com.baidu.jprotobuf.pbrpc.management.HttpServer;
 import com.baidu.jprotobuf.pbrpc.server.IDLServiceExporter;
+import com.baidu.jprotobuf.pbrpc.compress.CompressPolicy;
+import com.baidu.jprotobuf.pbrpc.limit.ConcurrencyLimiterRegistry;
+import com.baidu.jprotobuf.pbrpc.server.ExecutorPool;
 import com.baidu.jprotobuf.pbrpc.server.RpcServiceRegistry;
 
 import io.netty.bootstrap.ServerBootstrap;
@@ -73,6 +78,9 @@ public class RpcServer extends ServerBootstrap {
     /** The worker group. */
     private EventLoopGroup workerGroup;
     
+    /** The io event group type of shared event loop group, -1 if not shared. */
+    private int sharedEventGroupType = -1;
+
     /** The channel. */
     private Channel channel;
 
@@ -86,10 +94,19 @@ public class RpcServer extends ServerBootstrap {
     private HttpServer httpServer;
 
     /** The blockingqueue. */
-    private BlockingQueue<Runnable> blockingqueue = new LinkedBlockingQueue<Runnable>();
+    private BlockingQueue<Runnable> blockingqueue;
     
     /** The es. */
-    private ThreadPoolExecutor es;
+    private ExecutorService es;
+
+    /** The task admission controller. */
+    private TaskAdmissionController taskAdmissionController;
+
+    /** The concurrency limiter registry. */
+    private ConcurrencyLimiterRegistry concurrencyLimiterRegistry;
+
+    /** The compress policy. */
+    private CompressPolicy compressPolicy;
 
     /**
      * Sets the interceptor.
@@ -114,12 +131,95 @@ public class RpcServer extends ServerBootstrap {
     /**
      * Gets the es.
      *
-     * @return the es
+     * @return the es, null if task executor is not a {@link ThreadPoolExecutor}
      */
     public ThreadPoolExecutor getEs() {
+        if (es instanceof ThreadPoolExecutor) {
+            return (ThreadPoolExecutor) es;
+        }
+        return null;
+    }
+
+    /**
+     * Gets the task executor service.
+     *
+     * @return the executor service, null if tasks are executed on IO threads
+     */
+    public ExecutorService getExecutorService() {
         return es;
     }
 
+    /**
+     * Adds a named executor pool. Admission control of the pool follows
+     * {@link RpcServerOptions#getTaskQueueTargetDelay()} and {@link RpcServerOptions#getTaskQueueInterval()}.
+     *
+     * @param poolName the pool name
+     * @param threads the threads
+     * @param queueSize the queue size, 0 for unbounded
+     */
+    public void addExecutorPool(String poolName, int threads, int queueSize) {
+        rpcServiceRegistry.registerExecutorPool(new ExecutorPool(poolName, threads, queueSize,
+                rpcServerOptions.getTaskQueueTargetDelay(), rpcServerOptions.getTaskQueueInterval()));
+    }
+
+    /**
+     * Assign service or method to a named executor pool.
+     *
+     * @param serviceName the service name
+     * @param methodName the method name, if null all methods of the service are assigned
+     * @param poolName the pool name
+     */
+    public void assignExecutorPool(String serviceName, String methodName, String poolName) {
+        rpcServiceRegistry.assignExecutorPool(serviceName, methodName, poolName);
+    }
+
+    /**
+     * Assign service or method to be executed on IO thread directly, which saves the task handoff cost of cheap
+     * methods. Slow or blocking methods should not be assigned.
+     *
+     * @param serviceName the service name
+     * @param methodName the method name, if null all methods of the service are assigned
+     */
+    public void assignInlineExecution(String serviceName, String methodName) {
+        rpcServiceRegistry.assignInlineExecution(serviceName, methodName);
+    }
+
+    /**
+     * Gets the rpc service registry.
+     *
+     * @return the rpc service registry
+     */
+    public RpcServiceRegistry getRpcServiceRegistry() {
+        return rpcServiceRegistry;
+    }
+
+    /**
+     * Gets the concurrency limiter registry.
+     *
+     * @return the concurrency limiter registry, null if adaptive concurrency limit is disabled
+     */
+    public ConcurrencyLimiterRegistry getConcurrencyLimiterRegistry() {
+        return concurrencyLimiterRegistry;
+    }
+
+    /**
+     * Gets the compress policy.
+     *
+     * @return the compress policy, null if compress type of request is always used
+     */
+    public CompressPolicy getCompressPolicy() {
+        return compressPolicy;
+    }
+
+    /**
+     * Gets the task admission controller.
+     *
+     * @return the task admission controller, null if task threads not set
+     */
+    public TaskAdmissionController getTaskAdmissionController() {
+        return taskAdmissionController;
+    }
+
     /** rpcServiceRegistry. */
     private RpcServiceRegistry rpcServiceRegistry;
 
@@ -140,7 +240,12 @@ public class RpcServer extends ServerBootstrap {
             serverOptions = new RpcServerOptions();
         }
 
-        if (serverOptions.getIoEventGroupType() == RpcServerOptions.POLL_EVENT_GROUP) {
+        if (serverOptions.isShareEventLoopGroup()) {
+            // acceptor and worker use the same shared group
+            sharedEventGroupType = serverOptions.getIoEventGroupType();
+            this.workerGroup = SharedTransportResources.getInstance().acquireEventLoopGroup(sharedEventGroupType);
+            this.bossGroup = this.workerGroup;
+        } else if (serverOptions.getIoEventGroupType() == RpcServerOptions.POLL_EVENT_GROUP) {
             this.bossGroup = new NioEventLoopGroup(serverOptions.getAcceptorThreads());
             this.workerGroup = new NioEventLoopGroup(serverOptions.getWorkThreads());
         } else {
@@ -148,9 +253,21 @@ public class RpcServer extends ServerBootstrap {
             this.workerGroup = new EpollEventLoopGroup(serverOptions.getWorkThreads());
         }
 
-        if (serverOptions.getTaskTheads() > 0) {
+        if (serverOptions.getExecutorServiceFactory() != null) {
+            es = serverOptions.getExecutorServiceFactory().createExecutorService(serverOptions);
+            taskAdmissionController = new TaskAdmissionController(serverOptions.getTaskQueueTargetDelay(),
+                    serverOptions.getTaskQueueInterval());
+        } else if (serverOptions.getTaskTheads() > 0) {
+            if (serverOptions.getTaskQueueSize() > 0) {
+                // requests over queue size will be rejected with server busy error at once
+                blockingqueue = new ArrayBlockingQueue<Runnable>(serverOptions.getTaskQueueSize());
+            } else {
+                blockingqueue = new LinkedBlockingQueue<Runnable>();
+            }
             es = new ThreadPoolExecutor(serverOptions.getTaskTheads(), serverOptions.getTaskTheads(), 60L,
                     TimeUnit.SECONDS, blockingqueue);
+            taskAdmissionController = new TaskAdmissionController(serverOptions.getTaskQueueTargetDelay(),
+                    serverOptions.getTaskQueueInterval());
         }
 
         this.group(this.bossGroup, this.workerGroup);
@@ -172,6 +289,18 @@ public class RpcServer extends ServerBootstrap {
         rpcServiceRegistry.doRegisterMetaService();
         this.rpcServerOptions = serverOptions;
         this.rpcServerPipelineInitializer = new RpcServerPipelineInitializer(rpcServiceRegistry, rpcServerOptions, es);
+        this.rpcServerPipelineInitializer.setTaskAdmissionController(taskAdmissionController);
+        if (serverOptions.isAdaptiveConcurrencyLimit()) {
+            concurrencyLimiterRegistry = new ConcurrencyLimiterRegistry(serverOptions.getInitialConcurrencyLimit(),
+                    serverOptions.getMaxConcurrencyLimit(), serverOptions.isMethodConcurrencyLimit());
+            this.rpcServerPipelineInitializer.setConcurrencyLimiterRegistry(concurrencyLimiterRegistry);
+        }
+        if (serverOptions.getCompressMinSize() > 0 || serverOptions.isAdaptiveCompress()
+                || serverOptions.getBusyCompressType() > 0) {
+            compressPolicy = new CompressPolicy(serverOptions.getCompressMinSize(),
+                    serverOptions.isAdaptiveCompress(), serverOptions.getBusyCompressType());
+            this.rpcServerPipelineInitializer.setCompressPolicy(compressPolicy);
+        }
         this.childHandler(rpcServerPipelineInitializer);
     }
 
@@ -351,12 +480,23 @@ public class RpcServer extends ServerBootstrap {
             channel.close();
         }
 
-        bossGroup.shutdownGracefully();
-        workerGroup.shutdownGracefully();
+        if (sharedEventGroupType >= 0) {
+            synchronized (this) {
+                // only release once
+                if (bossGroup != null) {
+                    SharedTransportResources.getInstance().releaseEventLoopGroup(sharedEventGroupType);
+                    bossGroup = null;
+                }
+            }
+        } else {
+            bossGroup.shutdownGracefully();
+            workerGroup.shutdownGracefully();
+        }
 
         if (es != null) {
             es.shutdown();
         }
+        rpcServiceRegistry.shutdownExecutorPools();
 
         if (httpServer != null) {
             httpServer.shutdownNow();
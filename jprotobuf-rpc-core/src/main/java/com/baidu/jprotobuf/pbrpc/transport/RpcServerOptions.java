@@ -20,6 +20,9 @@ import io.netty.handler.timeout.IdleStateEvent;
 
 import java.nio.ByteOrder;
 
+import com.baidu.jprotobuf.pbrpc.server.ExecutorServiceFactory;
+import com.baidu.jprotobuf.pbrpc.server.ThreadPerTaskExecutorServiceFactory;
+
 /**
  * The Class RpcServerOptions.
  */
@@ -69,6 +72,28 @@ public class RpcServerOptions {
         builder.append(tcpNoDelay);
         builder.append(", ioEventGroupType=");
         builder.append(ioEventGroupType);
+        builder.append(", shareEventLoopGroup=");
+        builder.append(shareEventLoopGroup);
+        builder.append(", taskQueueSize=");
+        builder.append(taskQueueSize);
+        builder.append(", taskQueueTargetDelay=");
+        builder.append(taskQueueTargetDelay);
+        builder.append(", taskQueueInterval=");
+        builder.append(taskQueueInterval);
+        builder.append(", adaptiveConcurrencyLimit=");
+        builder.append(adaptiveConcurrencyLimit);
+        builder.append(", methodConcurrencyLimit=");
+        builder.append(methodConcurrencyLimit);
+        builder.append(", initialConcurrencyLimit=");
+        builder.append(initialConcurrencyLimit);
+        builder.append(", maxConcurrencyLimit=");
+        builder.append(maxConcurrencyLimit);
+        builder.append(", compressMinSize=");
+        builder.append(compressMinSize);
+        builder.append(", adaptiveCompress=");
+        builder.append(adaptiveCompress);
+        builder.append(", busyCompressType=");
+        builder.append(busyCompressType);
         builder.append("]");
         return builder.toString();
     }
@@ -154,6 +179,45 @@ public class RpcServerOptions {
     /** if http server port > 0 will start http server. */
     private int httpServerPort = -1;
 
+    /** if true, use process wide I/O event loop group from {@link SharedTransportResources}. */
+    private boolean shareEventLoopGroup = false;
+
+    /** max waiting task count of task threads. Specify {@code 0} for unbounded queue. */
+    private int taskQueueSize = 0;
+
+    /** target queue delay in milliseconds of CoDel admission control. Specify {@code 0} to disable. */
+    private int taskQueueTargetDelay = 0;
+
+    /** interval in milliseconds of CoDel admission control which queue delay keeps above target to be treated as overload. */
+    private int taskQueueInterval = 100;
+
+    /** if true, in-flight requests are limited by an adaptive limit computed from request latency. */
+    private boolean adaptiveConcurrencyLimit = false;
+
+    /** if true, each method has its own adaptive limit too. works only if {@link #adaptiveConcurrencyLimit} is true. */
+    private boolean methodConcurrencyLimit = false;
+
+    /** initial adaptive concurrency limit. */
+    private int initialConcurrencyLimit = 20;
+
+    /** max adaptive concurrency limit. */
+    private int maxConcurrencyLimit = 1000;
+
+    /** The executor service factory, if set tasks are executed on the created executor instead of task threads pool. */
+    private ExecutorServiceFactory executorServiceFactory;
+
+    /** If true, response meta only carries correlation id, response status and sizes instead of echoing request meta back. */
+    private boolean slimResponseMeta = false;
+
+    /** data smaller than this size in bytes is sent uncompressed even if compress type is set. */
+    private int compressMinSize = 0;
+
+    /** if true, compress ratio is sampled per method and compression is turned off if it does not pay. */
+    private boolean adaptiveCompress = false;
+
+    /** compress type replacing GZIP while system load is high, -1 to disable. */
+    private int busyCompressType = -1;
+
     /**
      * Copy from.
      *
@@ -178,6 +242,19 @@ public class RpcServerOptions {
         this.httpServerPort = options.httpServerPort;
         this.maxSize = options.maxSize;
         this.ioEventGroupType = options.ioEventGroupType;
+        this.shareEventLoopGroup = options.shareEventLoopGroup;
+        this.taskQueueSize = options.taskQueueSize;
+        this.taskQueueTargetDelay = options.taskQueueTargetDelay;
+        this.taskQueueInterval = options.taskQueueInterval;
+        this.adaptiveConcurrencyLimit = options.adaptiveConcurrencyLimit;
+        this.methodConcurrencyLimit = options.methodConcurrencyLimit;
+        this.initialConcurrencyLimit = options.initialConcurrencyLimit;
+        this.maxConcurrencyLimit = options.maxConcurrencyLimit;
+        this.executorServiceFactory = options.executorServiceFactory;
+        this.slimResponseMeta = options.slimResponseMeta;
+        this.compressMinSize = options.compressMinSize;
+        this.adaptiveCompress = options.adaptiveCompress;
+        this.busyCompressType = options.busyCompressType;
     }
 
     /**
@@ -533,4 +610,243 @@ public class RpcServerOptions {
         this.ioEventGroupType = ioEventGroupType;
     }
 
+    /**
+     * Checks if is share event loop group.
+     *
+     * @return true, if is share event loop group
+     */
+    public boolean isShareEventLoopGroup() {
+        return shareEventLoopGroup;
+    }
+
+    /**
+     * Sets the share event loop group. If set to true, acceptor and worker I/O threads are taken from
+     * {@link SharedTransportResources} instead of {@link #getAcceptorThreads()} and {@link #getWorkThreads()}.
+     *
+     * @param shareEventLoopGroup the new share event loop group
+     */
+    public void setShareEventLoopGroup(boolean shareEventLoopGroup) {
+        this.shareEventLoopGroup = shareEventLoopGroup;
+    }
+
+    /**
+     * Gets the task queue size.
+     *
+     * @return the task queue size
+     */
+    public int getTaskQueueSize() {
+        return taskQueueSize;
+    }
+
+    /**
+     * Sets the task queue size.
+     *
+     * @param taskQueueSize the new task queue size
+     */
+    public void setTaskQueueSize(int taskQueueSize) {
+        this.taskQueueSize = taskQueueSize;
+    }
+
+    /**
+     * Gets the task queue target delay.
+     *
+     * @return the task queue target delay
+     */
+    public int getTaskQueueTargetDelay() {
+        return taskQueueTargetDelay;
+    }
+
+    /**
+     * Sets the task queue target delay.
+     *
+     * @param taskQueueTargetDelay the new task queue target delay
+     */
+    public void setTaskQueueTargetDelay(int taskQueueTargetDelay) {
+        this.taskQueueTargetDelay = taskQueueTargetDelay;
+    }
+
+    /**
+     * Gets the task queue interval.
+     *
+     * @return the task queue interval
+     */
+    public int getTaskQueueInterval() {
+        return taskQueueInterval;
+    }
+
+    /**
+     * Sets the task queue interval.
+     *
+     * @param taskQueueInterval the new task queue interval
+     */
+    public void setTaskQueueInterval(int taskQueueInterval) {
+        this.taskQueueInterval = taskQueueInterval;
+    }
+
+    /**
+     * Checks if adaptive concurrency limit is enabled.
+     *
+     * @return true, if adaptive concurrency limit is enabled
+     */
+    public boolean isAdaptiveConcurrencyLimit() {
+        return adaptiveConcurrencyLimit;
+    }
+
+    /**
+     * Sets the adaptive concurrency limit.
+     *
+     * @param adaptiveConcurrencyLimit the new adaptive concurrency limit
+     */
+    public void setAdaptiveConcurrencyLimit(boolean adaptiveConcurrencyLimit) {
+        this.adaptiveConcurrencyLimit = adaptiveConcurrencyLimit;
+    }
+
+    /**
+     * Checks if per method concurrency limit is enabled.
+     *
+     * @return true, if per method concurrency limit is enabled
+     */
+    public boolean isMethodConcurrencyLimit() {
+        return methodConcurrencyLimit;
+    }
+
+    /**
+     * Sets the method concurrency limit.
+     *
+     * @param methodConcurrencyLimit the new method concurrency limit
+     */
+    public void setMethodConcurrencyLimit(boolean methodConcurrencyLimit) {
+        this.methodConcurrencyLimit = methodConcurrencyLimit;
+    }
+
+    /**
+     * Gets the initial concurrency limit.
+     *
+     * @return the initial concurrency limit
+     */
+    public int getInitialConcurrencyLimit() {
+        return initialConcurrencyLimit;
+    }
+
+    /**
+     * Sets the initial concurrency limit.
+     *
+     * @param initialConcurrencyLimit the new initial concurrency limit
+     */
+    public void setInitialConcurrencyLimit(int initialConcurrencyLimit) {
+        this.initialConcurrencyLimit = initialConcurrencyLimit;
+    }
+
+    /**
+     * Gets the max concurrency limit.
+     *
+     * @return the max concurrency limit
+     */
+    public int getMaxConcurrencyLimit() {
+        return maxConcurrencyLimit;
+    }
+
+    /**
+     * Sets the max concurrency limit.
+     *
+     * @param maxConcurrencyLimit the new max concurrency limit
+     */
+    public void setMaxConcurrencyLimit(int maxConcurrencyLimit) {
+        this.maxConcurrencyLimit = maxConcurrencyLimit;
+    }
+
+    /**
+     * Gets the executor service factory.
+     *
+     * @return the executor service factory
+     */
+    public ExecutorServiceFactory getExecutorServiceFactory() {
+        return executorServiceFactory;
+    }
+
+    /**
+     * Sets the executor service factory. Use {@link ThreadPerTaskExecutorServiceFactory} to run each task on its own
+     * (virtual if supported) thread.
+     *
+     * @param executorServiceFactory the new executor service factory
+     */
+    public void setExecutorServiceFactory(ExecutorServiceFactory executorServiceFactory) {
+        this.executorServiceFactory = executorServiceFactory;
+    }
+
+    /**
+     * Checks if response meta is slim.
+     *
+     * @return true, if request meta and authentication data of request are not sent back
+     */
+    public boolean isSlimResponseMeta() {
+        return slimResponseMeta;
+    }
+
+    /**
+     * Sets if response meta is slim. RPC client of this project only reads correlation id, response status and
+     * sizes of response meta.
+     *
+     * @param slimResponseMeta if true, send slim response meta
+     */
+    public void setSlimResponseMeta(boolean slimResponseMeta) {
+        this.slimResponseMeta = slimResponseMeta;
+    }
+
+    /**
+     * Gets the min size of data to compress.
+     *
+     * @return the min size in bytes
+     */
+    public int getCompressMinSize() {
+        return compressMinSize;
+    }
+
+    /**
+     * Sets the min size of data to compress, smaller data is sent uncompressed.
+     *
+     * @param compressMinSize the new min size in bytes
+     */
+    public void setCompressMinSize(int compressMinSize) {
+        this.compressMinSize = compressMinSize;
+    }
+
+    /**
+     * Checks if compression is turned off per method by sampled compress ratio.
+     *
+     * @return true, if adaptive compress is enabled
+     */
+    public boolean isAdaptiveCompress() {
+        return adaptiveCompress;
+    }
+
+    /**
+     * Sets if compression is turned off per method by sampled compress ratio.
+     *
+     * @param adaptiveCompress if true, enable adaptive compress
+     */
+    public void setAdaptiveCompress(boolean adaptiveCompress) {
+        this.adaptiveCompress = adaptiveCompress;
+    }
+
+    /**
+     * Gets the compress type replacing GZIP while system load is high.
+     *
+     * @return the busy compress type, -1 if disabled
+     */
+    public int getBusyCompressType() {
+        return busyCompressType;
+    }
+
+    /**
+     * Sets the compress type replacing GZIP while system load is high, such as
+     * {@link com.baidu.jprotobuf.pbrpc.data.RpcMeta#COMPRESS_SNAPPY}. Only used on connections whose handshake agreed
+     * on it.
+     *
+     * @param busyCompressType the new busy compress type, -1 to disable
+     */
+    public void setBusyCompressType(int busyCompressType) {
+        this.busyCompressType = busyCompressType;
+    }
+
 }
@@ -27,6 +27,8 @@ import java.util.concurrent.ExecutorService;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.baidu.jprotobuf.pbrpc.compress.CompressPolicy;
+import com.baidu.jprotobuf.pbrpc.limit.ConcurrencyLimiterRegistry;
 import com.baidu.jprotobuf.pbrpc.server.RpcServiceRegistry;
 import com.baidu.jprotobuf.pbrpc.transport.handler.RpcDataPackageCompressHandler;
 import com.baidu.jprotobuf.pbrpc.transport.handler.RpcDataPackageDecoder;
@@ -79,6 +81,42 @@ public class RpcServerPipelineInitializer extends ChannelInitializer<Channel> {
 	/** The es. */
 	private ExecutorService es;
 
+	/** The task admission controller. */
+	private TaskAdmissionController taskAdmissionController;
+
+	/** The concurrency limiter registry. */
+	private ConcurrencyLimiterRegistry concurrencyLimiterRegistry;
+
+	/** The compress policy. */
+	private CompressPolicy compressPolicy;
+
+	/**
+	 * Sets the compress policy.
+	 *
+	 * @param compressPolicy the new compress policy
+	 */
+	public void setCompressPolicy(CompressPolicy compressPolicy) {
+		this.compressPolicy = compressPolicy;
+	}
+
+	/**
+	 * Sets the concurrency limiter registry.
+	 *
+	 * @param concurrencyLimiterRegistry the new concurrency limiter registry
+	 */
+	public void setConcurrencyLimiterRegistry(ConcurrencyLimiterRegistry concurrencyLimiterRegistry) {
+		this.concurrencyLimiterRegistry = concurrencyLimiterRegistry;
+	}
+
+	/**
+	 * Sets the task admission controller.
+	 *
+	 * @param taskAdmissionController the new task admission controller
+	 */
+	public void setTaskAdmissionController(TaskAdmissionController taskAdmissionController) {
+		this.taskAdmissionController = taskAdmissionController;
+	}
+
 	/**
 	 * Instantiates a new rpc server pipeline initializer.
 	 *
@@ -126,11 +164,16 @@ public class RpcServerPipelineInitializer extends ChannelInitializer<Channel> {
 		// return new RpcDataPackage
 		RpcServiceHandler rpcServiceHandler = new RpcServiceHandler(this.rpcServiceRegistry);
 		rpcServiceHandler.setEs(es);
+		rpcServiceHandler.setTaskAdmissionController(taskAdmissionController);
+		rpcServiceHandler.setConcurrencyLimiterRegistry(concurrencyLimiterRegistry);
+		rpcServiceHandler.setSlimResponseMeta(rpcServerOptions.isSlimResponseMeta());
+		rpcServiceHandler.getProtocolFeatures().setMaxFrameSize(rpcServerOptions.getMaxSize());
+		ch.attr(ProtocolFeatures.PROTOCOL_FEATURES_KEY).set(rpcServiceHandler.getProtocolFeatures());
 		channelPipe.addLast(RPC_SERVER_HANDLER, rpcServiceHandler);
 
 		// response back
 		// check if need to compress for data and attachment
-		channelPipe.addFirst(COMPRESS, new RpcDataPackageCompressHandler());
+		channelPipe.addFirst(COMPRESS, new RpcDataPackageCompressHandler(compressPolicy));
 		// encode RpcDataPackage to byte array
 		channelPipe.addFirst(SERVER_DATA_PACK, new RpcDataPackageEncoder());
 
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.transport;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Process wide I/O event loop groups and timer shared by {@link RpcClient}, {@link RpcServer} and management
+ * {@link com.baidu.jprotobuf.pbrpc.management.HttpServer}. Each resource is reference counted, created on first
+ * acquire and shutdown after last release.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class SharedTransportResources {
+
+    /** The Constant LOG. */
+    private static final Logger LOG = Logger.getLogger(SharedTransportResources.class.getName());
+
+    /** Tick count of each wheel instance for timer. */
+    private static final int DEFAULT_TICKS_PER_WHEEL = 2048;
+
+    /** Tick duration for timer. */
+    private static final int DEFAULT_TICK_DURATION = 100;
+
+    /** The Constant INSTANCE. */
+    private static final SharedTransportResources INSTANCE = new SharedTransportResources();
+
+    /** The io threads of shared event loop group. 0 means use netty default value. */
+    private int ioThreads = 0;
+
+    /** The shared event loop groups, indexed by io event group type. */
+    private final EventLoopGroup[] eventLoopGroups = new EventLoopGroup[2];
+
+    /** The reference count of event loop groups. */
+    private final int[] eventLoopGroupRefs = new int[2];
+
+    /** The timer. */
+    private Timer timer;
+
+    /** The reference count of timer. */
+    private int timerRefs;
+
+    /**
+     * Gets the single instance.
+     *
+     * @return single instance
+     */
+    public static SharedTransportResources getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Acquire shared event loop group.
+     *
+     * @param ioEventGroupType {@link RpcClientOptions#POLL_EVENT_GROUP} or {@link RpcClientOptions#EPOLL_EVENT_GROUP}
+     * @return the event loop group
+     */
+    public synchronized EventLoopGroup acquireEventLoopGroup(int ioEventGroupType) {
+        int index = checkType(ioEventGroupType);
+        if (eventLoopGroups[index] == null) {
+            if (ioEventGroupType == RpcClientOptions.POLL_EVENT_GROUP) {
+                eventLoopGroups[index] = new NioEventLoopGroup(ioThreads);
+            } else {
+                eventLoopGroups[index] = new EpollEventLoopGroup(ioThreads);
+            }
+            LOG.log(Level.FINE, "Create shared event loop group of type " + ioEventGroupType);
+        }
+        eventLoopGroupRefs[index]++;
+        return eventLoopGroups[index];
+    }
+
+    /**
+     * Release shared event loop group. It will be shutdown on last release.
+     *
+     * @param ioEventGroupType the io event group type
+     */
+    public synchronized void releaseEventLoopGroup(int ioEventGroupType) {
+        int index = checkType(ioEventGroupType);
+        if (eventLoopGroupRefs[index] <= 0) {
+            return;
+        }
+        eventLoopGroupRefs[index]--;
+        if (eventLoopGroupRefs[index] == 0 && eventLoopGroups[index] != null) {
+            eventLoopGroups[index].shutdownGracefully();
+            eventLoopGroups[index] = null;
+        }
+    }
+
+    /**
+     * Acquire shared timer.
+     *
+     * @return the timer
+     */
+    public synchronized Timer acquireTimer() {
+        if (timer == null) {
+            timer = new HashedWheelTimer(Executors.defaultThreadFactory(), DEFAULT_TICK_DURATION,
+                    TimeUnit.MILLISECONDS, DEFAULT_TICKS_PER_WHEEL);
+        }
+        timerRefs++;
+        return timer;
+    }
+
+    /**
+     * Release shared timer. It will be stopped on last release.
+     */
+    public synchronized void releaseTimer() {
+        if (timerRefs <= 0) {
+            return;
+        }
+        timerRefs--;
+        if (timerRefs == 0 && timer != null) {
+            timer.stop();
+            timer = null;
+        }
+    }
+
+    /**
+     * Check type.
+     *
+     * @param ioEventGroupType the io event group type
+     * @return the index
+     */
+    private int checkType(int ioEventGroupType) {
+        if (ioEventGroupType != RpcClientOptions.POLL_EVENT_GROUP
+                && ioEventGroupType != RpcClientOptions.EPOLL_EVENT_GROUP) {
+            throw new IllegalArgumentException("invalid io event group type:" + ioEventGroupType);
+        }
+        return ioEventGroupType;
+    }
+
+    /**
+     * Gets the io threads of shared event loop group.
+     *
+     * @return the io threads
+     */
+    public synchronized int getIoThreads() {
+        return ioThreads;
+    }
+
+    /**
+     * Sets the io threads of shared event loop group. Only take effect on the next created group.
+     *
+     * @param ioThreads the new io threads. 0 means use netty default value
+     */
+    public synchronized void setIoThreads(int ioThreads) {
+        this.ioThreads = ioThreads;
+    }
+
+    /**
+     * Gets the reference count of event loop group.
+     *
+     * @param ioEventGroupType the io event group type
+     * @return the reference count
+     */
+    public synchronized int getEventLoopGroupRefCount(int ioEventGroupType) {
+        return eventLoopGroupRefs[checkType(ioEventGroupType)];
+    }
+
+    /**
+     * Gets the reference count of timer.
+     *
+     * @return the reference count
+     */
+    public synchronized int getTimerRefCount() {
+        return timerRefs;
+    }
+}
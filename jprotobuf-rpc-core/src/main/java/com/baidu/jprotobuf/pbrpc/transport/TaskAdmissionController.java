@@ -0,0 +1,181 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.transport;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CoDel style admission control for server task queue. Overload is detected by the time requests wait in queue
+ * rather than queue length: if queue delay keeps above target delay for a whole interval, server is overloaded and
+ * new requests are rejected at once until a request is dequeued under target delay again. While overloaded one probe
+ * request per interval is still admitted, so queue delay is measured again after queue drains and overload is
+ * cleared. A target delay not greater than 0 disables delay detection and only counts rejections.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class TaskAdmissionController {
+
+    /** The target delay in milliseconds. */
+    private final long targetDelay;
+
+    /** The interval in milliseconds. */
+    private final long interval;
+
+    /** time when queue delay will be treated as overload if it keeps above target, 0 if below target. */
+    private final AtomicLong firstAboveTime = new AtomicLong();
+
+    /** The overloaded. */
+    private final AtomicBoolean overloaded = new AtomicBoolean(false);
+
+    /** time when next probe request is admitted under overload. */
+    private final AtomicLong nextProbeTime = new AtomicLong();
+
+    /** The rejected count. */
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /** The expired count. */
+    private final AtomicLong expiredCount = new AtomicLong();
+
+    /**
+     * Instantiates a new task admission controller.
+     *
+     * @param targetDelay the target delay in milliseconds
+     * @param interval the interval in milliseconds
+     */
+    public TaskAdmissionController(long targetDelay, long interval) {
+        this.targetDelay = targetDelay;
+        this.interval = interval;
+    }
+
+    /**
+     * Checks if a new request could be put into task queue.
+     *
+     * @return true, if admitted
+     */
+    public boolean admit() {
+        if (overloaded.get()) {
+            long now = System.currentTimeMillis();
+            long probeTime = nextProbeTime.get();
+            if (now >= probeTime && nextProbeTime.compareAndSet(probeTime, now + interval)) {
+                // nothing is dequeued once queue drains, so probe it or overload never clears
+                return true;
+            }
+            rejectedCount.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Called when a request is taken from queue to execute.
+     *
+     * @param queueDelay the time in milliseconds request waited in queue
+     * @return true, if request should be executed, or false to reject it
+     */
+    public boolean onDequeue(long queueDelay) {
+        if (targetDelay <= 0) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (queueDelay < targetDelay) {
+            // skip writes on the common path so workers do not contend on the same cache line
+            if (firstAboveTime.get() != 0) {
+                firstAboveTime.set(0);
+            }
+            if (overloaded.get()) {
+                overloaded.set(false);
+            }
+            return true;
+        }
+        long aboveTime = firstAboveTime.get();
+        if (aboveTime == 0) {
+            // only one of racing workers starts the interval
+            firstAboveTime.compareAndSet(0, now + interval);
+            return true;
+        }
+        if (now >= aboveTime) {
+            if (!overloaded.get()) {
+                // probe time is set before overload is visible to admit()
+                nextProbeTime.set(now + interval);
+                overloaded.set(true);
+            }
+            rejectedCount.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Record a request rejected by other reason such as queue is full.
+     */
+    public void reject() {
+        rejectedCount.incrementAndGet();
+    }
+
+    /**
+     * Record a request dropped without reply as its timeout already passed when dequeued.
+     */
+    public void expire() {
+        expiredCount.incrementAndGet();
+    }
+
+    /**
+     * Checks if is overloaded.
+     *
+     * @return true, if is overloaded
+     */
+    public boolean isOverloaded() {
+        return overloaded.get();
+    }
+
+    /**
+     * Gets the rejected count.
+     *
+     * @return the rejected count
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Gets the expired count.
+     *
+     * @return the expired count
+     */
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    /**
+     * Gets the target delay.
+     *
+     * @return the target delay
+     */
+    public long getTargetDelay() {
+        return targetDelay;
+    }
+
+    /**
+     * Gets the interval.
+     *
+     * @return the interval
+     */
+    public long getInterval() {
+        return interval;
+    }
+}
@@ -49,6 +49,27 @@ public class ErrorCodes {
     public static final String MSG_READ_TIMEOUT =
             "method request time out, please check 'onceTalkTimeout' property. current value is:";
 
+    /** server is busy, request is rejected before processed and is safe to retry on other server. */
+    public static final int ST_SERVER_BUSY = 2004;
+
+    /** server busy message. */
+    public static final String MSG_SERVER_BUSY = "server is busy, request is rejected by admission control";
+
+    /** too many outstanding requests to the endpoint, request is not sent and is safe to retry on other server. */
+    public static final int ST_CLIENT_OVERLOAD = 1011;
+
+    /** client overload message. */
+    public static final String MSG_CLIENT_OVERLOAD = "too many outstanding requests to endpoint:";
+
+    /** connection lost before response received. */
+    public static final int ST_CONNECTION_LOST = 104;
+
+    /** connection lost message. */
+    public static final String MSG_CONNECTION_LOST = "connection lost before response received, remote address:";
+
+    /** frame too large message. */
+    public static final String MSG_FRAME_TOO_LARGE = "frame exceeds max frame size agreed on connection, payload size:";
+
     /**
      * check is error code is equals to ST_SUCCESS.
      *
@@ -59,6 +80,16 @@ public class ErrorCodes {
         return ST_SUCCESS == errorCode;
     }
 
+    /**
+     * check if request is not processed by server and could be retried on another server.
+     *
+     * @param errorCode the error code
+     * @return true, if is retryable
+     */
+    public static boolean isRetryable(int errorCode) {
+        return ST_SERVER_BUSY == errorCode || ST_CLIENT_OVERLOAD == errorCode;
+    }
+
     /*
      * SYS_EPERM = 1; // Operation not permitted SYS_ENOENT = 2; // No such file or directory SYS_ESRCH = 3; // No such
      * process SYS_EINTR = 4; // Interrupted system call SYS_EIO = 5; // I/O error SYS_ENXIO = 6; // No such device or
@@ -24,6 +24,7 @@ import java.util.logging.Logger;
 
 import com.baidu.jprotobuf.pbrpc.data.RpcDataPackage;
 import com.baidu.jprotobuf.pbrpc.data.RpcResponseMeta;
+import com.baidu.jprotobuf.pbrpc.transport.Connection;
 import com.baidu.jprotobuf.pbrpc.transport.RpcClient;
 import com.baidu.jprotobuf.pbrpc.transport.RpcClientCallState;
 
@@ -65,20 +66,34 @@ public class RpcClientServiceHandler extends
 		Integer errorCode = ErrorCodes.ST_SUCCESS;
 		RpcResponseMeta response = dataPackage.getRpcMeta().getResponse();
 		if (response != null) {
+			if (response.getErrorCode() == null) {
+				// error code is optional, absent means success
+				response.setErrorCode(ErrorCodes.ST_SUCCESS);
+			}
 			errorCode = response.getErrorCode();
 		}
 
 		if (!ErrorCodes.isSuccess(errorCode)) {
+			// response data is not used on failure
+			dataPackage.release();
 			if (state != null) {
 				state.handleFailure(errorCode, response.getErrorText());
 			} else {
-				ctx.fireChannelReadComplete();
-				throw new Exception(response.getErrorText());
+				// no pending request found, maybe timeout already. do not close
+				// connection which other requests may still be in flight on
+				if (LOG.isLoggable(Level.FINE)) {
+					LOG.log(Level.FINE, "Ignore error response of correlation id "
+							+ correlationId + ", no pending request found: "
+							+ response.getErrorText());
+				}
 			}
 		} else {
 			if (state != null) {
 				state.setDataPackage(dataPackage);
 				state.handleResponse(state.getDataPackage());
+			} else {
+				// no pending request found, maybe timeout already
+				dataPackage.release();
 			}
 		}
 		ctx.fireChannelReadComplete();
@@ -90,8 +105,25 @@ public class RpcClientServiceHandler extends
 	@Override
 	public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause)
 			throws Exception {
-		LOG.log(Level.SEVERE, cause.getCause().getMessage(), cause.getCause());
+		Throwable t = cause.getCause() != null ? cause.getCause() : cause;
+		LOG.log(Level.SEVERE, t.getMessage(), t);
+		// pending requests will be failed on channel inactive
 		ctx.close();
 	}
 
+	/* (non-Javadoc)
+	 * @see io.netty.channel.ChannelInboundHandlerAdapter#channelInactive(io.netty.channel.ChannelHandlerContext)
+	 */
+	@Override
+	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+		Connection connection = ctx.channel().attr(Connection.CONNECTION_KEY)
+				.get();
+		if (connection != null) {
+			connection.failPendingRequests(ErrorCodes.ST_CONNECTION_LOST,
+					ErrorCodes.MSG_CONNECTION_LOST
+							+ ctx.channel().remoteAddress());
+		}
+		super.channelInactive(ctx);
+	}
+
 }
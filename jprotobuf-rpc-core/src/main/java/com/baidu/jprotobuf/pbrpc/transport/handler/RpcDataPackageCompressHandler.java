@@ -18,12 +18,15 @@ package com.baidu.jprotobuf.pbrpc.transport.handler;
 
 import java.util.List;
 
-import com.baidu.jprotobuf.pbrpc.compress.Compress;
-import com.baidu.jprotobuf.pbrpc.compress.GZipCompress;
-import com.baidu.jprotobuf.pbrpc.compress.SnappyCompress;
+import com.baidu.jprotobuf.pbrpc.compress.ByteBufCompress;
+import com.baidu.jprotobuf.pbrpc.compress.CompressPolicy;
+import com.baidu.jprotobuf.pbrpc.compress.CompressRegistry;
 import com.baidu.jprotobuf.pbrpc.data.RpcDataPackage;
 import com.baidu.jprotobuf.pbrpc.data.RpcMeta;
+import com.baidu.jprotobuf.pbrpc.transport.ProtocolFeatures;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageEncoder;
@@ -38,6 +41,25 @@ import io.netty.handler.codec.MessageToMessageEncoder;
 public class RpcDataPackageCompressHandler extends
 		MessageToMessageEncoder<RpcDataPackage> {
 
+	/** The compress policy, null if compress type of message is always used. */
+	private final CompressPolicy compressPolicy;
+
+	/**
+	 * Instantiates a new rpc data package compress handler.
+	 */
+	public RpcDataPackageCompressHandler() {
+		this(null);
+	}
+
+	/**
+	 * Instantiates a new rpc data package compress handler.
+	 *
+	 * @param compressPolicy the compress policy, null if compress type of message is always used
+	 */
+	public RpcDataPackageCompressHandler(CompressPolicy compressPolicy) {
+		this.compressPolicy = compressPolicy;
+	}
+
 	/* (non-Javadoc)
 	 * @see io.netty.handler.codec.MessageToMessageEncoder#encode(io.netty.channel.ChannelHandlerContext, java.lang.Object, java.util.List)
 	 */
@@ -47,20 +69,56 @@ public class RpcDataPackageCompressHandler extends
 		RpcDataPackage dataPackage = msg;
 
 		// check if do compress
-		Integer compressType = dataPackage.getRpcMeta().getCompressType();
-		Compress compress = null;
-		if (compressType == RpcMeta.COMPERESS_GZIP) {
-			compress = new GZipCompress();
-		} else if (compressType == RpcMeta.COMPRESS_SNAPPY) {
-		    compress = new SnappyCompress();
-		}
-
-		if (compress != null) {
+		int compressType = dataPackage.getRpcMeta().getCompressType();
+		if (compressType != RpcMeta.COMPRESS_NO) {
 			byte[] data = dataPackage.getData();
-			data = compress.compress(data);
-			dataPackage.data(data);
+			String serviceSignature = null;
+			if (compressPolicy != null) {
+				serviceSignature = dataPackage.getServiceSignature();
+				ProtocolFeatures protocolFeatures = ctx.channel().attr(ProtocolFeatures.PROTOCOL_FEATURES_KEY).get();
+				int selected = compressPolicy.select(protocolFeatures, serviceSignature, compressType,
+						data == null ? 0 : data.length);
+				if (selected != compressType) {
+					compressType = selected;
+					dataPackage.compressType(compressType);
+				}
+			}
+
+			ByteBufCompress compress = CompressRegistry.getCompress(compressType);
+			if (compress == null) {
+				// turned off by policy, or no codec on this side so send uncompressed rather than mislabeled
+				dataPackage.compressType(RpcMeta.COMPRESS_NO);
+			} else if (data != null) {
+				long start = System.nanoTime();
+				byte[] compressed = compress(ctx, compress, Unpooled.wrappedBuffer(data));
+				if (compressPolicy != null) {
+					compressPolicy.record(serviceSignature, data.length, compressed.length, System.nanoTime() - start);
+				}
+				dataPackage.data(compressed);
+			}
 		}
 		out.add(dataPackage);
 	}
 
+	/**
+	 * Compress data to pooled heap buffer and copy out once.
+	 *
+	 * @param ctx the ctx
+	 * @param compress the compress
+	 * @param in the data
+	 * @return the compressed data
+	 * @throws Exception the exception
+	 */
+	private byte[] compress(ChannelHandlerContext ctx, ByteBufCompress compress, ByteBuf in) throws Exception {
+		ByteBuf out = ctx.alloc().heapBuffer(in.readableBytes());
+		try {
+			compress.compress(in, out);
+			byte[] bytes = new byte[out.readableBytes()];
+			out.readBytes(bytes);
+			return bytes;
+		} finally {
+			out.release();
+		}
+	}
+
 }
@@ -16,7 +16,6 @@
 
 package com.baidu.jprotobuf.pbrpc.transport.handler;
 
-import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -29,6 +28,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.baidu.jprotobuf.pbrpc.data.LazyRpcDataPackage;
 import com.baidu.jprotobuf.pbrpc.data.ProtocolConstant;
 import com.baidu.jprotobuf.pbrpc.data.RpcDataPackage;
 import com.baidu.jprotobuf.pbrpc.data.RpcHeadMeta;
@@ -162,15 +162,17 @@ public class RpcDataPackageDecoder extends ByteToMessageDecoder {
         // there's not enough bytes in the buffer.
         buf.markReaderIndex();
 
-        // Read the RPC head
+        // Read the RPC head in place
         long rpcMessageDecoderStart = System.nanoTime();
-        ByteBuffer buffer = buf.nioBuffer(buf.readerIndex(), RpcHeadMeta.SIZE);
+        int readerIndex = buf.readerIndex();
 
-        byte[] bytes = new byte[RpcHeadMeta.SIZE];
-        buffer.get(bytes);
+        byte[] magicCodeBytes = new byte[4];
+        buf.getBytes(readerIndex, magicCodeBytes);
 
         RpcHeadMeta headMeta = new RpcHeadMeta();
-        headMeta.read(bytes);
+        headMeta.setMagicCode(magicCodeBytes);
+        headMeta.setMessageSize(buf.getInt(readerIndex + 4));
+        headMeta.setMetaSize(buf.getInt(readerIndex + 8));
 
         // get total message size
         int messageSize = headMeta.getMessageSize() + RpcHeadMeta.SIZE;
@@ -193,16 +195,14 @@ public class RpcDataPackageDecoder extends ByteToMessageDecoder {
         if (!ProtocolConstant.MAGIC_CODE.equals(magicCode)) {
             throw new Exception("Error magic code:" + magicCode);
         }
-        // There's enough bytes in the buffer. Read it.
-        byte[] totalBytes = new byte[messageSize];
-        buf.readBytes(totalBytes, 0, messageSize);
-
-        RpcDataPackage rpcDataPackage = new RpcDataPackage();
+        // There's enough bytes in the buffer. Parse meta and keep data and attachment as slices
+        RpcDataPackage rpcDataPackage = LazyRpcDataPackage.read(buf, headMeta);
         rpcDataPackage.setTimeStamp(System.currentTimeMillis());
-        rpcDataPackage.read(totalBytes);
         
         // check if a chunk package
         if (rpcDataPackage.isChunkPackage()) {
+            // chunk data will be merged, so read it at once
+            rpcDataPackage.getData();
             
             Long chunkStreamId = rpcDataPackage.getChunkStreamId();
             
@@ -17,7 +17,7 @@
 package com.baidu.jprotobuf.pbrpc.transport.handler;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageEncoder;
 
@@ -26,6 +26,10 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.baidu.jprotobuf.pbrpc.data.RpcDataPackage;
+import com.baidu.jprotobuf.pbrpc.data.RpcHeadMeta;
+import com.baidu.jprotobuf.pbrpc.data.RpcMeta;
+import com.baidu.jprotobuf.pbrpc.data.RpcMetaCodec;
+import com.baidu.jprotobuf.pbrpc.data.RpcMetaTemplate;
 
 /**
  * Pack client data of byte array type.
@@ -85,27 +89,64 @@ public class RpcDataPackageEncoder extends
 
 		RpcDataPackage dataPackage = msg;
 
-		byte[] encodeBytes = dataPackage.write();
-		if (encodeBytes != null) {
-			LOG.log(Level.FINE, "Client send content byte size:"
-					+ encodeBytes.length);
-		} else {
-			throw new Exception("byte is null from dataPackage");
-		}
-
-		ByteBuf encodedMessage = Unpooled.copiedBuffer(encodeBytes);
-
 		if (chunkSize < 0) {
-			out.add(encodedMessage);
+			out.add(encode(ctx.alloc(), dataPackage));
 			return ;
 		}
 
 		List<RpcDataPackage> list = dataPackage.chunk(chunkSize);
 		for (RpcDataPackage rpcDataPackage : list) {
-			encodeBytes = rpcDataPackage.write();
-			encodedMessage = Unpooled.copiedBuffer(encodeBytes);
-			out.add(encodedMessage);
+			out.add(encode(ctx.alloc(), rpcDataPackage));
+		}
+	}
+
+	/**
+	 * Encode {@link RpcDataPackage} into a single buffer. Frame size is computed
+	 * first, then head, meta, data and attachment are written directly into
+	 * buffer from allocator to avoid intermediate byte array copies.
+	 *
+	 * @param alloc the buffer allocator
+	 * @param dataPackage the data package
+	 * @return the encoded buffer
+	 */
+	protected ByteBuf encode(ByteBufAllocator alloc, RpcDataPackage dataPackage) {
+		RpcHeadMeta head = dataPackage.getHead();
+		RpcMeta rpcMeta = dataPackage.getRpcMeta();
+		if (head == null) {
+			throw new RuntimeException("property 'head' is null.");
+		}
+		if (rpcMeta == null) {
+			throw new RuntimeException("property 'rpcMeta' is null.");
+		}
+
+		byte[] data = dataPackage.getData();
+		byte[] attachment = dataPackage.getAttachment();
+		int dataSize = data == null ? 0 : data.length;
+		int attachmentSize = attachment == null ? 0 : attachment.length;
+		rpcMeta.setAttachmentSize(attachmentSize);
+
+		RpcMetaTemplate metaTemplate = dataPackage.getMetaTemplate();
+		int metaSize = RpcMetaCodec.computeSize(rpcMeta, metaTemplate);
+		int messageSize = metaSize + dataSize + attachmentSize;
+		head.setMetaSize(metaSize);
+		head.setMessageSize(messageSize);
+
+		int totalSize = RpcHeadMeta.SIZE + messageSize;
+		LOG.log(Level.FINE, "Client send content byte size:" + totalSize);
+
+		ByteBuf encodedMessage = alloc.ioBuffer(totalSize);
+		// write head, same byte order as RpcHeadMeta#write()
+		encodedMessage.writeBytes(head.getMagicCode());
+		encodedMessage.writeInt(messageSize);
+		encodedMessage.writeInt(metaSize);
+		RpcMetaCodec.write(rpcMeta, metaTemplate, encodedMessage);
+		if (data != null) {
+			encodedMessage.writeBytes(data);
+		}
+		if (attachment != null) {
+			encodedMessage.writeBytes(attachment);
 		}
+		return encodedMessage;
 	}
 
 }
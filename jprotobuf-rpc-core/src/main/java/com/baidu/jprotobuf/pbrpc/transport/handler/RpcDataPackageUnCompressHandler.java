@@ -18,12 +18,14 @@ package com.baidu.jprotobuf.pbrpc.transport.handler;
 
 import java.util.List;
 
-import com.baidu.jprotobuf.pbrpc.compress.Compress;
-import com.baidu.jprotobuf.pbrpc.compress.GZipCompress;
-import com.baidu.jprotobuf.pbrpc.compress.SnappyCompress;
+import com.baidu.jprotobuf.pbrpc.compress.ByteBufCompress;
+import com.baidu.jprotobuf.pbrpc.compress.CompressRegistry;
+import com.baidu.jprotobuf.pbrpc.data.LazyRpcDataPackage;
 import com.baidu.jprotobuf.pbrpc.data.RpcDataPackage;
 import com.baidu.jprotobuf.pbrpc.data.RpcMeta;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageDecoder;
@@ -51,18 +53,26 @@ public class RpcDataPackageUnCompressHandler extends MessageToMessageDecoder<Rpc
 
         try {
             // check if do compress
-            Integer compressType = dataPackage.getRpcMeta().getCompressType();
-            Compress compress = null;
-            if (compressType == RpcMeta.COMPERESS_GZIP) {
-                compress = new GZipCompress();
-            } else if (compressType == RpcMeta.COMPRESS_SNAPPY) {
-                compress = new SnappyCompress();
-            }
-
-            if (compress != null) {
-                byte[] data = dataPackage.getData();
-                data = compress.unCompress(data);
-                dataPackage.data(data);
+            int compressType = dataPackage.getRpcMeta().getCompressType();
+            if (compressType != RpcMeta.COMPRESS_NO) {
+                ByteBufCompress compress = CompressRegistry.getCompress(compressType);
+                if (compress == null) {
+                    throw new IllegalArgumentException("unsupported compress type " + compressType);
+                }
+                ByteBuf in = null;
+                if (dataPackage instanceof LazyRpcDataPackage) {
+                    // uncompress from frame buffer directly
+                    in = ((LazyRpcDataPackage) dataPackage).takeDataBuf();
+                }
+                if (in == null) {
+                    byte[] data = dataPackage.getData();
+                    if (data != null) {
+                        in = Unpooled.wrappedBuffer(data);
+                    }
+                }
+                if (in != null) {
+                    dataPackage.data(unCompress(ctx, compress, in));
+                }
             }
         } catch (Exception e) {
             dataPackage.errorCode(ErrorCodes.ST_ERROR_COMPRESS);
@@ -72,4 +82,26 @@ public class RpcDataPackageUnCompressHandler extends MessageToMessageDecoder<Rpc
 
     }
 
+    /**
+     * Un compress data to pooled heap buffer and copy out once. Input buffer is released.
+     *
+     * @param ctx the ctx
+     * @param compress the compress
+     * @param in the compressed data
+     * @return the data
+     * @throws Exception the exception
+     */
+    private byte[] unCompress(ChannelHandlerContext ctx, ByteBufCompress compress, ByteBuf in) throws Exception {
+        ByteBuf out = ctx.alloc().heapBuffer(in.readableBytes() * 2);
+        try {
+            compress.unCompress(in, out);
+            byte[] bytes = new byte[out.readableBytes()];
+            out.readBytes(bytes);
+            return bytes;
+        } finally {
+            out.release();
+            in.release();
+        }
+    }
+
 }
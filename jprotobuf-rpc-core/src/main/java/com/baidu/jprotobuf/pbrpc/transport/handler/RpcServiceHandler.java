@@ -18,6 +18,7 @@ package com.baidu.jprotobuf.pbrpc.transport.handler;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -26,9 +27,18 @@ import com.baidu.jprotobuf.pbrpc.RpcHandler;
 import com.baidu.jprotobuf.pbrpc.data.ProtocolConstant;
 import com.baidu.jprotobuf.pbrpc.data.RpcDataPackage;
 import com.baidu.jprotobuf.pbrpc.data.RpcMeta;
+import com.baidu.jprotobuf.pbrpc.data.RpcRequestMeta;
+import com.baidu.jprotobuf.pbrpc.limit.ConcurrencyLimiter;
+import com.baidu.jprotobuf.pbrpc.limit.ConcurrencyLimiterRegistry;
+import com.baidu.jprotobuf.pbrpc.server.ExecutorPool;
 import com.baidu.jprotobuf.pbrpc.server.RpcData;
 import com.baidu.jprotobuf.pbrpc.server.RpcServiceRegistry;
+import com.baidu.jprotobuf.pbrpc.transport.ProtocolFeatures;
+import com.baidu.jprotobuf.pbrpc.transport.TaskAdmissionController;
+import com.baidu.jprotobuf.pbrpc.utils.DeadlineThreadLocalHolder;
 import com.baidu.jprotobuf.pbrpc.utils.LogIdThreadLocalHolder;
+import com.baidu.jprotobuf.pbrpc.utils.ProtocolFeaturesThreadLocalHolder;
+import com.baidu.jprotobuf.pbrpc.utils.ServiceSignatureUtils;
 
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
@@ -55,10 +65,58 @@ public class RpcServiceHandler extends SimpleChannelInboundHandler<RpcDataPackag
 	public void setEs(ExecutorService es) {
 		this.es = es;
 	}
+
+	/** The task admission controller. */
+	private TaskAdmissionController taskAdmissionController;
+
+	/** The concurrency limiter registry, null if adaptive concurrency limit is disabled. */
+	private ConcurrencyLimiterRegistry concurrencyLimiterRegistry;
+
+	/**
+	 * Sets the concurrency limiter registry.
+	 *
+	 * @param concurrencyLimiterRegistry the new concurrency limiter registry
+	 */
+	public void setConcurrencyLimiterRegistry(ConcurrencyLimiterRegistry concurrencyLimiterRegistry) {
+		this.concurrencyLimiterRegistry = concurrencyLimiterRegistry;
+	}
+
+	/**
+	 * Sets the task admission controller.
+	 *
+	 * @param taskAdmissionController the new task admission controller
+	 */
+	public void setTaskAdmissionController(TaskAdmissionController taskAdmissionController) {
+		this.taskAdmissionController = taskAdmissionController;
+	}
 	
 	/** {@link RpcServiceRegistry}. */
 	private final RpcServiceRegistry rpcServiceRegistry;
 
+	/** If true, request meta is not echoed back in response. */
+	private boolean slimResponseMeta;
+
+	/** The protocol features agreed on this connection. */
+	private final ProtocolFeatures protocolFeatures = new ProtocolFeatures();
+
+	/**
+	 * Gets the protocol features agreed on this connection by handshake.
+	 *
+	 * @return the protocol features
+	 */
+	public ProtocolFeatures getProtocolFeatures() {
+		return protocolFeatures;
+	}
+
+	/**
+	 * Sets if response meta is slim.
+	 *
+	 * @param slimResponseMeta if true, request meta is not echoed back in response
+	 */
+	public void setSlimResponseMeta(boolean slimResponseMeta) {
+		this.slimResponseMeta = slimResponseMeta;
+	}
+
 	/**
 	 * Instantiates a new rpc service handler.
 	 *
@@ -74,10 +132,59 @@ public class RpcServiceHandler extends SimpleChannelInboundHandler<RpcDataPackag
 	@Override
 	protected void channelRead0(ChannelHandlerContext ctx, RpcDataPackage dataPackage) throws Exception {
 		BackgroundTask task = new BackgroundTask(ctx, dataPackage, rpcServiceRegistry);
+		task.slimResponseMeta = slimResponseMeta || protocolFeatures.isSlimResponseMeta();
+		task.protocolFeatures = protocolFeatures;
 		
-		if (es != null) {
-		    // run by async way
-		    es.submit(task);
+		ExecutorService executor = es;
+		TaskAdmissionController admissionController = taskAdmissionController;
+		RpcRequestMeta request = dataPackage.getRpcMeta().getRequest();
+		// resolve once here, by method id if client sends it
+		RpcHandler handler = request == null ? null : rpcServiceRegistry.lookupService(request);
+		task.handler = handler;
+		if (handler != null) {
+			String serviceName = handler.getServiceName();
+			String methodName = handler.getMethodName();
+			ExecutorPool executorPool = null;
+			if (rpcServiceRegistry.isInlineExecution(serviceName, methodName)) {
+				// cheap method runs on IO thread to save the handoff
+				executor = null;
+			} else {
+				// bulkhead pool assigned to the service
+				executorPool = rpcServiceRegistry.lookupExecutorPool(serviceName, methodName);
+			}
+			if (executorPool != null) {
+				executor = executorPool.getExecutor();
+				admissionController = executorPool.getTaskAdmissionController();
+			}
+
+			if (concurrencyLimiterRegistry != null && !acquireLimiters(task,
+					ServiceSignatureUtils.makeSignature(serviceName, methodName))) {
+				// over adaptive concurrency limit
+				rejectBusy(ctx, dataPackage, task.slimResponseMeta);
+				return;
+			}
+		}
+		
+		if (executor != null) {
+			if (admissionController != null) {
+				task.taskAdmissionController = admissionController;
+				if (!admissionController.admit()) {
+					task.releaseLimiters(Boolean.FALSE);
+					rejectBusy(ctx, dataPackage, task.slimResponseMeta);
+					return;
+				}
+			}
+			// run by async way
+			try {
+				executor.submit(task);
+			} catch (RejectedExecutionException e) {
+				// task queue is full
+				if (admissionController != null) {
+					admissionController.reject();
+				}
+				task.releaseLimiters(Boolean.FALSE);
+				rejectBusy(ctx, dataPackage, task.slimResponseMeta);
+			}
 		} else {
 		    task.run(); // run at current thread
 		}
@@ -112,6 +219,46 @@ public class RpcServiceHandler extends SimpleChannelInboundHandler<RpcDataPackag
 		ctx.fireChannelRead(data);
 	}
 
+	/**
+	 * Acquire server and method limiters for the task.
+	 *
+	 * @param task the task
+	 * @param methodSignature the method signature
+	 * @return true, if acquired
+	 */
+	private boolean acquireLimiters(BackgroundTask task, String methodSignature) {
+		ConcurrencyLimiter serverLimiter = concurrencyLimiterRegistry.getServerLimiter();
+		if (!serverLimiter.tryAcquire()) {
+			return false;
+		}
+		ConcurrencyLimiter methodLimiter = concurrencyLimiterRegistry.getMethodLimiter(methodSignature);
+		if (methodLimiter != null && !methodLimiter.tryAcquire()) {
+			serverLimiter.onIgnore();
+			return false;
+		}
+		task.serverLimiter = serverLimiter;
+		task.methodLimiter = methodLimiter;
+		return true;
+	}
+
+	/**
+	 * Answer server busy error at once.
+	 *
+	 * @param ctx the ctx
+	 * @param dataPackage the data package
+	 * @param slimResponseMeta if true, request meta is not echoed back
+	 */
+	private static void rejectBusy(ChannelHandlerContext ctx, RpcDataPackage dataPackage, boolean slimResponseMeta) {
+		if (slimResponseMeta) {
+			dataPackage.slimResponseMeta();
+		}
+		dataPackage.data(null);
+		dataPackage.attachment(null);
+		dataPackage.errorCode(ErrorCodes.ST_SERVER_BUSY);
+		dataPackage.errorText(ErrorCodes.MSG_SERVER_BUSY);
+		ctx.writeAndFlush(dataPackage);
+	}
+
 	/**
 	 * The Class BackgroundTask.
 	 */
@@ -125,6 +272,30 @@ public class RpcServiceHandler extends SimpleChannelInboundHandler<RpcDataPackag
 		
 		/** The rpc service registry. */
 		private RpcServiceRegistry rpcServiceRegistry;
+		
+		/** The handler resolved of request, null if not found. */
+		private RpcHandler handler;
+		
+		/** The time request received. */
+		private long receiveTime;
+		
+		/** The task admission controller, null if run at I/O thread. */
+		private TaskAdmissionController taskAdmissionController;
+		
+		/** The server limiter acquired. */
+		private ConcurrencyLimiter serverLimiter;
+		
+		/** The method limiter acquired. */
+		private ConcurrencyLimiter methodLimiter;
+		
+		/** The time in nanoseconds request received, used as latency sample of limiters. */
+		private long receiveNanos;
+
+		/** If true, request meta is not echoed back in response. */
+		private boolean slimResponseMeta;
+
+		/** The protocol features of the connection. */
+		private ProtocolFeatures protocolFeatures;
 
 		/**
 		 * Instantiates a new background task.
@@ -139,6 +310,35 @@ public class RpcServiceHandler extends SimpleChannelInboundHandler<RpcDataPackag
 			this.ctx = ctx;
 			this.dataPackage = dataPackage;
 			this.rpcServiceRegistry = rpcServiceRegistry;
+			this.receiveTime = System.currentTimeMillis();
+			this.receiveNanos = System.nanoTime();
+		}
+
+		/**
+		 * Release acquired limiters.
+		 *
+		 * @param processed true if request is processed, false if request is dropped, null if failed by other reason
+		 */
+		private void releaseLimiters(Boolean processed) {
+			if (serverLimiter == null) {
+				return;
+			}
+			long rtt = System.nanoTime() - receiveNanos;
+			ConcurrencyLimiter[] limiters = { serverLimiter, methodLimiter };
+			for (ConcurrencyLimiter limiter : limiters) {
+				if (limiter == null) {
+					continue;
+				}
+				if (processed == null) {
+					limiter.onIgnore();
+				} else if (processed) {
+					limiter.onSuccess(rtt);
+				} else {
+					limiter.onDropped();
+				}
+			}
+			serverLimiter = null;
+			methodLimiter = null;
 		}
 
 		/*
@@ -148,7 +348,38 @@ public class RpcServiceHandler extends SimpleChannelInboundHandler<RpcDataPackag
 		 */
 		@Override
 		public void run() {
+			if (serverLimiter == null) {
+				doRun();
+				return;
+			}
+			Boolean processed = null;
+			try {
+				processed = doRun();
+			} finally {
+				releaseLimiters(processed);
+			}
+		}
+
+		/**
+		 * Process the request.
+		 *
+		 * @return true if request is processed, false if request is dropped
+		 */
+		private boolean doRun() {
 			long time = System.currentTimeMillis();
+
+			RpcMeta rpcMeta = dataPackage.getRpcMeta();
+			RpcRequestMeta requestMeta = rpcMeta.getRequest();
+			byte[] authenticationData = rpcMeta.getAuthenticationData();
+			if (handler != null && rpcMeta.getCompressType() != RpcMeta.COMPRESS_NO) {
+				// request names may be empty if dispatched by method id, keep signature for compress policy
+				dataPackage.setServiceSignature(
+						ServiceSignatureUtils.makeSignature(handler.getServiceName(), handler.getMethodName()));
+			}
+			if (slimResponseMeta) {
+				// request fields are read from local variables below
+				dataPackage.slimResponseMeta();
+			}
 			
 			if (dataPackage.getRpcMeta().getResponse() != null) {
 			    Integer errorCode = dataPackage.getRpcMeta().getResponse().getErrorCode();
@@ -156,20 +387,44 @@ public class RpcServiceHandler extends SimpleChannelInboundHandler<RpcDataPackag
 			        dataPackage.data(null);
 			        dataPackage.attachment(null);
 			        ctx.writeAndFlush(dataPackage);
-			        return;
+			        return true;
 			    }
 			}
 			
 
-			RpcMeta rpcMeta = dataPackage.getRpcMeta();
-			String serviceName = rpcMeta.getRequest().getSerivceName();
-			String methodName = rpcMeta.getRequest().getMethodName();
+			String methodName = requestMeta.getMethodName();
+			if (handler != null) {
+				methodName = handler.getMethodName();
+			}
+
+			if (taskAdmissionController != null && !taskAdmissionController.onDequeue(time - receiveTime)) {
+				// queue delay keeps above target, shed load
+				rejectBusy(ctx, dataPackage, slimResponseMeta);
+				return false;
+			}
 
-			Long logId = rpcMeta.getRequest().getLogId();
+			Long deadline = null;
+			Long timeout = requestMeta.getTimeout();
+			if (timeout != null && timeout > 0) {
+				deadline = receiveTime + timeout;
+				if (time >= deadline) {
+					// caller already gave up and nobody waits for the reply, drop it to save worker capacity
+					LOG.log(Level.FINE, "RPC request of method '" + methodName + "' expired in queue after "
+							+ (time - receiveTime) + " ms, drop it.");
+					dataPackage.release();
+					if (taskAdmissionController != null) {
+						taskAdmissionController.expire();
+					}
+					return false;
+				}
+			}
+
+			Long logId = requestMeta.getLogId();
 			// set log id to holder
 			LogIdThreadLocalHolder.setLogId(logId);
+			DeadlineThreadLocalHolder.setDeadline(deadline);
+			ProtocolFeaturesThreadLocalHolder.setProtocolFeatures(protocolFeatures);
 			try {
-				RpcHandler handler = rpcServiceRegistry.lookupService(serviceName, methodName);
 				if (handler == null) {
 					dataPackage.errorCode(ErrorCodes.ST_SERVICE_NOTFOUND);
 					dataPackage.errorText(ErrorCodes.MSG_SERVICE_NOTFOUND);
@@ -177,13 +432,12 @@ public class RpcServiceHandler extends SimpleChannelInboundHandler<RpcDataPackag
 
 					byte[] data = dataPackage.getData();
 					RpcData request = new RpcData();
-					request.setLogId(dataPackage.getRpcMeta().getRequest().getLogId());
+					request.setLogId(logId);
 					request.setData(data);
 					request.setAttachment(dataPackage.getAttachment());
-					if (dataPackage.getRpcMeta() != null) {
-						request.setAuthenticationData(dataPackage.getRpcMeta().getAuthenticationData());
-					}
-					request.setExtraParams(dataPackage.getRpcMeta().getRequest().getExtraParam());
+					request.setAuthenticationData(authenticationData);
+					request.setExtraParams(requestMeta.getExtraParam());
+					request.setDeadline(deadline);
 					try {
 						RpcData response = handler.doHandle(request);
 						dataPackage.data(response.getData());
@@ -193,6 +447,16 @@ public class RpcServiceHandler extends SimpleChannelInboundHandler<RpcDataPackag
 						dataPackage.errorCode(ErrorCodes.ST_SUCCESS);
 						dataPackage.errorText(null);
 
+						long payloadSize = (response.getData() == null ? 0 : response.getData().length)
+								+ (response.getAttachment() == null ? 0 : response.getAttachment().length);
+						if (protocolFeatures != null && protocolFeatures.isOversized(payloadSize)) {
+							// client would drop the connection on a frame over its max size
+							dataPackage.data(null);
+							dataPackage.attachment(null);
+							dataPackage.errorCode(ErrorCodes.ST_ERROR);
+							dataPackage.errorText(ErrorCodes.MSG_FRAME_TOO_LARGE + payloadSize);
+						}
+
 					} catch (InvocationTargetException e) {
 						Throwable targetException = e.getTargetException();
 						if (targetException == null) {
@@ -216,7 +480,9 @@ public class RpcServiceHandler extends SimpleChannelInboundHandler<RpcDataPackag
 				// the
 				// conversion.
 				ctx.writeAndFlush(dataPackage);
+				return true;
 			} catch (Exception t) {
+				dataPackage.release();
 				ErrorDataException exception = new ErrorDataException(t.getMessage(), t);
 				exception.setErrorCode(ErrorCodes.ST_ERROR);
 				exception.setRpcDataPackage(dataPackage);
@@ -226,6 +492,8 @@ public class RpcServiceHandler extends SimpleChannelInboundHandler<RpcDataPackag
 						+ (System.currentTimeMillis() - time) + " ms");
 				
 				LogIdThreadLocalHolder.clearLogId();
+				DeadlineThreadLocalHolder.clearDeadline();
+				ProtocolFeaturesThreadLocalHolder.clearProtocolFeatures();
 			}
 		}
 
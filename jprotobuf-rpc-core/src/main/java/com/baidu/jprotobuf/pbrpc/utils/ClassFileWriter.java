@@ -0,0 +1,685 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Minimal writer of java 6 class file, for generating small branch-free classes at runtime without bytecode library.
+ * As no branch instruction is supported, no stack map frame is required.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class ClassFileWriter {
+
+    /** class file version of java 6. */
+    private static final int CLASS_VERSION = 50;
+
+    /** The Constant ACC_PUBLIC. */
+    public static final int ACC_PUBLIC = 0x0001;
+
+    /** The Constant ACC_PRIVATE. */
+    public static final int ACC_PRIVATE = 0x0002;
+
+    /** The Constant ACC_FINAL. */
+    public static final int ACC_FINAL = 0x0010;
+
+    /** The Constant ACC_SUPER. */
+    public static final int ACC_SUPER = 0x0020;
+
+    /** The Constant ACONST_NULL. */
+    public static final int ACONST_NULL = 0x01;
+
+    /** The Constant SIPUSH. */
+    public static final int SIPUSH = 0x11;
+
+    /** The Constant ILOAD. */
+    public static final int ILOAD = 0x15;
+
+    /** The Constant LLOAD. */
+    public static final int LLOAD = 0x16;
+
+    /** The Constant FLOAD. */
+    public static final int FLOAD = 0x17;
+
+    /** The Constant DLOAD. */
+    public static final int DLOAD = 0x18;
+
+    /** The Constant ALOAD. */
+    public static final int ALOAD = 0x19;
+
+    /** The Constant AASTORE. */
+    public static final int AASTORE = 0x53;
+
+    /** The Constant POP. */
+    public static final int POP = 0x57;
+
+    /** The Constant DUP. */
+    public static final int DUP = 0x59;
+
+    /** The Constant IRETURN. */
+    public static final int IRETURN = 0xac;
+
+    /** The Constant LRETURN. */
+    public static final int LRETURN = 0xad;
+
+    /** The Constant FRETURN. */
+    public static final int FRETURN = 0xae;
+
+    /** The Constant DRETURN. */
+    public static final int DRETURN = 0xaf;
+
+    /** The Constant ARETURN. */
+    public static final int ARETURN = 0xb0;
+
+    /** The Constant RETURN. */
+    public static final int RETURN = 0xb1;
+
+    /** The Constant GETFIELD. */
+    public static final int GETFIELD = 0xb4;
+
+    /** The Constant PUTFIELD. */
+    public static final int PUTFIELD = 0xb5;
+
+    /** The Constant INVOKEVIRTUAL. */
+    public static final int INVOKEVIRTUAL = 0xb6;
+
+    /** The Constant INVOKESPECIAL. */
+    public static final int INVOKESPECIAL = 0xb7;
+
+    /** The Constant INVOKESTATIC. */
+    public static final int INVOKESTATIC = 0xb8;
+
+    /** The Constant INVOKEINTERFACE. */
+    public static final int INVOKEINTERFACE = 0xb9;
+
+    /** The Constant ANEWARRAY. */
+    public static final int ANEWARRAY = 0xbd;
+
+    /** The Constant CHECKCAST. */
+    public static final int CHECKCAST = 0xc0;
+
+    /** The Constant CONSTANT_UTF8. */
+    private static final int CONSTANT_UTF8 = 1;
+
+    /** The Constant CONSTANT_CLASS. */
+    private static final int CONSTANT_CLASS = 7;
+
+    /** The Constant CONSTANT_FIELDREF. */
+    private static final int CONSTANT_FIELDREF = 9;
+
+    /** The Constant CONSTANT_METHODREF. */
+    private static final int CONSTANT_METHODREF = 10;
+
+    /** The Constant CONSTANT_INTERFACE_METHODREF. */
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+
+    /** The Constant CONSTANT_NAME_AND_TYPE. */
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    /** The constant pool. */
+    private final DataOutputStream constantPool;
+
+    /** The constant pool bytes. */
+    private final ByteArrayOutputStream constantPoolBytes = new ByteArrayOutputStream();
+
+    /** The constant indexes. */
+    private final Map<String, Integer> constantIndexes = new HashMap<String, Integer>();
+
+    /** The next constant index, which starts from 1. */
+    private int nextConstant = 1;
+
+    /** The fields. */
+    private final DataOutputStream fields;
+
+    /** The field bytes. */
+    private final ByteArrayOutputStream fieldBytes = new ByteArrayOutputStream();
+
+    /** The field count. */
+    private int fieldCount;
+
+    /** The methods. */
+    private final DataOutputStream methods;
+
+    /** The method bytes. */
+    private final ByteArrayOutputStream methodBytes = new ByteArrayOutputStream();
+
+    /** The method count. */
+    private int methodCount;
+
+    /** The this class index. */
+    private final int thisClass;
+
+    /** The super class index. */
+    private final int superClass;
+
+    /** The interface indexes. */
+    private final int[] interfaces;
+
+    /**
+     * Instantiates a new class file writer of a public final class.
+     *
+     * @param className the class name
+     * @param superClass the super class
+     * @param interfaceClasses the interface classes
+     */
+    public ClassFileWriter(String className, Class<?> superClass, Class<?>... interfaceClasses) {
+        constantPool = new DataOutputStream(constantPoolBytes);
+        fields = new DataOutputStream(fieldBytes);
+        methods = new DataOutputStream(methodBytes);
+        thisClass = classRef(className.replace('.', '/'));
+        this.superClass = classRef(superClass);
+        interfaces = new int[interfaceClasses.length];
+        for (int i = 0; i < interfaceClasses.length; i++) {
+            interfaces[i] = classRef(interfaceClasses[i]);
+        }
+    }
+
+    /**
+     * Add utf8 constant.
+     *
+     * @param value the value
+     * @return the constant index
+     */
+    public int utf8(String value) {
+        String key = "U:" + value;
+        Integer index = constantIndexes.get(key);
+        if (index != null) {
+            return index;
+        }
+        try {
+            constantPool.writeByte(CONSTANT_UTF8);
+            constantPool.writeUTF(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+        return registerConstant(key);
+    }
+
+    /**
+     * Add class constant.
+     *
+     * @param cls the class
+     * @return the constant index
+     */
+    public int classRef(Class<?> cls) {
+        return classRef(internalName(cls));
+    }
+
+    /**
+     * Add class constant.
+     *
+     * @param internalName the internal name
+     * @return the constant index
+     */
+    public int classRef(String internalName) {
+        String key = "C:" + internalName;
+        Integer index = constantIndexes.get(key);
+        if (index != null) {
+            return index;
+        }
+        int name = utf8(internalName);
+        writeConstant(CONSTANT_CLASS, name, -1);
+        return registerConstant(key);
+    }
+
+    /**
+     * Add method reference constant of method.
+     *
+     * @param method the method
+     * @return the constant index
+     */
+    public int methodRef(Method method) {
+        Class<?> owner = method.getDeclaringClass();
+        return memberRef(owner.isInterface() ? CONSTANT_INTERFACE_METHODREF : CONSTANT_METHODREF,
+                internalName(owner), method.getName(), methodDescriptor(method));
+    }
+
+    /**
+     * Add method reference constant.
+     *
+     * @param owner the owner class
+     * @param name the method name
+     * @param desc the method descriptor
+     * @return the constant index
+     */
+    public int methodRef(Class<?> owner, String name, String desc) {
+        return memberRef(owner.isInterface() ? CONSTANT_INTERFACE_METHODREF : CONSTANT_METHODREF,
+                internalName(owner), name, desc);
+    }
+
+    /**
+     * Add field reference constant of field of this class.
+     *
+     * @param name the field name
+     * @param desc the field descriptor
+     * @return the constant index
+     */
+    public int fieldRef(String name, String desc) {
+        return memberRef(CONSTANT_FIELDREF, null, name, desc);
+    }
+
+    /**
+     * Add member reference constant.
+     *
+     * @param tag the tag
+     * @param owner the owner internal name, null for this class
+     * @param name the name
+     * @param desc the descriptor
+     * @return the constant index
+     */
+    private int memberRef(int tag, String owner, String name, String desc) {
+        String key = "M" + tag + ":" + owner + "." + name + desc;
+        Integer index = constantIndexes.get(key);
+        if (index != null) {
+            return index;
+        }
+        int ownerIndex = owner == null ? thisClass : classRef(owner);
+        int nameAndType = nameAndType(name, desc);
+        writeConstant(tag, ownerIndex, nameAndType);
+        return registerConstant(key);
+    }
+
+    /**
+     * Add name and type constant.
+     *
+     * @param name the name
+     * @param desc the descriptor
+     * @return the constant index
+     */
+    private int nameAndType(String name, String desc) {
+        String key = "N:" + name + desc;
+        Integer index = constantIndexes.get(key);
+        if (index != null) {
+            return index;
+        }
+        int nameIndex = utf8(name);
+        int descIndex = utf8(desc);
+        writeConstant(CONSTANT_NAME_AND_TYPE, nameIndex, descIndex);
+        return registerConstant(key);
+    }
+
+    /**
+     * Write constant with one or two index operands.
+     *
+     * @param tag the tag
+     * @param first the first index
+     * @param second the second index, -1 if absent
+     */
+    private void writeConstant(int tag, int first, int second) {
+        try {
+            constantPool.writeByte(tag);
+            constantPool.writeShort(first);
+            if (second >= 0) {
+                constantPool.writeShort(second);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Register the last written constant.
+     *
+     * @param key the key
+     * @return the constant index
+     */
+    private int registerConstant(String key) {
+        int index = nextConstant++;
+        constantIndexes.put(key, index);
+        return index;
+    }
+
+    /**
+     * Adds the field.
+     *
+     * @param access the access flags
+     * @param name the name
+     * @param desc the descriptor
+     */
+    public void addField(int access, String name, String desc) {
+        int nameIndex = utf8(name);
+        int descIndex = utf8(desc);
+        try {
+            fields.writeShort(access);
+            fields.writeShort(nameIndex);
+            fields.writeShort(descIndex);
+            // attributes
+            fields.writeShort(0);
+        } catch (IOException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+        fieldCount++;
+    }
+
+    /**
+     * Adds the method.
+     *
+     * @param access the access flags
+     * @param name the name
+     * @param desc the descriptor
+     * @param maxStack the max stack
+     * @param maxLocals the max locals
+     * @param code the code
+     */
+    public void addMethod(int access, String name, String desc, int maxStack, int maxLocals, Code code) {
+        int nameIndex = utf8(name);
+        int descIndex = utf8(desc);
+        int codeAttribute = utf8("Code");
+        byte[] bytes = code.toByteArray();
+        try {
+            methods.writeShort(access);
+            methods.writeShort(nameIndex);
+            methods.writeShort(descIndex);
+            methods.writeShort(1);
+            methods.writeShort(codeAttribute);
+            // max_stack, max_locals, code_length, code, exception_table_length, attributes_count
+            methods.writeInt(2 + 2 + 4 + bytes.length + 2 + 2);
+            methods.writeShort(maxStack);
+            methods.writeShort(maxLocals);
+            methods.writeInt(bytes.length);
+            methods.write(bytes);
+            methods.writeShort(0);
+            methods.writeShort(0);
+        } catch (IOException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+        methodCount++;
+    }
+
+    /**
+     * Adds the public constructor which calls no argument constructor of super class only.
+     *
+     * @param superClass the super class
+     */
+    public void addDefaultConstructor(Class<?> superClass) {
+        Code code = new Code();
+        code.local(ALOAD, 0);
+        code.ref(INVOKESPECIAL, methodRef(superClass, "<init>", "()V"));
+        code.op(RETURN);
+        addMethod(ACC_PUBLIC, "<init>", "()V", 1, 1, code);
+    }
+
+    /**
+     * Gets the class file bytes.
+     *
+     * @return the class file bytes
+     */
+    public byte[] toByteArray() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(CLASS_VERSION);
+            constantPool.flush();
+            out.writeShort(nextConstant);
+            out.write(constantPoolBytes.toByteArray());
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(interfaces.length);
+            for (int index : interfaces) {
+                out.writeShort(index);
+            }
+            fields.flush();
+            out.writeShort(fieldCount);
+            out.write(fieldBytes.toByteArray());
+            methods.flush();
+            out.writeShort(methodCount);
+            out.write(methodBytes.toByteArray());
+            // attributes
+            out.writeShort(0);
+            out.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Gets the internal name used by class constant, which is descriptor for array class.
+     *
+     * @param cls the class
+     * @return the internal name
+     */
+    public static String internalName(Class<?> cls) {
+        if (cls.isArray()) {
+            return descriptor(cls);
+        }
+        return cls.getName().replace('.', '/');
+    }
+
+    /**
+     * Gets the method descriptor.
+     *
+     * @param method the method
+     * @return the method descriptor
+     */
+    public static String methodDescriptor(Method method) {
+        return methodDescriptor(method.getReturnType(), method.getParameterTypes());
+    }
+
+    /**
+     * Gets the method descriptor.
+     *
+     * @param returnType the return type
+     * @param parameterTypes the parameter types
+     * @return the method descriptor
+     */
+    public static String methodDescriptor(Class<?> returnType, Class<?>... parameterTypes) {
+        StringBuilder builder = new StringBuilder("(");
+        for (Class<?> type : parameterTypes) {
+            builder.append(descriptor(type));
+        }
+        builder.append(')').append(descriptor(returnType));
+        return builder.toString();
+    }
+
+    /**
+     * Gets the type descriptor.
+     *
+     * @param cls the class
+     * @return the descriptor
+     */
+    public static String descriptor(Class<?> cls) {
+        if (cls.isArray()) {
+            return "[" + descriptor(cls.getComponentType());
+        }
+        if (!cls.isPrimitive()) {
+            return "L" + cls.getName().replace('.', '/') + ";";
+        }
+        if (cls == void.class) {
+            return "V";
+        } else if (cls == boolean.class) {
+            return "Z";
+        } else if (cls == byte.class) {
+            return "B";
+        } else if (cls == char.class) {
+            return "C";
+        } else if (cls == short.class) {
+            return "S";
+        } else if (cls == int.class) {
+            return "I";
+        } else if (cls == long.class) {
+            return "J";
+        } else if (cls == float.class) {
+            return "F";
+        }
+        return "D";
+    }
+
+    /**
+     * Checks if class is accessible from any package.
+     *
+     * @param cls the class
+     * @return true, if is public
+     */
+    public static boolean isPublic(Class<?> cls) {
+        while (cls.isArray()) {
+            cls = cls.getComponentType();
+        }
+        if (cls.isPrimitive()) {
+            return true;
+        }
+        for (Class<?> c = cls; c != null; c = c.getEnclosingClass()) {
+            if (!Modifier.isPublic(c.getModifiers())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Define generated class in a new class loader. Shared classes are resolved to the given class objects, others to
+     * the parent class loader.
+     *
+     * @param className the class name
+     * @param bytes the class file bytes
+     * @param parent the parent class loader
+     * @param sharedClasses the classes referred by generated class which may be invisible from parent
+     * @return the class
+     */
+    public static Class<?> defineClass(String className, byte[] bytes, ClassLoader parent,
+            Class<?>... sharedClasses) {
+        GeneratedClassLoader classLoader = new GeneratedClassLoader(parent, sharedClasses);
+        return classLoader.define(className, bytes);
+    }
+
+    /**
+     * Bytecode of a method.
+     */
+    public static class Code {
+
+        /** The bytes. */
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        /**
+         * Append instruction without operand.
+         *
+         * @param opcode the opcode
+         * @return the code
+         */
+        public Code op(int opcode) {
+            bytes.write(opcode);
+            return this;
+        }
+
+        /**
+         * Append load instruction of local variable.
+         *
+         * @param opcode the opcode
+         * @param index the local variable index
+         * @return the code
+         */
+        public Code local(int opcode, int index) {
+            bytes.write(opcode);
+            bytes.write(index & 0xFF);
+            return this;
+        }
+
+        /**
+         * Append instruction with two bytes operand, such as constant pool index or short value.
+         *
+         * @param opcode the opcode
+         * @param operand the operand
+         * @return the code
+         */
+        public Code ref(int opcode, int operand) {
+            bytes.write(opcode);
+            bytes.write((operand >> 8) & 0xFF);
+            bytes.write(operand & 0xFF);
+            return this;
+        }
+
+        /**
+         * Append invokeinterface instruction.
+         *
+         * @param methodRef the interface method reference index
+         * @param argumentSlots the argument slots including receiver
+         * @return the code
+         */
+        public Code invokeInterface(int methodRef, int argumentSlots) {
+            ref(INVOKEINTERFACE, methodRef);
+            bytes.write(argumentSlots);
+            bytes.write(0);
+            return this;
+        }
+
+        /**
+         * To byte array.
+         *
+         * @return the byte[]
+         */
+        byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+    }
+
+    /**
+     * Class loader to define generated classes.
+     */
+    private static class GeneratedClassLoader extends ClassLoader {
+
+        /** The shared classes. */
+        private final Map<String, Class<?>> sharedClasses = new HashMap<String, Class<?>>();
+
+        /**
+         * Instantiates a new generated class loader.
+         *
+         * @param parent the parent
+         * @param classes the shared classes
+         */
+        GeneratedClassLoader(ClassLoader parent, Class<?>... classes) {
+            super(parent);
+            for (Class<?> cls : classes) {
+                sharedClasses.put(cls.getName(), cls);
+            }
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see java.lang.ClassLoader#loadClass(java.lang.String, boolean)
+         */
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            Class<?> cls = sharedClasses.get(name);
+            if (cls != null) {
+                return cls;
+            }
+            return super.loadClass(name, resolve);
+        }
+
+        /**
+         * Define class.
+         *
+         * @param name the name
+         * @param bytes the bytes
+         * @return the class
+         */
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
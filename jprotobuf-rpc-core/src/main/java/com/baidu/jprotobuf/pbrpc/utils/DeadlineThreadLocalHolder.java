@@ -0,0 +1,69 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.utils;
+
+/**
+ * Hold deadline of current RPC request under current thread local. Service implementation could use
+ * {@link #getRemainingTime()} as timeout of its own downstream calls.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class DeadlineThreadLocalHolder {
+
+    /** deadline holder, absolute time in milliseconds. */
+    private static final ThreadLocal<Long> DEADLINE_HOLDER = new ThreadLocal<Long>();
+
+    /**
+     * Sets the deadline.
+     *
+     * @param deadline the new deadline in milliseconds of {@link System#currentTimeMillis()}
+     */
+    public static void setDeadline(Long deadline) {
+        if (deadline != null) {
+            DEADLINE_HOLDER.set(deadline);
+        }
+    }
+
+    /**
+     * Gets the deadline.
+     *
+     * @return the deadline, or null if client does not carry timeout
+     */
+    public static Long getDeadline() {
+        return DEADLINE_HOLDER.get();
+    }
+
+    /**
+     * Gets the remaining time before deadline.
+     *
+     * @return the remaining time in milliseconds, 0 if already expired, or -1 if no deadline set
+     */
+    public static long getRemainingTime() {
+        Long deadline = DEADLINE_HOLDER.get();
+        if (deadline == null) {
+            return -1;
+        }
+        return Math.max(0, deadline - System.currentTimeMillis());
+    }
+
+    /**
+     * clear current deadline under current thread scope.
+     */
+    public static void clearDeadline() {
+        DEADLINE_HOLDER.remove();
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2002-2007 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.utils;
+
+import com.baidu.jprotobuf.pbrpc.transport.ProtocolFeatures;
+
+/**
+ * Hold {@link ProtocolFeatures} of the connection which current RPC request comes from under current thread local, so
+ * handshake service could agree features of the connection.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class ProtocolFeaturesThreadLocalHolder {
+
+    /** protocol features holder. */
+    private static final ThreadLocal<ProtocolFeatures> PROTOCOL_FEATURES_HOLDER = new ThreadLocal<ProtocolFeatures>();
+
+    /**
+     * Sets the protocol features.
+     *
+     * @param protocolFeatures the new protocol features
+     */
+    public static void setProtocolFeatures(ProtocolFeatures protocolFeatures) {
+        if (protocolFeatures != null) {
+            PROTOCOL_FEATURES_HOLDER.set(protocolFeatures);
+        }
+    }
+
+    /**
+     * Gets the protocol features.
+     *
+     * @return the protocol features, or null if not called from RPC request
+     */
+    public static ProtocolFeatures getProtocolFeatures() {
+        return PROTOCOL_FEATURES_HOLDER.get();
+    }
+
+    /**
+     * clear current protocol features under current thread scope.
+     */
+    public static void clearProtocolFeatures() {
+        PROTOCOL_FEATURES_HOLDER.remove();
+    }
+}
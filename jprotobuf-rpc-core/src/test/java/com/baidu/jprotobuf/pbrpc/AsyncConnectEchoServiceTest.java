@@ -0,0 +1,74 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.baidu.jprotobuf.pbrpc.client.ProtobufRpcProxy;
+import com.baidu.jprotobuf.pbrpc.transport.EndpointStats;
+import com.baidu.jprotobuf.pbrpc.transport.RpcClient;
+import com.baidu.jprotobuf.pbrpc.transport.RpcClientOptions;
+
+/**
+ * Test case for asynchronous connect and connection prewarm.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class AsyncConnectEchoServiceTest extends EchoServiceTest {
+
+    /* (non-Javadoc)
+     * @see com.baidu.jprotobuf.pbrpc.BaseEchoServiceTest#getRpcClientOptions()
+     */
+    @Override
+    protected RpcClientOptions getRpcClientOptions() {
+        RpcClientOptions rpcClientOptions = new RpcClientOptions();
+        rpcClientOptions.setAsyncConnect(true);
+        rpcClientOptions.setPrewarmConnections(true);
+        rpcClientOptions.setMinIdleSize(2);
+        return rpcClientOptions;
+    }
+
+    @Test
+    public void testPrewarm() {
+        EndpointStats stats = rpcClient.getChannelPoolRegistry().getStats(rpcClient).get(0);
+        Assert.assertTrue(stats.getCreatedCount() >= 2);
+    }
+
+    @Test
+    public void testFailFastOnConnectRefused() {
+        RpcClientOptions options = getRpcClientOptions();
+        options.setOnceTalkTimeout(10000);
+        RpcClient client = new RpcClient(options);
+        ProtobufRpcProxy<EchoService> proxy = new ProtobufRpcProxy<EchoService>(client, EchoService.class);
+        proxy.setPort(PORT + 1);
+        EchoService service = proxy.proxy();
+
+        long start = System.currentTimeMillis();
+        try {
+            EchoInfo echoInfo = new EchoInfo();
+            echoInfo.setMessage("hello");
+            service.echo(echoInfo);
+            Assert.fail("connect should be refused");
+        } catch (Exception e) {
+            Assert.assertTrue(System.currentTimeMillis() - start < 5000);
+        } finally {
+            proxy.close();
+            client.shutdown();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc;
+
+import java.lang.reflect.Proxy;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.baidu.jprotobuf.pbrpc.client.ServiceUrlAccessible;
+import com.baidu.jprotobuf.pbrpc.transport.RpcClientOptions;
+
+/**
+ * Test case for client proxy of generated stub class.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class GeneratedStubEchoServiceTest extends EchoServiceTest {
+
+    /* (non-Javadoc)
+     * @see com.baidu.jprotobuf.pbrpc.BaseEchoServiceTest#getRpcClientOptions()
+     */
+    @Override
+    protected RpcClientOptions getRpcClientOptions() {
+        RpcClientOptions rpcClientOptions = new RpcClientOptions();
+        rpcClientOptions.setGeneratedStub(true);
+        return rpcClientOptions;
+    }
+
+    @Test
+    public void testGeneratedStub() {
+        Assert.assertFalse(Proxy.isProxyClass(echoService.getClass()));
+        Assert.assertNotNull(((ServiceUrlAccessible) echoService).getServiceUrl());
+    }
+}
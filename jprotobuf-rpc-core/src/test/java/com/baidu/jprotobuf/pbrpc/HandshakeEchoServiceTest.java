@@ -0,0 +1,86 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.baidu.jprotobuf.pbrpc.client.ProtobufRpcProxy;
+import com.baidu.jprotobuf.pbrpc.data.RpcMeta;
+import com.baidu.jprotobuf.pbrpc.meta.RpcHandshake;
+import com.baidu.jprotobuf.pbrpc.meta.RpcServiceMetaService;
+import com.baidu.jprotobuf.pbrpc.transport.RpcClientOptions;
+
+/**
+ * Test case for client agreeing protocol features with server by handshake.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class HandshakeEchoServiceTest extends EchoServiceTest {
+
+    /* (non-Javadoc)
+     * @see com.baidu.jprotobuf.pbrpc.BaseEchoServiceTest#getRpcClientOptions()
+     */
+    @Override
+    protected RpcClientOptions getRpcClientOptions() {
+        RpcClientOptions rpcClientOptions = new RpcClientOptions();
+        rpcClientOptions.setHandshake(true);
+        rpcClientOptions.setMethodIdDispatch(true);
+        rpcClientOptions.setSlimResponseMeta(true);
+        return rpcClientOptions;
+    }
+
+    @Test
+    public void testHandshake() {
+        ProtobufRpcProxy<RpcServiceMetaService> pbrpcProxy =
+                new ProtobufRpcProxy<RpcServiceMetaService>(rpcClient, RpcServiceMetaService.class);
+        pbrpcProxy.setPort(PORT);
+        try {
+            RpcHandshake offer = new RpcHandshake();
+            offer.setVersion(RpcHandshake.CURRENT_VERSION);
+            offer.setMethodIdDispatch(true);
+            offer.setSlimResponseMeta(true);
+            offer.setCompressTypes(Arrays.asList(RpcMeta.COMPRESS_NO, RpcMeta.COMPERESS_GZIP, 99));
+            offer.setMaxFrameSize(1024);
+
+            RpcHandshake answer = pbrpcProxy.proxy().handshake(offer);
+            Assert.assertEquals(Integer.valueOf(RpcHandshake.CURRENT_VERSION), answer.getVersion());
+            Assert.assertEquals(Boolean.TRUE, answer.getMethodIdDispatch());
+            Assert.assertEquals(Boolean.TRUE, answer.getSlimResponseMeta());
+            Assert.assertEquals(Boolean.FALSE, answer.getMultiplexing());
+            Assert.assertEquals(Arrays.asList(RpcMeta.COMPRESS_NO, RpcMeta.COMPERESS_GZIP), answer.getCompressTypes());
+            Assert.assertEquals(Integer.valueOf(1024), answer.getMaxFrameSize());
+            Assert.assertFalse(answer.getMethodIds().isEmpty());
+        } finally {
+            pbrpcProxy.close();
+        }
+    }
+
+    @Test
+    public void testEchoAfterHandshake() throws Exception {
+        EchoInfo echoInfo = new EchoInfo();
+        echoInfo.setMessage("hello");
+        String expected = new EchoServiceImpl().doEcho(echoInfo).getMessage();
+        // first calls may be sent before handshake is answered
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(expected, echoService.echo(echoInfo).getMessage());
+            Thread.sleep(10);
+        }
+    }
+}
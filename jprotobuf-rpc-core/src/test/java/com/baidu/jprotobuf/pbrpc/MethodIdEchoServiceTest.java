@@ -0,0 +1,81 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.baidu.jprotobuf.pbrpc.client.ProtobufRpcProxy;
+import com.baidu.jprotobuf.pbrpc.meta.RpcMethodIdMeta;
+import com.baidu.jprotobuf.pbrpc.meta.RpcServiceMetaService;
+import com.baidu.jprotobuf.pbrpc.transport.RpcClientOptions;
+
+/**
+ * Test case for client sending method id instead of service name and method name.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class MethodIdEchoServiceTest extends EchoServiceTest {
+
+    /* (non-Javadoc)
+     * @see com.baidu.jprotobuf.pbrpc.BaseEchoServiceTest#getRpcClientOptions()
+     */
+    @Override
+    protected RpcClientOptions getRpcClientOptions() {
+        RpcClientOptions rpcClientOptions = new RpcClientOptions();
+        rpcClientOptions.setMethodIdDispatch(true);
+        return rpcClientOptions;
+    }
+
+    @Test
+    public void testGetRpcMethodIdMetas() {
+        ProtobufRpcProxy<RpcServiceMetaService> pbrpcProxy =
+                new ProtobufRpcProxy<RpcServiceMetaService>(rpcClient, RpcServiceMetaService.class);
+        pbrpcProxy.setPort(PORT);
+        try {
+            RpcServiceMetaService proxy = pbrpcProxy.proxy();
+            List<RpcMethodIdMeta> metas = proxy.getRpcMethodIdMetas().getRpcMethodIdMetas();
+            Assert.assertNotNull(metas);
+
+            boolean found = false;
+            for (RpcMethodIdMeta meta : metas) {
+                Assert.assertSame(rpcServer.getRpcServiceRegistry().lookupService(meta.getMethodId()),
+                        rpcServer.getRpcServiceRegistry().lookupService(meta.getServiceName(), meta.getMethodName()));
+                if ("echoService".equals(meta.getServiceName()) && "echo".equals(meta.getMethodName())) {
+                    found = true;
+                }
+            }
+            Assert.assertTrue(found);
+        } finally {
+            pbrpcProxy.close();
+        }
+    }
+
+    @Test
+    public void testEchoByMethodId() throws Exception {
+        EchoInfo echoInfo = new EchoInfo();
+        echoInfo.setMessage("hello");
+        String expected = new EchoServiceImpl().doEcho(echoInfo).getMessage();
+        // first calls may be sent by names until method ids are fetched
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(expected, echoService.echo(echoInfo).getMessage());
+            Thread.sleep(10);
+        }
+    }
+}
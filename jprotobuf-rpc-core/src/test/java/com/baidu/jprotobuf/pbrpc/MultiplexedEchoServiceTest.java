@@ -0,0 +1,85 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.baidu.jprotobuf.pbrpc.transport.RpcClientOptions;
+
+import junit.framework.Assert;
+
+/**
+ * Test case for multiplexed connections mode.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class MultiplexedEchoServiceTest extends EchoServiceTest {
+
+    /* (non-Javadoc)
+     * @see com.baidu.jprotobuf.pbrpc.BaseEchoServiceTest#getRpcClientOptions()
+     */
+    @Override
+    protected RpcClientOptions getRpcClientOptions() {
+        RpcClientOptions rpcClientOptions = new RpcClientOptions();
+        rpcClientOptions.setMultiplexed(true);
+        rpcClientOptions.setMultiplexConnections(1);
+        rpcClientOptions.setOnceTalkTimeout(5000);
+        return rpcClientOptions;
+    }
+
+    /**
+     * many concurrent calls should share the single connection.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    public void testConcurrentCallsOnSharedConnection() throws Exception {
+        int count = 50;
+        ExecutorService es = Executors.newFixedThreadPool(count);
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int i = 0; i < count; i++) {
+                final String message = "hello" + i;
+                results.add(es.submit(new Callable<String>() {
+
+                    @Override
+                    public String call() throws Exception {
+                        EchoInfo echoInfo = new EchoInfo();
+                        echoInfo.setMessage(message);
+                        return echoService.echo(echoInfo).getMessage();
+                    }
+                }));
+            }
+
+            EchoServiceImpl echoServiceImpl = new EchoServiceImpl();
+            for (int i = 0; i < count; i++) {
+                EchoInfo echoInfo = new EchoInfo();
+                echoInfo.setMessage("hello" + i);
+                Assert.assertEquals(echoServiceImpl.doEcho(echoInfo).getMessage(), results.get(i).get());
+            }
+        } finally {
+            es.shutdown();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.baidu.jprotobuf.pbrpc.client.RpcFuture;
+import com.baidu.jprotobuf.pbrpc.client.RpcFutureListener;
+
+/**
+ * Test case for listener of {@link RpcFuture} returned by asynchronous call.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class RpcFutureEchoServiceTest extends EchoServiceTest {
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testAyncCallWithListener() throws Exception {
+        EchoInfo echoInfo = new EchoInfo();
+        echoInfo.setMessage("xiemalin");
+
+        EchoServiceImpl ecohImpl = new EchoServiceImpl();
+
+        Future<EchoInfo> echoAsync = echoService.echoAsync(echoInfo);
+        Assert.assertTrue(echoAsync instanceof RpcFuture);
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<EchoInfo> result = new AtomicReference<EchoInfo>();
+        ((RpcFuture<EchoInfo>) echoAsync).addListener(new RpcFutureListener<EchoInfo>() {
+
+            @Override
+            public void onSuccess(EchoInfo r) {
+                result.set(r);
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                latch.countDown();
+            }
+        });
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(ecohImpl.doEcho(echoInfo).getMessage(), result.get().getMessage());
+        Assert.assertEquals(ecohImpl.doEcho(echoInfo).getMessage(),
+                echoAsync.get(1, TimeUnit.SECONDS).getMessage());
+    }
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc;
+
+import com.baidu.jprotobuf.pbrpc.transport.RpcServerOptions;
+
+/**
+ * Test case for server sending slim response meta without request meta echoed back.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class SlimResponseEchoServiceTest extends EchoServiceTest {
+
+    /* (non-Javadoc)
+     * @see com.baidu.jprotobuf.pbrpc.BaseEchoServiceTest#getRpcServerOptions()
+     */
+    @Override
+    protected RpcServerOptions getRpcServerOptions() {
+        RpcServerOptions rpcServerOptions = new RpcServerOptions();
+        rpcServerOptions.setSlimResponseMeta(true);
+        return rpcServerOptions;
+    }
+}
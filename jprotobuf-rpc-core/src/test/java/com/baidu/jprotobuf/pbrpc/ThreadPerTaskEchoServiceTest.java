@@ -0,0 +1,63 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.baidu.jprotobuf.pbrpc.server.ThreadPerTaskExecutorServiceFactory;
+import com.baidu.jprotobuf.pbrpc.transport.RpcServerOptions;
+
+/**
+ * Test case for server tasks executed by {@link ThreadPerTaskExecutorServiceFactory}.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class ThreadPerTaskEchoServiceTest extends EchoServiceTest {
+
+    /* (non-Javadoc)
+     * @see com.baidu.jprotobuf.pbrpc.BaseEchoServiceTest#getRpcServerOptions()
+     */
+    @Override
+    protected RpcServerOptions getRpcServerOptions() {
+        RpcServerOptions rpcServerOptions = new RpcServerOptions();
+        rpcServerOptions.setExecutorServiceFactory(new ThreadPerTaskExecutorServiceFactory());
+        return rpcServerOptions;
+    }
+
+    @Test
+    public void testExecutorService() {
+        Assert.assertNotNull(rpcServer.getExecutorService());
+        Assert.assertNotNull(rpcServer.getTaskAdmissionController());
+    }
+
+    @Test
+    public void testPlatformThreadFallback() {
+        ThreadPerTaskExecutorServiceFactory factory = new ThreadPerTaskExecutorServiceFactory();
+        factory.setVirtualThreadEnabled(false);
+        ExecutorService es = factory.createExecutorService(new RpcServerOptions());
+        try {
+            Assert.assertTrue(es instanceof ThreadPoolExecutor);
+            Assert.assertEquals(Integer.MAX_VALUE, ((ThreadPoolExecutor) es).getMaximumPoolSize());
+        } finally {
+            es.shutdown();
+        }
+    }
+}
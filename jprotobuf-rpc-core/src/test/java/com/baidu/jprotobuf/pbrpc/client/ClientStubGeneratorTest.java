@@ -0,0 +1,143 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.client;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for {@link ClientStubGenerator}.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class ClientStubGeneratorTest {
+
+    /**
+     * Public service interface.
+     */
+    public interface Service {
+
+        String echo(String message) throws IOException;
+
+        void ping();
+
+        long sum(int a, long b, double c, boolean d);
+    }
+
+    /**
+     * Non public service interface.
+     */
+    interface HiddenService {
+
+        String echo(String message);
+    }
+
+    private Method[] methods;
+
+    private int lastIndex;
+
+    private Object[] lastArgs;
+
+    private Object result;
+
+    private StubInvocationHandler handler = new StubInvocationHandler() {
+
+        @Override
+        public Object invoke(Object stub, int methodIndex, Object[] args) throws Throwable {
+            lastIndex = methodIndex;
+            lastArgs = args;
+            if (result instanceof Throwable) {
+                throw (Throwable) result;
+            }
+            return result;
+        }
+
+        @Override
+        public String getServiceUrl() {
+            return "localhost:1031";
+        }
+    };
+
+    @Before
+    public void setUp() {
+        methods = Service.class.getMethods();
+    }
+
+    private int indexOf(String name) {
+        for (int i = 0; i < methods.length; i++) {
+            if (methods[i].getName().equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    @Test
+    public void testInvoke() throws Exception {
+        Service stub = ClientStubGenerator.create(Service.class, methods, handler);
+        Assert.assertNotNull(stub);
+
+        result = "hello";
+        Assert.assertEquals("hello", stub.echo("world"));
+        Assert.assertEquals(indexOf("echo"), lastIndex);
+        Assert.assertTrue(Arrays.equals(new Object[] { "world" }, lastArgs));
+
+        stub.ping();
+        Assert.assertEquals(indexOf("ping"), lastIndex);
+        Assert.assertNull(lastArgs);
+    }
+
+    @Test
+    public void testPrimitiveTypes() {
+        Service stub = ClientStubGenerator.create(Service.class, methods, handler);
+        result = Long.valueOf(100L);
+        Assert.assertEquals(100L, stub.sum(1, 2L, 3.0d, true));
+        Assert.assertEquals(indexOf("sum"), lastIndex);
+        Assert.assertTrue(Arrays.equals(new Object[] { 1, 2L, 3.0d, true }, lastArgs));
+    }
+
+    @Test
+    public void testExceptionThrown() {
+        Service stub = ClientStubGenerator.create(Service.class, methods, handler);
+        result = new IOException("error");
+        try {
+            stub.echo("world");
+            Assert.fail("exception should be thrown");
+        } catch (IOException e) {
+            Assert.assertEquals("error", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testServiceUrl() {
+        Service stub = ClientStubGenerator.create(Service.class, methods, handler);
+        Assert.assertTrue(stub instanceof ServiceUrlAccessible);
+        Assert.assertEquals("localhost:1031", ((ServiceUrlAccessible) stub).getServiceUrl());
+        Assert.assertEquals("localhost:1031", stub.toString());
+        Assert.assertEquals("localhost:1031".hashCode(), stub.hashCode());
+    }
+
+    @Test
+    public void testNonPublicInterface() {
+        Assert.assertNull(ClientStubGenerator.create(HiddenService.class, HiddenService.class.getMethods(), handler));
+    }
+}
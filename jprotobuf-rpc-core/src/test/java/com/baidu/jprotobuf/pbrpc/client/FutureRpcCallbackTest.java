@@ -0,0 +1,58 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.client;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.baidu.jprotobuf.pbrpc.data.LazyRpcDataPackage;
+import com.baidu.jprotobuf.pbrpc.data.RpcDataPackage;
+import com.baidu.jprotobuf.pbrpc.data.RpcDataPackageTest;
+import com.baidu.jprotobuf.pbrpc.data.RpcHeadMeta;
+
+/**
+ * Test class for {@link FutureRpcCallback}.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class FutureRpcCallbackTest {
+
+    @Test
+    public void testReleaseResponseOfCancelledCall() {
+        RpcDataPackage rpcDataPackage = new RpcDataPackageTest().getDataPackage();
+        rpcDataPackage.errorCode(0);
+        ByteBuf buf = Unpooled.wrappedBuffer(rpcDataPackage.write());
+        byte[] head = new byte[RpcHeadMeta.SIZE];
+        buf.getBytes(buf.readerIndex(), head);
+        RpcHeadMeta headMeta = new RpcHeadMeta();
+        headMeta.read(head);
+        LazyRpcDataPackage response = LazyRpcDataPackage.read(buf, headMeta);
+        buf.release();
+        Assert.assertEquals(1, buf.refCnt());
+
+        RpcFuture<Object> future = new RpcFuture<Object>(null, 1L);
+        Assert.assertTrue(future.cancel(true));
+
+        // response arrives after call is cancelled
+        new FutureRpcCallback(future, null, null, null, null).run(response);
+        Assert.assertEquals(0, buf.refCnt());
+        Assert.assertTrue(future.isCancelled());
+    }
+}
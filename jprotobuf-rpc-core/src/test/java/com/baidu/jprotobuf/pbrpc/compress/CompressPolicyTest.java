@@ -0,0 +1,118 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.compress;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.baidu.jprotobuf.pbrpc.data.RpcMeta;
+import com.baidu.jprotobuf.pbrpc.meta.RpcHandshake;
+import com.baidu.jprotobuf.pbrpc.transport.ProtocolFeatures;
+
+/**
+ * Test class for {@link CompressPolicy}.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class CompressPolicyTest {
+
+    private static final String METHOD = "echoService!echo";
+
+    @Test
+    public void testMinSize() {
+        CompressPolicy policy = new CompressPolicy(100, false, -1);
+        Assert.assertEquals(RpcMeta.COMPRESS_NO, policy.select(null, METHOD, RpcMeta.COMPERESS_GZIP, 99));
+        Assert.assertEquals(RpcMeta.COMPERESS_GZIP, policy.select(null, METHOD, RpcMeta.COMPERESS_GZIP, 100));
+        Assert.assertEquals(RpcMeta.COMPRESS_NO, policy.select(null, METHOD, RpcMeta.COMPRESS_NO, 1000));
+        Assert.assertEquals(RpcMeta.COMPRESS_NO, policy.select(null, null, RpcMeta.COMPERESS_GZIP, 10));
+        Assert.assertEquals(1, policy.getStats().get(METHOD).getSkippedCount());
+    }
+
+    @Test
+    public void testTurnOffIncompressible() {
+        CompressPolicy policy = new CompressPolicy(0, true, -1);
+        policy.setProbeInterval(4);
+        Assert.assertEquals(RpcMeta.COMPERESS_GZIP, policy.select(null, METHOD, RpcMeta.COMPERESS_GZIP, 1000));
+        for (int i = 0; i < 20; i++) {
+            policy.record(METHOD, 1000, 1010, 1000L);
+        }
+        CompressStats stats = policy.getStats().get(METHOD);
+        Assert.assertTrue(stats.isDisabled());
+
+        // only probes are compressed while turned off
+        int compressed = 0;
+        for (int i = 0; i < 8; i++) {
+            if (policy.select(null, METHOD, RpcMeta.COMPERESS_GZIP, 1000) != RpcMeta.COMPRESS_NO) {
+                compressed++;
+            }
+        }
+        Assert.assertEquals(2, compressed);
+        Assert.assertEquals(6, stats.getSkippedCount());
+
+        // a probe shrinking payload well turns compression on again
+        policy.record(METHOD, 1000, 200, 1000L);
+        Assert.assertFalse(stats.isDisabled());
+        Assert.assertEquals(RpcMeta.COMPERESS_GZIP, policy.select(null, METHOD, RpcMeta.COMPERESS_GZIP, 1000));
+        Assert.assertEquals(21, stats.getCompressedCount());
+    }
+
+    @Test
+    public void testKeepCompressible() {
+        CompressPolicy policy = new CompressPolicy(0, true, -1);
+        for (int i = 0; i < 100; i++) {
+            policy.record(METHOD, 1000, 300, 1000L);
+        }
+        CompressStats stats = policy.getStats().get(METHOD);
+        Assert.assertFalse(stats.isDisabled());
+        Assert.assertEquals(0.3d, stats.getRatio(), 0.001d);
+        Assert.assertEquals(0.3d, stats.getRecentRatio(), 0.001d);
+    }
+
+    @Test
+    public void testBusyCompressType() {
+        final boolean[] busy = new boolean[] { false };
+        CompressPolicy policy = new CompressPolicy(0, false, RpcMeta.COMPRESS_LZ4) {
+            @Override
+            protected boolean isBusy() {
+                return busy[0];
+            }
+        };
+        ProtocolFeatures agreed = handshake(RpcMeta.COMPERESS_GZIP, RpcMeta.COMPRESS_LZ4);
+        Assert.assertEquals(RpcMeta.COMPERESS_GZIP, policy.select(agreed, METHOD, RpcMeta.COMPERESS_GZIP, 1000));
+        busy[0] = true;
+        Assert.assertEquals(RpcMeta.COMPRESS_LZ4, policy.select(agreed, METHOD, RpcMeta.COMPERESS_GZIP, 1000));
+        // only GZIP is replaced
+        Assert.assertEquals(RpcMeta.COMPRESS_SNAPPY, policy.select(agreed, METHOD, RpcMeta.COMPRESS_SNAPPY, 1000));
+
+        // never replaced if peer did not agree on busy compress type or did no handshake
+        ProtocolFeatures notAgreed = handshake(RpcMeta.COMPERESS_GZIP);
+        Assert.assertEquals(RpcMeta.COMPERESS_GZIP, policy.select(notAgreed, METHOD, RpcMeta.COMPERESS_GZIP, 1000));
+        Assert.assertEquals(RpcMeta.COMPERESS_GZIP,
+                policy.select(new ProtocolFeatures(), METHOD, RpcMeta.COMPERESS_GZIP, 1000));
+        Assert.assertEquals(RpcMeta.COMPERESS_GZIP, policy.select(null, METHOD, RpcMeta.COMPERESS_GZIP, 1000));
+    }
+
+    private ProtocolFeatures handshake(Integer... compressTypes) {
+        RpcHandshake answer = new RpcHandshake();
+        answer.setCompressTypes(Arrays.asList(compressTypes));
+        ProtocolFeatures protocolFeatures = new ProtocolFeatures();
+        protocolFeatures.apply(answer);
+        return protocolFeatures;
+    }
+}
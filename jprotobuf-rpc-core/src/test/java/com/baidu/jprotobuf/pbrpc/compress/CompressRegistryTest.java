@@ -0,0 +1,137 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.compress;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.baidu.jprotobuf.pbrpc.data.RpcMeta;
+
+/**
+ * Test class for {@link CompressRegistry} and {@link ByteBufCompress} of built-in codecs.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class CompressRegistryTest {
+
+    private static final int[] BUILT_IN_TYPES =
+            new int[] { RpcMeta.COMPRESS_SNAPPY, RpcMeta.COMPERESS_GZIP, RpcMeta.COMPRESS_LZ4 };
+
+    private byte[] createData(int size) {
+        Random random = new Random(size);
+        String[] words = new String[] { "user", "id", "name", "timestamp", "value", "status" };
+        byte[] data = new byte[size];
+        int pos = 0;
+        while (pos < size) {
+            byte[] word = (words[random.nextInt(words.length)] + ":" + random.nextInt(1000) + ",").getBytes();
+            for (int i = 0; i < word.length && pos < size; i++) {
+                data[pos++] = word[i];
+            }
+        }
+        return data;
+    }
+
+    @Test
+    public void testBuiltInCompress() {
+        Assert.assertNull(CompressRegistry.getCompress(RpcMeta.COMPRESS_NO));
+        Assert.assertNull(CompressRegistry.getCompress(99));
+        Assert.assertNull(CompressRegistry.getCompress(-1));
+        for (int type : BUILT_IN_TYPES) {
+            Assert.assertEquals(type, CompressRegistry.getCompress(type).getCompressType());
+            Assert.assertTrue(CompressRegistry.getCompressTypes().contains(type));
+        }
+        Assert.assertTrue(CompressRegistry.isSupported(RpcMeta.COMPRESS_NO));
+        Assert.assertFalse(CompressRegistry.isSupported(99));
+        Assert.assertEquals(Integer.valueOf(RpcMeta.COMPRESS_NO), CompressRegistry.getCompressTypes().get(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRegisterInvalidType() {
+        CompressRegistry.register(new Lz4Compress() {
+            @Override
+            public int getCompressType() {
+                return RpcMeta.COMPRESS_NO;
+            }
+        });
+    }
+
+    @Test
+    public void testByteBufCompress() throws IOException {
+        for (int size : new int[] { 0, 1, 13, 100, 4096, 300000 }) {
+            byte[] data = createData(size);
+            for (int type : BUILT_IN_TYPES) {
+                ByteBufCompress compress = CompressRegistry.getCompress(type);
+
+                // readable bytes not at start of array
+                ByteBuf in = Unpooled.buffer(size + 8);
+                in.writeLong(0L);
+                in.writeBytes(data);
+                in.skipBytes(8);
+                ByteBuf compressed = Unpooled.directBuffer();
+                compress.compress(in, compressed);
+                Assert.assertEquals(0, in.readableBytes());
+
+                ByteBuf out = Unpooled.buffer(1);
+                compress.unCompress(compressed, out);
+                Assert.assertEquals(0, compressed.readableBytes());
+                byte[] result = new byte[out.readableBytes()];
+                out.readBytes(result);
+                Assert.assertArrayEquals("type " + type + " size " + size, data, result);
+
+                compressed.release();
+                in.release();
+                out.release();
+            }
+        }
+    }
+
+    @Test
+    public void testUnCompressJdkGZip() throws IOException {
+        byte[] data = createData(10000);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(bytes);
+        gzip.write(data);
+        gzip.close();
+
+        Assert.assertArrayEquals(data, new GZipCompress().unCompress(bytes.toByteArray()));
+    }
+
+    @Test
+    public void testUnCompressCorruptLz4() throws IOException {
+        Lz4Compress compress = new Lz4Compress();
+        byte[] compressed = compress.compress(createData(10000));
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            byte[] corrupt = Arrays.copyOf(compressed, 4 + 1 + random.nextInt(compressed.length - 4));
+            corrupt[4 + random.nextInt(corrupt.length - 4)] = (byte) random.nextInt();
+            try {
+                compress.unCompress(corrupt);
+            } catch (IOException e) {
+                // expected, must never throw index out of bounds
+            }
+        }
+    }
+}
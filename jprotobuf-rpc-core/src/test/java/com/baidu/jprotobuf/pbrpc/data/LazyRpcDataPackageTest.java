@@ -0,0 +1,79 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.data;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for {@link LazyRpcDataPackage}.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class LazyRpcDataPackageTest {
+
+    private ByteBuf getFrame(RpcDataPackage rpcDataPackage) {
+        return Unpooled.wrappedBuffer(rpcDataPackage.write());
+    }
+
+    private RpcHeadMeta readHead(ByteBuf buf) {
+        byte[] head = new byte[RpcHeadMeta.SIZE];
+        buf.getBytes(buf.readerIndex(), head);
+        RpcHeadMeta headMeta = new RpcHeadMeta();
+        headMeta.read(head);
+        return headMeta;
+    }
+
+    @Test
+    public void testRead() {
+        RpcDataPackage rpcDataPackage = new RpcDataPackageTest().getDataPackage();
+        rpcDataPackage.attachment(new byte[] { 7, 7, 7 });
+
+        ByteBuf buf = getFrame(rpcDataPackage);
+        LazyRpcDataPackage lazy = LazyRpcDataPackage.read(buf, readHead(buf));
+        Assert.assertEquals(0, buf.readableBytes());
+        buf.release();
+
+        // slices still retained
+        Assert.assertEquals(1, buf.refCnt());
+
+        new RpcMetaTest().assertEquals(rpcDataPackage.getRpcMeta(), lazy.getRpcMeta());
+        Assert.assertArrayEquals(rpcDataPackage.getData(), lazy.getData());
+        Assert.assertArrayEquals(rpcDataPackage.getAttachment(), lazy.getAttachment());
+
+        Assert.assertEquals(0, buf.refCnt());
+    }
+
+    @Test
+    public void testRelease() {
+        RpcDataPackage rpcDataPackage = new RpcDataPackageTest().getDataPackage();
+        rpcDataPackage.attachment(new byte[] { 7, 7, 7 });
+
+        ByteBuf buf = getFrame(rpcDataPackage);
+        LazyRpcDataPackage lazy = LazyRpcDataPackage.read(buf, readHead(buf));
+        buf.release();
+
+        lazy.data(new byte[] { 1 });
+        lazy.release();
+        Assert.assertEquals(0, buf.refCnt());
+        Assert.assertArrayEquals(new byte[] { 1 }, lazy.getData());
+        Assert.assertNull(lazy.getAttachment());
+    }
+}
@@ -71,6 +71,21 @@ public class RpcDataPackageTest {
         
     }
     
+    @Test
+    public void testServiceSignature() {
+        RpcDataPackage dataPackage = new RpcDataPackage();
+        Assert.assertNull(dataPackage.getServiceSignature());
+
+        dataPackage.serviceName("echoService").methodName("echo");
+        Assert.assertEquals("echoService!echo", dataPackage.getServiceSignature());
+
+        // kept after request meta is removed
+        dataPackage.slimResponseMeta();
+        Assert.assertNull(dataPackage.getRpcMeta().getRequest());
+        Assert.assertEquals("echoService!echo", dataPackage.getServiceSignature());
+        Assert.assertEquals("echoService!echo", dataPackage.copy().getServiceSignature());
+    }
+    
     @Test
     public void testChunk2() {
         
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.data;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.baidu.bjf.remoting.protobuf.Codec;
+import com.baidu.bjf.remoting.protobuf.ProtobufProxy;
+
+/**
+ * Test class for {@link RpcMetaCodec}.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class RpcMetaCodecTest extends RpcMetaTest {
+
+    @Test
+    public void testCompatibleWithProtobufCodec() throws IOException {
+        Codec<RpcMeta> codec = ProtobufProxy.create(RpcMeta.class);
+        RpcMeta meta = getRpcMeta();
+
+        RpcMeta meta2 = new RpcMeta();
+        RpcMetaCodec.decode(codec.encode(meta), meta2);
+        assertEquals(meta, meta2);
+
+        assertEquals(meta, codec.decode(RpcMetaCodec.encode(meta)));
+    }
+
+    @Test
+    public void testRequestCompatibleWithProtobufCodec() throws IOException {
+        Codec<RpcRequestMeta> codec = ProtobufProxy.create(RpcRequestMeta.class);
+        RpcRequestMeta request = new RpcRequestMeta();
+        request.setServiceName("服务");
+        request.setMethodName("echo");
+        request.setLogId(-1L);
+        request.setExtraParam(new byte[] { 1, 2 });
+        request.setTimeout(1500L);
+        request.setMethodId(3);
+
+        RpcRequestMeta request2 = codec.decode(RpcMetaCodec.encode(request));
+        Assert.assertEquals("服务", request2.getSerivceName());
+        Assert.assertEquals(Long.valueOf(1500L), request2.getTimeout());
+        Assert.assertEquals(Integer.valueOf(3), request2.getMethodId());
+
+        RpcRequestMeta request3 = new RpcRequestMeta();
+        RpcMetaCodec.decode(codec.encode(request), request3);
+        Assert.assertEquals("echo", request3.getMethodName());
+        Assert.assertEquals(Long.valueOf(-1L), request3.getLogId());
+        Assert.assertArrayEquals(new byte[] { 1, 2 }, request3.getExtraParam());
+        Assert.assertEquals(Long.valueOf(1500L), request3.getTimeout());
+        Assert.assertEquals(Integer.valueOf(3), request3.getMethodId());
+    }
+
+    @Test
+    public void testWriteReadByteBuf() throws IOException {
+        RpcMeta meta = getRpcMeta();
+        int size = RpcMetaCodec.computeSize(meta);
+
+        ByteBuf buf = Unpooled.buffer();
+        buf.writeInt(0);
+        RpcMetaCodec.write(meta, buf);
+        buf.writeInt(0);
+        Assert.assertEquals(size + 8, buf.readableBytes());
+
+        buf.skipBytes(4);
+        RpcMeta meta2 = new RpcMeta();
+        RpcMetaCodec.read(buf, size, meta2);
+        Assert.assertEquals(4, buf.readableBytes());
+        assertEquals(meta, meta2);
+    }
+
+    @Test
+    public void testWriteWithTemplate() throws IOException {
+        RpcMeta meta = getRpcMeta();
+        RpcRequestMeta request = meta.getRequest();
+        request.setTimeout(300L);
+        request.setMethodId(2);
+        RpcMetaTemplate template = new RpcMetaTemplate(request.getSerivceName(), request.getMethodName());
+
+        int size = RpcMetaCodec.computeSize(meta, template);
+        Assert.assertEquals(RpcMetaCodec.computeSize(meta), size);
+
+        ByteBuf buf = Unpooled.buffer();
+        RpcMetaCodec.write(meta, template, buf);
+        byte[] bytes = new byte[buf.readableBytes()];
+        buf.readBytes(bytes);
+        Assert.assertArrayEquals(RpcMetaCodec.encode(meta), bytes);
+
+        // equal but not the same instance, template is not applied
+        request.setServiceName(new String(request.getSerivceName()));
+        Assert.assertFalse(template.isApplicable(request));
+        buf.clear();
+        RpcMetaCodec.write(meta, template, buf);
+        Assert.assertEquals(size, buf.readableBytes());
+    }
+
+    @Test
+    public void testSkipUnknownFields() throws IOException {
+        // trace_id = 4 and span_id = 5 sent by brpc, fixed32 field 20, fixed64 field 21, timeout_ms = 8
+        byte[] bytes = new byte[] { 0x0a, 1, 's', 0x12, 1, 'm', 0x20, 0x05, 0x28, 0x06, (byte) 0xa5, 0x01, 1, 2, 3, 4,
+            (byte) 0xa9, 0x01, 1, 2, 3, 4, 5, 6, 7, 8, 0x40, 0x64 };
+        RpcRequestMeta request = new RpcRequestMeta();
+        RpcMetaCodec.decode(bytes, request);
+        Assert.assertEquals("s", request.getSerivceName());
+        Assert.assertEquals("m", request.getMethodName());
+        Assert.assertNull(request.getExtraParam());
+        Assert.assertNull(request.getMethodId());
+        Assert.assertEquals(Long.valueOf(100L), request.getTimeout());
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncated() throws IOException {
+        byte[] bytes = RpcMetaCodec.encode(getRpcMeta());
+        byte[] truncated = new byte[bytes.length - 1];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+        RpcMetaCodec.decode(truncated, new RpcMeta());
+    }
+}
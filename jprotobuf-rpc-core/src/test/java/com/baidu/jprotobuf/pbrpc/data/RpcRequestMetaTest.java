@@ -16,11 +16,14 @@
 
 package com.baidu.jprotobuf.pbrpc.data;
 
+import java.util.Arrays;
+
 import junit.framework.Assert;
 
 import org.junit.Ignore;
 import org.junit.Test;
 
+import com.baidu.bjf.remoting.protobuf.ProtobufProxy;
 
 /**
  * Test class for RpcRequestMeta
@@ -56,6 +59,48 @@ public class RpcRequestMetaTest {
         testReadWrite(true);
     }
 
+    @Test
+    public void testReadWriteMethodId() {
+        RpcRequestMeta rpcRequestMeta = new RpcRequestMeta();
+        rpcRequestMeta.setServiceName("");
+        rpcRequestMeta.setMethodName("");
+        rpcRequestMeta.setMethodId(3);
+
+        byte[] bytes = rpcRequestMeta.write();
+
+        RpcRequestMeta rpcRequestMeta2 = new RpcRequestMeta();
+        rpcRequestMeta2.read(bytes);
+        Assert.assertEquals(Integer.valueOf(3), rpcRequestMeta2.getMethodId());
+        Assert.assertEquals("", rpcRequestMeta2.getSerivceName());
+        Assert.assertEquals(Integer.valueOf(3), rpcRequestMeta2.copy().getMethodId());
+    }
+
+    @Test
+    public void testTimeoutFieldNumber() throws Exception {
+        RpcRequestMeta rpcRequestMeta = new RpcRequestMeta();
+        rpcRequestMeta.setServiceName("s");
+        rpcRequestMeta.setMethodName("m");
+        rpcRequestMeta.setTimeout(100L);
+
+        // timeout_ms = 8 as brpc, field 5 and 6 are span_id and parent_span_id there
+        byte[] expected = new byte[] { 0x0a, 1, 's', 0x12, 1, 'm', 0x40, 0x64 };
+        Assert.assertTrue(Arrays.equals(expected, rpcRequestMeta.write()));
+        Assert.assertTrue(Arrays.equals(expected, ProtobufProxy.create(RpcRequestMeta.class).encode(rpcRequestMeta)));
+    }
+
+    @Test
+    public void testMethodIdFieldNumber() throws Exception {
+        RpcRequestMeta rpcRequestMeta = new RpcRequestMeta();
+        rpcRequestMeta.setServiceName("");
+        rpcRequestMeta.setMethodName("");
+        rpcRequestMeta.setMethodId(3);
+
+        // field 100, out of range of the fields brpc defines in request meta
+        byte[] expected = new byte[] { 0x0a, 0, 0x12, 0, (byte) 0xa0, 0x06, 3 };
+        Assert.assertTrue(Arrays.equals(expected, rpcRequestMeta.write()));
+        Assert.assertTrue(Arrays.equals(expected, ProtobufProxy.create(RpcRequestMeta.class).encode(rpcRequestMeta)));
+    }
+
     private void testReadWrite(boolean includeLogId) {
         RpcRequestMeta rpcRequestMeta = new RpcRequestMeta();
 
@@ -63,6 +108,7 @@ public class RpcRequestMetaTest {
         rpcRequestMeta.setMethodName("testMethodName");
         if (includeLogId) {
             rpcRequestMeta.setLogId(101L);
+            rpcRequestMeta.setTimeout(1500L);
         }
 
         byte[] bytes = rpcRequestMeta.write();
@@ -75,8 +121,10 @@ public class RpcRequestMetaTest {
 
         if (includeLogId) {
             Assert.assertEquals(rpcRequestMeta.getLogId(), rpcRequestMeta2.getLogId());
+            Assert.assertEquals(rpcRequestMeta.getTimeout(), rpcRequestMeta2.getTimeout());
         } else {
             Assert.assertNull(rpcRequestMeta2.getLogId());
+            Assert.assertNull(rpcRequestMeta2.getTimeout());
         }
     }
 }
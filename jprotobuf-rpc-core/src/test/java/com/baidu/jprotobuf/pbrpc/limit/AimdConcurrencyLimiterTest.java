@@ -0,0 +1,78 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.limit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for {@link AimdConcurrencyLimiter}.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class AimdConcurrencyLimiterTest {
+
+    @Test
+    public void testIncreaseWhenLimitInUse() {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(4, 1, 5);
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(limiter.tryAcquire());
+        }
+        Assert.assertFalse(limiter.tryAcquire());
+
+        limiter.onSuccess(1000L);
+        Assert.assertEquals(5, limiter.getLimit());
+        // max limit reached
+        limiter.onSuccess(1000L);
+        Assert.assertEquals(5, limiter.getLimit());
+        Assert.assertEquals(2, limiter.getInflight());
+    }
+
+    @Test
+    public void testNotIncreaseWhenIdle() {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(10, 1, 100);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(limiter.tryAcquire());
+            limiter.onSuccess(1000L);
+        }
+        Assert.assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    public void testDecreaseOnDrop() {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(20, 2, 100, 0.5);
+        Assert.assertTrue(limiter.tryAcquire());
+        limiter.onDropped();
+        Assert.assertEquals(10, limiter.getLimit());
+        Assert.assertEquals(0, limiter.getInflight());
+
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(limiter.tryAcquire());
+            limiter.onDropped();
+        }
+        Assert.assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    public void testIgnoreKeepsLimit() {
+        AimdConcurrencyLimiter limiter = new AimdConcurrencyLimiter(3, 1, 10);
+        Assert.assertTrue(limiter.tryAcquire());
+        limiter.onIgnore();
+        Assert.assertEquals(3, limiter.getLimit());
+        Assert.assertEquals(0, limiter.getInflight());
+    }
+}
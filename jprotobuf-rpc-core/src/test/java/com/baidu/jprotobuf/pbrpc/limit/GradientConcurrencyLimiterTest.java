@@ -0,0 +1,90 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.limit;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for {@link GradientConcurrencyLimiter}.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class GradientConcurrencyLimiterTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * run requests with full load of current limit.
+     */
+    private void runAtLimit(ConcurrencyLimiter limiter, long rttNanos, int rounds) {
+        for (int i = 0; i < rounds; i++) {
+            int limit = limiter.getLimit();
+            for (int j = 0; j < limit; j++) {
+                Assert.assertTrue(limiter.tryAcquire());
+            }
+            for (int j = 0; j < limit; j++) {
+                limiter.onSuccess(rttNanos);
+            }
+        }
+    }
+
+    @Test
+    public void testAcquireUnderLimit() {
+        GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(2, 1, 10);
+        Assert.assertTrue(limiter.tryAcquire());
+        Assert.assertTrue(limiter.tryAcquire());
+        Assert.assertFalse(limiter.tryAcquire());
+        Assert.assertEquals(2, limiter.getInflight());
+
+        limiter.onIgnore();
+        Assert.assertTrue(limiter.tryAcquire());
+        limiter.onIgnore();
+        limiter.onIgnore();
+        Assert.assertEquals(0, limiter.getInflight());
+        Assert.assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    public void testGrowWithStableLatency() {
+        GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(10, 1, 100);
+        runAtLimit(limiter, MS, 20);
+        Assert.assertTrue(limiter.getLimit() > 10);
+        Assert.assertTrue(limiter.getLimit() <= 100);
+    }
+
+    @Test
+    public void testShrinkWithGrowingLatency() {
+        GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(50, 1, 100);
+        runAtLimit(limiter, MS, 5);
+        int limit = limiter.getLimit();
+
+        runAtLimit(limiter, 10 * MS, 5);
+        Assert.assertTrue(limiter.getLimit() < limit);
+    }
+
+    @Test
+    public void testDropBackoff() {
+        GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(50, 1, 100);
+        Assert.assertTrue(limiter.tryAcquire());
+        limiter.onDropped();
+        Assert.assertEquals(45, limiter.getLimit());
+        Assert.assertEquals(0, limiter.getInflight());
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.server;
+
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for {@link MethodInvokerGenerator}.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class MethodInvokerGeneratorTest {
+
+    /**
+     * Public service interface.
+     */
+    public interface Service {
+
+        String echo(String message);
+    }
+
+    /**
+     * Public service implementation.
+     */
+    public static class ServiceImpl implements Service {
+
+        private int count;
+
+        @Override
+        public String echo(String message) {
+            count++;
+            return "hello:" + message;
+        }
+
+        public void touch() {
+            count++;
+        }
+
+        public byte[] reverse(byte[] data) {
+            byte[] ret = new byte[data.length];
+            for (int i = 0; i < data.length; i++) {
+                ret[i] = data[data.length - 1 - i];
+            }
+            return ret;
+        }
+
+        public String fail(String message) throws IOException {
+            throw new IOException(message);
+        }
+    }
+
+    /**
+     * Non public service.
+     */
+    static class HiddenService {
+
+        public String echo(String message) {
+            return "hidden:" + message;
+        }
+    }
+
+    /**
+     * Message with static parse method.
+     */
+    public static class Message {
+
+        private final String value;
+
+        public Message(String value) {
+            this.value = value;
+        }
+
+        public static Message parseFrom(byte[] data) {
+            return new Message(new String(data));
+        }
+    }
+
+    @Test
+    public void testInvokeVirtual() throws Throwable {
+        MethodInvoker invoker =
+                MethodInvokerGenerator.create(ServiceImpl.class.getMethod("echo", String.class), null);
+        Assert.assertFalse(invoker instanceof ReflectionMethodInvoker);
+
+        ServiceImpl service = new ServiceImpl();
+        Assert.assertEquals("hello:world", invoker.invoke(service, "world"));
+        Assert.assertEquals(1, service.count);
+        Assert.assertNull(invoker.parseInput(new byte[0]));
+    }
+
+    @Test
+    public void testInvokeInterface() throws Throwable {
+        MethodInvoker invoker = MethodInvokerGenerator.create(Service.class.getMethod("echo", String.class), null);
+        Assert.assertFalse(invoker instanceof ReflectionMethodInvoker);
+        Assert.assertEquals("hello:world", invoker.invoke(new ServiceImpl(), "world"));
+    }
+
+    @Test
+    public void testInvokeVoidWithoutParameter() throws Throwable {
+        MethodInvoker invoker = MethodInvokerGenerator.create(ServiceImpl.class.getMethod("touch"), null);
+        ServiceImpl service = new ServiceImpl();
+        Assert.assertNull(invoker.invoke(service, null));
+        Assert.assertEquals(1, service.count);
+    }
+
+    @Test
+    public void testInvokeArrayType() throws Throwable {
+        MethodInvoker invoker =
+                MethodInvokerGenerator.create(ServiceImpl.class.getMethod("reverse", byte[].class), null);
+        Assert.assertFalse(invoker instanceof ReflectionMethodInvoker);
+        byte[] ret = (byte[]) invoker.invoke(new ServiceImpl(), new byte[] { 1, 2, 3 });
+        Assert.assertArrayEquals(new byte[] { 3, 2, 1 }, ret);
+    }
+
+    @Test
+    public void testExceptionNotWrapped() throws Throwable {
+        MethodInvoker invoker = MethodInvokerGenerator.create(ServiceImpl.class.getMethod("fail", String.class), null);
+        try {
+            invoker.invoke(new ServiceImpl(), "error");
+            Assert.fail("exception should be thrown");
+        } catch (IOException e) {
+            Assert.assertEquals("error", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testParseInput() throws Throwable {
+        MethodInvoker invoker =
+                MethodInvokerGenerator.create(ServiceImpl.class.getMethod("echo", String.class), Message.class);
+        Assert.assertFalse(invoker instanceof ReflectionMethodInvoker);
+        Message message = (Message) invoker.parseInput("abc".getBytes());
+        Assert.assertEquals("abc", message.value);
+    }
+
+    @Test
+    public void testFallbackToReflection() throws Throwable {
+        MethodInvoker invoker =
+                MethodInvokerGenerator.create(HiddenService.class.getMethod("echo", String.class), null);
+        Assert.assertTrue(invoker instanceof ReflectionMethodInvoker);
+        Assert.assertEquals("hidden:world", invoker.invoke(new HiddenService(), "world"));
+
+        invoker = MethodInvokerGenerator.create(HiddenService.class.getMethod("echo", String.class), Message.class);
+        Message message = (Message) invoker.parseInput("abc".getBytes());
+        Assert.assertEquals("abc", message.value);
+    }
+}
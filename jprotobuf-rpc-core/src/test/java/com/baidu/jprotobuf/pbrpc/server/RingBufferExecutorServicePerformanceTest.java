@@ -0,0 +1,118 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.server;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * Performance comparison of task handoff between {@link ThreadPoolExecutor} with {@link LinkedBlockingQueue} and
+ * {@link RingBufferExecutorService} of each {@link WaitStrategy}.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+@Ignore
+public class RingBufferExecutorServicePerformanceTest {
+
+    private static final String FORMAT_STRING = "|%30s|%15s|%15s|";
+
+    private int producers = 4;
+
+    private int workers = 4;
+
+    private int tasksPerProducer = 1000000;
+
+    private int rounds = 5;
+
+    private long runOnce(final ExecutorService es) throws Exception {
+        final CountDownLatch done = new CountDownLatch(producers * tasksPerProducer);
+        final Runnable task = new Runnable() {
+
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        };
+        final CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < producers; i++) {
+            new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < tasksPerProducer; j++) {
+                        while (true) {
+                            try {
+                                es.execute(task);
+                                break;
+                            } catch (RejectedExecutionException e) {
+                                Thread.yield();
+                            }
+                        }
+                    }
+                }
+            }).start();
+        }
+        long time = System.nanoTime();
+        start.countDown();
+        done.await();
+        return System.nanoTime() - time;
+    }
+
+    private void benchmark(String name, ExecutorService es) throws Exception {
+        try {
+            // warm up
+            runOnce(es);
+            long total = 0;
+            for (int i = 0; i < rounds; i++) {
+                total += runOnce(es);
+            }
+            long tasks = (long) producers * tasksPerProducer * rounds;
+            long millis = TimeUnit.NANOSECONDS.toMillis(total);
+            long qps = tasks * TimeUnit.SECONDS.toNanos(1) / total;
+            System.out.println(String.format(FORMAT_STRING, name, millis, qps));
+        } finally {
+            es.shutdown();
+            es.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testCompare() throws Exception {
+        System.out.println("---------------------Performance Result-------------------------");
+        System.out.println(String.format(FORMAT_STRING, "executor", "time took(ms)", "tasks/s"));
+        benchmark("ThreadPoolExecutor", new ThreadPoolExecutor(workers, workers, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>()));
+        for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+            benchmark("RingBuffer(" + waitStrategy + ")", new RingBufferExecutorService(workers, 65536, waitStrategy,
+                    16, Executors.defaultThreadFactory()));
+        }
+        System.out.println("---------------------Performance Result-------------------------");
+    }
+}
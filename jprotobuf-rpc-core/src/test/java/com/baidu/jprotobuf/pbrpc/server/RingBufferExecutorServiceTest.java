@@ -0,0 +1,250 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.server;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for {@link RingBufferExecutorService}.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class RingBufferExecutorServiceTest {
+
+    private static final int PRODUCERS = 4;
+
+    private static final int TASKS_PER_PRODUCER = 20000;
+
+    private void runTasks(WaitStrategy waitStrategy) throws Exception {
+        final RingBufferExecutorService es = new RingBufferExecutorService(3, 256, waitStrategy, 8,
+                Executors.defaultThreadFactory());
+        final AtomicInteger counter = new AtomicInteger();
+        final Runnable task = new Runnable() {
+
+            @Override
+            public void run() {
+                counter.incrementAndGet();
+            }
+        };
+        final CountDownLatch producersDone = new CountDownLatch(PRODUCERS);
+        for (int i = 0; i < PRODUCERS; i++) {
+            new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    for (int j = 0; j < TASKS_PER_PRODUCER; j++) {
+                        while (true) {
+                            try {
+                                es.execute(task);
+                                break;
+                            } catch (RejectedExecutionException e) {
+                                // buffer is full, try again
+                                Thread.yield();
+                            }
+                        }
+                    }
+                    producersDone.countDown();
+                }
+            }).start();
+        }
+
+        Assert.assertTrue(producersDone.await(30, TimeUnit.SECONDS));
+        es.shutdown();
+        Assert.assertTrue(es.awaitTermination(10, TimeUnit.SECONDS));
+        Assert.assertEquals(PRODUCERS * TASKS_PER_PRODUCER, counter.get());
+        Assert.assertEquals(PRODUCERS * TASKS_PER_PRODUCER, es.getCompletedCount());
+    }
+
+    @Test
+    public void testBlockingWaitStrategy() throws Exception {
+        runTasks(WaitStrategy.BLOCKING);
+    }
+
+    @Test
+    public void testSleepingWaitStrategy() throws Exception {
+        runTasks(WaitStrategy.SLEEPING);
+    }
+
+    @Test
+    public void testYieldingWaitStrategy() throws Exception {
+        runTasks(WaitStrategy.YIELDING);
+    }
+
+    @Test
+    public void testBusySpinWaitStrategy() throws Exception {
+        runTasks(WaitStrategy.BUSY_SPIN);
+    }
+
+    @Test
+    public void testRejectWhenFull() throws Exception {
+        RingBufferExecutorService es =
+                new RingBufferExecutorService(1, 3, WaitStrategy.BLOCKING, 1, Executors.defaultThreadFactory());
+        Assert.assertEquals(4, es.getBufferSize());
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        es.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        Runnable noop = new Runnable() {
+
+            @Override
+            public void run() {
+            }
+        };
+        for (int i = 0; i < 4; i++) {
+            es.execute(noop);
+        }
+        Assert.assertEquals(4, es.getQueuedCount());
+        try {
+            es.execute(noop);
+            Assert.fail("ring buffer should be full");
+        } catch (RejectedExecutionException e) {
+            Assert.assertNotNull(e.getMessage());
+        }
+
+        latch.countDown();
+        es.shutdown();
+        Assert.assertTrue(es.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertEquals(5, es.getCompletedCount());
+        try {
+            es.execute(noop);
+            Assert.fail("executor is shutdown");
+        } catch (RejectedExecutionException e) {
+            Assert.assertTrue(es.isTerminated());
+        }
+    }
+
+    @Test
+    public void testInterruptLeftByTask() throws Exception {
+        RingBufferExecutorService es =
+                new RingBufferExecutorService(1, 16, WaitStrategy.BLOCKING, 1, Executors.defaultThreadFactory());
+        es.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Thread.sleep(50);
+
+        final AtomicInteger interrupted = new AtomicInteger(-1);
+        final CountDownLatch done = new CountDownLatch(1);
+        es.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                interrupted.set(Thread.currentThread().isInterrupted() ? 1 : 0);
+                done.countDown();
+            }
+        });
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, interrupted.get());
+
+        es.shutdown();
+        Assert.assertTrue(es.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testExecuteRacingShutdown() throws Exception {
+        for (int round = 0; round < 50; round++) {
+            final RingBufferExecutorService es =
+                    new RingBufferExecutorService(2, 1024, WaitStrategy.BLOCKING, 8, Executors.defaultThreadFactory());
+            final AtomicInteger executed = new AtomicInteger();
+            final AtomicInteger accepted = new AtomicInteger();
+            final Runnable task = new Runnable() {
+
+                @Override
+                public void run() {
+                    executed.incrementAndGet();
+                }
+            };
+            final CountDownLatch producersDone = new CountDownLatch(PRODUCERS);
+            for (int i = 0; i < PRODUCERS; i++) {
+                new Thread(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        try {
+                            for (int j = 0; j < 200; j++) {
+                                es.execute(task);
+                                accepted.incrementAndGet();
+                            }
+                        } catch (RejectedExecutionException e) {
+                            // shutdown or full
+                        }
+                        producersDone.countDown();
+                    }
+                }).start();
+            }
+            es.shutdown();
+            Assert.assertTrue(producersDone.await(5, TimeUnit.SECONDS));
+            Assert.assertTrue(es.awaitTermination(5, TimeUnit.SECONDS));
+            // every accepted task is run even if published while workers exit
+            Assert.assertEquals(accepted.get(), executed.get());
+        }
+    }
+
+    @Test
+    public void testShutdownNow() throws Exception {
+        RingBufferExecutorService es =
+                new RingBufferExecutorService(1, 16, WaitStrategy.BLOCKING, 1, Executors.defaultThreadFactory());
+        final CountDownLatch started = new CountDownLatch(1);
+        es.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    Thread.sleep(10000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        es.execute(new Runnable() {
+
+            @Override
+            public void run() {
+            }
+        });
+
+        List<Runnable> tasks = es.shutdownNow();
+        Assert.assertEquals(1, tasks.size());
+        Assert.assertTrue(es.awaitTermination(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.server;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.baidu.jprotobuf.pbrpc.EchoInfo;
+import com.baidu.jprotobuf.pbrpc.ProtobufRPCService;
+import com.baidu.jprotobuf.pbrpc.RpcHandler;
+
+/**
+ * Test class for method id assignment of {@link RpcServiceRegistry}.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class RpcServiceRegistryTest {
+
+    public static class FirstService {
+
+        @ProtobufRPCService(serviceName = "firstService", methodName = "echo")
+        public EchoInfo echo(EchoInfo info) {
+            return info;
+        }
+    }
+
+    public static class SecondService {
+
+        @ProtobufRPCService(serviceName = "secondService", methodName = "echo")
+        public EchoInfo echo(EchoInfo info) {
+            return info;
+        }
+    }
+
+    private int getMethodId(RpcServiceRegistry registry, String serviceName) {
+        for (int i = 0; i < registry.getMethodIdCount(); i++) {
+            RpcHandler rpcHandler = registry.lookupService(i);
+            if (rpcHandler != null && serviceName.equals(rpcHandler.getServiceName())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    public void testMethodIdStableOnReExport() {
+        RpcServiceRegistry registry = new RpcServiceRegistry();
+        registry.registerService(new FirstService());
+        registry.registerService(new SecondService());
+        int firstId = getMethodId(registry, "firstService");
+        int secondId = getMethodId(registry, "secondService");
+        Assert.assertTrue(firstId >= 0);
+        Assert.assertTrue(secondId >= 0);
+
+        registry.unRegisterAll();
+        Assert.assertNull(registry.lookupService(firstId));
+        Assert.assertNull(registry.lookupService(secondId));
+
+        // registered in other order, method ids are kept
+        registry.registerService(new SecondService());
+        registry.registerService(new FirstService());
+        Assert.assertEquals(firstId, getMethodId(registry, "firstService"));
+        Assert.assertEquals(secondId, getMethodId(registry, "secondService"));
+        Assert.assertEquals(2, registry.getMethodIdCount());
+
+        // method id of service not registered again is never reused
+        registry.unRegisterAll();
+        registry.registerService(new SecondService());
+        Assert.assertNull(registry.lookupService(firstId));
+        Assert.assertEquals(secondId, getMethodId(registry, "secondService"));
+    }
+}
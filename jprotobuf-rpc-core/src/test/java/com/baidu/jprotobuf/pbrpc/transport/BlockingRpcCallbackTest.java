@@ -0,0 +1,79 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.transport;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.baidu.jprotobuf.pbrpc.data.RpcDataPackage;
+
+/**
+ * Test class for {@link BlockingRpcCallback}.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class BlockingRpcCallbackTest {
+
+    @Test
+    public void testAwait() throws Exception {
+        final BlockingRpcCallback callback = new BlockingRpcCallback();
+        final CountDownLatch done = new CountDownLatch(1);
+        new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                callback.await();
+                done.countDown();
+            }
+        }).start();
+
+        RpcDataPackage message = new RpcDataPackage();
+        callback.run(message);
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assert.assertSame(message, callback.getMessage());
+    }
+
+    @Test
+    public void testWaitOnMonitor() throws Exception {
+        final BlockingRpcCallback callback = new BlockingRpcCallback();
+        final CountDownLatch done = new CountDownLatch(1);
+        new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                synchronized (callback) {
+                    while (!callback.isDone()) {
+                        try {
+                            callback.wait();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                    }
+                }
+                done.countDown();
+            }
+        }).start();
+
+        Thread.sleep(50);
+        callback.run(new RpcDataPackage());
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.transport;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for {@link ChannelPoolRegistry}.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class ChannelPoolRegistryTest {
+
+    private RpcClient rpcClient;
+
+    @Before
+    public void setUp() {
+        RpcClientOptions options = new RpcClientOptions();
+        options.setMaxConnectionsPerEndpoint(4);
+        rpcClient = new RpcClient(options);
+    }
+
+    @After
+    public void tearDown() {
+        rpcClient.shutdown();
+    }
+
+    @Test
+    public void testShareByEndpoint() {
+        RpcChannel channel1 = new RpcChannel(rpcClient, "127.0.0.1", 1031);
+        RpcChannel channel2 = new RpcChannel(rpcClient, "127.0.0.1", 1031);
+        RpcChannel channel3 = new RpcChannel(rpcClient, "127.0.0.1", 1032);
+
+        List<EndpointStats> stats = rpcClient.getChannelPoolRegistry().getStats(rpcClient);
+        Assert.assertEquals(2, stats.size());
+        for (EndpointStats endpointStats : stats) {
+            Assert.assertEquals(4, endpointStats.getMaxConnections());
+            if (endpointStats.getEndpoint().endsWith(":1031")) {
+                Assert.assertEquals(2, endpointStats.getReferences());
+            } else {
+                Assert.assertEquals(1, endpointStats.getReferences());
+            }
+        }
+
+        channel1.close();
+        channel1.close(); // release only once
+        Assert.assertEquals(2, rpcClient.getChannelPoolRegistry().getStats(rpcClient).size());
+
+        channel2.close();
+        channel3.close();
+        Assert.assertTrue(rpcClient.getChannelPoolRegistry().getStats(rpcClient).isEmpty());
+    }
+
+    @Test
+    public void testShareByClients() {
+        RpcClientOptions options = new RpcClientOptions();
+        options.setMaxConnectionsPerEndpoint(4);
+        RpcClient sameOptionsClient = new RpcClient(options);
+        options = new RpcClientOptions();
+        options.setMaxConnectionsPerEndpoint(8);
+        RpcClient otherOptionsClient = new RpcClient(options);
+        try {
+            RpcChannel channel1 = new RpcChannel(rpcClient, "127.0.0.1", 1031);
+            RpcChannel channel2 = new RpcChannel(sameOptionsClient, "127.0.0.1", 1031);
+            RpcChannel channel3 = new RpcChannel(otherOptionsClient, "127.0.0.1", 1031);
+
+            List<EndpointStats> stats = ChannelPoolRegistry.getInstance().getStats(sameOptionsClient);
+            Assert.assertEquals(1, stats.size());
+            Assert.assertEquals(2, stats.get(0).getReferences());
+            Assert.assertEquals(4, stats.get(0).getMaxConnections());
+
+            stats = ChannelPoolRegistry.getInstance().getStats(otherOptionsClient);
+            Assert.assertEquals(1, stats.size());
+            Assert.assertEquals(1, stats.get(0).getReferences());
+            Assert.assertEquals(8, stats.get(0).getMaxConnections());
+
+            // pool created by rpcClient survives its shutdown
+            rpcClient.shutdown();
+            stats = ChannelPoolRegistry.getInstance().getStats(sameOptionsClient);
+            Assert.assertEquals(1, stats.size());
+            Assert.assertEquals(1, stats.get(0).getReferences());
+
+            channel1.close();
+            channel2.close();
+            channel3.close();
+            Assert.assertTrue(ChannelPoolRegistry.getInstance().getStats(sameOptionsClient).isEmpty());
+            Assert.assertTrue(ChannelPoolRegistry.getInstance().getStats(otherOptionsClient).isEmpty());
+        } finally {
+            sameOptionsClient.shutdown();
+            otherOptionsClient.shutdown();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.transport;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.Timeout;
+import io.netty.util.TimerTask;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.baidu.jprotobuf.pbrpc.data.RpcDataPackage;
+import com.baidu.jprotobuf.pbrpc.data.RpcDataPackageTest;
+import com.baidu.jprotobuf.pbrpc.transport.handler.ErrorCodes;
+import com.baidu.jprotobuf.pbrpc.transport.handler.RpcClientServiceHandler;
+import com.google.protobuf.RpcCallback;
+
+/**
+ * Test class for pending requests of {@link Connection}.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class ConnectionTest {
+
+    private RpcClient rpcClient;
+
+    @Before
+    public void setUp() {
+        rpcClient = new RpcClient();
+    }
+
+    @After
+    public void tearDown() {
+        rpcClient.shutdown();
+    }
+
+    private RpcClientCallState register(Connection connection, long correlationId,
+            final AtomicReference<RpcDataPackage> result) {
+        RpcDataPackage dataPackage = new RpcDataPackageTest().getDataPackage();
+        dataPackage.correlationId(correlationId);
+        Timeout timeout = rpcClient.getTimer().newTimeout(new TimerTask() {
+
+            @Override
+            public void run(Timeout timeout) throws Exception {
+                Assert.fail("should not time out");
+            }
+        }, 1, TimeUnit.HOURS);
+        RpcClientCallState state = new RpcClientCallState(new RpcCallback<RpcDataPackage>() {
+
+            @Override
+            public void run(RpcDataPackage parameter) {
+                result.set(parameter);
+            }
+        }, dataPackage, timeout);
+        state.setConnection(connection);
+        rpcClient.registerPendingRequest(correlationId, state);
+        connection.addPendingRequest(correlationId);
+        return state;
+    }
+
+    @Test
+    public void testFailPendingRequestsOnChannelInactive() {
+        EmbeddedChannel channel = new EmbeddedChannel(new RpcClientServiceHandler(rpcClient));
+        Connection connection = new Connection(rpcClient);
+        connection.setFuture(channel.newSucceededFuture());
+        channel.attr(Connection.CONNECTION_KEY).set(connection);
+
+        AtomicReference<RpcDataPackage> result1 = new AtomicReference<RpcDataPackage>();
+        AtomicReference<RpcDataPackage> result2 = new AtomicReference<RpcDataPackage>();
+        RpcClientCallState state1 = register(connection, 1L, result1);
+        register(connection, 2L, result2);
+        Assert.assertEquals(2, connection.getPendingRequestCount());
+
+        // completed request is not tracked any more
+        rpcClient.removePendingRequest(2L);
+        Assert.assertEquals(1, connection.getPendingRequestCount());
+
+        channel.close();
+
+        Assert.assertNotNull(result1.get());
+        Assert.assertNull(result2.get());
+        Assert.assertEquals(ErrorCodes.ST_CONNECTION_LOST,
+                result1.get().getRpcMeta().getResponse().getErrorCode().intValue());
+        Assert.assertTrue(state1.getTimeout().isCancelled());
+        Assert.assertEquals(0, connection.getPendingRequestCount());
+        Assert.assertNull(rpcClient.removePendingRequest(1L));
+    }
+
+    @Test
+    public void testLateErrorResponseKeepsConnection() {
+        EmbeddedChannel channel = new EmbeddedChannel(new RpcClientServiceHandler(rpcClient));
+        Connection connection = new Connection(rpcClient);
+        connection.setFuture(channel.newSucceededFuture());
+        channel.attr(Connection.CONNECTION_KEY).set(connection);
+
+        AtomicReference<RpcDataPackage> result = new AtomicReference<RpcDataPackage>();
+        register(connection, 1L, result);
+
+        // error response of a request which is timeout already
+        RpcDataPackage lateResponse = new RpcDataPackageTest().getDataPackage();
+        lateResponse.correlationId(99L).errorCode(ErrorCodes.ST_ERROR).errorText("late error");
+        channel.writeInbound(lateResponse);
+
+        Assert.assertTrue(channel.isActive());
+        Assert.assertNull(result.get());
+        Assert.assertEquals(1, connection.getPendingRequestCount());
+
+        // in flight request still completes on the same connection
+        RpcDataPackage response = new RpcDataPackageTest().getDataPackage();
+        response.correlationId(1L).errorCode(ErrorCodes.ST_SUCCESS);
+        channel.writeInbound(response);
+
+        Assert.assertNotNull(result.get());
+        Assert.assertEquals(ErrorCodes.ST_SUCCESS,
+                result.get().getRpcMeta().getResponse().getErrorCode().intValue());
+        Assert.assertEquals(0, connection.getPendingRequestCount());
+        channel.finish();
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.transport;
+
+import io.netty.channel.EventLoopGroup;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for {@link SharedTransportResources}.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class SharedTransportResourcesTest {
+
+    @Test
+    public void testSharedEventLoopGroupByClients() {
+        SharedTransportResources resources = SharedTransportResources.getInstance();
+        int refs = resources.getEventLoopGroupRefCount(RpcClientOptions.POLL_EVENT_GROUP);
+
+        RpcClientOptions options = new RpcClientOptions();
+        options.setShareEventLoopGroup(true);
+        RpcClient client1 = new RpcClient(options);
+        RpcClient client2 = new RpcClient(options);
+
+        Assert.assertSame(client1.group(), client2.group());
+        Assert.assertEquals(refs + 2, resources.getEventLoopGroupRefCount(RpcClientOptions.POLL_EVENT_GROUP));
+
+        EventLoopGroup group = client1.group();
+        client1.shutdown();
+        client1.shutdown(); // release only once
+        Assert.assertEquals(refs + 1, resources.getEventLoopGroupRefCount(RpcClientOptions.POLL_EVENT_GROUP));
+
+        client2.shutdown();
+        if (refs == 0) {
+            Assert.assertTrue(group.isShuttingDown());
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.transport;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for {@link TaskAdmissionController}.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class TaskAdmissionControllerTest {
+
+    @Test
+    public void testOverloadByQueueDelay() throws Exception {
+        TaskAdmissionController controller = new TaskAdmissionController(10, 50);
+        Assert.assertTrue(controller.admit());
+
+        // delay above target but not for a whole interval
+        Assert.assertTrue(controller.onDequeue(20));
+        Assert.assertTrue(controller.onDequeue(20));
+        Assert.assertFalse(controller.isOverloaded());
+
+        Thread.sleep(60);
+        Assert.assertFalse(controller.onDequeue(20));
+        Assert.assertTrue(controller.isOverloaded());
+        Assert.assertFalse(controller.admit());
+        Assert.assertEquals(2, controller.getRejectedCount());
+
+        // queue drained
+        Assert.assertTrue(controller.onDequeue(1));
+        Assert.assertFalse(controller.isOverloaded());
+        Assert.assertTrue(controller.admit());
+    }
+
+    @Test
+    public void testShortBurstNotOverload() throws Exception {
+        TaskAdmissionController controller = new TaskAdmissionController(10, 50);
+        Assert.assertTrue(controller.onDequeue(20));
+        Assert.assertTrue(controller.onDequeue(5));
+        Thread.sleep(60);
+        Assert.assertTrue(controller.onDequeue(20));
+        Assert.assertFalse(controller.isOverloaded());
+    }
+
+    @Test
+    public void testDisabled() {
+        TaskAdmissionController controller = new TaskAdmissionController(0, 50);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(controller.onDequeue(1000));
+        }
+        Assert.assertTrue(controller.admit());
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.transport.handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.baidu.jprotobuf.pbrpc.data.RpcDataPackage;
+import com.baidu.jprotobuf.pbrpc.data.RpcDataPackageTest;
+import com.baidu.jprotobuf.pbrpc.data.RpcMetaTemplate;
+import com.baidu.jprotobuf.pbrpc.data.RpcRequestMeta;
+
+/**
+ * Test class for {@link RpcDataPackageEncoder}.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class RpcDataPackageEncoderTest {
+
+    @Test
+    public void testEncodeSameAsWrite() {
+        RpcDataPackage dataPackage = new RpcDataPackageTest().getDataPackage();
+        dataPackage.attachment(new byte[] { 9, 9 });
+
+        RpcDataPackageEncoder encoder = new RpcDataPackageEncoder();
+        ByteBuf buf = encoder.encode(PooledByteBufAllocator.DEFAULT, dataPackage);
+        try {
+            byte[] encoded = new byte[buf.readableBytes()];
+            buf.readBytes(encoded);
+
+            Assert.assertArrayEquals(dataPackage.write(), encoded);
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testEncodeWithMetaTemplate() {
+        RpcDataPackage dataPackage = new RpcDataPackageTest().getDataPackage();
+        RpcRequestMeta request = dataPackage.getRpcMeta().getRequest();
+        RpcMetaTemplate template = new RpcMetaTemplate(request.getSerivceName(), request.getMethodName());
+        dataPackage.setMetaTemplate(template);
+        Assert.assertTrue(template.isApplicable(dataPackage.getRpcMeta().getRequest()));
+
+        RpcDataPackageEncoder encoder = new RpcDataPackageEncoder();
+        ByteBuf buf = encoder.encode(PooledByteBufAllocator.DEFAULT, dataPackage);
+        try {
+            byte[] encoded = new byte[buf.readableBytes()];
+            buf.readBytes(encoded);
+
+            Assert.assertArrayEquals(dataPackage.write(), encoded);
+        } finally {
+            buf.release();
+        }
+    }
+}
@@ -0,0 +1,454 @@
+/*
+ * Copyright 2002-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.baidu.jprotobuf.pbrpc.transport.handler;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.baidu.bjf.remoting.protobuf.Codec;
+import com.baidu.bjf.remoting.protobuf.ProtobufProxy;
+import com.baidu.jprotobuf.pbrpc.EchoInfo;
+import com.baidu.jprotobuf.pbrpc.ProtobufRPCService;
+import com.baidu.jprotobuf.pbrpc.data.ProtocolConstant;
+import com.baidu.jprotobuf.pbrpc.data.RpcDataPackage;
+import com.baidu.jprotobuf.pbrpc.data.RpcMeta;
+import com.baidu.jprotobuf.pbrpc.limit.ConcurrencyLimiterRegistry;
+import com.baidu.jprotobuf.pbrpc.meta.RpcHandshake;
+import com.baidu.jprotobuf.pbrpc.meta.RpcServiceMetaServiceProvider;
+import com.baidu.jprotobuf.pbrpc.server.ExecutorPool;
+import com.baidu.jprotobuf.pbrpc.server.RpcServiceRegistry;
+import com.baidu.jprotobuf.pbrpc.transport.ProtocolFeatures;
+import com.baidu.jprotobuf.pbrpc.transport.TaskAdmissionController;
+import com.baidu.jprotobuf.pbrpc.utils.DeadlineThreadLocalHolder;
+
+/**
+ * Test class for deadline and admission handling of {@link RpcServiceHandler}.
+ *
+ * @author xiemalin
+ * @since 3.5.5
+ */
+public class RpcServiceHandlerTest {
+
+    private static final Codec<EchoInfo> CODEC = ProtobufProxy.create(EchoInfo.class);
+
+    private DeadlineService deadlineService;
+
+    private RpcServiceRegistry rpcServiceRegistry;
+
+    public static class DeadlineService {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        private final AtomicLong remainingTime = new AtomicLong();
+
+        private volatile Thread thread;
+
+        @ProtobufRPCService(serviceName = "deadlineService", methodName = "echo")
+        public EchoInfo echo(EchoInfo info) {
+            count.incrementAndGet();
+            thread = Thread.currentThread();
+            remainingTime.set(DeadlineThreadLocalHolder.getRemainingTime());
+            return info;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        deadlineService = new DeadlineService();
+        rpcServiceRegistry = new RpcServiceRegistry();
+        rpcServiceRegistry.registerService(deadlineService);
+    }
+
+    private RpcDataPackage getRequest(long timeout) throws Exception {
+        EchoInfo echoInfo = new EchoInfo();
+        echoInfo.setMessage("hello");
+
+        RpcDataPackage dataPackage = new RpcDataPackage();
+        dataPackage.magicCode(ProtocolConstant.MAGIC_CODE).serviceName("deadlineService").methodName("echo");
+        dataPackage.data(CODEC.encode(echoInfo));
+        if (timeout > 0) {
+            dataPackage.timeout(timeout);
+        }
+        return dataPackage;
+    }
+
+    @Test
+    public void testDropExpiredRequest() throws Exception {
+        ExecutorService es = Executors.newSingleThreadExecutor();
+        final CountDownLatch latch = new CountDownLatch(1);
+        // keep the only worker busy
+        es.submit(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        RpcServiceHandler handler = new RpcServiceHandler(rpcServiceRegistry);
+        handler.setEs(es);
+        TaskAdmissionController controller = new TaskAdmissionController(0, 100);
+        handler.setTaskAdmissionController(controller);
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+        channel.writeInbound(getRequest(50));
+
+        Thread.sleep(200);
+        latch.countDown();
+        es.shutdown();
+        Assert.assertTrue(es.awaitTermination(5, TimeUnit.SECONDS));
+
+        // client gave up already, no reply is sent
+        Assert.assertNull(channel.readOutbound());
+        Assert.assertEquals(0, deadlineService.count.get());
+        Assert.assertEquals(1, controller.getExpiredCount());
+        Assert.assertEquals(0, controller.getRejectedCount());
+    }
+
+    @Test
+    public void testRemainingTime() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel(new RpcServiceHandler(rpcServiceRegistry));
+        channel.writeInbound(getRequest(5000));
+
+        RpcDataPackage response = (RpcDataPackage) channel.readOutbound();
+        Assert.assertEquals(ErrorCodes.ST_SUCCESS, response.getRpcMeta().getResponse().getErrorCode().intValue());
+        Assert.assertEquals(1, deadlineService.count.get());
+        Assert.assertTrue(deadlineService.remainingTime.get() > 0);
+        Assert.assertTrue(deadlineService.remainingTime.get() <= 5000);
+        Assert.assertEquals(-1, DeadlineThreadLocalHolder.getRemainingTime());
+    }
+
+    @Test
+    public void testRejectWhenQueueFull() throws Exception {
+        ThreadPoolExecutor es = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(1));
+        final CountDownLatch latch = new CountDownLatch(1);
+        // keep the only worker busy
+        es.submit(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        RpcServiceHandler handler = new RpcServiceHandler(rpcServiceRegistry);
+        handler.setEs(es);
+        TaskAdmissionController controller = new TaskAdmissionController(0, 100);
+        handler.setTaskAdmissionController(controller);
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+        channel.writeInbound(getRequest(0));
+        channel.writeInbound(getRequest(0));
+
+        // answered at once
+        RpcDataPackage response = (RpcDataPackage) channel.readOutbound();
+        Assert.assertEquals(ErrorCodes.ST_SERVER_BUSY, response.getRpcMeta().getResponse().getErrorCode().intValue());
+        Assert.assertEquals(1, controller.getRejectedCount());
+
+        latch.countDown();
+        es.shutdown();
+        Assert.assertTrue(es.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, deadlineService.count.get());
+    }
+
+    @Test
+    public void testRecoverFromOverload() throws Exception {
+        ExecutorService es = Executors.newSingleThreadExecutor();
+        final CountDownLatch latch = new CountDownLatch(1);
+        // keep the only worker busy
+        es.submit(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        RpcServiceHandler handler = new RpcServiceHandler(rpcServiceRegistry);
+        handler.setEs(es);
+        TaskAdmissionController controller = new TaskAdmissionController(10, 50);
+        handler.setTaskAdmissionController(controller);
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+
+        // first request waits above target, second one still waits after a whole interval
+        channel.writeInbound(getRequest(0));
+        es.submit(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        channel.writeInbound(getRequest(0));
+        Thread.sleep(20);
+        latch.countDown();
+        waitIdle(es);
+
+        RpcDataPackage response = (RpcDataPackage) channel.readOutbound();
+        Assert.assertEquals(ErrorCodes.ST_SUCCESS, response.getRpcMeta().getResponse().getErrorCode().intValue());
+        response = (RpcDataPackage) channel.readOutbound();
+        Assert.assertEquals(ErrorCodes.ST_SERVER_BUSY, response.getRpcMeta().getResponse().getErrorCode().intValue());
+        Assert.assertTrue(controller.isOverloaded());
+
+        // rejected at once under overload
+        channel.writeInbound(getRequest(0));
+        response = (RpcDataPackage) channel.readOutbound();
+        Assert.assertEquals(ErrorCodes.ST_SERVER_BUSY, response.getRpcMeta().getResponse().getErrorCode().intValue());
+        Assert.assertEquals(2, controller.getRejectedCount());
+
+        // queue is empty now, probe request after interval clears overload
+        Thread.sleep(60);
+        channel.writeInbound(getRequest(0));
+        waitIdle(es);
+        response = (RpcDataPackage) channel.readOutbound();
+        Assert.assertEquals(ErrorCodes.ST_SUCCESS, response.getRpcMeta().getResponse().getErrorCode().intValue());
+        Assert.assertFalse(controller.isOverloaded());
+
+        channel.writeInbound(getRequest(0));
+        waitIdle(es);
+        response = (RpcDataPackage) channel.readOutbound();
+        Assert.assertEquals(ErrorCodes.ST_SUCCESS, response.getRpcMeta().getResponse().getErrorCode().intValue());
+        Assert.assertEquals(3, deadlineService.count.get());
+        Assert.assertEquals(2, controller.getRejectedCount());
+
+        es.shutdown();
+    }
+
+    private void waitIdle(ExecutorService es) throws Exception {
+        // single worker, so all tasks submitted before are done
+        es.submit(new Runnable() {
+
+            @Override
+            public void run() {
+            }
+        }).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testDispatchToExecutorPool() throws Exception {
+        ExecutorPool executorPool = new ExecutorPool("slow", 1, 10, 0, 100);
+        rpcServiceRegistry.registerExecutorPool(executorPool);
+        rpcServiceRegistry.assignExecutorPool("deadlineService", null, "slow");
+        Assert.assertSame(executorPool, rpcServiceRegistry.lookupExecutorPool("deadlineService", "echo"));
+        Assert.assertNull(rpcServiceRegistry.lookupExecutorPool("otherService", "echo"));
+
+        // dispatched to the assigned pool even without shared task threads
+        EmbeddedChannel channel = new EmbeddedChannel(new RpcServiceHandler(rpcServiceRegistry));
+        channel.writeInbound(getRequest(0));
+
+        executorPool.shutdown();
+        Assert.assertTrue(executorPool.getExecutor().awaitTermination(5, TimeUnit.SECONDS));
+
+        RpcDataPackage response = (RpcDataPackage) channel.readOutbound();
+        Assert.assertEquals(ErrorCodes.ST_SUCCESS, response.getRpcMeta().getResponse().getErrorCode().intValue());
+        Assert.assertNotSame(Thread.currentThread(), deadlineService.thread);
+        Assert.assertEquals(1, executorPool.getCompletedCount());
+    }
+
+    @Test
+    public void testInlineExecution() throws Exception {
+        ExecutorService es = Executors.newSingleThreadExecutor();
+        ExecutorPool executorPool = new ExecutorPool("slow", 1, 10, 0, 100);
+        rpcServiceRegistry.registerExecutorPool(executorPool);
+        rpcServiceRegistry.assignExecutorPool("deadlineService", null, "slow");
+        rpcServiceRegistry.assignInlineExecution("deadlineService", "echo");
+        Assert.assertTrue(rpcServiceRegistry.isInlineExecution("deadlineService", "echo"));
+        Assert.assertFalse(rpcServiceRegistry.isInlineExecution("deadlineService", "other"));
+
+        RpcServiceHandler handler = new RpcServiceHandler(rpcServiceRegistry);
+        handler.setEs(es);
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+        channel.writeInbound(getRequest(0));
+
+        // executed at once on current thread, neither shared task threads nor assigned pool is used
+        RpcDataPackage response = (RpcDataPackage) channel.readOutbound();
+        Assert.assertEquals(ErrorCodes.ST_SUCCESS, response.getRpcMeta().getResponse().getErrorCode().intValue());
+        Assert.assertSame(Thread.currentThread(), deadlineService.thread);
+        Assert.assertEquals(0, executorPool.getCompletedCount());
+
+        executorPool.shutdown();
+        es.shutdown();
+    }
+
+    @Test
+    public void testRejectOverConcurrencyLimit() throws Exception {
+        ExecutorService es = Executors.newSingleThreadExecutor();
+        final CountDownLatch latch = new CountDownLatch(1);
+        // keep the only worker busy
+        es.submit(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        ConcurrencyLimiterRegistry limiterRegistry = new ConcurrencyLimiterRegistry(1, 1, true);
+        RpcServiceHandler handler = new RpcServiceHandler(rpcServiceRegistry);
+        handler.setEs(es);
+        handler.setConcurrencyLimiterRegistry(limiterRegistry);
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+        channel.writeInbound(getRequest(0));
+        channel.writeInbound(getRequest(0));
+
+        RpcDataPackage response = (RpcDataPackage) channel.readOutbound();
+        Assert.assertEquals(ErrorCodes.ST_SERVER_BUSY, response.getRpcMeta().getResponse().getErrorCode().intValue());
+        Assert.assertEquals(1, limiterRegistry.getServerLimiter().getInflight());
+
+        latch.countDown();
+        es.shutdown();
+        Assert.assertTrue(es.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, limiterRegistry.getServerLimiter().getInflight());
+        Assert.assertEquals(0, limiterRegistry.getMethodLimiter("deadlineService!echo").getInflight());
+    }
+
+    @Test
+    public void testMethodIdDispatch() throws Exception {
+        RpcDataPackage request = getRequest(0);
+        request.serviceName("").methodName("");
+        request.getRpcMeta().getRequest().setMethodId(0);
+        Assert.assertSame(rpcServiceRegistry.lookupService("deadlineService", "echo"),
+                rpcServiceRegistry.lookupService(0));
+
+        EmbeddedChannel channel = new EmbeddedChannel(new RpcServiceHandler(rpcServiceRegistry));
+        channel.writeInbound(request);
+
+        RpcDataPackage response = (RpcDataPackage) channel.readOutbound();
+        Assert.assertEquals(ErrorCodes.ST_SUCCESS, response.getRpcMeta().getResponse().getErrorCode().intValue());
+        Assert.assertEquals(1, deadlineService.count.get());
+    }
+
+    @Test
+    public void testUnknownMethodId() throws Exception {
+        RpcDataPackage request = getRequest(0);
+        request.serviceName("").methodName("");
+        request.getRpcMeta().getRequest().setMethodId(100);
+
+        EmbeddedChannel channel = new EmbeddedChannel(new RpcServiceHandler(rpcServiceRegistry));
+        channel.writeInbound(request);
+
+        RpcDataPackage response = (RpcDataPackage) channel.readOutbound();
+        Assert.assertEquals(ErrorCodes.ST_SERVICE_NOTFOUND,
+                response.getRpcMeta().getResponse().getErrorCode().intValue());
+        Assert.assertEquals(0, deadlineService.count.get());
+    }
+
+    @Test
+    public void testSlimResponseMeta() throws Exception {
+        RpcDataPackage request = getRequest(5000);
+        request.correlationId(7L).logId(9L).authenticationData(new byte[] { 1 });
+
+        RpcServiceHandler handler = new RpcServiceHandler(rpcServiceRegistry);
+        handler.setSlimResponseMeta(true);
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+        channel.writeInbound(request);
+
+        RpcDataPackage response = (RpcDataPackage) channel.readOutbound();
+        RpcMeta rpcMeta = response.getRpcMeta();
+        Assert.assertEquals(ErrorCodes.ST_SUCCESS, rpcMeta.getResponse().getErrorCode().intValue());
+        Assert.assertEquals(Long.valueOf(7L), rpcMeta.getCorrelationId());
+        Assert.assertNull(rpcMeta.getRequest());
+        Assert.assertNull(rpcMeta.getAuthenticationData());
+        Assert.assertNotNull(response.getData());
+        // timeout is still applied though request meta is removed
+        Assert.assertTrue(deadlineService.remainingTime.get() > 0);
+    }
+
+    @Test
+    public void testHandshakeOfConnection() throws Exception {
+        rpcServiceRegistry.doRegisterMetaService();
+        RpcServiceHandler handler = new RpcServiceHandler(rpcServiceRegistry);
+        handler.getProtocolFeatures().setMaxFrameSize(4096);
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+
+        RpcHandshake offer = new RpcHandshake();
+        offer.setSlimResponseMeta(true);
+        offer.setMaxFrameSize(8192);
+        RpcDataPackage handshake = new RpcDataPackage();
+        handshake.magicCode(ProtocolConstant.MAGIC_CODE).serviceName(RpcServiceMetaServiceProvider.RPC_META_SERVICENAME)
+                .methodName(RpcServiceMetaServiceProvider.RPC_HANDSHAKE_METHODNAME);
+        handshake.data(ProtobufProxy.create(RpcHandshake.class).encode(offer));
+        channel.writeInbound(handshake);
+
+        RpcDataPackage response = (RpcDataPackage) channel.readOutbound();
+        Assert.assertEquals(ErrorCodes.ST_SUCCESS, response.getRpcMeta().getResponse().getErrorCode().intValue());
+        ProtocolFeatures features = handler.getProtocolFeatures();
+        Assert.assertTrue(features.isHandshaked());
+        Assert.assertTrue(features.isSlimResponseMeta());
+        Assert.assertEquals(4096, features.getMaxFrameSize());
+
+        channel.writeInbound(getRequest(0));
+        response = (RpcDataPackage) channel.readOutbound();
+        Assert.assertEquals(ErrorCodes.ST_SUCCESS, response.getRpcMeta().getResponse().getErrorCode().intValue());
+        Assert.assertNull(response.getRpcMeta().getRequest());
+
+        // another connection is not affected
+        channel = new EmbeddedChannel(new RpcServiceHandler(rpcServiceRegistry));
+        channel.writeInbound(getRequest(0));
+        response = (RpcDataPackage) channel.readOutbound();
+        Assert.assertNotNull(response.getRpcMeta().getRequest());
+    }
+
+    @Test
+    public void testSlimBusyResponseOfHandshakedConnection() throws Exception {
+        ExecutorService es = Executors.newSingleThreadExecutor();
+        // rejects all tasks
+        es.shutdown();
+
+        RpcServiceHandler handler = new RpcServiceHandler(rpcServiceRegistry);
+        handler.setEs(es);
+        RpcHandshake answer = new RpcHandshake();
+        answer.setSlimResponseMeta(true);
+        handler.getProtocolFeatures().apply(answer);
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+        channel.writeInbound(getRequest(0));
+
+        RpcDataPackage response = (RpcDataPackage) channel.readOutbound();
+        Assert.assertEquals(ErrorCodes.ST_SERVER_BUSY, response.getRpcMeta().getResponse().getErrorCode().intValue());
+        Assert.assertNull(response.getRpcMeta().getRequest());
+    }
+}